@@ -22,17 +22,12 @@ import static org.ehrbase.openehr.sdk.client.openehrclient.defaultrestclient.Def
 import com.nedap.archie.rm.composition.Composition;
 import com.nedap.archie.rm.support.identification.ObjectId;
 import com.nedap.archie.rm.support.identification.ObjectVersionId;
-import java.beans.IntrospectionException;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Optional;
 import java.util.UUID;
-import org.apache.commons.lang3.reflect.FieldUtils;
 import org.ehrbase.openehr.sdk.client.openehrclient.CompositionEndpoint;
-import org.ehrbase.openehr.sdk.generator.commons.annotations.Id;
+import org.ehrbase.openehr.sdk.serialisation.dto.DtoMetadata;
 import org.ehrbase.openehr.sdk.serialisation.dto.GeneratedDtoToRmConverter;
 import org.ehrbase.openehr.sdk.serialisation.dto.RmToGeneratedDtoConverter;
 import org.ehrbase.openehr.sdk.util.exception.ClientException;
@@ -49,19 +44,7 @@ public class DefaultRestCompositionEndpoint implements CompositionEndpoint {
     }
 
     static Optional<ObjectVersionId> extractVersionUid(Object entity) {
-        return Arrays.stream(FieldUtils.getAllFields(entity.getClass()))
-                .filter(f -> f.isAnnotationPresent(Id.class))
-                .findAny()
-                .map(idField -> {
-                    try {
-                        PropertyDescriptor propertyDescriptor =
-                                new PropertyDescriptor(idField.getName(), entity.getClass());
-                        return (ObjectVersionId)
-                                propertyDescriptor.getReadMethod().invoke(entity);
-                    } catch (IllegalAccessException | InvocationTargetException | IntrospectionException e) {
-                        throw new ClientException(e.getMessage(), e);
-                    }
-                });
+        return DtoMetadata.of(entity.getClass()).getIdAccessor().map(a -> (ObjectVersionId) a.get(entity));
     }
 
     @Override
@@ -17,8 +17,11 @@
  */
 package org.ehrbase.openehr.sdk.client.templateprovider;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import org.ehrbase.openehr.sdk.client.openehrclient.defaultrestclient.DefaultRestClient;
+import org.ehrbase.openehr.sdk.response.dto.ehrscape.TemplateMetaDataDto;
 import org.ehrbase.openehr.sdk.webtemplate.templateprovider.TemplateProvider;
 import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
 
@@ -34,4 +37,11 @@ public class ClientTemplateProvider implements TemplateProvider {
     public Optional<OPERATIONALTEMPLATE> find(String templateId) {
         return restClient.templateEndpoint().findTemplate(templateId);
     }
+
+    @Override
+    public Optional<Collection<String>> findAllTemplateIds() {
+        return Optional.of(restClient.templateEndpoint().findAllTemplates().get().stream()
+                .map(TemplateMetaDataDto::getTemplateId)
+                .collect(Collectors.toList()));
+    }
 }
@@ -184,6 +184,8 @@ public class ClassGenerator {
             WebTemplateNode pointEvent = eventHelper.getPointEvent();
             WebTemplateNode intervalEvent = eventHelper.getIntervalEvent();
 
+            // the filtered tree might be frozen and shared
+            next = new WebTemplateNode(next);
             next.getChildren().add(intervalEvent);
             next.getChildren().add(pointEvent);
             next.getChildren().remove(event);
@@ -46,6 +46,15 @@ public class ClassGeneratorFilter extends Filter {
         this.config = config;
     }
 
+    @Override
+    protected Object cacheKey() {
+        return List.of(
+                ClassGeneratorFilter.class,
+                config.getOptimizerSetting(),
+                config.isAddNullFlavor(),
+                config.isGenerateChoicesForSingleEvent());
+    }
+
     @Override
     protected boolean skip(WebTemplateNode node, WebTemplate context, Deque<WebTemplateNode> deque) {
         WebTemplateNode parent = deque.peek();
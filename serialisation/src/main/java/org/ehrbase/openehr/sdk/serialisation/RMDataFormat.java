@@ -19,13 +19,57 @@ package org.ehrbase.openehr.sdk.serialisation;
 
 import com.nedap.archie.rm.RMObject;
 import com.nedap.archie.rm.composition.Composition;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 
+/**
+ * A serialisation format for RM objects.
+ * <p>
+ * Besides the {@link String} based methods, the format can be written to and read from streams directly. Byte streams
+ * are always UTF-8 encoded. The streams passed in are neither closed by marshalling nor by unmarshalling.
+ */
 public interface RMDataFormat {
 
     String marshal(RMObject rmObject);
 
+    /**
+     * Marshal the object as UTF-8 to <code>out</code>.
+     *
+     * @param rmObject
+     * @param out
+     */
+    void marshal(RMObject rmObject, OutputStream out);
+
+    /**
+     * Marshal the object to <code>writer</code>.
+     *
+     * @param rmObject
+     * @param writer
+     */
+    void marshal(RMObject rmObject, Writer writer);
+
     <T extends RMObject> T unmarshal(String value, Class<T> clazz);
 
+    /**
+     * Unmarshal an object of type <code>clazz</code> from the UTF-8 encoded <code>in</code>.
+     *
+     * @param in
+     * @param clazz
+     * @return
+     */
+    <T extends RMObject> T unmarshal(InputStream in, Class<T> clazz);
+
+    /**
+     * Unmarshal an object of type <code>clazz</code> from <code>reader</code>.
+     *
+     * @param reader
+     * @param clazz
+     * @return
+     */
+    <T extends RMObject> T unmarshal(Reader reader, Class<T> clazz);
+
     default Composition unmarshal(String value) {
 
         return unmarshal(value, Composition.class);
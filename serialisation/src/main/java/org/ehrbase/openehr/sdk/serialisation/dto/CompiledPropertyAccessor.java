@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.serialisation.dto;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import org.ehrbase.openehr.sdk.util.exception.ClientException;
+
+/**
+ * {@link PropertyAccessor} backed by lambdas compiled from the getter and setter
+ */
+final class CompiledPropertyAccessor implements PropertyAccessor {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final String name;
+    private final Function<Object, Object> getter;
+    private final BiConsumer<Object, Object> setter;
+
+    private CompiledPropertyAccessor(String name, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+        this.name = name;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    static PropertyAccessor compile(PropertyDescriptor property) {
+        return new CompiledPropertyAccessor(
+                property.getName(), compileGetter(property.getReadMethod()), compileSetter(property.getWriteMethod()));
+    }
+
+    @Override
+    public Object get(Object bean) {
+        if (getter == null) {
+            throw new ClientException(String.format("Property %s is not readable", name));
+        }
+        try {
+            return getter.apply(bean);
+        } catch (ClientException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public void set(Object bean, Object value) {
+        if (setter == null) {
+            throw new ClientException(String.format("Property %s is not writable", name));
+        }
+        try {
+            setter.accept(bean, value);
+        } catch (ClassCastException e) {
+            throw new ClientException(String.format("Can not set property %s to %s", name, value), e);
+        } catch (ClientException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw wrap(e);
+        }
+    }
+
+    /**
+     * Wraps an exception of the getter or setter the same way {@link Method#invoke(Object, Object...)} would
+     */
+    private static ClientException wrap(Throwable t) {
+        return new ClientException(t.getMessage(), new InvocationTargetException(t));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> compileGetter(Method method) {
+        if (method == null) {
+            return null;
+        }
+        MethodHandle handle = unreflect(method);
+        try {
+            CallSite site = LambdaMetafactory.metafactory(
+                    lookup(method),
+                    "apply",
+                    MethodType.methodType(Function.class),
+                    GETTER_TYPE,
+                    handle,
+                    handle.type().wrap());
+            return (Function<Object, Object>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            MethodHandle generic = handle.asType(GETTER_TYPE);
+            return bean -> {
+                try {
+                    return generic.invokeExact(bean);
+                } catch (RuntimeException | Error t) {
+                    throw t;
+                } catch (Throwable t) {
+                    throw wrap(t);
+                }
+            };
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> compileSetter(Method method) {
+        if (method == null) {
+            return null;
+        }
+        MethodHandle handle = unreflect(method);
+        try {
+            CallSite site = LambdaMetafactory.metafactory(
+                    lookup(method),
+                    "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    SETTER_TYPE,
+                    handle,
+                    handle.type().wrap().changeReturnType(void.class));
+            return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            MethodHandle generic = handle.asType(SETTER_TYPE);
+            return (bean, value) -> {
+                try {
+                    generic.invokeExact(bean, value);
+                } catch (RuntimeException | Error t) {
+                    throw t;
+                } catch (Throwable t) {
+                    throw wrap(t);
+                }
+            };
+        }
+    }
+
+    private static MethodHandles.Lookup lookup(Method method) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            return MethodHandles.publicLookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new ClientException(e.getMessage(), e);
+        }
+    }
+}
@@ -21,9 +21,6 @@ import com.google.common.reflect.TypeToken;
 import com.nedap.archie.rm.RMObject;
 import com.nedap.archie.rm.datatypes.CodePhrase;
 import com.nedap.archie.rm.support.identification.ObjectId;
-import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.ParameterizedType;
@@ -34,22 +31,19 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
 import java.util.stream.Collectors;
-import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.text.CaseUtils;
 import org.ehrbase.openehr.sdk.aql.webtemplatepath.AqlPath;
 import org.ehrbase.openehr.sdk.generator.commons.annotations.Entity;
-import org.ehrbase.openehr.sdk.generator.commons.annotations.OptionFor;
-import org.ehrbase.openehr.sdk.generator.commons.annotations.Path;
 import org.ehrbase.openehr.sdk.generator.commons.interfaces.EnumValueSet;
 import org.ehrbase.openehr.sdk.serialisation.walker.Context;
 import org.ehrbase.openehr.sdk.serialisation.walker.FromCompositionWalker;
 import org.ehrbase.openehr.sdk.serialisation.walker.RmPrimitive;
+import org.ehrbase.openehr.sdk.serialisation.walker.WalkPlan;
+import org.ehrbase.openehr.sdk.serialisation.walker.defaultvalues.DefaultValues;
 import org.ehrbase.openehr.sdk.util.exception.ClientException;
 import org.ehrbase.openehr.sdk.util.exception.SdkException;
-import org.ehrbase.openehr.sdk.util.reflection.ReflectionHelper;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,21 +65,21 @@ public class DtoFromCompositionWalker extends FromCompositionWalker<DtoWithMatch
         }
     }
 
-    private List<Class<?>> dtoClassList;
+    private DtoMetadata rootMetadata;
 
     @Override
-    public void walk(
-            RMObject composition, DtoWithMatchingFields object, WebTemplateNode webTemplate, String templateId) {
-        dtoClassList = ReflectionHelper.findAll(
-                ReflectionHelper.findRootClass(object.getDto().getClass()).getPackageName());
-        super.walk(composition, object, webTemplate, templateId);
+    protected void walk(
+            RMObject composition,
+            DtoWithMatchingFields object,
+            WalkPlan plan,
+            DefaultValues defaultValues,
+            String templateId) {
+        rootMetadata = DtoMetadata.of(object.getDto().getClass());
+        super.walk(composition, object, plan, defaultValues, templateId);
     }
 
     static Map<AqlPath, Field> buildFieldByPathMap(Class<?> clazz) {
-        return Arrays.stream(FieldUtils.getAllFields(clazz))
-                .filter(f -> f.isAnnotationPresent(Path.class))
-                .collect(Collectors.toMap(
-                        f -> AqlPath.parse(f.getAnnotation(Path.class).value()), Function.identity()));
+        return DtoMetadata.of(clazz).getFieldByPath();
     }
 
     @Override
@@ -144,64 +138,48 @@ public class DtoFromCompositionWalker extends FromCompositionWalker<DtoWithMatch
 
     private void writeField(Field field, Object dto, Object value) {
 
-        try {
-            PropertyDescriptor propertyDescriptor = new PropertyDescriptor(field.getName(), dto.getClass());
-            Object dtoList = value;
-            if (EnumValueSet.class.isAssignableFrom(field.getType())
-                    && value != null
-                    && CodePhrase.class.isAssignableFrom(value.getClass())) {
-                CodePhrase codePhrase = (CodePhrase) value;
-                EnumValueSet enumValueSet = Arrays.stream(field.getType().getEnumConstants())
-                        .map(EnumValueSet.class::cast)
-                        .filter(v -> {
-                            String terminologyId = Optional.ofNullable(codePhrase.getTerminologyId())
-                                    .map(ObjectId::getValue)
-                                    .orElse(null);
-                            return v.getTerminologyId().equals(terminologyId);
-                        })
-                        .filter(v -> v.getCode().equals(codePhrase.getCodeString()))
-                        .findAny()
-                        .orElse(null);
-                dtoList = enumValueSet;
-            }
-            if (dtoList instanceof RmPrimitive) {
-                dtoList = ((RmPrimitive<?>) dtoList).getValue();
-            }
-            if (List.class.isAssignableFrom(field.getType())) {
-                dtoList = propertyDescriptor.getReadMethod().invoke(dto);
-                if (dtoList == null) {
-                    dtoList = new ArrayList<>();
-                }
-                ((List) dtoList).add(value);
+        PropertyAccessor accessor = DtoMetadata.of(dto.getClass()).getAccessor(field.getName());
+        Object dtoList = value;
+        if (EnumValueSet.class.isAssignableFrom(field.getType())
+                && value != null
+                && CodePhrase.class.isAssignableFrom(value.getClass())) {
+            CodePhrase codePhrase = (CodePhrase) value;
+            EnumValueSet enumValueSet = Arrays.stream(field.getType().getEnumConstants())
+                    .map(EnumValueSet.class::cast)
+                    .filter(v -> {
+                        String terminologyId = Optional.ofNullable(codePhrase.getTerminologyId())
+                                .map(ObjectId::getValue)
+                                .orElse(null);
+                        return v.getTerminologyId().equals(terminologyId);
+                    })
+                    .filter(v -> v.getCode().equals(codePhrase.getCodeString()))
+                    .findAny()
+                    .orElse(null);
+            dtoList = enumValueSet;
+        }
+        if (dtoList instanceof RmPrimitive) {
+            dtoList = ((RmPrimitive<?>) dtoList).getValue();
+        }
+        if (List.class.isAssignableFrom(field.getType())) {
+            dtoList = accessor.get(dto);
+            if (dtoList == null) {
+                dtoList = new ArrayList<>();
             }
-            propertyDescriptor.getWriteMethod().invoke(dto, dtoList);
-        } catch (IllegalAccessException
-                | InvocationTargetException
-                | IntrospectionException
-                | IllegalArgumentException e) {
-            throw new ClientException(e.getMessage(), e);
+            ((List) dtoList).add(value);
         }
+        accessor.set(dto, dtoList);
     }
 
     private Object extractAttribute(Object dto, String attributeName) {
-        try {
-            for (PropertyDescriptor p : Introspector.getBeanInfo(dto.getClass()).getPropertyDescriptors()) {
-                if (p.getName().equals(attributeName)) {
-                    return p.getReadMethod().invoke(dto);
-                }
-            }
-            throw new ClientException("Unknown property %s for type %s".formatted(attributeName, dto.getClass()));
-        } catch (IllegalAccessException | InvocationTargetException | IntrospectionException e) {
-            throw new ClientException(e.getMessage(), e);
-        }
+        return DtoMetadata.of(dto.getClass())
+                .findBeanAccessor(attributeName)
+                .orElseThrow(() ->
+                        new ClientException("Unknown property %s for type %s".formatted(attributeName, dto.getClass())))
+                .get(dto);
     }
 
     private Optional<Class<?>> findActual(Class<?> actualTypeArgument, String simpleName) {
-        Optional<Class<?>> aClass = dtoClassList.stream()
-                .filter(actualTypeArgument::isAssignableFrom)
-                .filter(c -> c.isAnnotationPresent(OptionFor.class))
-                .filter(c -> c.getAnnotation(OptionFor.class).value().equals(simpleName))
-                .findAny();
+        Optional<Class<?>> aClass = rootMetadata.findOptionFor(actualTypeArgument, simpleName);
         if (aClass.isEmpty() && !actualTypeArgument.isInterface()) {
             return Optional.of(actualTypeArgument);
         }
@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.serialisation.dto;
+
+import io.github.classgraph.ClassGraph;
+import io.github.classgraph.ScanResult;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.ehrbase.openehr.sdk.aql.webtemplatepath.AqlPath;
+import org.ehrbase.openehr.sdk.generator.commons.annotations.Archetype;
+import org.ehrbase.openehr.sdk.generator.commons.annotations.Id;
+import org.ehrbase.openehr.sdk.generator.commons.annotations.OptionFor;
+import org.ehrbase.openehr.sdk.generator.commons.annotations.Path;
+import org.ehrbase.openehr.sdk.generator.commons.annotations.Template;
+import org.ehrbase.openehr.sdk.util.exception.ClientException;
+import org.ehrbase.openehr.sdk.util.exception.SdkException;
+import org.ehrbase.openehr.sdk.util.reflection.ReflectionHelper;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
+
+/**
+ * Reflection data of a dto class, usually generated by the ehrbase class generator.
+ * <p>
+ * The metadata is collected once per class and shared between threads. The classpath of a generated template package
+ * is scanned at most once per class loader, on first access to {@link #getTemplateId()} or
+ * {@link #findOptionFor(Class, String)}.
+ */
+public final class DtoMetadata {
+
+    private static final ClassValue<DtoMetadata> BY_CLASS = new ClassValue<>() {
+        @Override
+        protected DtoMetadata computeValue(Class<?> type) {
+            return new DtoMetadata(type);
+        }
+    };
+
+    // the scan results only hold class names, so they do not keep the class loaders reachable
+    private static final Map<ClassLoader, Map<String, TemplatePackage>> BY_PACKAGE =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static volatile Function<PropertyDescriptor, PropertyAccessor> accessorFactory = PropertyAccessor::of;
+
+    private final Class<?> type;
+    private final String templatePackageName;
+    private final String archetype;
+    private final Map<AqlPath, Field> fieldByPath;
+    private final Field idField;
+    private final Map<String, PropertyAccessor> accessors = new ConcurrentHashMap<>();
+    private final Map<String, PropertyAccessor> beanAccessors = new ConcurrentHashMap<>();
+    private volatile Map<String, PropertyDescriptor> beanProperties;
+    private volatile List<Class<?>> options;
+
+    private DtoMetadata(Class<?> type) {
+        this.type = type;
+        this.templatePackageName =
+                StringUtils.removeEnd(ReflectionHelper.findRootClass(type).getPackageName(), ".definition");
+        this.archetype = Optional.ofNullable(type.getAnnotation(Archetype.class))
+                .map(Archetype::value)
+                .orElse(null);
+
+        Field[] fields = FieldUtils.getAllFields(type);
+        this.fieldByPath = Collections.unmodifiableMap(Arrays.stream(fields)
+                .filter(f -> f.isAnnotationPresent(Path.class))
+                .collect(Collectors.toMap(
+                        f -> AqlPath.parse(f.getAnnotation(Path.class).value()), Function.identity())));
+        this.idField = Arrays.stream(fields)
+                .filter(f -> f.isAnnotationPresent(Id.class))
+                .findAny()
+                .orElse(null);
+    }
+
+    /**
+     * @param type
+     * @return the metadata of <code>type</code>
+     */
+    public static DtoMetadata of(Class<?> type) {
+        return BY_CLASS.get(type);
+    }
+
+    /**
+     * Replaces the factory of the {@link PropertyAccessor}s handed out by {@link #getAccessor(String)} and
+     * {@link #findBeanAccessor(String)}, e.g. by one using binders generated together with the dto classes. Accessors
+     * are cached once created, so the factory has to be set before the first conversion.
+     *
+     * @param factory creates the accessor of a property, {@link PropertyAccessor#of(PropertyDescriptor)} by default
+     */
+    public static void setAccessorFactory(Function<PropertyDescriptor, PropertyAccessor> factory) {
+        accessorFactory = Objects.requireNonNull(factory);
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return the value of the {@link Archetype} annotation or <code>null</code>
+     */
+    public String getArchetype() {
+        return archetype;
+    }
+
+    /**
+     * @return the fields annotated with {@link Path} by their path. The map must not be modified.
+     */
+    public Map<AqlPath, Field> getFieldByPath() {
+        return fieldByPath;
+    }
+
+    /**
+     * @return the field annotated with {@link Id}
+     */
+    public Optional<Field> getIdField() {
+        return Optional.ofNullable(idField);
+    }
+
+    /**
+     * @return the accessor of the property annotated with {@link Id}
+     */
+    public Optional<PropertyAccessor> getIdAccessor() {
+        return getIdField().map(f -> getAccessor(f.getName()));
+    }
+
+    /**
+     * @return the package of the generated template, the package of the root class without <code>.definition</code>
+     */
+    public String getTemplatePackageName() {
+        return templatePackageName;
+    }
+
+    /**
+     * @return the id of the template the class has been generated for
+     * @throws SdkException if the package of the class does not contain a class annotated with {@link Template}
+     */
+    public String getTemplateId() {
+        return templateId(templatePackage());
+    }
+
+    /**
+     * Like {@link #getTemplateId()}, but the template package is scanned by <code>classGraph</code> instead of the
+     * shared default scan. The result is not cached.
+     *
+     * @param classGraph accepting at least the {@link #getTemplatePackageName()}
+     * @return
+     */
+    public String getTemplateId(ClassGraph classGraph) {
+        return templateId(TemplatePackage.scan(classGraph));
+    }
+
+    private String templateId(TemplatePackage templatePackage) {
+        return templatePackage.templateId.orElseThrow(() ->
+                new SdkException(String.format("Can not find Template annotation in package %s", templatePackageName)));
+    }
+
+    /**
+     * Returns a frozen copy of the node of <code>webTemplate</code> matching the {@link Archetype} of the class. The
+     * copy is made once per web template instance until {@link WebTemplate#resetIndex()}, so that walks of it can
+     * reuse their plan.
+     *
+     * @param webTemplate
+     * @return
+     */
+    public WebTemplateNode findArchetypeNode(WebTemplate webTemplate) {
+        return webTemplate.computeIfAbsent(List.of(DtoMetadata.class, archetype), t -> new WebTemplateNode(
+                        WebTemplateNode.streamSubtree(t.getTree(), false)
+                                .filter(n -> Objects.equals(n.getNodeId(), archetype))
+                                .findFirst()
+                                .orElseThrow())
+                .frozen());
+    }
+
+    /**
+     * Finds the class of the template package implementing <code>type</code> annotated with
+     * {@link OptionFor}<code>(rmType)</code>.
+     *
+     * @param type
+     * @param rmType
+     * @return
+     */
+    public Optional<Class<?>> findOptionFor(Class<?> type, String rmType) {
+        return options().stream()
+                .filter(type::isAssignableFrom)
+                .filter(c -> c.getAnnotation(OptionFor.class).value().equals(rmType))
+                .findAny();
+    }
+
+    /**
+     * @param name
+     * @return the accessor of the read and write property <code>name</code> as defined by
+     *     {@link PropertyDescriptor#PropertyDescriptor(String, Class)}
+     * @throws ClientException if the class has no such property
+     */
+    public PropertyAccessor getAccessor(String name) {
+        PropertyAccessor accessor = accessors.get(name);
+        if (accessor == null) {
+            try {
+                accessor = accessorFactory.apply(new PropertyDescriptor(name, type));
+            } catch (IntrospectionException e) {
+                throw new ClientException(e.getMessage(), e);
+            }
+            accessors.putIfAbsent(name, accessor);
+        }
+        return accessor;
+    }
+
+    /**
+     * @param name
+     * @return the accessor of the bean property <code>name</code>, as found by
+     *     {@link Introspector#getBeanInfo(Class)}
+     */
+    public Optional<PropertyAccessor> findBeanAccessor(String name) {
+        Map<String, PropertyDescriptor> map = beanProperties;
+        if (map == null) {
+            try {
+                map = Arrays.stream(Introspector.getBeanInfo(type).getPropertyDescriptors())
+                        .collect(Collectors.toUnmodifiableMap(PropertyDescriptor::getName, Function.identity()));
+            } catch (IntrospectionException e) {
+                throw new ClientException(e.getMessage(), e);
+            }
+            beanProperties = map;
+        }
+        PropertyDescriptor property = map.get(name);
+        if (property == null) {
+            return Optional.empty();
+        }
+        return Optional.of(beanAccessors.computeIfAbsent(name, n -> accessorFactory.apply(property)));
+    }
+
+    private TemplatePackage templatePackage() {
+        Map<String, TemplatePackage> byPackage =
+                BY_PACKAGE.computeIfAbsent(type.getClassLoader(), l -> new ConcurrentHashMap<>());
+        return byPackage.computeIfAbsent(templatePackageName, p -> TemplatePackage.scan(p, type.getClassLoader()));
+    }
+
+    private List<Class<?>> options() {
+        List<Class<?>> list = options;
+        if (list == null) {
+            list = templatePackage().optionNames.stream().map(this::loadClass).collect(Collectors.toUnmodifiableList());
+            options = list;
+        }
+        return list;
+    }
+
+    private Class<?> loadClass(String name) {
+        try {
+            return Class.forName(name, false, type.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new SdkException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The classes of a generated template package and its definition package
+     */
+    private static final class TemplatePackage {
+
+        private final Optional<String> templateId;
+        private final List<String> optionNames;
+
+        private TemplatePackage(Optional<String> templateId, List<String> optionNames) {
+            this.templateId = templateId;
+            this.optionNames = optionNames;
+        }
+
+        private static TemplatePackage scan(String packageName, ClassLoader classLoader) {
+            return scan(new ClassGraph()
+                    .overrideClassLoaders(classLoader)
+                    .enableClassInfo()
+                    .enableAnnotationInfo()
+                    .acceptPackages(packageName));
+        }
+
+        private static TemplatePackage scan(ClassGraph classGraph) {
+            try (ScanResult result = classGraph.scan()) {
+                Optional<String> templateId =
+                        result.getClassesWithAnnotation(Template.class.getName()).loadClasses().stream()
+                                .findFirst()
+                                .map(c -> c.getAnnotation(Template.class).value());
+                List<String> optionNames = List.copyOf(result.getClassesWithAnnotation(OptionFor.class.getName())
+                        .getNames());
+                return new TemplatePackage(templateId, optionNames);
+            }
+        }
+    }
+}
@@ -25,28 +25,22 @@ import com.nedap.archie.rm.datavalues.DvCodedText;
 import com.nedap.archie.rm.support.identification.TerminologyId;
 import com.nedap.archie.rminfo.ArchieRMInfoLookup;
 import com.nedap.archie.rminfo.RMAttributeInfo;
-import java.beans.IntrospectionException;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.ehrbase.openehr.sdk.aql.webtemplatepath.AqlPath;
 import org.ehrbase.openehr.sdk.generator.commons.annotations.Entity;
 import org.ehrbase.openehr.sdk.generator.commons.annotations.OptionFor;
-import org.ehrbase.openehr.sdk.generator.commons.annotations.Path;
 import org.ehrbase.openehr.sdk.generator.commons.interfaces.EnumValueSet;
 import org.ehrbase.openehr.sdk.serialisation.walker.Context;
 import org.ehrbase.openehr.sdk.serialisation.walker.ToCompositionWalker;
-import org.ehrbase.openehr.sdk.util.exception.ClientException;
 import org.ehrbase.openehr.sdk.util.rmconstants.RmConstants;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
 import org.slf4j.Logger;
@@ -207,21 +201,15 @@ public class DtoToCompositionWalker extends ToCompositionWalker<Map<AqlPath, Obj
     }
 
     static Map<AqlPath, Object> findEntity(Object dto) {
-
-        return Arrays.stream(FieldUtils.getAllFields(dto.getClass()))
-                .filter(m -> m.isAnnotationPresent(Path.class))
-                .filter(m -> readField(m, dto) != null)
-                .collect(Collectors.toMap(
-                        m -> AqlPath.parse(m.getAnnotation(Path.class).value()), m -> readField(m, dto)));
-    }
-
-    private static Object readField(Field field, Object dto) {
-        try {
-            PropertyDescriptor propertyDescriptor = new PropertyDescriptor(field.getName(), dto.getClass());
-            return propertyDescriptor.getReadMethod().invoke(dto);
-        } catch (InvocationTargetException | IllegalAccessException | IntrospectionException e) {
-            throw new ClientException(e.getMessage(), e);
-        }
+        DtoMetadata metadata = DtoMetadata.of(dto.getClass());
+        Map<AqlPath, Object> values = new HashMap<>();
+        metadata.getFieldByPath().forEach((path, field) -> {
+            Object value = metadata.getAccessor(field.getName()).get(dto);
+            if (value != null) {
+                values.put(path, value);
+            }
+        });
+        return values;
     }
 
     private void handleSingleValue(Object value, String childName, Object child, Object parent) {
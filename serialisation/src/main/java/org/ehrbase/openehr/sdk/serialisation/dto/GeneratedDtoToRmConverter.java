@@ -20,15 +20,9 @@ package org.ehrbase.openehr.sdk.serialisation.dto;
 import com.nedap.archie.rm.RMObject;
 import com.nedap.archie.rm.composition.Composition;
 import com.nedap.archie.rm.support.identification.ObjectVersionId;
-import java.beans.IntrospectionException;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.InvocationTargetException;
-import java.util.Arrays;
 import java.util.Optional;
-import org.ehrbase.openehr.sdk.generator.commons.annotations.Id;
 import org.ehrbase.openehr.sdk.generator.commons.annotations.Template;
 import org.ehrbase.openehr.sdk.serialisation.walker.defaultvalues.DefaultValues;
-import org.ehrbase.openehr.sdk.util.exception.ClientException;
 import org.ehrbase.openehr.sdk.util.exception.SdkException;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
 import org.ehrbase.openehr.sdk.webtemplate.templateprovider.TemplateProvider;
@@ -85,18 +79,6 @@ public class GeneratedDtoToRmConverter {
      * @return
      */
     static Optional<ObjectVersionId> extractVersionUid(Object dto) {
-        return Arrays.stream(dto.getClass().getDeclaredFields())
-                .filter(f -> f.isAnnotationPresent(Id.class))
-                .findAny()
-                .map(idField -> {
-                    try {
-                        PropertyDescriptor propertyDescriptor =
-                                new PropertyDescriptor(idField.getName(), dto.getClass());
-                        return (ObjectVersionId)
-                                propertyDescriptor.getReadMethod().invoke(dto);
-                    } catch (IllegalAccessException | InvocationTargetException | IntrospectionException e) {
-                        throw new ClientException(e.getMessage(), e);
-                    }
-                });
+        return DtoMetadata.of(dto.getClass()).getIdAccessor().map(a -> (ObjectVersionId) a.get(dto));
     }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.serialisation.dto;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import org.ehrbase.openehr.sdk.util.exception.ClientException;
+
+/**
+ * Reads and writes a bean property.
+ * <p>
+ * {@link #of(PropertyDescriptor)} compiles the getter and setter into lambdas via {@link LambdaMetafactory}, so an
+ * access costs about the same as a direct call. If the methods can not be bound that way, e.g. because of a class
+ * loader boundary, plain {@link MethodHandle}s are used. Exceptions thrown by the getter or setter are wrapped into a
+ * {@link ClientException}.
+ * <p>
+ * Other implementations are plugged in by {@link DtoMetadata#setAccessorFactory(java.util.function.Function)}.
+ */
+public interface PropertyAccessor {
+
+    /**
+     * @param bean
+     * @return the value of the property
+     * @throws ClientException if the property is not readable
+     */
+    Object get(Object bean);
+
+    /**
+     * @param bean
+     * @param value
+     * @throws ClientException if the property is not writable or <code>value</code> has the wrong type
+     */
+    void set(Object bean, Object value);
+
+    /**
+     * @param property
+     * @return an accessor for <code>property</code>
+     */
+    static PropertyAccessor of(PropertyDescriptor property) {
+        return CompiledPropertyAccessor.compile(property);
+    }
+}
@@ -21,33 +21,25 @@ import com.nedap.archie.rm.RMObject;
 import com.nedap.archie.rm.composition.Composition;
 import com.nedap.archie.rm.support.identification.ObjectVersionId;
 import io.github.classgraph.ClassGraph;
-import io.github.classgraph.ScanResult;
-import java.beans.IntrospectionException;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.util.Arrays;
-import java.util.Objects;
-import java.util.Optional;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.reflect.FieldUtils;
-import org.ehrbase.openehr.sdk.generator.commons.annotations.Archetype;
-import org.ehrbase.openehr.sdk.generator.commons.annotations.Id;
-import org.ehrbase.openehr.sdk.generator.commons.annotations.Template;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.ehrbase.openehr.sdk.util.exception.ClientException;
 import org.ehrbase.openehr.sdk.util.exception.SdkException;
-import org.ehrbase.openehr.sdk.util.reflection.ReflectionHelper;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
 import org.ehrbase.openehr.sdk.webtemplate.templateprovider.TemplateProvider;
 
 public class RmToGeneratedDtoConverter {
 
-    private ScanResult classGraph;
-
     private final TemplateProvider templateProvider;
 
+    // template ids by package, only used if createClassGraph is overridden
+    private final Map<String, String> templateIds = new ConcurrentHashMap<>();
+    private final boolean customClassGraph;
+
     public RmToGeneratedDtoConverter(TemplateProvider templateProvider) {
         this.templateProvider = templateProvider;
+        this.customClassGraph = overridesCreateClassGraph(getClass());
     }
 
     private static <T> T createInstance(Class<T> aClass) {
@@ -62,67 +54,57 @@ public class RmToGeneratedDtoConverter {
     }
 
     public <T> T toGeneratedDto(RMObject locatable, Class<T> clazz) {
-        try {
-
-            T dto = createInstance(clazz);
-            Class<?> rootC = ReflectionHelper.findRootClass(clazz);
-            String packageNames = StringUtils.removeEnd(rootC.getPackageName(), ".definition");
-            classGraph = createClassGraph(packageNames).scan();
 
-            String templateId = classGraph
-                    .getClassesWithAnnotation(Template.class.getName())
-                    .loadClasses()
-                    .get(0)
-                    .getAnnotation(Template.class)
-                    .value();
+        T dto = createInstance(clazz);
+        DtoMetadata metadata = DtoMetadata.of(clazz);
+        String templateId = findTemplateId(metadata);
 
-            String archetypeValue = clazz.getAnnotation(Archetype.class).value();
-            WebTemplateNode root = WebTemplateNode.streamSubtree(
-                            templateProvider
-                                    .buildIntrospect(templateId)
-                                    .orElseThrow(() ->
-                                            new SdkException(String.format("Can not find Template: %s", templateId)))
-                                    .getTree(),
-                            false)
-                    .filter(n -> Objects.equals(n.getNodeId(), archetypeValue))
-                    .findFirst()
-                    .orElseThrow();
-            new DtoFromCompositionWalker()
-                    .walk(
-                            locatable,
-                            new DtoWithMatchingFields(
-                                    dto, DtoFromCompositionWalker.buildFieldByPathMap(dto.getClass())),
-                            root,
-                            templateId);
-            if (locatable instanceof Composition && ((Composition) locatable).getUid() != null) {
-                addVersion(
-                        dto,
-                        new ObjectVersionId(((Composition) locatable).getUid().toString()));
-            }
-            return dto;
-        } finally {
-            if (classGraph != null) {
-                classGraph.close();
-            }
+        WebTemplateNode root = metadata.findArchetypeNode(templateProvider
+                .buildIntrospect(templateId)
+                .orElseThrow(() -> new SdkException(String.format("Can not find Template: %s", templateId))));
+        new DtoFromCompositionWalker()
+                .walk(locatable, new DtoWithMatchingFields(dto, metadata.getFieldByPath()), root, templateId);
+        if (locatable instanceof Composition && ((Composition) locatable).getUid() != null) {
+            addVersion(
+                    dto, new ObjectVersionId(((Composition) locatable).getUid().toString()));
         }
+        return dto;
     }
 
+    /**
+     * Creates the {@link ClassGraph} scanning the template package for the {@link
+     * org.ehrbase.openehr.sdk.generator.commons.annotations.Template} annotation. Unless this method is overridden the
+     * scan of {@link DtoMetadata#getTemplateId()} is used, which is shared by all converters. The scan of an overridden
+     * method is done once per package and converter.
+     *
+     * @param packageNames
+     * @return
+     */
     protected ClassGraph createClassGraph(String packageNames) {
         return new ClassGraph().enableClassInfo().enableAnnotationInfo().acceptPackages(packageNames);
     }
 
-    public static <T> void addVersion(T entity, ObjectVersionId versionUid) {
-        Optional<Field> idField = Arrays.stream(FieldUtils.getAllFields(entity.getClass()))
-                .filter(f -> f.isAnnotationPresent(Id.class))
-                .findAny();
-        if (idField.isPresent()) {
+    private String findTemplateId(DtoMetadata metadata) {
+        if (!customClassGraph) {
+            return metadata.getTemplateId();
+        }
+        return templateIds.computeIfAbsent(
+                metadata.getTemplatePackageName(), p -> metadata.getTemplateId(createClassGraph(p)));
+    }
+
+    private static boolean overridesCreateClassGraph(Class<?> type) {
+        for (Class<?> c = type; c != RmToGeneratedDtoConverter.class; c = c.getSuperclass()) {
             try {
-                PropertyDescriptor propertyDescriptor =
-                        new PropertyDescriptor(idField.get().getName(), entity.getClass());
-                propertyDescriptor.getWriteMethod().invoke(entity, versionUid);
-            } catch (IllegalAccessException | InvocationTargetException | IntrospectionException e) {
-                throw new ClientException(e.getMessage(), e);
+                c.getDeclaredMethod("createClassGraph", String.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // not declared by this class
             }
         }
+        return false;
+    }
+
+    public static <T> void addVersion(T entity, ObjectVersionId versionUid) {
+        DtoMetadata.of(entity.getClass()).getIdAccessor().ifPresent(a -> a.set(entity, versionUid));
     }
 }
@@ -18,7 +18,14 @@
 package org.ehrbase.openehr.sdk.serialisation.flatencoding;
 
 import org.ehrbase.openehr.sdk.serialisation.RMDataFormat;
+import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal.config.StdConfig;
+import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal.postprocessor.MarshalPostprocessor;
+import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.umarshal.postprocessor.UnmarshalPostprocessor;
+import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.umarshal.rmunmarshaller.RMUnmarshaller;
+import org.ehrbase.openehr.sdk.serialisation.walker.defaultvalues.defaultinserter.DefaultValueInserter;
 import org.ehrbase.openehr.sdk.util.exception.SdkException;
+import org.ehrbase.openehr.sdk.util.reflection.ReflectionHelper;
+import org.ehrbase.openehr.sdk.webtemplate.parser.config.RmIntrospectConfig;
 import org.ehrbase.openehr.sdk.webtemplate.templateprovider.TemplateProvider;
 
 /**
@@ -32,6 +39,20 @@ public class FlatJasonProvider {
         this.templateProvider = templateProvider;
     }
 
+    /**
+     * Builds the registries of the marshallers, unmarshallers and default value inserters used by the flat formats
+     * in advance, e.g. from a readiness probe, so that the first request does not have to wait for them.
+     */
+    public static void warmUp() {
+        ReflectionHelper.warmUp(
+                RmIntrospectConfig.class,
+                StdConfig.class,
+                MarshalPostprocessor.class,
+                RMUnmarshaller.class,
+                UnmarshalPostprocessor.class,
+                DefaultValueInserter.class);
+    }
+
     /**
      * Builds a {@link FlatJson} for the template with {@code templateId} and {@link FlatFormat}
      * {@code format}
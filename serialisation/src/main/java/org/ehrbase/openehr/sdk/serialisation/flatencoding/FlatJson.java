@@ -19,6 +19,10 @@ package org.ehrbase.openehr.sdk.serialisation.flatencoding;
 
 import com.nedap.archie.rm.RMObject;
 import com.nedap.archie.rm.composition.Composition;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 import org.ehrbase.openehr.sdk.serialisation.RMDataFormat;
 import org.ehrbase.openehr.sdk.serialisation.exception.MarshalException;
 import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal.FlatJsonMarshaller;
@@ -51,10 +55,44 @@ public class FlatJson implements RMDataFormat {
     }
 
     @Override
-    public <T extends RMObject> T unmarshal(String value, Class<T> clazz) {
-        if (clazz.isAssignableFrom(Composition.class)) {
-            return (T) unmarshal(value);
+    public void marshal(RMObject rmObject, OutputStream out) {
+        flatJsonMarshaller.toFlatJson(asComposition(rmObject), templateIntrospect, out);
+    }
+
+    @Override
+    public void marshal(RMObject rmObject, Writer writer) {
+        flatJsonMarshaller.toFlatJson(asComposition(rmObject), templateIntrospect, writer);
+    }
+
+    private static Composition asComposition(RMObject rmObject) {
+        if (rmObject instanceof Composition) {
+            return (Composition) rmObject;
         } else {
+            throw new MarshalException(String.format(
+                    "Class %s not supported in flat format", rmObject.getClass().getSimpleName()));
+        }
+    }
+
+    @Override
+    public <T extends RMObject> T unmarshal(String value, Class<T> clazz) {
+        checkUnmarshalClass(clazz);
+        return (T) unmarshal(value);
+    }
+
+    @Override
+    public <T extends RMObject> T unmarshal(InputStream in, Class<T> clazz) {
+        checkUnmarshalClass(clazz);
+        return (T) new FlatJsonUnmarshaller().unmarshal(in, templateIntrospect);
+    }
+
+    @Override
+    public <T extends RMObject> T unmarshal(Reader reader, Class<T> clazz) {
+        checkUnmarshalClass(clazz);
+        return (T) new FlatJsonUnmarshaller().unmarshal(reader, templateIntrospect);
+    }
+
+    private static void checkUnmarshalClass(Class<?> clazz) {
+        if (!clazz.isAssignableFrom(Composition.class)) {
             throw new SdkException(String.format("Class %s not supported in flat format", clazz.getSimpleName()));
         }
     }
@@ -17,20 +17,36 @@
  */
 package org.ehrbase.openehr.sdk.serialisation.flatencoding;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.nedap.archie.rm.RMObject;
 import com.nedap.archie.rm.composition.Composition;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 import org.ehrbase.openehr.sdk.serialisation.RMDataFormat;
 import org.ehrbase.openehr.sdk.serialisation.exception.MarshalException;
-import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal.FlatJsonMarshaller;
+import org.ehrbase.openehr.sdk.serialisation.exception.UnmarshalException;
+import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal.StructuredJsonMarshaller;
 import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.umarshal.FlatJsonUnmarshaller;
 import org.ehrbase.openehr.sdk.serialisation.flatencoding.structured.StructuredHelper;
+import org.ehrbase.openehr.sdk.serialisation.jsonencoding.ArchieObjectMapperProvider;
 import org.ehrbase.openehr.sdk.util.exception.SdkException;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
 
 public class StructuredJson implements RMDataFormat {
 
+    private static final ObjectMapper OBJECT_MAPPER = ArchieObjectMapperProvider.getObjectMapper();
+    private static final ObjectReader TREE_READER =
+            OBJECT_MAPPER.reader().without(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
     private final WebTemplate templateIntrospect;
-    private final FlatJsonMarshaller flatJsonMarshaller;
+    private final StructuredJsonMarshaller structuredJsonMarshaller;
 
     StructuredJson(FlatJasonProvider flatJasonProvider, String templateId) {
 
@@ -38,14 +54,27 @@ public class StructuredJson implements RMDataFormat {
                 .getTemplateProvider()
                 .buildIntrospect(templateId)
                 .orElseThrow(() -> new SdkException(String.format("Template %s not found", templateId)));
-        flatJsonMarshaller = new FlatJsonMarshaller();
+        structuredJsonMarshaller = new StructuredJsonMarshaller();
     }
 
     @Override
     public String marshal(RMObject rmObject) {
+        return structuredJsonMarshaller.toStructuredJson(asComposition(rmObject), templateIntrospect);
+    }
+
+    @Override
+    public void marshal(RMObject rmObject, OutputStream out) {
+        structuredJsonMarshaller.toStructuredJson(asComposition(rmObject), templateIntrospect, out);
+    }
+
+    @Override
+    public void marshal(RMObject rmObject, Writer writer) {
+        structuredJsonMarshaller.toStructuredJson(asComposition(rmObject), templateIntrospect, writer);
+    }
+
+    private static Composition asComposition(RMObject rmObject) {
         if (rmObject instanceof Composition) {
-            String flatJson = flatJsonMarshaller.toFlatJson((Composition) rmObject, templateIntrospect);
-            return StructuredHelper.convertFlatToStructured(flatJson);
+            return (Composition) rmObject;
         } else {
             throw new MarshalException(String.format(
                     "Class %s not supported in Structured format",
@@ -55,17 +84,48 @@ public class StructuredJson implements RMDataFormat {
 
     @Override
     public <T extends RMObject> T unmarshal(String value, Class<T> clazz) {
-        if (clazz.isAssignableFrom(Composition.class)) {
-            return (T) unmarshal(value);
-        } else {
+        checkUnmarshalClass(clazz);
+        return (T) unmarshal(value);
+    }
+
+    @Override
+    public <T extends RMObject> T unmarshal(InputStream in, Class<T> clazz) {
+        checkUnmarshalClass(clazz);
+        try {
+            return (T) unmarshal(TREE_READER.readTree(in));
+        } catch (IOException e) {
+            throw new UnmarshalException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public <T extends RMObject> T unmarshal(Reader reader, Class<T> clazz) {
+        checkUnmarshalClass(clazz);
+        try {
+            return (T) unmarshal(TREE_READER.readTree(reader));
+        } catch (IOException e) {
+            throw new UnmarshalException(e.getMessage(), e);
+        }
+    }
+
+    private static void checkUnmarshalClass(Class<?> clazz) {
+        if (!clazz.isAssignableFrom(Composition.class)) {
             throw new SdkException(String.format("Class %s not supported in Structured format", clazz.getSimpleName()));
         }
     }
 
     @Override
     public Composition unmarshal(String value) {
+        try {
+            return unmarshal(OBJECT_MAPPER.readTree(value));
+        } catch (JsonProcessingException e) {
+            throw new UnmarshalException(e.getMessage(), e);
+        }
+    }
+
+    private Composition unmarshal(JsonNode structured) {
 
         return new FlatJsonUnmarshaller()
-                .unmarshal(StructuredHelper.convertStructuredToFlat(value), templateIntrospect);
+                .unmarshal(StructuredHelper.convertStructuredToFlat(structured), templateIntrospect);
     }
 }
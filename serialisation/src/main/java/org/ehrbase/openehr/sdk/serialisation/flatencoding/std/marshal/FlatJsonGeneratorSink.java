@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.ehrbase.openehr.sdk.serialisation.exception.MarshalException;
+
+/**
+ * Write-only {@link Map} used as target of the {@link StdFromCompositionWalker}, which writes every entry as a field
+ * of the current JSON object of a {@link JsonGenerator} instead of keeping it.
+ * <p>
+ * Entries with a <code>null</code> value are skipped, the same way the Archie object mapper skips them when
+ * serialising a map. A written field can not be replaced, thus only the keys are kept: {@link #put(String, Object)}
+ * rejects a key which has already been written and {@link #putIfAbsent(String, Object)} skips it, in which case the
+ * result matches the map of {@link FlatJsonMarshaller#toFlatJson(com.nedap.archie.rm.composition.Composition,
+ * org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate)}. The values are not kept and the view itself is always
+ * empty.
+ */
+class FlatJsonGeneratorSink extends AbstractMap<String, Object> {
+
+    private final JsonGenerator generator;
+    private final Set<String> writtenKeys = new HashSet<>();
+
+    FlatJsonGeneratorSink(JsonGenerator generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * @throws MarshalException if <code>key</code> has already been written
+     */
+    @Override
+    public Object put(String key, Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (!writtenKeys.add(key)) {
+            throw new MarshalException(String.format("Flat path %s is written twice", key));
+        }
+        try {
+            generator.writeFieldName(key);
+            writeValue(generator, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return null;
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> m) {
+        m.forEach(this::put);
+    }
+
+    /**
+     * @return always <code>null</code>, as the written values are not kept
+     */
+    @Override
+    public Object putIfAbsent(String key, Object value) {
+        if (!writtenKeys.contains(key)) {
+            put(key, value);
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return writtenKeys.contains(key);
+    }
+
+    /**
+     * Writes a flat value, i.e. a simple value or a value serialisable by the codec of the generator
+     */
+    static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        // write the simple types directly, the object mapper would flush after every value
+        if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            generator.writeNumber(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            generator.writeNumber((Long) value);
+        } else if (value instanceof Double) {
+            generator.writeNumber((Double) value);
+        } else if (value instanceof Float) {
+            generator.writeNumber((Float) value);
+        } else if (value instanceof BigDecimal) {
+            generator.writeNumber((BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            generator.writeNumber((BigInteger) value);
+        } else {
+            generator.writeObject(value);
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return Collections.emptySet();
+    }
+}
@@ -17,9 +17,14 @@
  */
 package org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nedap.archie.rm.composition.Composition;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import org.ehrbase.openehr.sdk.serialisation.exception.MarshalException;
@@ -51,4 +56,63 @@ public class FlatJsonMarshaller {
             throw new MarshalException(e.getMessage(), e);
         }
     }
+
+    /**
+     * Marshal the composition to flat json, writing it to <code>out</code> as UTF-8 while walking the composition.
+     * The stream is flushed but not closed.
+     *
+     * @param composition
+     * @param webTemplate
+     * @param out
+     */
+    public void toFlatJson(Composition composition, WebTemplate webTemplate, OutputStream out) {
+        try (JsonGenerator generator = OBJECT_MAPPER.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            toFlatJson(composition, webTemplate, generator);
+        } catch (IOException e) {
+            throw new MarshalException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Marshal the composition to flat json, writing it to <code>writer</code> while walking the composition.
+     * The writer is flushed but not closed.
+     *
+     * @param composition
+     * @param webTemplate
+     * @param writer
+     */
+    public void toFlatJson(Composition composition, WebTemplate webTemplate, Writer writer) {
+        try (JsonGenerator generator = OBJECT_MAPPER.createGenerator(writer)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            toFlatJson(composition, webTemplate, generator);
+        } catch (IOException e) {
+            throw new MarshalException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Marshal the composition to flat json, writing it as a JSON object to <code>generator</code> while walking the
+     * composition. No intermediate map of the flat values is built.
+     * <p>
+     * The generator is neither flushed nor closed.
+     *
+     * @param composition
+     * @param webTemplate
+     * @param generator
+     */
+    public void toFlatJson(Composition composition, WebTemplate webTemplate, JsonGenerator generator) {
+
+        String templateId = webTemplate.getTemplateId();
+        try {
+            generator.writeStartObject();
+            new StdFromCompositionWalker()
+                    .walk(composition, new FlatJsonGeneratorSink(generator), webTemplate, null, templateId);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new MarshalException(e.getMessage(), e);
+        } catch (UncheckedIOException e) {
+            throw new MarshalException(e.getCause().getMessage(), e.getCause());
+        }
+    }
 }
@@ -18,12 +18,16 @@
 package org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal;
 
 import com.nedap.archie.rm.RMObject;
+import com.nedap.archie.rm.composition.Entry;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal.config.DefaultStdConfig;
 import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal.config.StdConfig;
+import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal.postprocessor.EntryMarshalPostprocessor;
 import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal.postprocessor.MarshalPostprocessor;
 import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.umarshal.StdToCompositionWalker;
 import org.ehrbase.openehr.sdk.serialisation.walker.Context;
@@ -58,11 +62,29 @@ public class StdFromCompositionWalker extends FromCompositionWalker<Map<String,
 
             StdConfig stdConfig = findStdConfig(currentObject.getClass());
 
-            context.getObjectDeque()
-                    .peek()
-                    .putAll(stdConfig.buildChildValues(
-                            context.getFlatHelper().buildNamePath(context, true), currentObject, context));
+            String namePath = context.getFlatHelper().buildNamePath(context, true);
+            Map<String, Object> childValues = stdConfig.buildChildValues(namePath, currentObject, context);
+            if (isEntryEncoding(context)) {
+                // the values of the EntryMarshalPostprocessor, which only puts them if missing
+                childValues = new LinkedHashMap<>(childValues);
+                childValues.putAll(EntryMarshalPostprocessor.buildEncodingValues(namePath));
+            }
+            context.getObjectDeque().peek().putAll(childValues);
+        }
+    }
+
+    /**
+     * The encoding of an entry is always written with the values of the {@link EntryMarshalPostprocessor}, at the
+     * position of its node if the template has one, so every flat path is put only once.
+     */
+    private static boolean isEntryEncoding(Context<Map<String, Object>> context) {
+        if (!"encoding".equals(context.getNodeDeque().peek().getId())
+                || context.getRmObjectDeque().size() < 2) {
+            return false;
         }
+        Iterator<RMObject> rmObjects = context.getRmObjectDeque().iterator();
+        rmObjects.next();
+        return rmObjects.next() instanceof Entry;
     }
 
     public static <T extends RMObject> StdConfig<T> findStdConfig(Class<T> aClass) {
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nedap.archie.rm.composition.Composition;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import org.ehrbase.openehr.sdk.serialisation.exception.MarshalException;
+import org.ehrbase.openehr.sdk.serialisation.jsonencoding.ArchieObjectMapperProvider;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+
+/**
+ * Marshals compositions to structured json. The values are sorted into the structure while walking the composition,
+ * without creating the flat json first.
+ */
+public class StructuredJsonMarshaller {
+
+    private static final ObjectMapper OBJECT_MAPPER = ArchieObjectMapperProvider.getObjectMapper();
+
+    public StructuredJsonMarshaller() {}
+
+    /**
+     * Marshal the composition to structured json
+     *
+     * @param composition
+     * @param webTemplate
+     * @return
+     */
+    public String toStructuredJson(Composition composition, WebTemplate webTemplate) {
+        StringWriter writer = new StringWriter();
+        toStructuredJson(composition, webTemplate, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Marshal the composition to structured json, writing it to <code>out</code> as UTF-8. The stream is flushed but
+     * not closed.
+     *
+     * @param composition
+     * @param webTemplate
+     * @param out
+     */
+    public void toStructuredJson(Composition composition, WebTemplate webTemplate, OutputStream out) {
+        try (JsonGenerator generator = OBJECT_MAPPER.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            toStructuredJson(composition, webTemplate, generator);
+        } catch (IOException e) {
+            throw new MarshalException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Marshal the composition to structured json, writing it to <code>writer</code>. The writer is flushed but not
+     * closed.
+     *
+     * @param composition
+     * @param webTemplate
+     * @param writer
+     */
+    public void toStructuredJson(Composition composition, WebTemplate webTemplate, Writer writer) {
+        try (JsonGenerator generator = OBJECT_MAPPER.createGenerator(writer)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            toStructuredJson(composition, webTemplate, generator);
+        } catch (IOException e) {
+            throw new MarshalException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Marshal the composition to structured json, writing it as a JSON object to <code>generator</code>.
+     * <p>
+     * The generator is neither flushed nor closed.
+     *
+     * @param composition
+     * @param webTemplate
+     * @param generator
+     */
+    public void toStructuredJson(Composition composition, WebTemplate webTemplate, JsonGenerator generator) {
+
+        StructuredValueTree values = new StructuredValueTree();
+        String templateId = webTemplate.getTemplateId();
+        new StdFromCompositionWalker().walk(composition, values, webTemplate, null, templateId);
+
+        try {
+            values.write(generator);
+        } catch (IOException e) {
+            throw new MarshalException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.ehrbase.openehr.sdk.serialisation.flatencoding.structured.StructuredHelper;
+import org.ehrbase.openehr.sdk.webtemplate.path.flat.FlatPathDto;
+import org.ehrbase.openehr.sdk.webtemplate.path.flat.FlatPathParser;
+
+/**
+ * Write-only {@link Map} used as target of the {@link StdFromCompositionWalker}, which sorts every flat entry into the
+ * nested structure of the structured format.
+ * <p>
+ * The structure is the same {@link StructuredHelper#convertFlatToStructured(String)} builds from the flat JSON: the
+ * entries are grouped by name and count of their segments, in the order the groups are first seen. Like the flat map
+ * the last value put for a key wins, at the position the key was first put, and a <code>null</code> value removes the
+ * key. The view itself is always empty.
+ */
+class StructuredValueTree extends AbstractMap<String, Object> {
+
+    private final Node root = new Node();
+
+    @Override
+    public Object put(String key, Object value) {
+        Node node = root;
+        FlatPathDto segment = FlatPathParser.parse(key);
+        while (true) {
+            if (value == null) {
+                // the key is omitted, but the groups it was first put in keep their position
+                node = node.children.get(new GroupKey(segment));
+                if (node == null) {
+                    return null;
+                }
+            } else {
+                node = node.children.computeIfAbsent(new GroupKey(segment), k -> new Node());
+            }
+            if (segment.getChild() == null) {
+                String attribute = segment.getAttributeName() == null ? "" : "|" + segment.getAttributeName();
+                if (value == null) {
+                    node.attributes.remove(attribute);
+                } else {
+                    node.attributes.put(attribute, value);
+                }
+                return null;
+            }
+            segment = segment.getChild();
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> m) {
+        m.forEach(this::put);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Writes the structure as JSON object. The first top-level group is written as single value instead of a list.
+     *
+     * @param generator
+     * @throws IOException
+     */
+    void write(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        Iterator<Map.Entry<String, List<Node>>> it = root.byName().entrySet().iterator();
+        if (it.hasNext()) {
+            Map.Entry<String, List<Node>> first = it.next();
+            generator.writeFieldName(first.getKey());
+            writeNode(generator, first.getValue().get(0));
+        }
+        while (it.hasNext()) {
+            Map.Entry<String, List<Node>> e = it.next();
+            writeGroups(generator, e.getKey(), e.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeGroups(JsonGenerator generator, String name, List<Node> nodes) throws IOException {
+        generator.writeFieldName(name);
+        generator.writeStartArray();
+        for (Node node : nodes) {
+            writeNode(generator, node);
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeNode(JsonGenerator generator, Node node) throws IOException {
+        // singe valued Attributes have no name
+        Map<String, List<Node>> byName = node.byName();
+        if (byName.isEmpty() && node.attributes.size() == 1 && node.attributes.containsKey("")) {
+            FlatJsonGeneratorSink.writeValue(generator, node.attributes.get(""));
+            return;
+        }
+
+        generator.writeStartObject();
+        for (Map.Entry<String, List<Node>> e : byName.entrySet()) {
+            writeGroups(generator, e.getKey(), e.getValue());
+        }
+        if (node.attributes.containsKey("")) {
+            generator.writeFieldName("|value");
+            FlatJsonGeneratorSink.writeValue(generator, node.attributes.get(""));
+        }
+        for (Map.Entry<String, Object> e : node.attributes.entrySet()) {
+            if (!e.getKey().isEmpty()) {
+                generator.writeFieldName(e.getKey());
+                FlatJsonGeneratorSink.writeValue(generator, e.getValue());
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static final class Node {
+
+        private final Map<GroupKey, Node> children = new LinkedHashMap<>();
+
+        /**
+         * values of the entries ending at this node by <code>"|" + attribute</code>, or <code>""</code> for the value
+         * itself
+         */
+        private final Map<String, Object> attributes = new LinkedHashMap<>(2);
+
+        /**
+         * children grouped by name, without the children left empty by removed keys
+         */
+        private Map<String, List<Node>> byName() {
+            Map<String, List<Node>> byName = new LinkedHashMap<>();
+            children.forEach((k, v) -> {
+                if (!v.isEmpty()) {
+                    byName.computeIfAbsent(k.name, n -> new ArrayList<>()).add(v);
+                }
+            });
+            return byName;
+        }
+
+        private boolean isEmpty() {
+            return attributes.isEmpty() && children.values().stream().allMatch(Node::isEmpty);
+        }
+    }
+
+    /**
+     * Name and count of a segment. A missing count is kept apart from count <code>0</code>.
+     */
+    private static final class GroupKey {
+
+        private final String name;
+        private final Integer count;
+
+        private GroupKey(FlatPathDto segment) {
+            this.name = segment.getName();
+            this.count = segment.getCount();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            GroupKey that = (GroupKey) o;
+            return Objects.equals(name, that.name) && Objects.equals(count, that.count);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, count);
+        }
+    }
+}
@@ -17,8 +17,6 @@
  */
 package org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal.postprocessor;
 
-import static org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser.PATH_DIVIDER;
-
 import com.nedap.archie.rm.composition.CareEntry;
 import com.nedap.archie.rm.support.identification.GenericId;
 import com.nedap.archie.rm.support.identification.ObjectId;
@@ -29,13 +27,10 @@ import org.ehrbase.openehr.sdk.serialisation.walker.Context;
 
 public class CareEntryMarshalPostprocessor extends AbstractMarshalPostprocessor<CareEntry> {
 
-    /** {@inheritDoc} Adds the encoding information */
+    /** {@inheritDoc} Adds the guideline id, the encoding is added by the {@link EntryMarshalPostprocessor} */
     @Override
     public void process(
             String term, CareEntry rmObject, Map<String, Object> values, Context<Map<String, Object>> context) {
-        values.put(term + PATH_DIVIDER + "encoding|code", "UTF-8");
-        values.put(term + PATH_DIVIDER + "encoding|terminology", "IANA_character-sets");
-
         if (rmObject.getGuidelineId() != null) {
 
             addValue(
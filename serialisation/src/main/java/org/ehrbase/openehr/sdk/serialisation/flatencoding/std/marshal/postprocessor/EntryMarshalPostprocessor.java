@@ -23,6 +23,7 @@ import com.nedap.archie.rm.composition.Entry;
 import com.nedap.archie.rm.support.identification.GenericId;
 import com.nedap.archie.rm.support.identification.ObjectId;
 import com.nedap.archie.rm.support.identification.ObjectRef;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.IntStream;
@@ -30,11 +31,14 @@ import org.ehrbase.openehr.sdk.serialisation.walker.Context;
 
 public class EntryMarshalPostprocessor extends AbstractMarshalPostprocessor<Entry> {
 
-    /** {@inheritDoc} Adds the encoding information */
+    /**
+     * {@inheritDoc} Adds the encoding information, unless the {@link
+     * org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal.StdFromCompositionWalker} has already put it for
+     * the encoding node of the entry
+     */
     @Override
     public void process(String term, Entry rmObject, Map<String, Object> values, Context<Map<String, Object>> context) {
-        values.put(term + PATH_DIVIDER + "encoding|code", "UTF-8");
-        values.put(term + PATH_DIVIDER + "encoding|terminology", "IANA_character-sets");
+        buildEncodingValues(term + PATH_DIVIDER + "encoding").forEach(values::putIfAbsent);
 
         if (rmObject.getProvider() != null) {
 
@@ -99,6 +103,17 @@ public class EntryMarshalPostprocessor extends AbstractMarshalPostprocessor<Entr
         }
     }
 
+    /**
+     * @param encodingTerm the flat path of the encoding of an entry
+     * @return the encoding values written for every entry
+     */
+    public static Map<String, Object> buildEncodingValues(String encodingTerm) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put(encodingTerm + "|code", "UTF-8");
+        values.put(encodingTerm + "|terminology", "IANA_character-sets");
+        return values;
+    }
+
     /** {@inheritDoc} */
     @Override
     public Class<Entry> getAssociatedClass() {
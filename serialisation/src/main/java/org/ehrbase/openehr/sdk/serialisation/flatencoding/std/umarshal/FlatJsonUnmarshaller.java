@@ -17,10 +17,15 @@
  */
 package org.ehrbase.openehr.sdk.serialisation.flatencoding.std.umarshal;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.nedap.archie.rm.composition.Composition;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.time.DateTimeException;
 import java.time.OffsetDateTime;
 import java.util.Collections;
@@ -45,6 +50,8 @@ import org.ehrbase.openehr.sdk.webtemplate.webtemplateskeletonbuilder.WebTemplat
 public class FlatJsonUnmarshaller {
 
     private static final ObjectMapper OBJECT_MAPPER = ArchieObjectMapperProvider.getObjectMapper();
+    private static final ObjectReader TREE_READER =
+            OBJECT_MAPPER.reader().without(JsonParser.Feature.AUTO_CLOSE_SOURCE);
 
     /**
      * Unmarshal flat Json to Composition
@@ -54,6 +61,51 @@ public class FlatJsonUnmarshaller {
      * @return
      */
     public Composition unmarshal(String flat, WebTemplate introspect) {
+        try {
+            return unmarshal(OBJECT_MAPPER.readTree(flat), introspect);
+        } catch (JsonProcessingException e) {
+            throw new UnmarshalException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Unmarshal flat Json read from the UTF-8 encoded <code>in</code> to Composition. The stream is not closed.
+     *
+     * @param in the flat Json
+     * @param introspect the introspect belonging to the template
+     * @return
+     */
+    public Composition unmarshal(InputStream in, WebTemplate introspect) {
+        try {
+            return unmarshal(TREE_READER.readTree(in), introspect);
+        } catch (IOException e) {
+            throw new UnmarshalException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Unmarshal flat Json read from <code>reader</code> to Composition. The reader is not closed.
+     *
+     * @param reader the flat Json
+     * @param introspect the introspect belonging to the template
+     * @return
+     */
+    public Composition unmarshal(Reader reader, WebTemplate introspect) {
+        try {
+            return unmarshal(TREE_READER.readTree(reader), introspect);
+        } catch (IOException e) {
+            throw new UnmarshalException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Unmarshal flat Json to Composition
+     *
+     * @param flat the flat Json object
+     * @param introspect the introspect belonging to the template
+     * @return
+     */
+    public Composition unmarshal(JsonNode flat, WebTemplate introspect) {
 
         Set<String> consumedPath;
 
@@ -64,9 +116,7 @@ public class FlatJsonUnmarshaller {
 
             currentValues = new HashMap<>();
 
-            for (Iterator<Map.Entry<String, JsonNode>> it =
-                            OBJECT_MAPPER.readTree(flat).fields();
-                    it.hasNext(); ) {
+            for (Iterator<Map.Entry<String, JsonNode>> it = flat.fields(); it.hasNext(); ) {
                 Map.Entry<String, JsonNode> e = it.next();
                 currentValues.put(e.getKey(), e.getValue().toString());
             }
@@ -104,8 +154,6 @@ public class FlatJsonUnmarshaller {
             }
 
             return generate;
-        } catch (JsonProcessingException e) {
-            throw new UnmarshalException(e.getMessage(), e);
         } catch (IllegalArgumentException e) {
             if (e.getCause() instanceof DateTimeException) {
                 throw new UnmarshalException(e.getMessage(), e);
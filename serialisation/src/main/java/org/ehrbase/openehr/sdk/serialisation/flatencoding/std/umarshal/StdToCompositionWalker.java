@@ -45,7 +45,6 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -69,6 +68,7 @@ import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateInput;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
 import org.ehrbase.openehr.sdk.webtemplate.path.flat.FlatPathDto;
+import org.ehrbase.openehr.sdk.webtemplate.path.flat.FlatPathIndex;
 import org.ehrbase.openehr.sdk.webtemplate.util.WebTemplateUtils;
 import org.ehrbase.openehr.sdk.webtemplate.webtemplateskeletonbuilder.WebTemplateSkeletonBuilder;
 
@@ -79,8 +79,22 @@ public class StdToCompositionWalker extends ToCompositionWalker<Map<FlatPathDto,
     private static final Map<Class<?>, UnmarshalPostprocessor> POSTPROCESSOR_MAP =
             ReflectionHelper.buildMap(UnmarshalPostprocessor.class);
 
+    private final boolean indexed;
+
     private Set<String> consumedPaths;
 
+    public StdToCompositionWalker() {
+        this(true);
+    }
+
+    /**
+     * @param indexed if the flat values are wrapped in a {@link FlatPathIndex} before walking. Without the index every
+     *                lookup scans all values.
+     */
+    StdToCompositionWalker(boolean indexed) {
+        this.indexed = indexed;
+    }
+
     @Override
     public void walk(
             Composition composition,
@@ -95,7 +109,7 @@ public class StdToCompositionWalker extends ToCompositionWalker<Map<FlatPathDto,
                     new FlatPathDto(webTemplate.getTree().getId() + "/composer|_type"),
                     StringUtils.wrap(PARTY_SELF, '"'));
         }
-        super.walk(composition, object, webTemplate, defaultValues, templateId);
+        super.walk(composition, indexed ? FlatPathIndex.of(object) : object, webTemplate, defaultValues, templateId);
     }
 
     @Override
@@ -118,9 +132,8 @@ public class StdToCompositionWalker extends ToCompositionWalker<Map<FlatPathDto,
             context.getCountMap().put(new NodeId(child), oldCount);
         }
 
-        Map<FlatPathDto, String> subValues = context.getObjectDeque().peek().entrySet().stream()
-                .filter(e -> e.getKey().startsWith(path))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        Map<FlatPathDto, String> subValues =
+                FlatPathIndex.startingWith(context.getObjectDeque().peek(), path);
 
         if (isChoice && !isMatchingNode(subValues, context, child, new FlatPathDto(path))) {
             subValues = Collections.emptyMap();
@@ -193,16 +206,16 @@ public class StdToCompositionWalker extends ToCompositionWalker<Map<FlatPathDto,
         } else if (child.getRmType().equals(PARTY_RELATED)) {
             return FlatHelper.isExactlyPartyRelated(subValues, currentFlatPath.format(), child);
         } else if (visitChildren(child)) {
+            // matching if every value belongs to one of the children
+            Set<FlatPathDto> childValues = new HashSet<>();
             for (WebTemplateNode n : child.getChildren()) {
                 context.getNodeDeque().push(n);
                 String path = context.getFlatHelper().buildNamePath(context, true);
                 context.getNodeDeque().remove();
-                subValues = subValues.entrySet().stream()
-                        .filter(e -> !e.getKey().startsWith(path))
-                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+                childValues.addAll(FlatPathIndex.startingWith(subValues, path).keySet());
             }
 
-            return subValues.isEmpty();
+            return childValues.size() == subValues.size();
         } else if (child.getRmType().equals(DV_CODED_TEXT)) {
             return FlatHelper.isExactlyDvCodedText(subValues, currentFlatPath.format());
         } else if (child.getRmType().equals(DV_TEXT)) {
@@ -324,9 +337,8 @@ public class StdToCompositionWalker extends ToCompositionWalker<Map<FlatPathDto,
                 context.getRmObjectDeque().push(new RMObject() {});
 
                 String path = context.getFlatHelper().buildNamePath(context, true);
-                Map<FlatPathDto, String> subValues = context.getObjectDeque().peek().entrySet().stream()
-                        .filter(e -> e.getKey().startsWith(path + "/_" + childNode.getId()))
-                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+                Map<FlatPathDto, String> subValues =
+                        FlatPathIndex.startingWith(context.getObjectDeque().peek(), path + "/_" + childNode.getId());
 
                 context.getObjectDeque().push(subValues);
                 if (isRaw(context)) {
@@ -410,16 +422,22 @@ public class StdToCompositionWalker extends ToCompositionWalker<Map<FlatPathDto,
         Integer oldCount = context.getCountMap().get(new NodeId(childNode));
         String namePath = context.getFlatHelper().buildNamePath(context, true);
 
-        String finalNamePath = namePath;
-        Integer count = context.getObjectDeque().peek().keySet().stream()
-                .filter(s -> s.startsWith(finalNamePath))
-                .map(s -> FlatPathDto.removeStart(s, new FlatPathDto(finalNamePath)))
-                .filter(n -> n != null && n.getName().equals(childNode.getId()))
-                .map(n -> Optional.ofNullable(n.getCount()).orElse(0))
-                .sorted()
-                .reduce((first, second) -> second)
-                .map(i -> i + 1)
-                .orElse(0);
+        Map<FlatPathDto, String> values = context.getObjectDeque().peek();
+        int count;
+        if (values instanceof FlatPathIndex) {
+            count = ((FlatPathIndex<String>) values).nextCount(new FlatPathDto(namePath), childNode.getId());
+        } else {
+            FlatPathDto namePathDto = new FlatPathDto(namePath);
+            count = values.keySet().stream()
+                    .filter(s -> s.startsWith(namePathDto))
+                    .map(s -> FlatPathDto.removeStart(s, namePathDto))
+                    .filter(n -> n != null && n.getName().equals(childNode.getId()))
+                    .map(n -> Optional.ofNullable(n.getCount()).orElse(0))
+                    .sorted()
+                    .reduce((first, second) -> second)
+                    .map(i -> i + 1)
+                    .orElse(0);
+        }
         if (oldCount != null) {
             context.getCountMap().put(new NodeId(childNode), oldCount);
         }
@@ -60,15 +60,25 @@ public class StructuredHelper {
 
         try {
             JsonNode jsonNode = OBJECT_MAPPER.readTree(structuredString);
-            Map<String, JsonNode> convert = convertStructuredToFlat("", jsonNode);
 
-            return OBJECT_MAPPER.writeValueAsString(convert);
+            return OBJECT_MAPPER.writeValueAsString(convertStructuredToFlat(jsonNode));
         } catch (JsonProcessingException e) {
 
             throw new SdkException(e.getMessage(), e);
         }
     }
 
+    /**
+     * Convert Structured JSON into Flat JSON
+     *
+     * @param structured
+     * @return
+     */
+    public static ObjectNode convertStructuredToFlat(JsonNode structured) {
+
+        return OBJECT_MAPPER.createObjectNode().setAll(convertStructuredToFlat("", structured));
+    }
+
     /**
      * Convert Flat JSON into Structured JSON
      *
@@ -82,26 +92,37 @@ public class StructuredHelper {
             JsonNode jsonNode = null;
             jsonNode = OBJECT_MAPPER.readTree(flatString);
 
-            Map<FlatPathDto, JsonNode> flatMap = new LinkedHashMap<>();
-
-            for (Iterator<Map.Entry<String, JsonNode>> it = jsonNode.fields(); it.hasNext(); ) {
-                Map.Entry<String, JsonNode> next = it.next();
+            return OBJECT_MAPPER.writeValueAsString(convertFlatToStructured(jsonNode));
+        } catch (JsonProcessingException e) {
 
-                flatMap.put(new FlatPathDto(next.getKey()), next.getValue());
-            }
+            throw new SdkException(e.getMessage(), e);
+        }
+    }
 
-            Map<String, Object> structuredMap = convertFlatToStructured(flatMap);
+    /**
+     * Convert Flat JSON into Structured JSON
+     *
+     * @param flat
+     * @return the structured values, to be serialised as JSON
+     */
+    public static Map<String, Object> convertFlatToStructured(JsonNode flat) {
 
-            // the first List is removed
-            Map.Entry<String, Object> root =
-                    structuredMap.entrySet().stream().findAny().orElseThrow();
-            structuredMap.replace(root.getKey(), ((List) root.getValue()).get(0));
+        Map<FlatPathDto, JsonNode> flatMap = new LinkedHashMap<>();
 
-            return OBJECT_MAPPER.writeValueAsString(structuredMap);
-        } catch (JsonProcessingException e) {
+        for (Iterator<Map.Entry<String, JsonNode>> it = flat.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> next = it.next();
 
-            throw new SdkException(e.getMessage(), e);
+            flatMap.put(new FlatPathDto(next.getKey()), next.getValue());
         }
+
+        Map<String, Object> structuredMap = convertFlatToStructured(flatMap);
+
+        // the first List is removed
+        Map.Entry<String, Object> root =
+                structuredMap.entrySet().stream().findAny().orElseThrow();
+        structuredMap.replace(root.getKey(), ((List) root.getValue()).get(0));
+
+        return structuredMap;
     }
 
     private static Map<String, Object> convertFlatToStructured(Map<FlatPathDto, JsonNode> flatMap) {
@@ -22,6 +22,8 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DatabindContext;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -48,7 +50,11 @@ import com.nedap.archie.rminfo.ArchieRMInfoLookup;
 import com.nedap.archie.rminfo.ModelInfoLookup;
 import com.nedap.archie.rminfo.RMTypeInfo;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -135,6 +141,24 @@ public class CanonicalJson implements RMDataFormat {
         return stringWriter.toString();
     }
 
+    @Override
+    public void marshal(RMObject rmObject, OutputStream out) {
+        try {
+            MARSHAL_OM.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, rmObject);
+        } catch (IOException e) {
+            throw new MarshalException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void marshal(RMObject rmObject, Writer writer) {
+        try {
+            MARSHAL_OM.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(writer, rmObject);
+        } catch (IOException e) {
+            throw new MarshalException(e.getMessage(), e);
+        }
+    }
+
     @Override
     public <T extends RMObject> T unmarshal(String value, Class<T> clazz) {
         try {
@@ -144,6 +168,30 @@ public class CanonicalJson implements RMDataFormat {
         }
     }
 
+    @Override
+    public <T extends RMObject> T unmarshal(InputStream in, Class<T> clazz) {
+        try {
+            return MARSHAL_OM
+                    .readerFor(clazz)
+                    .without(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+                    .readValue(in);
+        } catch (IOException e) {
+            throw new UnmarshalException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public <T extends RMObject> T unmarshal(Reader reader, Class<T> clazz) {
+        try {
+            return MARSHAL_OM
+                    .readerFor(clazz)
+                    .without(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+                    .readValue(reader);
+        } catch (IOException e) {
+            throw new UnmarshalException(e.getMessage(), e);
+        }
+    }
+
     /**
      * TODO: pull into interface and therefore into XML and other formats too, since this should work
      * regardless of format?! Helper function to unmarshal to a general map, where RMObjects can't be
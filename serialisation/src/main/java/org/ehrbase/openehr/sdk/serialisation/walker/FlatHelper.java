@@ -40,6 +40,7 @@ import org.ehrbase.openehr.sdk.util.exception.SdkException;
 import org.ehrbase.openehr.sdk.util.rmconstants.RmConstants;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
 import org.ehrbase.openehr.sdk.webtemplate.path.flat.FlatPathDto;
+import org.ehrbase.openehr.sdk.webtemplate.path.flat.FlatPathIndex;
 import org.ehrbase.openehr.sdk.webtemplate.path.flat.FlatPathParser;
 
 public class FlatHelper<T> {
@@ -115,8 +116,10 @@ public class FlatHelper<T> {
     }
 
     public static boolean isExactlyDvCodedText(Map<FlatPathDto, String> values, String path) {
-        FlatPathDto codeAtt = FlatPathParser.parse(path).pathWithAttributeName("code");
-        return values.keySet().stream().anyMatch(e -> e.isEqualTo(codeAtt));
+        FlatPathDto pathDto = FlatPathParser.parse(path);
+        FlatPathDto codeAtt = pathDto.pathWithAttributeName("code");
+        return FlatPathIndex.startingWith(values, pathDto.pathWithAttributeName(null)).keySet().stream()
+                .anyMatch(e -> e.isEqualTo(codeAtt));
     }
 
     public static boolean isExactlyPartySelf(Map<FlatPathDto, String> values, String path, WebTemplateNode node) {
@@ -199,7 +202,7 @@ public class FlatHelper<T> {
     }
 
     private static Stream<Map.Entry<FlatPathDto, String>> subEntries(Map<FlatPathDto, String> values, String path) {
-        return values.entrySet().stream().filter(e -> e.getKey().startsWith(path));
+        return FlatPathIndex.startingWith(values, path).entrySet().stream();
     }
 
     private static boolean keyAndValueMatches(
@@ -219,7 +222,7 @@ public class FlatHelper<T> {
     public static boolean isExactlyIntervalEvent(Map<FlatPathDto, String> values, String path) {
         FlatPathDto mathFunctionPath =
                 FlatPathParser.parse(path).pathWithChild(new FlatPathDto("math_function", null, null, null));
-        return values.keySet().stream().anyMatch(k -> k.startsWith(mathFunctionPath));
+        return !FlatPathIndex.startingWith(values, mathFunctionPath).isEmpty();
     }
 
     public boolean skip(Context<T> context) {
@@ -311,8 +314,9 @@ public class FlatHelper<T> {
 
     public static void consumeAllMatching(
             String term, Map<FlatPathDto, String> values, Set<String> consumedPaths, boolean exact) {
-        consumedPaths.addAll(values.keySet().stream()
-                .filter(s -> exact ? s.isEqualTo(term) : s.startsWith(term))
+        FlatPathDto termDto = FlatPathParser.parse(term);
+        consumedPaths.addAll(FlatPathIndex.startingWith(values, termDto).keySet().stream()
+                .filter(s -> !exact || s.isEqualTo(termDto))
                 .map(FlatPathDto::format)
                 .collect(Collectors.toSet()));
     }
@@ -342,8 +346,7 @@ public class FlatHelper<T> {
         } else {
             otherPath = currentTermDto.pathWithChild(FlatPathParser.parse(childTerm));
         }
-        return values.entrySet().stream()
-                .filter(s -> s.getKey().startsWith(otherPath))
+        return FlatPathIndex.startingWith(values, otherPath).entrySet().stream()
                 .collect(Collectors.groupingBy(
                         e -> Optional.ofNullable(FlatPathDto.removeStart(e.getKey(), currentTermDto)
                                         .getCount())
@@ -361,8 +364,7 @@ public class FlatHelper<T> {
      */
     public static Map<FlatPathDto, String> filter(Map<FlatPathDto, String> values, String path, boolean includeRaw) {
 
-        return values.entrySet().stream()
-                .filter(e -> e.getKey().startsWith(path))
+        return FlatPathIndex.startingWith(values, path).entrySet().stream()
                 .filter(e -> includeRaw || !"raw".equals(e.getKey().getLast().getAttributeName()))
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
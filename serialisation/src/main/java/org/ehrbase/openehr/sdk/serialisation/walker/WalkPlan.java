@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.serialisation.walker;
+
+import static org.ehrbase.openehr.sdk.util.rmconstants.RmConstants.ACTION;
+import static org.ehrbase.openehr.sdk.util.rmconstants.RmConstants.ISM_TRANSITION;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.ehrbase.openehr.sdk.aql.webtemplatepath.AqlPath;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
+
+/**
+ * The template derived part of a {@link Walker} run, compiled once per template tree and walker type.
+ * <p>
+ * The plan works on a private, frozen copy of the tree in which the inheritance choices of
+ * {@link Walker#handleInheritance(WebTemplateNode)} are already expanded. For every node it holds the
+ * {@link Walker#visitChildren(WebTemplateNode)} decision, the children grouped by AQL path together with their
+ * multi-valued flag and the choices among the children.
+ * <p>
+ * Plans are shared between walks and threads, thus neither the plan nor its nodes can be modified.
+ */
+public final class WalkPlan {
+
+    private final Step root;
+
+    private WalkPlan(Step root) {
+        this.root = root;
+    }
+
+    /**
+     * Compiles the plan for <code>root</code> using the hooks of <code>walker</code>.
+     *
+     * @param root   the template (sub-)tree. It is not modified.
+     * @param walker
+     * @return
+     */
+    static WalkPlan compile(WebTemplateNode root, Walker<?> walker) {
+        WebTemplateNode tree = new WebTemplateNode(root);
+        expand(tree, walker);
+        return new WalkPlan(compileStep(tree.frozen(), walker));
+    }
+
+    public Step getRoot() {
+        return root;
+    }
+
+    /**
+     * Applies the modifications of the walk to the nodes whose children are visited
+     */
+    private static void expand(WebTemplateNode node, Walker<?> walker) {
+
+        if (!walker.visitChildren(node)) {
+            return;
+        }
+
+        if (ACTION.equals(node.getRmType())) {
+            Iterator<WebTemplateNode> it = node.getChildren().iterator();
+            while (it.hasNext() && !ISM_TRANSITION.equals(it.next().getRmType())) {
+                // skip until AFTER first ISM_TRANSITION
+            }
+            // remove addition ISM_TRANSITIONs
+            while (it.hasNext()) {
+                if (ISM_TRANSITION.equals(it.next().getRmType())) {
+                    it.remove();
+                }
+            }
+        }
+        walker.handleInheritance(node);
+
+        for (WebTemplateNode child : node.getChildren()) {
+            expand(child, walker);
+        }
+    }
+
+    private static Step compileStep(WebTemplateNode node, Walker<?> walker) {
+
+        if (!walker.visitChildren(node)) {
+            return new Step(node, false, Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap());
+        }
+
+        Map<AqlPath, List<WebTemplateNode>> childrenByPath = new LinkedHashMap<>();
+        for (WebTemplateNode child : node.getChildren()) {
+            childrenByPath
+                    .computeIfAbsent(child.getAqlPathDto(), k -> new ArrayList<>())
+                    .add(child);
+        }
+
+        List<ChildGroup> childGroups = new ArrayList<>(childrenByPath.size());
+        for (List<WebTemplateNode> childrenForPath : childrenByPath.values()) {
+            boolean multi = childrenForPath.stream().anyMatch(n -> RMHelper.isMulti(node, n));
+            childGroups.add(new ChildGroup(Collections.unmodifiableList(childrenForPath), multi));
+        }
+
+        Map<WebTemplateNode, Step> childSteps = new IdentityHashMap<>();
+        for (WebTemplateNode child : node.getChildren()) {
+            childSteps.put(child, compileStep(child, walker));
+        }
+
+        return new Step(node, true, Collections.unmodifiableList(childGroups), node.getChoicesInChildren(), childSteps);
+    }
+
+    /**
+     * A node of the plan
+     */
+    public static final class Step {
+
+        private final WebTemplateNode node;
+        private final boolean visitChildren;
+        private final List<ChildGroup> childGroups;
+        private final Map<String, List<WebTemplateNode>> choices;
+        private final Map<WebTemplateNode, Step> childSteps;
+
+        private Step(
+                WebTemplateNode node,
+                boolean visitChildren,
+                List<ChildGroup> childGroups,
+                Map<String, List<WebTemplateNode>> choices,
+                Map<WebTemplateNode, Step> childSteps) {
+            this.node = node;
+            this.visitChildren = visitChildren;
+            this.childGroups = childGroups;
+            this.choices = choices;
+            this.childSteps = childSteps;
+        }
+
+        /**
+         * @return the node with expanded inheritance choices
+         */
+        public WebTemplateNode getNode() {
+            return node;
+        }
+
+        public boolean isVisitChildren() {
+            return visitChildren;
+        }
+
+        /**
+         * @return the children grouped by AQL path, in order of the children
+         */
+        public List<ChildGroup> getChildGroups() {
+            return childGroups;
+        }
+
+        /**
+         * @return the children sharing an AQL path with another child, by AQL path
+         * @see WebTemplateNode#getChoicesInChildren()
+         */
+        public Map<String, List<WebTemplateNode>> getChoices() {
+            return choices;
+        }
+
+        /**
+         * @param child a child node of {@link #getNode()}
+         * @return the step of the child
+         */
+        public Step getChildStep(WebTemplateNode child) {
+            return childSteps.get(child);
+        }
+    }
+
+    /**
+     * Children of a node sharing the same AQL path
+     */
+    public static final class ChildGroup {
+
+        private final List<WebTemplateNode> nodes;
+        private final boolean multi;
+
+        private ChildGroup(List<WebTemplateNode> nodes, boolean multi) {
+            this.nodes = nodes;
+            this.multi = multi;
+        }
+
+        public List<WebTemplateNode> getNodes() {
+            return nodes;
+        }
+
+        /**
+         * @see RMHelper#isMulti(WebTemplateNode, WebTemplateNode)
+         */
+        public boolean isMulti() {
+            return multi;
+        }
+    }
+}
@@ -29,17 +29,19 @@ import com.nedap.archie.rm.datavalues.quantity.DvInterval;
 import com.nedap.archie.rminfo.ArchieRMInfoLookup;
 import com.nedap.archie.rminfo.RMTypeInfo;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import org.apache.commons.collections4.map.AbstractReferenceMap.ReferenceStrength;
+import org.apache.commons.collections4.map.ReferenceIdentityMap;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.ehrbase.openehr.sdk.aql.webtemplatepath.AqlPath;
 import org.ehrbase.openehr.sdk.serialisation.jsonencoding.CanonicalJson;
 import org.ehrbase.openehr.sdk.serialisation.walker.defaultvalues.DefaultValues;
 import org.ehrbase.openehr.sdk.util.rmconstants.RmConstants;
@@ -50,6 +52,11 @@ public abstract class Walker<T> {
 
     public static final ArchieRMInfoLookup ARCHIE_RM_INFO_LOOKUP = ArchieRMInfoLookup.getInstance();
 
+    /**
+     * plans by walker type and tree identity
+     */
+    private static final Map<Class<?>, Map<WebTemplateNode, WalkPlan>> WALK_PLANS = new ConcurrentHashMap<>();
+
     public void walk(
             Composition composition,
             T object,
@@ -57,7 +64,7 @@ public abstract class Walker<T> {
             DefaultValues defaultValues,
             String templateId) {
 
-        walk(composition, object, webTemplate.getTree(), defaultValues, templateId);
+        walk(composition, object, getWalkPlan(webTemplate), defaultValues, templateId);
     }
 
     public void walk(RMObject composition, T object, WebTemplateNode root, String templateId) {
@@ -67,9 +74,26 @@ public abstract class Walker<T> {
     public void walk(
             RMObject composition, T object, WebTemplateNode root, DefaultValues defaultValues, String templateId) {
 
+        walk(composition, object, getWalkPlan(root), defaultValues, templateId);
+    }
+
+    /**
+     * Walks <code>composition</code> along a plan obtained by {@link #getWalkPlan(WebTemplate)} or
+     * {@link #getWalkPlan(WebTemplateNode)}, which all other <code>walk</code> methods end up in.
+     *
+     * @param composition
+     * @param object
+     * @param plan
+     * @param defaultValues
+     * @param templateId
+     */
+    protected void walk(RMObject composition, T object, WalkPlan plan, DefaultValues defaultValues, String templateId) {
+
+        WalkPlan.Step rootStep = plan.getRoot();
+
         Context<T> context = new Context<>();
 
-        context.getNodeDeque().push(new WebTemplateNode(root));
+        context.getNodeDeque().push(rootStep.getNode());
         context.getObjectDeque().push(object);
         context.getRmObjectDeque().push(composition);
         context.setTemplateId(templateId);
@@ -80,42 +104,70 @@ public abstract class Walker<T> {
             context.setDefaultValues(new DefaultValues());
         }
 
-        handle(context);
+        handle(context, rootStep);
     }
 
-    private void handle(Context<T> context) {
+    /**
+     * Returns the {@link WalkPlan} of this walker type for the tree of the web template. The plan is compiled on first
+     * use and memoised by {@link WebTemplate#computeIfAbsent(Object, java.util.function.Function)}. It is compiled
+     * again after {@link WebTemplate#setTree(WebTemplateNode)} or {@link WebTemplate#resetIndex()}, which has to be
+     * called after a tree which is not frozen has been modified in place.
+     *
+     * @param webTemplate
+     * @return
+     */
+    protected WalkPlan getWalkPlan(WebTemplate webTemplate) {
+        return webTemplate.computeIfAbsent(
+                List.of(WalkPlan.class, getClass()), t -> WalkPlan.compile(t.getTree(), this));
+    }
 
-        preHandle(context);
-        WebTemplateNode currentNode = context.getNodeDeque().peek();
+    /**
+     * Returns the {@link WalkPlan} of this walker type for the tree. The plan is compiled on first use and cached by
+     * the identity of <code>root</code> as long as it is referenced. A tree which is not {@link
+     * WebTemplateNode#isFrozen() frozen} must not be modified after it has been walked, unless
+     * {@link #invalidateWalkPlans(WebTemplateNode)} is called.
+     *
+     * @param root
+     * @return
+     */
+    protected WalkPlan getWalkPlan(WebTemplateNode root) {
+        Map<WebTemplateNode, WalkPlan> plans = WALK_PLANS.computeIfAbsent(
+                getClass(),
+                c -> Collections.synchronizedMap(
+                        new ReferenceIdentityMap<>(ReferenceStrength.WEAK, ReferenceStrength.HARD)));
+        WalkPlan plan = plans.get(root);
+        if (plan == null) {
+            WalkPlan compiled = WalkPlan.compile(root, this);
+            plan = Optional.ofNullable(plans.putIfAbsent(root, compiled)).orElse(compiled);
+        }
+        return plan;
+    }
+
+    /**
+     * Discards the {@link WalkPlan}s of all walker types compiled by {@link #getWalkPlan(WebTemplateNode)} for the
+     * tree, e.g. after it has been modified in place.
+     *
+     * @param root
+     */
+    public static void invalidateWalkPlans(WebTemplateNode root) {
+        WALK_PLANS.values().forEach(plans -> plans.remove(root));
+    }
 
-        if (visitChildren(currentNode)) {
+    private void handle(Context<T> context, WalkPlan.Step step) {
 
-            if (ACTION.equals(currentNode.getRmType())) {
-                Iterator<WebTemplateNode> it = currentNode.getChildren().iterator();
-                while (it.hasNext() && !ISM_TRANSITION.equals(it.next().getRmType())) {
-                    // skip until AFTER first ISM_TRANSITION
-                }
-                // remove addition ISM_TRANSITIONs
-                while (it.hasNext()) {
-                    if (ISM_TRANSITION.equals(it.next().getRmType())) {
-                        it.remove();
-                    }
-                }
-            }
-            handleInheritance(currentNode);
+        preHandle(context);
+        WebTemplateNode currentNode = step.getNode();
 
-            Map<AqlPath, List<WebTemplateNode>> childrenByPath = currentNode.getChildren().stream()
-                    .collect(Collectors.groupingBy(
-                            WebTemplateNode::getAqlPathDto, LinkedHashMap::new, Collectors.toList()));
+        if (step.isVisitChildren()) {
 
-            Map<String, List<WebTemplateNode>> allChoices = currentNode.getChoicesInChildren();
+            Map<String, List<WebTemplateNode>> allChoices = step.getChoices();
 
-            for (List<WebTemplateNode> childrenForPath : childrenByPath.values()) {
+            for (WalkPlan.ChildGroup childGroup : step.getChildGroups()) {
 
-                boolean isMulti = childrenForPath.stream().anyMatch(n -> RMHelper.isMulti(currentNode, n));
+                List<WebTemplateNode> childrenForPath = childGroup.getNodes();
 
                 Stream<NodeConstellation> childConstellations;
-                if (!isMulti) {
+                if (!childGroup.isMulti()) {
                     childConstellations =
                             streamChildConstellations(context, currentNode, allChoices, childrenForPath, null);
 
@@ -140,7 +192,7 @@ public abstract class Walker<T> {
                     if (constellation.getIndex() != null) {
                         context.getCountMap().put(new NodeId(childNode), constellation.getIndex());
                     }
-                    handle(context);
+                    handleChild(context, step.getChildStep(childNode));
                 });
             }
         }
@@ -151,6 +203,30 @@ public abstract class Walker<T> {
         context.getObjectDeque().remove();
     }
 
+    /**
+     * Walks the subtree of a child after its node, object and RM object have been pushed onto the context.
+     * <p>
+     * Subclasses may override this to walk the subtree at another time or on another thread, e.g. by means of
+     * {@link #walkSubtree(Context, WalkPlan.Step)} with a copy of the context. Either way the entries of the child
+     * have to be removed from <code>context</code> before returning.
+     *
+     * @param context
+     * @param step    the step of the child
+     */
+    protected void handleChild(Context<T> context, WalkPlan.Step step) {
+        handle(context, step);
+    }
+
+    /**
+     * Walks the subtree of the node on top of the context and removes the top entries afterwards.
+     *
+     * @param context
+     * @param step    the step of the node on top of the context
+     */
+    protected final void walkSubtree(Context<T> context, WalkPlan.Step step) {
+        handle(context, step);
+    }
+
     private Stream<NodeConstellation> streamChildConstellations(
             Context<T> context,
             WebTemplateNode currentNode,
@@ -200,7 +276,8 @@ public abstract class Walker<T> {
     }
 
     /**
-     * Add inheritance classes as explicit choices
+     * Add inheritance classes as explicit choices. Called once per node while the {@link WalkPlan} is compiled, on a
+     * modifiable copy of the tree.
      *
      * @param currentNode
      */
@@ -328,6 +405,9 @@ public abstract class Walker<T> {
 
     protected abstract T extract(Context<T> context, WebTemplateNode child, boolean isChoice, Integer i);
 
+    /**
+     * @param context its nodes belong to the shared {@link WalkPlan} and are frozen
+     */
     protected abstract void preHandle(Context<T> context);
 
     protected abstract void postHandle(Context<T> context);
@@ -17,45 +17,30 @@
  */
 package org.ehrbase.openehr.sdk.serialisation.xmlencoding;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 import com.nedap.archie.rm.RMObject;
-import com.nedap.archie.xml.JAXBUtil;
-import com.nedap.archie.xml.adapters.DateTimeXmlAdapter;
-import com.nedap.archie.xml.adapters.DateXmlAdapter;
-import com.nedap.archie.xml.adapters.TimeXmlAdapter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.StringWriter;
-import javax.xml.XMLConstants;
+import java.io.Writer;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
-import javax.xml.bind.UnmarshallerHandler;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMResult;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import org.apache.commons.io.IOUtils;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.CloseShieldReader;
 import org.ehrbase.openehr.sdk.serialisation.RMDataFormat;
 import org.ehrbase.openehr.sdk.serialisation.exception.MarshalException;
 import org.ehrbase.openehr.sdk.serialisation.exception.UnmarshalException;
 import org.ehrbase.openehr.sdk.util.SnakeCase;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import org.xml.sax.XMLFilter;
-import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.XMLFilterImpl;
 
@@ -73,90 +58,112 @@ public class CanonicalXML implements RMDataFormat {
     public String marshal(RMObject rmObject, Boolean withHeader) {
 
         StringWriter stringWriter = new StringWriter();
-        try {
-            Marshaller marshaller = JAXBUtil.getArchieJAXBContext().createMarshaller();
-            marshaller.setAdapter(DateTimeXmlAdapter.class, new SdkDateTimeXmlAdapter());
-            marshaller.setAdapter(DateXmlAdapter.class, new SdkDateXmlAdapter());
-            marshaller.setAdapter(TimeXmlAdapter.class, new SdkTimeXmlAdapter());
-            marshaller.setProperty("jaxb.fragment", !withHeader);
-            if (rmObject.getClass().getAnnotation(XmlRootElement.class) == null) {
-                QName qName = new QName(null, new SnakeCase(rmObject.getClass().getSimpleName()).camelToSnake());
-                JAXBElement<RMObject> root = new JAXBElement<>(qName, RMObject.class, rmObject);
-                marshaller.marshal(root, stringWriter);
-            } else {
-
-                marshaller.marshal(rmObject, stringWriter);
-            }
-        } catch (JAXBException e) {
+        try (XmlCodec codec = XmlCodec.acquire()) {
+            codec.marshaller(withHeader).marshal(toRootElement(rmObject), stringWriter);
+        } catch (JAXBException | ParserConfigurationException | SAXException e) {
             throw new MarshalException(e.getMessage(), e);
         }
 
         return stringWriter.toString();
     }
 
-    public String marshalInline(RMObject rmObject, QName qName) {
-
-        try {
-            JAXBElement<RMObject> root = new JAXBElement<>(qName, RMObject.class, rmObject);
+    @Override
+    public void marshal(RMObject rmObject, OutputStream out) {
+        try (XmlCodec codec = XmlCodec.acquire()) {
+            codec.marshaller(true).marshal(toRootElement(rmObject), out);
+        } catch (JAXBException | ParserConfigurationException | SAXException e) {
+            throw new MarshalException(e.getMessage(), e);
+        }
+    }
 
-            Marshaller marshaller = JAXBUtil.getArchieJAXBContext().createMarshaller();
-            marshaller.setAdapter(DateTimeXmlAdapter.class, new SdkDateTimeXmlAdapter());
-            marshaller.setAdapter(DateXmlAdapter.class, new SdkDateXmlAdapter());
-            marshaller.setAdapter(TimeXmlAdapter.class, new SdkTimeXmlAdapter());
+    @Override
+    public void marshal(RMObject rmObject, Writer writer) {
+        try (XmlCodec codec = XmlCodec.acquire()) {
+            codec.marshaller(true).marshal(toRootElement(rmObject), writer);
+        } catch (JAXBException | ParserConfigurationException | SAXException e) {
+            throw new MarshalException(e.getMessage(), e);
+        }
+    }
 
-            DOMResult res = new DOMResult();
-            marshaller.marshal(root, res);
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            transformerFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
-            transformerFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+    private static Object toRootElement(RMObject rmObject) {
+        if (rmObject.getClass().getAnnotation(XmlRootElement.class) == null) {
+            QName qName = new QName(null, new SnakeCase(rmObject.getClass().getSimpleName()).camelToSnake());
+            return new JAXBElement<>(qName, RMObject.class, rmObject);
+        } else {
+            return rmObject;
+        }
+    }
 
-            Transformer transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-            Node rootNode = res.getNode().getFirstChild();
-            NodeList childNodes = rootNode.getChildNodes();
+    /**
+     * Marshal the content of <code>rmObject</code>, i.e. the object as element <code>qName</code> without the
+     * surrounding element.
+     *
+     * @param rmObject
+     * @param qName
+     * @return
+     */
+    public String marshalInline(RMObject rmObject, QName qName) {
 
-            StringWriter stringWriter = new StringWriter();
-            for (int i = 0; i < childNodes.getLength(); i++) {
-                transformer.transform(new DOMSource(childNodes.item(i)), new StreamResult(stringWriter));
-            }
-            return stringWriter.toString();
+        StringWriter stringWriter = new StringWriter();
+        try (XmlCodec codec = XmlCodec.acquire()) {
+            XMLStreamWriter streamWriter = codec.xmlOutputFactory().createXMLStreamWriter(stringWriter);
+            marshalInline(codec, rmObject, qName, streamWriter);
+            streamWriter.close();
+        } catch (JAXBException | ParserConfigurationException | SAXException | XMLStreamException e) {
+            throw new MarshalException(e.getMessage(), e);
+        }
+        return stringWriter.toString();
+    }
 
-        } catch (JAXBException | TransformerException e) {
+    /**
+     * Streams the content of <code>rmObject</code>, i.e. the object as element <code>qName</code> without the
+     * surrounding element, to <code>streamWriter</code>. Namespaces of the surrounding element are declared again
+     * where they are used.
+     *
+     * @param rmObject
+     * @param qName
+     * @param streamWriter has to accept multiple root elements. It is neither flushed nor closed
+     */
+    public void marshalInline(RMObject rmObject, QName qName, XMLStreamWriter streamWriter) {
+
+        try (XmlCodec codec = XmlCodec.acquire()) {
+            marshalInline(codec, rmObject, qName, streamWriter);
+        } catch (JAXBException | ParserConfigurationException | SAXException e) {
             throw new MarshalException(e.getMessage(), e);
         }
     }
 
+    private static void marshalInline(XmlCodec codec, RMObject rmObject, QName qName, XMLStreamWriter streamWriter)
+            throws JAXBException {
+        JAXBElement<RMObject> root = new JAXBElement<>(qName, RMObject.class, rmObject);
+        codec.marshaller(false).marshal(root, new InlineXMLStreamWriter(streamWriter));
+    }
+
     @Override
     public <T extends RMObject> T unmarshal(String value, Class<T> clazz) {
-        T composition;
-        try {
-            Unmarshaller unmarshaller = JAXBUtil.getArchieJAXBContext().createUnmarshaller();
-            unmarshaller.setAdapter(DateTimeXmlAdapter.class, new SdkDateTimeXmlAdapter());
-            unmarshaller.setAdapter(DateXmlAdapter.class, new SdkDateXmlAdapter());
-            unmarshaller.setAdapter(TimeXmlAdapter.class, new SdkTimeXmlAdapter());
-            // Set the parentss XMLReader on the XMLFilter
-            SAXParserFactory spf = SAXParserFactory.newInstance();
-            // disable external entities
-            spf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, Boolean.TRUE);
-            spf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-            spf.setNamespaceAware(true);
-            spf.setValidating(false);
-            SAXParser sp = spf.newSAXParser();
-            XMLReader xr = sp.getXMLReader();
-            XMLFilter filter = new NamespaceFilter();
-            filter.setParent(xr);
-
-            UnmarshallerHandler unmarshallerHandler = unmarshaller.getUnmarshallerHandler();
-            filter.setContentHandler(unmarshallerHandler);
-            filter.parse(new InputSource(IOUtils.toInputStream(value, UTF_8)));
-            composition = (T) unmarshallerHandler.getResult();
+        return unmarshal(new InputSource(new StringReader(value)), clazz);
+    }
+
+    @Override
+    public <T extends RMObject> T unmarshal(InputStream in, Class<T> clazz) {
+        // the parser closes its input when done
+        return unmarshal(new InputSource(CloseShieldInputStream.wrap(in)), clazz);
+    }
+
+    @Override
+    public <T extends RMObject> T unmarshal(Reader reader, Class<T> clazz) {
+        return unmarshal(new InputSource(CloseShieldReader.wrap(reader)), clazz);
+    }
+
+    private <T extends RMObject> T unmarshal(InputSource inputSource, Class<T> clazz) {
+        try (XmlCodec codec = XmlCodec.acquire()) {
+            return (T) codec.unmarshal(inputSource);
         } catch (JAXBException | ParserConfigurationException | SAXException | IOException e) {
             throw new UnmarshalException(e.getMessage(), e);
         }
-        return composition;
     }
 
-    private class NamespaceFilter extends XMLFilterImpl {
+    static class NamespaceFilter extends XMLFilterImpl {
 
         @Override
         public void endElement(String uri, String localName, String qName) throws SAXException {
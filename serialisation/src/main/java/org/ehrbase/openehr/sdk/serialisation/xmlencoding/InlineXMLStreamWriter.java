@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.serialisation.xmlencoding;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * {@link XMLStreamWriter} which only passes the content of the root element on to the delegate, i.e. the root
+ * element, its attributes and the document start and end are dropped.
+ * <p>
+ * Namespaces declared on the root element are declared again on the first element of the content using them, so every
+ * child of the root is well-formed on its own.
+ */
+class InlineXMLStreamWriter implements XMLStreamWriter {
+
+    private final XMLStreamWriter delegate;
+
+    /**
+     * Namespaces declared on the dropped root element by prefix
+     */
+    private final Map<String, String> rootNamespaces = new HashMap<>();
+
+    /**
+     * Namespaces declared on the open elements below the root by prefix, innermost first
+     */
+    private final Deque<Map<String, String>> declared = new ArrayDeque<>();
+
+    private int depth;
+
+    InlineXMLStreamWriter(XMLStreamWriter delegate) {
+        this.delegate = delegate;
+    }
+
+    private boolean isRoot() {
+        return depth == 1;
+    }
+
+    private void startElement() {
+        depth++;
+        if (!isRoot()) {
+            declared.push(new HashMap<>(2));
+        }
+    }
+
+    /**
+     * Declares <code>prefix</code> if it was declared on the root only
+     */
+    private void ensureDeclared(String prefix, String namespaceURI) throws XMLStreamException {
+        if (prefix == null || XMLConstants.XML_NS_PREFIX.equals(prefix) || isDeclared(prefix)) {
+            return;
+        }
+        String uri = rootNamespaces.get(prefix);
+        if (uri == null || (namespaceURI != null && !namespaceURI.equals(uri))) {
+            return;
+        }
+        if (prefix.isEmpty()) {
+            delegate.writeDefaultNamespace(uri);
+        } else {
+            delegate.writeNamespace(prefix, uri);
+        }
+        declared.peek().put(prefix, uri);
+    }
+
+    private boolean isDeclared(String prefix) {
+        for (Map<String, String> d : declared) {
+            if (d.containsKey(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void writeStartElement(String localName) throws XMLStreamException {
+        startElement();
+        if (!isRoot()) {
+            delegate.writeStartElement(localName);
+        }
+    }
+
+    @Override
+    public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+        startElement();
+        if (!isRoot()) {
+            delegate.writeStartElement(namespaceURI, localName);
+        }
+    }
+
+    @Override
+    public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        startElement();
+        if (!isRoot()) {
+            delegate.writeStartElement(prefix, localName, namespaceURI);
+            ensureDeclared(prefix, namespaceURI);
+        }
+    }
+
+    @Override
+    public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+        writeStartElement(namespaceURI, localName);
+        writeEndElement();
+    }
+
+    @Override
+    public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        writeStartElement(prefix, localName, namespaceURI);
+        writeEndElement();
+    }
+
+    @Override
+    public void writeEmptyElement(String localName) throws XMLStreamException {
+        writeStartElement(localName);
+        writeEndElement();
+    }
+
+    @Override
+    public void writeEndElement() throws XMLStreamException {
+        if (!isRoot()) {
+            delegate.writeEndElement();
+            declared.pop();
+        }
+        depth--;
+    }
+
+    @Override
+    public void writeEndDocument() {
+        // NOP
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        delegate.close();
+    }
+
+    @Override
+    public void flush() throws XMLStreamException {
+        delegate.flush();
+    }
+
+    @Override
+    public void writeAttribute(String localName, String value) throws XMLStreamException {
+        if (!isRoot()) {
+            delegate.writeAttribute(localName, value);
+        }
+    }
+
+    @Override
+    public void writeAttribute(String prefix, String namespaceURI, String localName, String value)
+            throws XMLStreamException {
+        if (!isRoot()) {
+            ensureDeclared(prefix, namespaceURI);
+            delegate.writeAttribute(prefix, namespaceURI, localName, value);
+        }
+    }
+
+    @Override
+    public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+        if (!isRoot()) {
+            delegate.writeAttribute(namespaceURI, localName, value);
+        }
+    }
+
+    @Override
+    public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+        if (isRoot()) {
+            rootNamespaces.put(prefix == null ? XMLConstants.DEFAULT_NS_PREFIX : prefix, namespaceURI);
+        } else {
+            delegate.writeNamespace(prefix, namespaceURI);
+            declared.peek().put(prefix == null ? XMLConstants.DEFAULT_NS_PREFIX : prefix, namespaceURI);
+        }
+    }
+
+    @Override
+    public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+        writeNamespace(XMLConstants.DEFAULT_NS_PREFIX, namespaceURI);
+    }
+
+    @Override
+    public void writeComment(String data) throws XMLStreamException {
+        delegate.writeComment(data);
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target) throws XMLStreamException {
+        delegate.writeProcessingInstruction(target);
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+        delegate.writeProcessingInstruction(target, data);
+    }
+
+    @Override
+    public void writeCData(String data) throws XMLStreamException {
+        delegate.writeCData(data);
+    }
+
+    @Override
+    public void writeDTD(String dtd) {
+        // NOP
+    }
+
+    @Override
+    public void writeEntityRef(String name) throws XMLStreamException {
+        delegate.writeEntityRef(name);
+    }
+
+    @Override
+    public void writeStartDocument() {
+        // NOP
+    }
+
+    @Override
+    public void writeStartDocument(String version) {
+        // NOP
+    }
+
+    @Override
+    public void writeStartDocument(String encoding, String version) {
+        // NOP
+    }
+
+    @Override
+    public void writeCharacters(String text) throws XMLStreamException {
+        delegate.writeCharacters(text);
+    }
+
+    @Override
+    public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+        delegate.writeCharacters(text, start, len);
+    }
+
+    @Override
+    public String getPrefix(String uri) throws XMLStreamException {
+        return delegate.getPrefix(uri);
+    }
+
+    @Override
+    public void setPrefix(String prefix, String uri) throws XMLStreamException {
+        delegate.setPrefix(prefix, uri);
+    }
+
+    @Override
+    public void setDefaultNamespace(String uri) throws XMLStreamException {
+        delegate.setDefaultNamespace(uri);
+    }
+
+    @Override
+    public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+        delegate.setNamespaceContext(context);
+    }
+
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return delegate.getNamespaceContext();
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return delegate.getProperty(name);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.serialisation.xmlencoding;
+
+import com.nedap.archie.xml.JAXBUtil;
+import com.nedap.archie.xml.adapters.DateTimeXmlAdapter;
+import com.nedap.archie.xml.adapters.DateXmlAdapter;
+import com.nedap.archie.xml.adapters.TimeXmlAdapter;
+import java.io.IOException;
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.UnmarshallerHandler;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLOutputFactory;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLFilter;
+
+/**
+ * The configured JAXB marshaller and unmarshaller, secure SAX reader and StAX output factory used by
+ * {@link CanonicalXML}.
+ * <p>
+ * None of them is thread-safe, but all can be reused, so one codec is kept per thread. A codec is obtained by
+ * {@link #acquire()} and given back by {@link #close()}. If the codec of the thread is already in use (e.g. a
+ * re-entrant call) a new one is created for the call.
+ */
+final class XmlCodec implements AutoCloseable {
+
+    private static final ThreadLocal<XmlCodec> CODECS = new ThreadLocal<>();
+
+    private static final SAXParserFactory SAX_PARSER_FACTORY = createSaxParserFactory();
+
+    private final Marshaller marshaller;
+    private final Unmarshaller unmarshaller;
+    private final XMLFilter xmlReader;
+    private final XMLOutputFactory xmlOutputFactory;
+
+    private boolean inUse;
+
+    private XmlCodec() throws JAXBException, ParserConfigurationException, SAXException {
+        marshaller = JAXBUtil.getArchieJAXBContext().createMarshaller();
+        marshaller.setAdapter(DateTimeXmlAdapter.class, new SdkDateTimeXmlAdapter());
+        marshaller.setAdapter(DateXmlAdapter.class, new SdkDateXmlAdapter());
+        marshaller.setAdapter(TimeXmlAdapter.class, new SdkTimeXmlAdapter());
+
+        unmarshaller = JAXBUtil.getArchieJAXBContext().createUnmarshaller();
+        unmarshaller.setAdapter(DateTimeXmlAdapter.class, new SdkDateTimeXmlAdapter());
+        unmarshaller.setAdapter(DateXmlAdapter.class, new SdkDateXmlAdapter());
+        unmarshaller.setAdapter(TimeXmlAdapter.class, new SdkTimeXmlAdapter());
+
+        // Set the parentss XMLReader on the XMLFilter
+        xmlReader = new CanonicalXML.NamespaceFilter();
+        synchronized (SAX_PARSER_FACTORY) {
+            xmlReader.setParent(SAX_PARSER_FACTORY.newSAXParser().getXMLReader());
+        }
+
+        // the JDK implementation, since the content written inline may have multiple root elements
+        xmlOutputFactory = XMLOutputFactory.newDefaultFactory();
+    }
+
+    private static SAXParserFactory createSaxParserFactory() {
+        try {
+            SAXParserFactory spf = SAXParserFactory.newInstance();
+            // disable external entities
+            spf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, Boolean.TRUE);
+            spf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            spf.setNamespaceAware(true);
+            spf.setValidating(false);
+            return spf;
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the codec of the current thread, or a new one if it is in use
+     */
+    static XmlCodec acquire() throws JAXBException, ParserConfigurationException, SAXException {
+        XmlCodec codec = CODECS.get();
+        if (codec == null) {
+            codec = new XmlCodec();
+            CODECS.set(codec);
+        } else if (codec.inUse) {
+            codec = new XmlCodec();
+        }
+        codec.inUse = true;
+        return codec;
+    }
+
+    /**
+     * @param withHeader whether the XML declaration is written
+     * @return the marshaller
+     */
+    Marshaller marshaller(boolean withHeader) throws JAXBException {
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, !withHeader);
+        return marshaller;
+    }
+
+    /**
+     * Parses <code>inputSource</code> with the secure SAX reader, removing the default namespace, and unmarshals it.
+     *
+     * @param inputSource
+     * @return the unmarshalled object
+     */
+    Object unmarshal(InputSource inputSource) throws JAXBException, SAXException, IOException {
+        UnmarshallerHandler unmarshallerHandler = unmarshaller.getUnmarshallerHandler();
+        xmlReader.setContentHandler(unmarshallerHandler);
+        try {
+            xmlReader.parse(inputSource);
+            return unmarshallerHandler.getResult();
+        } finally {
+            xmlReader.setContentHandler(null);
+        }
+    }
+
+    XMLOutputFactory xmlOutputFactory() {
+        return xmlOutputFactory;
+    }
+
+    @Override
+    public void close() {
+        inUse = false;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.serialisation.dto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.ehrbase.openehr.sdk.aql.webtemplatepath.AqlPath;
+import org.ehrbase.openehr.sdk.generator.commons.test_data.dto.alternativeeventscomposition.AlternativeEventsComposition;
+import org.ehrbase.openehr.sdk.generator.commons.test_data.dto.alternativeeventscomposition.definition.KorpergewichtAnyEventEnChoice;
+import org.ehrbase.openehr.sdk.generator.commons.test_data.dto.alternativeeventscomposition.definition.KorpergewichtAnyEventEnIntervalEvent;
+import org.ehrbase.openehr.sdk.generator.commons.test_data.dto.alternativeeventscomposition.definition.KorpergewichtAnyEventEnPointEvent;
+import org.ehrbase.openehr.sdk.generator.commons.test_data.dto.alternativeeventscomposition.definition.KorpergewichtObservation;
+import org.ehrbase.openehr.sdk.serialisation.templateprovider.TestDataTemplateProvider;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.junit.Test;
+
+public class DtoMetadataTest {
+
+    @Test
+    public void metadata() {
+        DtoMetadata composition = DtoMetadata.of(AlternativeEventsComposition.class);
+        DtoMetadata observation = DtoMetadata.of(KorpergewichtObservation.class);
+
+        assertThat(DtoMetadata.of(AlternativeEventsComposition.class)).isSameAs(composition);
+        assertThat(composition.getTemplateId()).isEqualTo("AlternativeEvents");
+        assertThat(observation.getTemplateId()).isEqualTo("AlternativeEvents");
+        assertThat(composition.getArchetype()).isEqualTo("openEHR-EHR-COMPOSITION.report.v1");
+        assertThat(composition.getIdField()).isPresent();
+        assertThat(observation.getIdField()).isEmpty();
+        assertThat(observation.getFieldByPath()).containsKey(AqlPath.parse("/language"));
+
+        assertThat(observation.findOptionFor(KorpergewichtAnyEventEnChoice.class, "INTERVAL_EVENT"))
+                .contains(KorpergewichtAnyEventEnIntervalEvent.class);
+        assertThat(observation.findOptionFor(KorpergewichtAnyEventEnChoice.class, "POINT_EVENT"))
+                .contains(KorpergewichtAnyEventEnPointEvent.class);
+        assertThat(observation.findOptionFor(KorpergewichtAnyEventEnChoice.class, "OBSERVATION"))
+                .isEmpty();
+
+        assertThat(observation.getAccessor("language")).isSameAs(observation.getAccessor("language"));
+    }
+
+    @Test
+    public void findArchetypeNode() {
+        WebTemplate webTemplate = new TestDataTemplateProvider()
+                .buildIntrospect("AlternativeEvents")
+                .orElseThrow();
+        DtoMetadata observation = DtoMetadata.of(KorpergewichtObservation.class);
+
+        assertThat(observation.findArchetypeNode(webTemplate).getNodeId())
+                .isEqualTo("openEHR-EHR-OBSERVATION.body_weight.v2");
+        assertThat(observation.findArchetypeNode(webTemplate)).isSameAs(observation.findArchetypeNode(webTemplate));
+    }
+
+    @Test
+    public void concurrentAccess() {
+        List<String> templateIds = IntStream.range(0, 16)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() ->
+                        DtoMetadata.of(KorpergewichtAnyEventEnPointEvent.class).getTemplateId()))
+                .collect(Collectors.toList())
+                .stream()
+                .map(CompletableFuture::join)
+                .collect(Collectors.toList());
+
+        assertThat(templateIds).containsOnly("AlternativeEvents");
+    }
+}
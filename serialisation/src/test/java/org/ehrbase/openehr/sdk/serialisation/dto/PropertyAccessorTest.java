@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.serialisation.dto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.nedap.archie.rm.datavalues.DvText;
+import com.nedap.archie.rm.support.identification.ObjectVersionId;
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.List;
+import org.ehrbase.openehr.sdk.generator.commons.test_data.dto.alternativeeventscomposition.AlternativeEventsComposition;
+import org.ehrbase.openehr.sdk.util.exception.ClientException;
+import org.junit.Test;
+
+public class PropertyAccessorTest {
+
+    @Test
+    public void getAndSet() throws IntrospectionException {
+        PropertyAccessor accessor =
+                PropertyAccessor.of(new PropertyDescriptor("versionUid", AlternativeEventsComposition.class));
+        AlternativeEventsComposition dto = new AlternativeEventsComposition();
+        ObjectVersionId versionUid = new ObjectVersionId("6ef0e5a4-3c5f-4a2a-9a8b-1c4e5d2f7b90::local::1");
+
+        accessor.set(dto, versionUid);
+
+        assertThat(dto.getVersionUid()).isSameAs(versionUid);
+        assertThat(accessor.get(dto)).isSameAs(versionUid);
+
+        accessor.set(dto, null);
+        assertThat(accessor.get(dto)).isNull();
+
+        assertThatThrownBy(() -> accessor.set(dto, "not a version id")).isInstanceOf(ClientException.class);
+    }
+
+    @Test
+    public void primitive() throws IntrospectionException {
+        PropertyAccessor accessor = PropertyAccessor.of(new PropertyDescriptor("count", Bean.class));
+        Bean bean = new Bean();
+
+        accessor.set(bean, 42);
+
+        assertThat(bean.getCount()).isEqualTo(42);
+        assertThat(accessor.get(bean)).isEqualTo(42);
+    }
+
+    @Test
+    public void readOnly() throws IntrospectionException {
+        PropertyAccessor accessor =
+                PropertyAccessor.of(new PropertyDescriptor("value", DvText.class, "getValue", null));
+
+        assertThat(accessor.get(new DvText("text"))).isEqualTo("text");
+        assertThatThrownBy(() -> accessor.set(new DvText(), "text")).isInstanceOf(ClientException.class);
+    }
+
+    @Test
+    public void exceptionsAreWrapped() throws IntrospectionException {
+        PropertyAccessor accessor = PropertyAccessor.of(new PropertyDescriptor("failing", Bean.class));
+        Bean bean = new Bean();
+
+        assertThatThrownBy(() -> accessor.get(bean))
+                .isInstanceOf(ClientException.class)
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> accessor.set(bean, "value"))
+                .isInstanceOf(ClientException.class)
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> PropertyAccessor.of(new PropertyDescriptor("count", Bean.class))
+                        .set(bean, null))
+                .isInstanceOf(ClientException.class);
+    }
+
+    @Test
+    public void accessorFactory() throws IntrospectionException {
+        List<String> created = new ArrayList<>();
+        DtoMetadata.setAccessorFactory(p -> {
+            created.add(p.getName());
+            return PropertyAccessor.of(p);
+        });
+        try {
+            Bean bean = new Bean();
+            DtoMetadata.of(Bean.class).getAccessor("count").set(bean, 42);
+
+            assertThat(bean.getCount()).isEqualTo(42);
+            assertThat(created).containsExactly("count");
+        } finally {
+            DtoMetadata.setAccessorFactory(PropertyAccessor::of);
+        }
+    }
+
+    public static class Bean {
+
+        private int count;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public String getFailing() {
+            throw new IllegalStateException("getter failed");
+        }
+
+        public void setFailing(String failing) {
+            throw new IllegalStateException("setter failed");
+        }
+    }
+}
@@ -28,6 +28,7 @@ import com.nedap.archie.rm.datastructures.IntervalEvent;
 import com.nedap.archie.rm.datastructures.ItemStructure;
 import com.nedap.archie.rm.generic.PartyIdentified;
 import com.nedap.archie.rm.generic.PartySelf;
+import io.github.classgraph.ClassGraph;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
@@ -219,6 +220,29 @@ public class RmToGeneratedDtoConverterTest {
         Assertions.assertThat(actual.getGrosseLange().getGrosseLangeMagnitude()).isEqualTo(22d);
     }
 
+    @Test
+    public void createClassGraphIsUsedIfOverridden() {
+        List<String> scannedPackages = new ArrayList<>();
+        RmToGeneratedDtoConverter cut = new RmToGeneratedDtoConverter(new TestDataTemplateProvider()) {
+            @Override
+            protected ClassGraph createClassGraph(String packageNames) {
+                scannedPackages.add(packageNames);
+                return super.createClassGraph(packageNames);
+            }
+        };
+        RMObject rmObject = new GeneratedDtoToRmConverter(new TestDataTemplateProvider())
+                .toRMObject(TestData.buildEhrbaseBloodPressureSimpleDeV0());
+
+        Assertions.assertThat(cut.toGeneratedDto(rmObject, EhrbaseBloodPressureSimpleDeV0Composition.class))
+                .isNotNull();
+        Assertions.assertThat(cut.toGeneratedDto(rmObject, EhrbaseBloodPressureSimpleDeV0Composition.class))
+                .isNotNull();
+
+        Assertions.assertThat(scannedPackages)
+                .containsExactly(DtoMetadata.of(EhrbaseBloodPressureSimpleDeV0Composition.class)
+                        .getTemplatePackageName());
+    }
+
     @Test
     public void testFlattenEhrbaseBloodPressureSimpleDeV0() {
         RmToGeneratedDtoConverter cut = new RmToGeneratedDtoConverter(new TestDataTemplateProvider());
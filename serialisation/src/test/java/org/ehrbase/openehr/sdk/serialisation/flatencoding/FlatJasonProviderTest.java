@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.serialisation.flatencoding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.stream.Collectors;
+import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal.config.StdConfig;
+import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal.postprocessor.MarshalPostprocessor;
+import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.umarshal.postprocessor.UnmarshalPostprocessor;
+import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.umarshal.rmunmarshaller.RMUnmarshaller;
+import org.ehrbase.openehr.sdk.serialisation.walker.defaultvalues.defaultinserter.DefaultValueInserter;
+import org.ehrbase.openehr.sdk.util.reflection.ReflectionHelper;
+import org.junit.Test;
+
+public class FlatJasonProviderTest {
+
+    /**
+     * The service index in META-INF/services must list every implementation, otherwise it is not used.
+     */
+    @Test
+    public void serviceIndexComplete() {
+        for (Class<?> root : List.of(
+                StdConfig.class,
+                MarshalPostprocessor.class,
+                RMUnmarshaller.class,
+                UnmarshalPostprocessor.class,
+                DefaultValueInserter.class)) {
+            assertThat(indexed(root))
+                    .as(root.getName())
+                    .containsExactlyInAnyOrderElementsOf(ReflectionHelper.scanImplementations(root));
+        }
+    }
+
+    @Test
+    public void warmUp() {
+        FlatJasonProvider.warmUp();
+
+        assertThat(ReflectionHelper.buildMap(RMUnmarshaller.class))
+                .hasSize(indexed(RMUnmarshaller.class).size());
+    }
+
+    static List<String> indexed(Class<?> root) {
+        return ServiceLoader.load(root).stream().map(p -> p.type().getName()).collect(Collectors.toList());
+    }
+}
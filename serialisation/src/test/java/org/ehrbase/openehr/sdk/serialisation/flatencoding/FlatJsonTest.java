@@ -17,10 +17,15 @@
  */
 package org.ehrbase.openehr.sdk.serialisation.flatencoding;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import com.nedap.archie.rm.composition.Composition;
 import com.nedap.archie.rminfo.ArchieRMInfoLookup;
 import com.nedap.archie.rmobjectvalidator.RMObjectValidator;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import org.apache.commons.io.IOUtils;
@@ -45,6 +50,28 @@ public class FlatJsonTest {
         check(templateId, testData, new String[] {}, new String[] {});
     }
 
+    @Test
+    public void roundTripStreams() throws IOException {
+
+        CompositionTestDataSimSDTJson testData = CompositionTestDataSimSDTJson.CORONA_WITH_OTHER_PARTICIPATION;
+        String templateId = "Corona_Anamnese";
+
+        RMDataFormat cut = new FlatJasonProvider(templateProvider).buildFlatJson(FlatFormat.SIM_SDT, templateId);
+
+        String flat = IOUtils.toString(testData.getStream(), StandardCharsets.UTF_8);
+        String expected = cut.marshal(cut.unmarshal(flat));
+
+        Composition fromStream = cut.unmarshal(testData.getStream(), Composition.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cut.marshal(fromStream, out);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(expected);
+
+        Composition fromReader = cut.unmarshal(new StringReader(flat), Composition.class);
+        StringWriter writer = new StringWriter();
+        cut.marshal(fromReader, writer);
+        assertThat(writer).hasToString(expected);
+    }
+
     @Test
     public void roundTripSSIAD_PRIeSM() throws IOException {
 
@@ -17,10 +17,15 @@
  */
 package org.ehrbase.openehr.sdk.serialisation.flatencoding;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import com.nedap.archie.rm.composition.Composition;
 import com.nedap.archie.rminfo.ArchieRMInfoLookup;
 import com.nedap.archie.rmobjectvalidator.RMObjectValidator;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import org.apache.commons.io.IOUtils;
 import org.assertj.core.api.SoftAssertions;
@@ -52,6 +57,27 @@ class StructuredJsonTest {
         test(testData, templateId);
     }
 
+    @Test
+    void testRoundTripStreams() throws IOException {
+        CompositionTestDataStructuredJson testData = CompositionTestDataStructuredJson.CORONA;
+        String templateId = OperationalTemplateTestData.CORONA_ANAMNESE.getTemplateId();
+
+        RMDataFormat cut = new FlatJasonProvider(templateProvider).buildFlatJson(FlatFormat.STRUCTURED, templateId);
+
+        String structured = IOUtils.toString(testData.getStream(), StandardCharsets.UTF_8);
+        String expected = cut.marshal(cut.unmarshal(structured));
+
+        Composition fromStream = cut.unmarshal(testData.getStream(), Composition.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cut.marshal(fromStream, out);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(expected);
+
+        Composition fromReader = cut.unmarshal(new StringReader(structured), Composition.class);
+        StringWriter writer = new StringWriter();
+        cut.marshal(fromReader, writer);
+        assertThat(writer).hasToString(expected);
+    }
+
     private void test(CompositionTestDataStructuredJson testData, String templateId) throws IOException {
         RMDataFormat cut = new FlatJasonProvider(templateProvider).buildFlatJson(FlatFormat.STRUCTURED, templateId);
 
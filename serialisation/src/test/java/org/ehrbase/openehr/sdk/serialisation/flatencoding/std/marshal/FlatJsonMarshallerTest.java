@@ -22,19 +22,29 @@ import static org.assertj.core.api.Assertions.assertThat;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nedap.archie.rm.composition.Composition;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
 import org.apache.commons.io.IOUtils;
 import org.apache.xmlbeans.XmlException;
 import org.assertj.core.api.SoftAssertions;
 import org.ehrbase.openehr.sdk.serialisation.jsonencoding.ArchieObjectMapperProvider;
 import org.ehrbase.openehr.sdk.serialisation.jsonencoding.CanonicalJson;
+import org.ehrbase.openehr.sdk.serialisation.xmlencoding.CanonicalXML;
 import org.ehrbase.openehr.sdk.test_data.composition.CompositionTestDataCanonicalJson;
+import org.ehrbase.openehr.sdk.test_data.composition.CompositionTestDataCanonicalXML;
 import org.ehrbase.openehr.sdk.test_data.composition.CompositionTestDataSimSDTJson;
 import org.ehrbase.openehr.sdk.test_data.operationaltemplate.OperationalTemplateTestData;
+import org.ehrbase.openehr.sdk.util.exception.SdkException;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
 import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
 import org.junit.Test;
 import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
@@ -232,6 +242,96 @@ public class FlatJsonMarshallerTest {
                 });
     }
 
+    @Test
+    public void toFlatJsonStreaming() throws IOException, XmlException {
+        Map<String, WebTemplate> webTemplates = new HashMap<>();
+        List<Composition> compositions = readTestCompositions();
+
+        FlatJsonMarshaller cut = new FlatJsonMarshaller();
+        int compared = 0;
+        for (Composition composition : compositions) {
+            String templateId =
+                    composition.getArchetypeDetails().getTemplateId().getValue();
+            OperationalTemplateTestData templateData = OperationalTemplateTestData.findByTemplateId(templateId);
+            if (templateData == null) {
+                continue;
+            }
+            WebTemplate webTemplate = webTemplates.get(templateId);
+            if (webTemplate == null) {
+                webTemplate = new OPTParser(TemplateDocument.Factory.parse(templateData.getStream())
+                                .getTemplate())
+                        .parse();
+                webTemplates.put(templateId, webTemplate);
+            }
+
+            List<String> duplicates = new ArrayList<>();
+            Map<String, Object> values = new LinkedHashMap<>() {
+                @Override
+                public Object put(String key, Object value) {
+                    if (value != null && get(key) != null) {
+                        duplicates.add(key);
+                    }
+                    return super.put(key, value);
+                }
+
+                @Override
+                public void putAll(Map<? extends String, ?> m) {
+                    m.forEach(this::put);
+                }
+            };
+            try {
+                new StdFromCompositionWalker().walk(composition, values, webTemplate, null, templateId);
+            } catch (SdkException e) {
+                // test data not matching its template
+                continue;
+            }
+            assertThat(duplicates).as(templateId).isEmpty();
+
+            String expected = cut.toFlatJson(composition, webTemplate);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            cut.toFlatJson(composition, webTemplate, out);
+            assertThat(out.toString(StandardCharsets.UTF_8)).as(templateId).isEqualTo(expected);
+
+            StringWriter writer = new StringWriter();
+            cut.toFlatJson(composition, webTemplate, writer);
+            assertThat(writer).as(templateId).hasToString(expected);
+            compared++;
+        }
+        assertThat(compared).isGreaterThan(30);
+    }
+
+    /**
+     * @return the canonical JSON and XML test compositions readable by the current RM version and naming a template
+     */
+    static List<Composition> readTestCompositions() {
+        List<Composition> compositions = new ArrayList<>();
+        for (CompositionTestDataCanonicalJson testData : CompositionTestDataCanonicalJson.values()) {
+            readComposition(() -> new CanonicalJson()
+                            .unmarshal(
+                                    IOUtils.toString(testData.getStream(), StandardCharsets.UTF_8), Composition.class))
+                    .ifPresent(compositions::add);
+        }
+        for (CompositionTestDataCanonicalXML testData : CompositionTestDataCanonicalXML.values()) {
+            readComposition(() -> new CanonicalXML()
+                            .unmarshal(
+                                    IOUtils.toString(testData.getStream(), StandardCharsets.UTF_8), Composition.class))
+                    .ifPresent(compositions::add);
+        }
+        return compositions;
+    }
+
+    private static Optional<Composition> readComposition(Callable<Composition> reader) {
+        try {
+            return Optional.of(reader.call())
+                    .filter(c -> c.getArchetypeDetails() != null
+                            && c.getArchetypeDetails().getTemplateId() != null);
+        } catch (Exception e) {
+            // not readable by the current RM version
+            return Optional.empty();
+        }
+    }
+
     public void checkErrors(List<String> errors, String[] missing, String[] extra) {
 
         SoftAssertions softAssertions = new SoftAssertions();
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nedap.archie.rm.composition.Composition;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.io.IOUtils;
+import org.apache.xmlbeans.XmlException;
+import org.ehrbase.openehr.sdk.serialisation.flatencoding.structured.StructuredHelper;
+import org.ehrbase.openehr.sdk.serialisation.jsonencoding.ArchieObjectMapperProvider;
+import org.ehrbase.openehr.sdk.serialisation.jsonencoding.CanonicalJson;
+import org.ehrbase.openehr.sdk.test_data.composition.CompositionTestDataCanonicalJson;
+import org.ehrbase.openehr.sdk.test_data.operationaltemplate.OperationalTemplateTestData;
+import org.ehrbase.openehr.sdk.util.exception.SdkException;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
+import org.junit.Test;
+import org.openehr.schemas.v1.TemplateDocument;
+
+public class StructuredJsonMarshallerTest {
+
+    @Test
+    public void toStructuredJsonMatchesConvertedFlatJson() throws IOException, XmlException {
+        OperationalTemplateTestData[] templates = {
+            OperationalTemplateTestData.CORONA_ANAMNESE,
+            OperationalTemplateTestData.ALT_EVENTS,
+            OperationalTemplateTestData.IPS
+        };
+        CompositionTestDataCanonicalJson[] compositions = {
+            CompositionTestDataCanonicalJson.CORONA,
+            CompositionTestDataCanonicalJson.ALTERNATIVE_EVENTS,
+            CompositionTestDataCanonicalJson.IPS
+        };
+
+        StructuredJsonMarshaller cut = new StructuredJsonMarshaller();
+        for (int i = 0; i < templates.length; i++) {
+            WebTemplate webTemplate = new OPTParser(TemplateDocument.Factory.parse(templates[i].getStream())
+                            .getTemplate())
+                    .parse();
+            Composition composition = new CanonicalJson()
+                    .unmarshal(
+                            IOUtils.toString(compositions[i].getStream(), StandardCharsets.UTF_8), Composition.class);
+
+            String expected = StructuredHelper.convertFlatToStructured(
+                    new FlatJsonMarshaller().toFlatJson(composition, webTemplate));
+
+            assertThat(cut.toStructuredJson(composition, webTemplate)).isEqualTo(expected);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            cut.toStructuredJson(composition, webTemplate, out);
+            assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void toStructuredJsonRoundTripsAllCompositions() throws IOException, XmlException {
+        Map<String, WebTemplate> webTemplates = new HashMap<>();
+        StructuredJsonMarshaller cut = new StructuredJsonMarshaller();
+        int compared = 0;
+        for (Composition composition : FlatJsonMarshallerTest.readTestCompositions()) {
+            String templateId =
+                    composition.getArchetypeDetails().getTemplateId().getValue();
+            OperationalTemplateTestData templateData = OperationalTemplateTestData.findByTemplateId(templateId);
+            if (templateData == null) {
+                continue;
+            }
+            WebTemplate webTemplate = webTemplates.get(templateId);
+            if (webTemplate == null) {
+                webTemplate = new OPTParser(TemplateDocument.Factory.parse(templateData.getStream())
+                                .getTemplate())
+                        .parse();
+                webTemplates.put(templateId, webTemplate);
+            }
+
+            String expected;
+            try {
+                expected = StructuredHelper.convertFlatToStructured(
+                        new FlatJsonMarshaller().toFlatJson(composition, webTemplate));
+            } catch (SdkException e) {
+                // test data not matching its template
+                continue;
+            }
+
+            assertThat(cut.toStructuredJson(composition, webTemplate))
+                    .as(templateId)
+                    .isEqualTo(expected);
+            compared++;
+        }
+        assertThat(compared).isGreaterThan(30);
+    }
+
+    @Test
+    public void lastValueWinsLikeFlatMap() throws IOException {
+        Map<String, Object> flat = new LinkedHashMap<>();
+        StructuredValueTree tree = new StructuredValueTree();
+        String[][] puts = {
+            {"test/context/start_time", "2020-01-01T00:00:00Z"},
+            {"test/report:0/name|code", "at0001"},
+            {"test/report:0/name|value", "first"},
+            {"test/report:1/name", "other"},
+            {"test/report:0/name|value", "second"},
+            {"test/context/start_time", "2021-01-01T00:00:00Z"},
+            {"test/report:1/name", null},
+            {"test/report:2/name", null}
+        };
+        for (String[] put : puts) {
+            flat.put(put[0], put[1]);
+            tree.put(put[0], put[1]);
+        }
+        ObjectMapper objectMapper = ArchieObjectMapperProvider.getObjectMapper();
+
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = objectMapper.createGenerator(writer)) {
+            tree.write(generator);
+        }
+
+        assertThat(writer.toString())
+                .isEqualTo(StructuredHelper.convertFlatToStructured(objectMapper.writeValueAsString(flat)))
+                .contains("second")
+                .doesNotContain("first", "other", "2020");
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.serialisation.flatencoding.std.umarshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nedap.archie.rm.composition.Composition;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import org.apache.xmlbeans.XmlException;
+import org.ehrbase.openehr.sdk.generator.commons.shareddefinition.Language;
+import org.ehrbase.openehr.sdk.generator.commons.shareddefinition.Setting;
+import org.ehrbase.openehr.sdk.serialisation.jsonencoding.ArchieObjectMapperProvider;
+import org.ehrbase.openehr.sdk.serialisation.jsonencoding.CanonicalJson;
+import org.ehrbase.openehr.sdk.serialisation.walker.FlatHelper;
+import org.ehrbase.openehr.sdk.serialisation.walker.defaultvalues.DefaultValuePath;
+import org.ehrbase.openehr.sdk.serialisation.walker.defaultvalues.DefaultValues;
+import org.ehrbase.openehr.sdk.test_data.composition.CompositionTestDataSimSDTJson;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
+import org.ehrbase.openehr.sdk.webtemplate.path.flat.FlatPathDto;
+import org.ehrbase.openehr.sdk.webtemplate.webtemplateskeletonbuilder.WebTemplateSkeletonBuilder;
+import org.junit.Test;
+import org.openehr.schemas.v1.TemplateDocument;
+
+/**
+ * Compares the flat unmarshalling with and without the {@link org.ehrbase.openehr.sdk.webtemplate.path.flat.FlatPathIndex}
+ * on the large flat test compositions.
+ * <p>
+ * Not part of the unit test run; start it explicitly, e.g.
+ * <code>mvn test -pl serialisation -Dtest=StdToCompositionWalkerBenchmark</code>
+ */
+public class StdToCompositionWalkerBenchmark {
+
+    private static final ObjectMapper OBJECT_MAPPER = ArchieObjectMapperProvider.getObjectMapper();
+
+    private static final int WARM_UP = 5;
+    private static final int ITERATIONS = 20;
+
+    @Test
+    public void ips() throws Exception {
+        benchmark(CompositionTestDataSimSDTJson.IPS);
+    }
+
+    @Test
+    public void deteriorationAssessment() throws Exception {
+        benchmark(CompositionTestDataSimSDTJson.DETERIORIATION_ASSESSMENT);
+    }
+
+    @Test
+    public void coronaWithRaw() throws Exception {
+        benchmark(CompositionTestDataSimSDTJson.CORONA_WITH_RAW);
+    }
+
+    private void benchmark(CompositionTestDataSimSDTJson testData) throws IOException, XmlException {
+        WebTemplate webTemplate = new OPTParser(
+                        TemplateDocument.Factory.parse(testData.getTemplate().getStream())
+                                .getTemplate())
+                .parse();
+        Map<String, String> values = readValues(testData);
+
+        WalkResult scan = walk(webTemplate, values, false);
+        WalkResult indexed = walk(webTemplate, values, true);
+        assertThat(indexed.consumedPaths).isEqualTo(scan.consumedPaths);
+        assertThat(indexed.json).isEqualTo(scan.json);
+
+        long scanNanos = measure(webTemplate, values, false);
+        long indexedNanos = measure(webTemplate, values, true);
+
+        System.out.printf(
+                "%s (%d values): scan %.2f ms, index %.2f ms per composition%n",
+                testData.name(),
+                values.size(),
+                scanNanos / 1_000_000d / ITERATIONS,
+                indexedNanos / 1_000_000d / ITERATIONS);
+    }
+
+    private static long measure(WebTemplate webTemplate, Map<String, String> values, boolean indexed) {
+        for (int i = 0; i < WARM_UP; i++) {
+            walk(webTemplate, values, indexed);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            walk(webTemplate, values, indexed);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static WalkResult walk(WebTemplate webTemplate, Map<String, String> values, boolean indexed) {
+        Composition composition = WebTemplateSkeletonBuilder.build(webTemplate, false);
+
+        DefaultValues defaultValues = new DefaultValues(values);
+        if (!defaultValues.containsDefaultValue(DefaultValuePath.LANGUAGE)) {
+            defaultValues.addDefaultValue(
+                    DefaultValuePath.LANGUAGE,
+                    FlatHelper.findEnumValueOrThrow(webTemplate.getDefaultLanguage(), Language.class));
+        }
+        if (!defaultValues.containsDefaultValue(DefaultValuePath.TIME)) {
+            defaultValues.addDefaultValue(DefaultValuePath.TIME, OffsetDateTime.parse("2023-01-01T00:00:00Z"));
+        }
+        if (!defaultValues.containsDefaultValue(DefaultValuePath.SETTING)) {
+            defaultValues.addDefaultValue(DefaultValuePath.SETTING, Setting.OTHER_CARE);
+        }
+
+        Map<FlatPathDto, String> flatValues = new HashMap<>();
+        values.forEach((k, v) -> flatValues.put(new FlatPathDto(k), v));
+
+        StdToCompositionWalker walker = new StdToCompositionWalker(indexed);
+        walker.walk(
+                composition,
+                flatValues,
+                webTemplate,
+                defaultValues,
+                composition.getArchetypeDetails().getTemplateId().getValue());
+
+        return new WalkResult(new CanonicalJson().marshal(composition), walker.getConsumedPaths());
+    }
+
+    private static Map<String, String> readValues(CompositionTestDataSimSDTJson testData) throws IOException {
+        Map<String, String> values = new HashMap<>();
+        try (InputStream in = testData.getStream()) {
+            for (Iterator<Map.Entry<String, JsonNode>> it =
+                            OBJECT_MAPPER.readTree(in).fields();
+                    it.hasNext(); ) {
+                Map.Entry<String, JsonNode> e = it.next();
+                values.put(e.getKey(), e.getValue().toString());
+            }
+        }
+        return values;
+    }
+
+    private static final class WalkResult {
+        private final String json;
+        private final Set<String> consumedPaths;
+
+        private WalkResult(String json, Set<String> consumedPaths) {
+            this.json = json;
+            this.consumedPaths = consumedPaths;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import com.nedap.archie.rm.changecontrol.Contribution;
+import com.nedap.archie.rm.composition.Composition;
 import com.nedap.archie.rm.datastructures.Element;
 import com.nedap.archie.rm.datastructures.ItemTree;
 import com.nedap.archie.rm.datavalues.DvText;
@@ -34,12 +35,18 @@ import com.nedap.archie.rm.ehr.Ehr;
 import com.nedap.archie.rm.support.identification.HierObjectId;
 import com.nedap.archie.rm.support.identification.ObjectId;
 import com.nedap.archie.rm.support.identification.ObjectRef;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import org.apache.commons.io.IOUtils;
+import org.ehrbase.openehr.sdk.test_data.composition.CompositionTestDataCanonicalJson;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -56,6 +63,25 @@ public class CanonicalJsonMarshallingTest {
         assertNotNull(dvMultimedia);
     }
 
+    @Test
+    public void marshalAndUnmarshalStreams() throws IOException {
+
+        String value = IOUtils.toString(CompositionTestDataCanonicalJson.CORONA.getStream(), StandardCharsets.UTF_8);
+
+        CanonicalJson cut = new CanonicalJson();
+        String expected = cut.marshal(cut.unmarshal(value, Composition.class));
+
+        Composition fromStream = cut.unmarshal(CompositionTestDataCanonicalJson.CORONA.getStream(), Composition.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cut.marshal(fromStream, out);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(expected);
+
+        Composition fromReader = cut.unmarshal(new StringReader(value), Composition.class);
+        StringWriter writer = new StringWriter();
+        cut.marshal(fromReader, writer);
+        assertThat(writer).hasToString(expected);
+    }
+
     @Test
     public void UnmarshalMultimediaElement() throws IOException {
 
@@ -24,12 +24,16 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import org.apache.commons.io.IOUtils;
 import org.apache.xmlbeans.XmlException;
+import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal.FlatJsonMarshaller;
+import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.marshal.StdFromCompositionWalker;
 import org.ehrbase.openehr.sdk.serialisation.flatencoding.std.umarshal.FlatJsonUnmarshaller;
 import org.ehrbase.openehr.sdk.test_data.composition.CompositionTestDataSimSDTJson;
 import org.ehrbase.openehr.sdk.test_data.operationaltemplate.OperationalTemplateTestData;
+import org.ehrbase.openehr.sdk.util.rmconstants.RmConstants;
 import org.ehrbase.openehr.sdk.webtemplate.filter.Filter;
 import org.ehrbase.openehr.sdk.webtemplate.model.FilteredWebTemplate;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
 import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
 import org.junit.Test;
 import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
@@ -60,4 +64,58 @@ public class WalkerTest {
         FilteredWebTemplate filteredWebTemplateAfter = new Filter().filter(webTemplate);
         assertThat(filteredWebTemplateAfter).isNotNull();
     }
+
+    @Test
+    public void testWalkPlanIsCached() throws IOException, XmlException {
+
+        OPERATIONALTEMPLATE template = TemplateDocument.Factory.parse(
+                        OperationalTemplateTestData.CORONA_ANAMNESE.getStream())
+                .getTemplate();
+        WebTemplate webTemplate = new OPTParser(template).parse();
+        WebTemplate unchanged = new WebTemplate(webTemplate);
+
+        String flat = IOUtils.toString(CompositionTestDataSimSDTJson.CORONA.getStream(), StandardCharsets.UTF_8);
+        Composition composition = new FlatJsonUnmarshaller().unmarshal(flat, webTemplate);
+        new FlatJsonMarshaller().toFlatJson(composition, webTemplate);
+
+        // the plan works on a copy
+        assertThat(webTemplate).isEqualTo(unchanged);
+
+        StdFromCompositionWalker walker = new StdFromCompositionWalker();
+        WalkPlan plan = walker.getWalkPlan(webTemplate);
+        assertThat(new StdFromCompositionWalker().getWalkPlan(webTemplate)).isSameAs(plan);
+        assertThat(new StdFromCompositionWalker().getWalkPlan(unchanged)).isNotSameAs(plan);
+
+        // the plan follows modifications of the tree announced by resetIndex
+        WebTemplateNode removed = webTemplate.getTree().getChildren().remove(0);
+        webTemplate.resetIndex();
+        WalkPlan modified = walker.getWalkPlan(webTemplate);
+        assertThat(modified).isNotSameAs(plan);
+        assertThat(modified.getRoot().getNode().getChildren())
+                .extracting(WebTemplateNode::getAqlPath)
+                .doesNotContain(removed.getAqlPath());
+
+        // plans are cached by the identity of the tree
+        WebTemplateNode tree = unchanged.getTree();
+        WalkPlan treePlan = walker.getWalkPlan(tree);
+        assertThat(walker.getWalkPlan(tree)).isSameAs(treePlan);
+        assertThat(walker.getWalkPlan(new WebTemplateNode(tree))).isNotSameAs(treePlan);
+        WebTemplateNode frozen = new WebTemplateNode(tree).frozen();
+        assertThat(walker.getWalkPlan(frozen)).isSameAs(walker.getWalkPlan(frozen));
+
+        // until they are invalidated after a modification
+        WebTemplateNode removedFromTree = tree.getChildren().remove(0);
+        Walker.invalidateWalkPlans(tree);
+        WalkPlan invalidated = walker.getWalkPlan(tree);
+        assertThat(invalidated).isNotSameAs(treePlan);
+        assertThat(invalidated.getRoot().getNode().getChildren())
+                .extracting(WebTemplateNode::getAqlPath)
+                .doesNotContain(removedFromTree.getAqlPath());
+
+        // inheritance is expanded
+        assertThat(WebTemplateNode.streamSubtree(plan.getRoot().getNode(), false)
+                        .map(WebTemplateNode::getRmType))
+                .contains(RmConstants.POINT_EVENT, RmConstants.PARTY_SELF)
+                .doesNotContain(RmConstants.EVENT, RmConstants.PARTY_PROXY);
+    }
 }
@@ -24,7 +24,18 @@ import com.nedap.archie.rm.composition.Composition;
 import com.nedap.archie.rm.datavalues.DvText;
 import com.nedap.archie.rm.directory.Folder;
 import com.nedap.archie.rm.support.identification.PartyRef;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.xml.namespace.QName;
 import org.apache.commons.io.IOUtils;
 import org.ehrbase.openehr.sdk.test_data.composition.CompositionTestDataCanonicalXML;
@@ -45,6 +56,35 @@ public class CanonicalXMLTest {
         assertThat(marshal).isNotEmpty();
     }
 
+    @Test
+    public void marshalAndUnmarshalStreams() throws IOException {
+        String value = IOUtils.toString(CompositionTestDataCanonicalXML.ALL_TYPES.getStream(), UTF_8);
+        CanonicalXML cut = new CanonicalXML();
+
+        String expected = cut.marshal(cut.unmarshal(value, Composition.class));
+
+        AtomicBoolean closed = new AtomicBoolean();
+        InputStream in = new ByteArrayInputStream(value.getBytes(UTF_8)) {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+        Composition fromStream = cut.unmarshal(in, Composition.class);
+        assertThat(closed).isFalse();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cut.marshal(fromStream, out);
+        // JAXB orders the namespace declarations differently when writing bytes
+        assertThat(cut.marshal(cut.unmarshal(out.toString(UTF_8), Composition.class)))
+                .isEqualTo(expected);
+
+        Composition fromReader = cut.unmarshal(new StringReader(value), Composition.class);
+        StringWriter writer = new StringWriter();
+        cut.marshal(fromReader, writer);
+        assertThat(writer).hasToString(expected);
+    }
+
     @Test
     public void unmarshal() throws IOException {
         String value = IOUtils.toString(CompositionTestDataCanonicalXML.ALL_TYPES.getStream(), UTF_8);
@@ -88,6 +128,29 @@ public class CanonicalXMLTest {
         CanonicalXML canonicalXML = new CanonicalXML();
 
         String inline = canonicalXML.marshalInline(folder, new QName(null, "folder"));
-        System.out.println(inline);
+        assertThat(inline)
+                .isEqualTo(
+                        "<name><value>folder name</value></name>"
+                                + "<items xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xsi:type=\"PARTY_REF\"></items>");
+    }
+
+    @Test
+    public void concurrentUse() throws Exception {
+        String value = IOUtils.toString(CompositionTestDataCanonicalXML.ALL_TYPES.getStream(), UTF_8);
+        CanonicalXML cut = new CanonicalXML();
+        String expected = cut.marshal(cut.unmarshal(value, Composition.class));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> cut.marshal(cut.unmarshal(value, Composition.class))));
+            }
+            for (Future<String> result : results) {
+                assertThat(result.get()).isEqualTo(expected);
+            }
+        } finally {
+            executor.shutdown();
+        }
     }
 }
@@ -18,17 +18,25 @@
 package org.ehrbase.openehr.sdk.util.reflection;
 
 import io.github.classgraph.ClassGraph;
+import io.github.classgraph.ClassInfo;
 import io.github.classgraph.ScanResult;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.ehrbase.openehr.sdk.util.exception.SdkException;
 
-/** Helper class to find Configurations classes in the classpath. */
+/**
+ * Helper class to find Configurations classes in the classpath.
+ * <p>
+ * The implementations of a {@link ClassDependent} interface are taken from its <code>META-INF/services</code> index if
+ * present, otherwise the package of the interface is scanned. Either way they are looked up only once per interface.
+ */
 public class ReflectionHelper {
 
-    private static final Map<Class<?>, Map> cache = new HashMap<>();
+    private static final Map<Class<?>, Map> cache = new ConcurrentHashMap<>();
 
     private ReflectionHelper() {}
 
@@ -46,12 +54,31 @@ public class ReflectionHelper {
         Map<Class<? extends T>, S> classSMap = cache.get(root);
 
         if (classSMap == null) {
-            classSMap = buildInternal(root);
-            cache.put(root, classSMap);
+            // built outside of the cache as implementations may build maps of their own
+            Map<Class<? extends T>, S> built = buildInternal(root);
+            classSMap = cache.putIfAbsent(root, built);
+            if (classSMap == null) {
+                classSMap = built;
+            }
         }
         return classSMap;
     }
 
+    /**
+     * Builds the maps of all <code>roots</code> in advance, so that the first use does not have to wait for the
+     * lookup.
+     *
+     * @param roots interfaces extending {@link ClassDependent}
+     */
+    public static void warmUp(Class<?>... roots) {
+        for (Class<?> root : roots) {
+            if (!ClassDependent.class.isAssignableFrom(root)) {
+                throw new SdkException(String.format("%s does not extend ClassDependent", root.getName()));
+            }
+            buildMap((Class) root);
+        }
+    }
+
     public static List<Class<?>> findAll(String packageName) {
         try (ScanResult result = new ClassGraph()
                 .enableClassInfo()
@@ -72,27 +99,50 @@ public class ReflectionHelper {
         return rootC;
     }
 
-    private static <T, S extends ClassDependent<T>> Map<Class<? extends T>, S> buildInternal(Class<?> root) {
-        Map<Class<? extends T>, S> classSMap;
+    /**
+     * Scans the package of <code>root</code> and its sub-packages for implementations of <code>root</code>. This is
+     * the lookup used if there is no service index for <code>root</code>.
+     *
+     * @param root
+     * @return the names of the concrete implementations
+     */
+    public static List<String> scanImplementations(Class<?> root) {
         try (ScanResult result = new ClassGraph()
                 .enableClassInfo()
                 .enableAnnotationInfo()
                 .acceptPackages(root.getPackage().getName())
                 .scan()) {
-
-            classSMap = result.getClassesImplementing(root.getName()).stream()
+            return result.getClassesImplementing(root.getName()).stream()
                     .filter(c -> !c.isAbstract())
-                    .map(c -> {
+                    .map(ClassInfo::getName)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static <T, S extends ClassDependent<T>> Map<Class<? extends T>, S> buildInternal(Class<S> root) {
+        List<S> implementations;
+        try {
+            implementations = ServiceLoader.load(root, root.getClassLoader()).stream()
+                    .map(ServiceLoader.Provider::get)
+                    .collect(Collectors.toList());
+        } catch (ServiceConfigurationError e) {
+            throw new SdkException(e.getMessage(), e);
+        }
+
+        if (implementations.isEmpty()) {
+            implementations = scanImplementations(root).stream()
+                    .map(n -> {
                         try {
-                            return c.loadClass().getConstructor().newInstance();
+                            return root.cast(Class.forName(n, false, root.getClassLoader())
+                                    .getConstructor()
+                                    .newInstance());
                         } catch (Exception e) {
                             throw new SdkException(e.getMessage(), e);
                         }
                     })
-                    .map(o -> (S) o)
-                    .collect(Collectors.toMap(S::getAssociatedClass, c -> c));
-            cache.put(root, classSMap);
+                    .collect(Collectors.toList());
         }
-        return classSMap;
+
+        return implementations.stream().collect(Collectors.toMap(S::getAssociatedClass, c -> c));
     }
 }
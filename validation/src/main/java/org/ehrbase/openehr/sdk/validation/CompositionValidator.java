@@ -21,10 +21,25 @@ import com.nedap.archie.rm.composition.Composition;
 import com.nedap.archie.rminfo.ArchieRMInfoLookup;
 import com.nedap.archie.rmobjectvalidator.RMObjectValidationMessage;
 import com.nedap.archie.rmobjectvalidator.RMObjectValidator;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import org.ehrbase.openehr.sdk.util.reflection.ReflectionHelper;
 import org.ehrbase.openehr.sdk.validation.terminology.ExternalTerminologyValidation;
+import org.ehrbase.openehr.sdk.validation.webtemplate.ConstraintValidator;
 import org.ehrbase.openehr.sdk.validation.webtemplate.ValidationWalker;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
 import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
@@ -37,17 +52,34 @@ import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
  */
 public class CompositionValidator {
 
-    private final RMObjectValidator rmObjectValidator =
-            new RMObjectValidator(ArchieRMInfoLookup.getInstance(), archetypeId -> null);
+    private Supplier<RMObjectValidator> rmObjectValidatorFactory = CompositionValidator::newRmObjectValidator;
+
+    private Boolean runInvariantChecks;
+
+    private RMObjectValidator rmObjectValidator = createRmObjectValidator();
 
     private ExternalTerminologyValidation externalTerminologyValidation;
 
+    private Executor executor;
+
+    private Executor terminologyExecutor;
+
+    private Duration terminologyTimeout;
+
     public CompositionValidator() {}
 
     public CompositionValidator(ExternalTerminologyValidation externalTerminologyValidation) {
         this.externalTerminologyValidation = externalTerminologyValidation;
     }
 
+    /**
+     * Builds the registry of the constraint validators in advance, e.g. from a readiness
+     * probe, so that the first validation does not have to wait for them.
+     */
+    public static void warmUp() {
+        ReflectionHelper.warmUp(ConstraintValidator.class);
+    }
+
     /**
      * Validates the composition using an Operational Template.
      *
@@ -67,11 +99,88 @@ public class CompositionValidator {
      * @return the list of constraint violations
      */
     public List<ConstraintViolation> validate(Composition composition, WebTemplate template) {
+        return validate(composition, template, rmObjectValidator, executor);
+    }
+
+    /**
+     * Validates the compositions using a Web Template, e.g. during a migration.
+     * <p>
+     * If an {@link Executor} is set, the compositions are validated concurrently on it, otherwise one after the other
+     * on the calling thread. The constraints of the template are compiled only once for all of them. The results are
+     * passed to <code>resultConsumer</code> on the calling thread, in the order of <code>compositions</code>, as soon
+     * as they are available. At most {@link #getMaxPendingValidations()} compositions are taken from
+     * <code>compositions</code> ahead of the consumer, thus a slow consumer slows down the validation rather than
+     * letting results pile up.
+     * <p>
+     * The first exception thrown by a validation or by the consumer is rethrown, the remaining compositions are not
+     * validated then.
+     *
+     * @param compositions   the compositions to validate, read lazily
+     * @param template       the web template used to validate the compositions
+     * @param resultConsumer receives each composition along with its list of constraint violations
+     */
+    public void validateAll(
+            Iterable<Composition> compositions,
+            WebTemplate template,
+            BiConsumer<Composition, List<ConstraintViolation>> resultConsumer) {
+        if (executor == null) {
+            for (Composition composition : compositions) {
+                resultConsumer.accept(composition, validate(composition, template, rmObjectValidator, null));
+            }
+            return;
+        }
+
+        // archie validators are not thread-safe, thus every concurrent validation borrows one, all of them built alike
+        Queue<RMObjectValidator> rmObjectValidators = new ConcurrentLinkedQueue<>();
+        Deque<PendingValidation> pending = new ArrayDeque<>();
+        int maxPending = getMaxPendingValidations();
+        try {
+            for (Composition composition : compositions) {
+                if (pending.size() >= maxPending) {
+                    pending.remove().complete(resultConsumer);
+                }
+                pending.add(new PendingValidation(
+                        composition,
+                        CompletableFuture.supplyAsync(
+                                () -> {
+                                    RMObjectValidator validator = Optional.ofNullable(rmObjectValidators.poll())
+                                            .orElseGet(this::createRmObjectValidator);
+                                    try {
+                                        // the compositions are validated concurrently, not their entries
+                                        return validate(composition, template, validator, null);
+                                    } finally {
+                                        rmObjectValidators.add(validator);
+                                    }
+                                },
+                                executor)));
+            }
+            while (!pending.isEmpty()) {
+                pending.remove().complete(resultConsumer);
+            }
+        } finally {
+            pending.forEach(p -> p.future.cancel(false));
+        }
+    }
+
+    /**
+     * @return the maximum number of compositions {@link #validateAll(Iterable, WebTemplate, BiConsumer)} validates
+     *         ahead of the consumer of the results
+     */
+    public int getMaxPendingValidations() {
+        return 2
+                * (executor instanceof ForkJoinPool
+                        ? ((ForkJoinPool) executor).getParallelism()
+                        : Runtime.getRuntime().availableProcessors());
+    }
+
+    private List<ConstraintViolation> validate(
+            Composition composition, WebTemplate template, RMObjectValidator rmObjectValidator, Executor executor) {
         List<RMObjectValidationMessage> messages = rmObjectValidator.validate(composition);
         if (messages.isEmpty()) {
             List<ConstraintViolation> result = new ArrayList<>();
-            new ValidationWalker(externalTerminologyValidation)
-                    .walk(composition, result, template.getTree(), template.getTemplateId());
+            new ValidationWalker(externalTerminologyValidation, executor)
+                    .withTerminologyExecutor(terminologyExecutor, terminologyTimeout)
+                    .walk(composition, result, template, null, template.getTemplateId());
             return result;
         } else {
             return messages.stream()
@@ -88,6 +197,7 @@ public class CompositionValidator {
      */
     public void setRunInvariantChecks(boolean validateInvariants) {
         rmObjectValidator.setRunInvariantChecks(validateInvariants);
+        runInvariantChecks = validateInvariants;
     }
 
     /**
@@ -99,7 +209,92 @@ public class CompositionValidator {
         this.externalTerminologyValidation = externalTerminologyValidation;
     }
 
+    /**
+     * Sets the {@link Executor}, e.g. a {@link ForkJoinPool}, the entries of a composition are validated on in
+     * parallel. The violations are reported in the same order as by a sequential validation. The calling thread waits
+     * for the entries, so it must not be the only thread of the executor.
+     * <p>
+     * {@link #validateAll(Iterable, WebTemplate, BiConsumer)} validates the compositions concurrently on the executor
+     * instead.
+     *
+     * @param executor the executor, or <code>null</code> to validate sequentially, which is the default
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the {@link Executor} the external terminology checks of a composition are run on concurrently, once the
+     * other constraints of the composition have been validated. Each distinct code is checked once per composition.
+     * The concurrency of the checks is bounded by the executor, and by the connections the HTTP client of e.g. a
+     * {@link org.ehrbase.openehr.sdk.validation.terminology.FhirTerminologyValidation} allows.
+     *
+     * @param terminologyExecutor the executor, or <code>null</code> to check the codes one after the other during the
+     *                            validation, which is the default. It should not be the one set by
+     *                            {@link #setExecutor(Executor)}.
+     * @param timeout             the time each check may take, or <code>null</code> to wait indefinitely. A check
+     *                            that times out fails the validation with an
+     *                            {@link org.ehrbase.openehr.sdk.validation.terminology.ExternalTerminologyValidationException}.
+     */
+    public void setTerminologyExecutor(Executor terminologyExecutor, Duration timeout) {
+        this.terminologyExecutor = terminologyExecutor;
+        this.terminologyTimeout = timeout;
+    }
+
+    /**
+     * Sets the factory of the validators of the RM objects. It replaces the validator returned by
+     * {@link #getRmObjectValidator()}, and {@link #validateAll(Iterable, WebTemplate, BiConsumer)} builds the
+     * validators of its concurrent validations with it, so that all of them are configured the same. The setting of
+     * {@link #setRunInvariantChecks(boolean)} is applied to every validator built.
+     *
+     * @param rmObjectValidatorFactory the factory, which must return a new validator on every call
+     */
+    public void setRmObjectValidatorFactory(Supplier<RMObjectValidator> rmObjectValidatorFactory) {
+        this.rmObjectValidatorFactory = Objects.requireNonNull(rmObjectValidatorFactory);
+        this.rmObjectValidator = createRmObjectValidator();
+    }
+
+    /**
+     * @return the validator of the RM objects used by {@link #validate(Composition, WebTemplate)} and by a sequential
+     *         {@link #validateAll(Iterable, WebTemplate, BiConsumer)}. The concurrent validations of the latter use
+     *         validators of their own, built by the factory set by
+     *         {@link #setRmObjectValidatorFactory(Supplier)}, thus changes made to the returned validator directly
+     *         do not apply to them.
+     */
     public RMObjectValidator getRmObjectValidator() {
         return rmObjectValidator;
     }
+
+    private RMObjectValidator createRmObjectValidator() {
+        RMObjectValidator validator = rmObjectValidatorFactory.get();
+        if (runInvariantChecks != null) {
+            validator.setRunInvariantChecks(runInvariantChecks);
+        }
+        return validator;
+    }
+
+    private static RMObjectValidator newRmObjectValidator() {
+        return new RMObjectValidator(ArchieRMInfoLookup.getInstance(), archetypeId -> null);
+    }
+
+    private static final class PendingValidation {
+
+        private final Composition composition;
+        private final CompletableFuture<List<ConstraintViolation>> future;
+
+        private PendingValidation(Composition composition, CompletableFuture<List<ConstraintViolation>> future) {
+            this.composition = composition;
+            this.future = future;
+        }
+
+        private void complete(BiConsumer<Composition, List<ConstraintViolation>> resultConsumer) {
+            List<ConstraintViolation> result;
+            try {
+                result = future.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+            resultConsumer.accept(composition, result);
+        }
+    }
 }
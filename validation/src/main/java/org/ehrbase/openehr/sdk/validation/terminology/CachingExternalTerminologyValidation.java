@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.validation.terminology;
+
+import com.nedap.archie.rm.datatypes.CodePhrase;
+import com.nedap.archie.rm.datavalues.DvCodedText;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.ehrbase.openehr.sdk.util.functional.Try;
+import org.ehrbase.openehr.sdk.validation.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Wraps an {@link ExternalTerminologyValidation} to cache its results, so that e.g. the coded elements of a
+ * composition bound to the same ValueSet do not cause a request to the terminology server each.
+ * <p>
+ * The results of each operation are kept for a time to live in a cache of bounded size. Negative results are cached
+ * as well. Results a delegate may return instead of failing if the server cannot be reached, i.e. {@code false} of
+ * {@link #supports(TerminologyParam)} and {@code Try.success(false)} of {@link #validate(TerminologyParam)}, are only
+ * kept for the shorter time to live of failures. Exceptions are not cached.
+ * <p>
+ * A ValueSet is expanded once when its first code is validated. Codes contained in the expansion are accepted
+ * without asking the delegate, all others are validated by the delegate, as the expansion might be incomplete.
+ * Expansions with more than {@code maxExpansionSize} codes are not kept, their codes are validated by the delegate.
+ * If the ValueSet cannot be expanded, the failure is kept for the time to live of failures of the expansions, during
+ * which its codes are validated by the delegate without trying to expand it again.
+ * {@link #expand(TerminologyParam)} does try again.
+ */
+public class CachingExternalTerminologyValidation implements ExternalTerminologyValidation {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingExternalTerminologyValidation.class);
+
+    public static final int DEFAULT_MAX_EXPANSION_SIZE = 1000;
+
+    private final ExternalTerminologyValidation delegate;
+    private final int maxExpansionSize;
+    private final Cache<Boolean> supportsCache;
+    private final Cache<Try<Boolean, ConstraintViolationException>> validateCache;
+    private final Cache<Expansion> expandCache;
+
+    /**
+     * Caches the results of each operation for 10 minutes and failures for 30 seconds, up to 10000 codes and 1000
+     * ValueSets of at most {@value #DEFAULT_MAX_EXPANSION_SIZE} codes each.
+     *
+     * @param delegate
+     */
+    public CachingExternalTerminologyValidation(ExternalTerminologyValidation delegate) {
+        this(
+                delegate,
+                Settings.of(Duration.ofMinutes(10), 1000),
+                Settings.of(Duration.ofMinutes(10), 10000),
+                Settings.of(Duration.ofMinutes(10), 1000));
+    }
+
+    /**
+     * @param delegate
+     * @param supports the settings of the cache of {@link #supports(TerminologyParam)}
+     * @param validate the settings of the cache of {@link #validate(TerminologyParam)}
+     * @param expand   the settings of the cache of {@link #expand(TerminologyParam)}, which holds the expansions
+     *                 used to validate codes as well
+     */
+    public CachingExternalTerminologyValidation(
+            ExternalTerminologyValidation delegate, Settings supports, Settings validate, Settings expand) {
+        this(delegate, supports, validate, expand, DEFAULT_MAX_EXPANSION_SIZE);
+    }
+
+    /**
+     * @param delegate
+     * @param supports         the settings of the cache of {@link #supports(TerminologyParam)}
+     * @param validate         the settings of the cache of {@link #validate(TerminologyParam)}
+     * @param expand           the settings of the cache of {@link #expand(TerminologyParam)}, which holds the
+     *                         expansions used to validate codes as well
+     * @param maxExpansionSize the maximum number of codes of a cached expansion, larger ones are not cached. 0
+     *                         disables the expansion of ValueSets to validate codes
+     */
+    public CachingExternalTerminologyValidation(
+            ExternalTerminologyValidation delegate,
+            Settings supports,
+            Settings validate,
+            Settings expand,
+            int maxExpansionSize) {
+        if (maxExpansionSize < 0) {
+            throw new IllegalArgumentException("Expansion size must not be negative: " + maxExpansionSize);
+        }
+        this.delegate = delegate;
+        this.maxExpansionSize = maxExpansionSize;
+        this.supportsCache = new Cache<>(supports);
+        this.validateCache = new Cache<>(validate);
+        this.expandCache = new Cache<>(expand);
+    }
+
+    /**
+     * The result is assumed to depend on the referenced code system or value set only, not on the code.
+     */
+    @Override
+    public boolean supports(TerminologyParam param) {
+        return supportsCache.get(key(param, false), () -> delegate.supports(param), s -> !s);
+    }
+
+    @Override
+    public Try<Boolean, ConstraintViolationException> validate(TerminologyParam param) {
+        Optional<CodePhrase> codePhrase = param.getCodePhrase();
+        if (param.isUseValueSet() && codePhrase.isPresent() && isInExpansion(param, codePhrase.get())) {
+            validateCache.statistics.hits.increment();
+            return Try.success(Boolean.TRUE);
+        }
+        return validateCache.get(
+                key(param, true),
+                () -> delegate.validate(param),
+                t -> t.isSuccess() && !Boolean.TRUE.equals(t.getAsSuccess().get()));
+    }
+
+    @Override
+    public List<DvCodedText> expand(TerminologyParam param) {
+        List<Object> key = key(param, false);
+        // a failed or too large expansion cached by isInExpansion is not reported as empty expansion
+        Expansion expansion = expandCache.get(key, e -> e.codes != null);
+        if (expansion != null) {
+            return expansion.codes;
+        }
+        List<DvCodedText> codes = delegate.expand(param);
+        expansion = expansion(codes);
+        expandCache.put(key, expansion, false);
+        return expansion.codes != null ? expansion.codes : codes;
+    }
+
+    private boolean isInExpansion(TerminologyParam param, CodePhrase codePhrase) {
+        if (maxExpansionSize == 0) {
+            return false;
+        }
+        List<Object> key = key(param, false);
+        Expansion expansion = expandCache.get(key, e -> true);
+        if (expansion == null) {
+            try {
+                expansion = expansion(delegate.expand(param));
+                expandCache.put(key, expansion, false);
+            } catch (RuntimeException e) {
+                // the delegate reports the error when validating the code
+                LOG.debug(
+                        "Could not expand ValueSet {}: {}", param.getParameter().orElse(null), e.getMessage());
+                expansion = Expansion.FAILED;
+                expandCache.put(key, expansion, true);
+            }
+        }
+        return expansion.index.contains(
+                Arrays.asList(codePhrase.getTerminologyId().getValue(), codePhrase.getCodeString()));
+    }
+
+    private Expansion expansion(List<DvCodedText> codes) {
+        return codes != null && codes.size() > maxExpansionSize ? Expansion.TOO_LARGE : new Expansion(codes);
+    }
+
+    private static List<Object> key(TerminologyParam param, boolean withCode) {
+        CodePhrase codePhrase = withCode ? param.getCodePhrase().orElse(null) : null;
+        return Arrays.asList(
+                param.getServiceApi().orElse(null),
+                param.getOperation().orElse(null),
+                param.isUseValueSet(),
+                param.isUseCodeSystem(),
+                param.getParameter().orElse(null),
+                codePhrase != null ? codePhrase.getTerminologyId().getValue() : null,
+                codePhrase != null ? codePhrase.getCodeString() : null);
+    }
+
+    /**
+     * Removes all cached results, e.g. after the terminology has been updated.
+     */
+    public void invalidateAll() {
+        supportsCache.clear();
+        validateCache.clear();
+        expandCache.clear();
+    }
+
+    /**
+     * @return the statistics of {@link #supports(TerminologyParam)}
+     */
+    public Statistics getSupportsStatistics() {
+        return supportsCache.statistics;
+    }
+
+    /**
+     * @return the statistics of {@link #validate(TerminologyParam)}. Codes found in a cached expansion count as hits.
+     */
+    public Statistics getValidateStatistics() {
+        return validateCache.statistics;
+    }
+
+    /**
+     * @return the statistics of {@link #expand(TerminologyParam)}, including the expansions used to validate codes
+     */
+    public Statistics getExpandStatistics() {
+        return expandCache.statistics;
+    }
+
+    /**
+     * Time to live and size bound of the cache of one operation
+     */
+    public static final class Settings {
+
+        private static final Duration DEFAULT_FAILURE_TIME_TO_LIVE = Duration.ofSeconds(30);
+
+        private final Duration timeToLive;
+        private final Duration failureTimeToLive;
+        private final int maxSize;
+
+        private Settings(Duration timeToLive, Duration failureTimeToLive, int maxSize) {
+            this.timeToLive = timeToLive;
+            this.failureTimeToLive = failureTimeToLive;
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Failures are kept for 30 seconds, at most for the time to live.
+         *
+         * @param timeToLive how long a result is kept after it has been loaded
+         * @param maxSize    the maximum number of results, the least recently used ones are evicted first
+         * @return the settings
+         */
+        public static Settings of(Duration timeToLive, int maxSize) {
+            return of(
+                    timeToLive,
+                    timeToLive.compareTo(DEFAULT_FAILURE_TIME_TO_LIVE) < 0 ? timeToLive : DEFAULT_FAILURE_TIME_TO_LIVE,
+                    maxSize);
+        }
+
+        /**
+         * @param timeToLive        how long a result is kept after it has been loaded
+         * @param failureTimeToLive how long a result that may be caused by an unreachable server is kept
+         * @param maxSize           the maximum number of results, the least recently used ones are evicted first
+         * @return the settings
+         */
+        public static Settings of(Duration timeToLive, Duration failureTimeToLive, int maxSize) {
+            if (timeToLive.isNegative() || failureTimeToLive.isNegative() || maxSize < 0) {
+                throw new IllegalArgumentException("Time to live and size must not be negative: " + timeToLive + ", "
+                        + failureTimeToLive + ", " + maxSize);
+            }
+            return new Settings(timeToLive, failureTimeToLive, maxSize);
+        }
+    }
+
+    /**
+     * Counters of the cache of one operation
+     */
+    public static final class Statistics {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        /**
+         * @return the number of requests answered without the delegate
+         */
+        public long getHits() {
+            return hits.sum();
+        }
+
+        /**
+         * @return the number of requests passed to the delegate
+         */
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        /**
+         * @return the ratio of hits to all requests, 0 if there were none
+         */
+        public double getHitRate() {
+            long hitCount = getHits();
+            long total = hitCount + getMisses();
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+
+        @Override
+        public String toString() {
+            return "Statistics{" + "hits=" + getHits() + ", misses=" + getMisses() + ", hitRate=" + getHitRate() + '}';
+        }
+    }
+
+    private static final class Expansion {
+
+        /**
+         * the ValueSet could not be expanded
+         */
+        private static final Expansion FAILED = new Expansion(null);
+
+        /**
+         * the expansion has more codes than are kept
+         */
+        private static final Expansion TOO_LARGE = new Expansion(null);
+
+        private final List<DvCodedText> codes;
+        private final Set<List<String>> index = new HashSet<>();
+
+        private Expansion(List<DvCodedText> codes) {
+            this.codes = codes != null ? Collections.unmodifiableList(codes) : null;
+            for (DvCodedText code : codes != null ? codes : Collections.<DvCodedText>emptyList()) {
+                CodePhrase definingCode = code.getDefiningCode();
+                if (definingCode != null && definingCode.getTerminologyId() != null) {
+                    index.add(Arrays.asList(definingCode.getTerminologyId().getValue(), definingCode.getCodeString()));
+                }
+            }
+        }
+    }
+
+    /**
+     * LRU cache with a time to live. Values are loaded outside of the lock, thus concurrent misses for the same key
+     * may load it more than once.
+     */
+    private static final class Cache<V> {
+
+        private final long timeToLiveNanos;
+        private final long failureTimeToLiveNanos;
+        private final Map<List<Object>, Entry<V>> entries;
+        private final Statistics statistics = new Statistics();
+
+        private Cache(Settings settings) {
+            this.timeToLiveNanos = settings.timeToLive.toNanos();
+            this.failureTimeToLiveNanos = settings.failureTimeToLive.toNanos();
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Object>, Entry<V>> eldest) {
+                    return size() > settings.maxSize;
+                }
+            };
+        }
+
+        /**
+         * @param failed if a loaded value is kept for the time to live of failures only
+         */
+        private V get(List<Object> key, Supplier<V> loader, Predicate<V> failed) {
+            V value = get(key, v -> true);
+            if (value == null) {
+                value = loader.get();
+                put(key, value, failed.test(value));
+            }
+            return value;
+        }
+
+        /**
+         * @param usable if a cached value can be returned
+         * @return the cached value, <code>null</code> if there is none to be returned and it has to be loaded
+         */
+        private V get(List<Object> key, Predicate<V> usable) {
+            long now = System.nanoTime();
+            synchronized (entries) {
+                Entry<V> entry = entries.get(key);
+                if (entry != null && now - entry.expiresNanos < 0 && usable.test(entry.value)) {
+                    statistics.hits.increment();
+                    return entry.value;
+                }
+            }
+            statistics.misses.increment();
+            return null;
+        }
+
+        private void put(List<Object> key, V value, boolean failed) {
+            long expiresNanos = System.nanoTime() + (failed ? failureTimeToLiveNanos : timeToLiveNanos);
+            synchronized (entries) {
+                entries.put(key, new Entry<>(value, expiresNanos));
+            }
+        }
+
+        private void clear() {
+            synchronized (entries) {
+                entries.clear();
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long expiresNanos;
+
+        private Entry(V value, long expiresNanos) {
+            this.value = value;
+            this.expiresNanos = expiresNanos;
+        }
+    }
+}
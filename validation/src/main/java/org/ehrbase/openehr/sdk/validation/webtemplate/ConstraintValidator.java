@@ -40,4 +40,16 @@ public interface ConstraintValidator<T extends RMObject> extends ClassDependent<
      * @return the validation result
      */
     List<ConstraintViolation> validate(T rmObject, WebTemplateNode node);
+
+    /**
+     * Validate the supplied RMObject based on the compiled constraints of the node.
+     *
+     * @param rmObject    the RMObject to validate
+     * @param node        the current node
+     * @param constraints the compiled constraints of <code>node</code>
+     * @return the validation result
+     */
+    default List<ConstraintViolation> validate(T rmObject, WebTemplateNode node, NodeConstraints constraints) {
+        return validate(rmObject, node);
+    }
 }
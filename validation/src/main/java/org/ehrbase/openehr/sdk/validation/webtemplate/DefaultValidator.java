@@ -27,15 +27,9 @@ import com.nedap.archie.rminfo.ArchieRMInfoLookup;
 import com.nedap.archie.rmobjectvalidator.RMObjectValidationMessageIds;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.function.BiFunction;
-import java.util.function.Function;
 import java.util.stream.Collectors;
-import org.apache.commons.lang3.BooleanUtils;
-import org.ehrbase.openehr.sdk.aql.webtemplatepath.AqlPath;
 import org.ehrbase.openehr.sdk.validation.ConstraintViolation;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
 
@@ -46,13 +40,6 @@ import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
  */
 public class DefaultValidator implements ConstraintValidator<RMObject> {
 
-    private BiFunction<AqlPath, Function<AqlPath, RMPathQuery>, RMPathQuery> rmPathQueryCache;
-
-    public DefaultValidator() {
-        Map<AqlPath, RMPathQuery> cache = new HashMap<>();
-        rmPathQueryCache = (path, provider) -> cache.computeIfAbsent(path, provider::apply);
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -61,12 +48,8 @@ public class DefaultValidator implements ConstraintValidator<RMObject> {
         return RMObject.class;
     }
 
-    private RMPathQuery getRmPathQuery(AqlPath path) {
-        return rmPathQueryCache.apply(path, p -> new RMPathQuery(p.toString()));
-    }
-
-    private List<Object> itemsAtPath(AqlPath path, Pathable currentPathable) {
-        return getRmPathQuery(path).findList(ArchieRMInfoLookup.getInstance(), currentPathable).stream()
+    private List<Object> itemsAtPath(RMPathQuery query, Pathable currentPathable) {
+        return query.findList(ArchieRMInfoLookup.getInstance(), currentPathable).stream()
                 .map(RMObjectWithPath::getObject)
                 .collect(Collectors.toList());
     }
@@ -80,50 +63,56 @@ public class DefaultValidator implements ConstraintValidator<RMObject> {
             return Collections.emptyList();
         }
 
-        return validate((Locatable) object, node);
+        return validate(object, node, NodeConstraints.compile(node));
     }
 
-    private List<ConstraintViolation> validate(Locatable locatable, WebTemplateNode node) {
-        List<ConstraintViolation> result = new ArrayList<>();
-        node.getChildren().forEach(childNode -> {
-            var count = 0;
-            AqlPath relativePath = node.buildRelativePath(childNode, false);
-            List<Object> children = itemsAtPath(relativePath, locatable);
-
-            for (var item : children) {
-                if (item instanceof Locatable) {
-                    if (Objects.equals(((Locatable) item).getNameAsString(), childNode.getName())
-                            || !node.isRelativePathNameDependent(childNode)) {
-                        count++;
-                    }
-                } else {
-                    count++;
-                }
-            }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ConstraintViolation> validate(RMObject object, WebTemplateNode node, NodeConstraints constraints) {
+        if (node == null || !(object instanceof Locatable)) {
+            return Collections.emptyList();
+        }
 
-            var interval = getMultiplicityInterval(childNode, node);
-            if (!interval.has(count)) {
-                String message =
-                        RMObjectValidationMessageIds.rm_OCCURRENCE_MISMATCH.getMessage(count, interval.toString());
-                result.add(new ConstraintViolation(childNode.getAqlPath(), message));
-            }
-        });
+        Locatable locatable = (Locatable) object;
+        List<ConstraintViolation> result = new ArrayList<>();
+        for (NodeConstraints.Occurrences occurrences : constraints.getOccurrences()) {
+            validateOccurrences(
+                    locatable,
+                    occurrences.getChild(),
+                    occurrences.getQuery(),
+                    occurrences.isNameDependent(),
+                    occurrences.getInterval(),
+                    result);
+        }
 
         return result;
     }
 
-    private MultiplicityInterval getMultiplicityInterval(WebTemplateNode node, WebTemplateNode parentNode) {
-        var interval = WebTemplateValidationUtils.getMultiplicityInterval(node);
-
-        parentNode.getCardinalities().stream()
-                .filter(cardinality -> BooleanUtils.isTrue(cardinality.getExcludeFromWebTemplate())
-                        && cardinality.getIds().contains(node.getId(false)))
-                .findFirst()
-                .ifPresent(cardinality -> {
-                    interval.setLower(cardinality.getMin());
-                    interval.setUpper(cardinality.getMax());
-                });
+    private void validateOccurrences(
+            Locatable locatable,
+            WebTemplateNode childNode,
+            RMPathQuery query,
+            boolean nameDependent,
+            MultiplicityInterval interval,
+            List<ConstraintViolation> result) {
+        var count = 0;
+        List<Object> children = itemsAtPath(query, locatable);
+
+        for (var item : children) {
+            if (item instanceof Locatable) {
+                if (Objects.equals(((Locatable) item).getNameAsString(), childNode.getName()) || !nameDependent) {
+                    count++;
+                }
+            } else {
+                count++;
+            }
+        }
 
-        return interval;
+        if (!interval.has(count)) {
+            String message = RMObjectValidationMessageIds.rm_OCCURRENCE_MISMATCH.getMessage(count, interval.toString());
+            result.add(new ConstraintViolation(childNode.getAqlPath(), message));
+        }
     }
 }
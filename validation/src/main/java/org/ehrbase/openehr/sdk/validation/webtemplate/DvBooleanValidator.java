@@ -51,7 +51,19 @@ public class DvBooleanValidator implements ConstraintValidator<DvBoolean> {
             return Collections.emptyList();
         }
 
-        var input = WebTemplateValidationUtils.getInputWithType(node, "BOOLEAN");
-        return validator.validate(node.getAqlPath(), dvBoolean.getValue(), input);
+        return validate(dvBoolean, node, NodeConstraints.compile(node));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ConstraintViolation> validate(DvBoolean dvBoolean, WebTemplateNode node, NodeConstraints constraints) {
+        if (!constraints.hasInputs()) {
+            return Collections.emptyList();
+        }
+
+        var input = constraints.findInputWithType("BOOLEAN").orElseThrow();
+        return validator.validate(node.getAqlPath(), dvBoolean.getValue(), input, constraints);
     }
 }
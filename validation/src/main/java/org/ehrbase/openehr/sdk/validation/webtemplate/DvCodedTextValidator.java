@@ -22,6 +22,7 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import org.ehrbase.openehr.sdk.util.functional.Try;
 import org.ehrbase.openehr.sdk.validation.ConstraintViolation;
 import org.ehrbase.openehr.sdk.validation.ConstraintViolationException;
@@ -59,19 +60,75 @@ public class DvCodedTextValidator implements ConstraintValidator<DvCodedText> {
      */
     @Override
     public List<ConstraintViolation> validate(DvCodedText dvCodedText, WebTemplateNode node) {
+        return validate(dvCodedText, node, NodeConstraints.compile(node));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ConstraintViolation> validate(
+            DvCodedText dvCodedText, WebTemplateNode node, NodeConstraints constraints) {
+        List<ConstraintViolation> result = validateCode(dvCodedText, node, constraints);
+
+        getTerminologyParam(dvCodedText, constraints)
+                .ifPresent(param -> result.addAll(
+                        toViolations(node.getAqlPath(), dvCodedText, validateExternalTerminology(param))));
+
+        return result;
+    }
+
+    /**
+     * Validates the object against the constraints of the node, leaving out the external terminology.
+     */
+    List<ConstraintViolation> validateCode(DvCodedText dvCodedText, WebTemplateNode node, NodeConstraints constraints) {
         List<ConstraintViolation> result = new ArrayList<>();
 
-        WebTemplateValidationUtils.findInputWithType(node, "CODED_TEXT")
-                .ifPresent(input -> result.addAll(validateInternalCode(node.getAqlPath(), dvCodedText, input)));
+        constraints
+                .findInputWithType("CODED_TEXT")
+                .ifPresent(input ->
+                        result.addAll(validateInternalCode(node.getAqlPath(), dvCodedText, input, constraints)));
 
-        WebTemplateValidationUtils.findInputWithType(node, "TEXT")
-                .ifPresent(input -> result.addAll(validateExternalTerminology(node.getAqlPath(), dvCodedText, input)));
+        return result;
+    }
+
+    /**
+     * @return the parameter to validate the object against the external terminology with, if the node refers to one
+     *         and an {@link ExternalTerminologyValidation} is configured
+     */
+    Optional<TerminologyParam> getTerminologyParam(DvCodedText dvCodedText, NodeConstraints constraints) {
+        if (externalTerminologyValidation == null) {
+            return Optional.empty();
+        }
+        return constraints.findInputWithType("TEXT").map(input -> {
+            TerminologyParam tp = TerminologyParam.ofFhir(input.getTerminology());
+            tp.setCodePhrase(dvCodedText.getDefiningCode());
+            return tp;
+        });
+    }
+
+    /**
+     * @return the result of the external terminology, <code>null</code> if it does not support the parameter
+     */
+    Try<Boolean, ConstraintViolationException> validateExternalTerminology(TerminologyParam tp) {
+        return externalTerminologyValidation.supports(tp) ? externalTerminologyValidation.validate(tp) : null;
+    }
+
+    static List<ConstraintViolation> toViolations(
+            String aqlPath, DvCodedText dvCodedText, Try<Boolean, ConstraintViolationException> validationResult) {
+        List<ConstraintViolation> result = new ArrayList<>();
+
+        if (validationResult != null && validationResult.isFailure()) {
+            ConstraintViolationException ex = validationResult.getAsFailure().get();
+            result.add(new ConstraintViolation(aqlPath, "Failed to validate " + dvCodedText.toString()));
+            result.addAll(ex.getConstraintViolations());
+        }
 
         return result;
     }
 
     private List<ConstraintViolation> validateInternalCode(
-            String aqlPath, DvCodedText dvCodedText, WebTemplateInput input) {
+            String aqlPath, DvCodedText dvCodedText, WebTemplateInput input, NodeConstraints constraints) {
         List<ConstraintViolation> result = new ArrayList<>();
 
         var definingCode = dvCodedText.getDefiningCode();
@@ -87,9 +144,7 @@ public class DvCodedTextValidator implements ConstraintValidator<DvCodedText> {
         }
 
         if (WebTemplateValidationUtils.hasList(input)) {
-            var matching = input.getList().stream()
-                    .filter(inputValue -> Objects.equals(inputValue.getValue(), definingCode.getCodeString()))
-                    .findFirst();
+            var matching = constraints.findInputValue(input, definingCode.getCodeString());
 
             if (matching.isEmpty()) {
                 result.add(new ConstraintViolation(
@@ -110,24 +165,4 @@ public class DvCodedTextValidator implements ConstraintValidator<DvCodedText> {
 
         return result;
     }
-
-    private List<ConstraintViolation> validateExternalTerminology(
-            String aqlPath, DvCodedText dvCodedText, WebTemplateInput input) {
-        List<ConstraintViolation> result = new ArrayList<>();
-
-        TerminologyParam tp = TerminologyParam.ofFhir(input.getTerminology());
-        tp.setCodePhrase(dvCodedText.getDefiningCode());
-
-        if (externalTerminologyValidation != null && externalTerminologyValidation.supports(tp)) {
-            Try<Boolean, ConstraintViolationException> validationResult = externalTerminologyValidation.validate(tp);
-            if (validationResult.isFailure()) {
-                ConstraintViolationException ex =
-                        validationResult.getAsFailure().get();
-                result.add(new ConstraintViolation(aqlPath, "Failed to validate " + dvCodedText.toString()));
-                result.addAll(ex.getConstraintViolations());
-            }
-        }
-
-        return result;
-    }
 }
@@ -51,7 +51,19 @@ public class DvCountValidator implements ConstraintValidator<DvCount> {
             return Collections.emptyList();
         }
 
-        var input = WebTemplateValidationUtils.getInputWithType(node, "INTEGER");
-        return validator.validate(node.getAqlPath(), dvCount.getMagnitude(), input);
+        return validate(dvCount, node, NodeConstraints.compile(node));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ConstraintViolation> validate(DvCount dvCount, WebTemplateNode node, NodeConstraints constraints) {
+        if (!constraints.hasInputs()) {
+            return Collections.emptyList();
+        }
+
+        var input = constraints.findInputWithType("INTEGER").orElseThrow();
+        return validator.validate(node.getAqlPath(), dvCount.getMagnitude(), input, constraints);
     }
 }
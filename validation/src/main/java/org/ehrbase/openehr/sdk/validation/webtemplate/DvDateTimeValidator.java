@@ -51,7 +51,20 @@ public class DvDateTimeValidator implements ConstraintValidator<DvDateTime> {
             return Collections.emptyList();
         }
 
-        var input = WebTemplateValidationUtils.getInputWithType(node, "DATETIME");
-        return validator.validate(node.getAqlPath(), dvDateTime.getValue(), input);
+        return validate(dvDateTime, node, NodeConstraints.compile(node));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ConstraintViolation> validate(
+            DvDateTime dvDateTime, WebTemplateNode node, NodeConstraints constraints) {
+        if (!constraints.hasInputs()) {
+            return Collections.emptyList();
+        }
+
+        var input = constraints.findInputWithType("DATETIME").orElseThrow();
+        return validator.validate(node.getAqlPath(), dvDateTime.getValue(), input, constraints);
     }
 }
@@ -49,7 +49,19 @@ public class DvDateValidator implements ConstraintValidator<DvDate> {
             return Collections.emptyList();
         }
 
-        var input = WebTemplateValidationUtils.getInputWithType(node, "DATE");
-        return new PrimitiveConstraintValidator().validate(node.getAqlPath(), dvDate.getValue(), input);
+        return validate(dvDate, node, NodeConstraints.compile(node));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ConstraintViolation> validate(DvDate dvDate, WebTemplateNode node, NodeConstraints constraints) {
+        if (!constraints.hasInputs()) {
+            return Collections.emptyList();
+        }
+
+        var input = constraints.findInputWithType("DATE").orElseThrow();
+        return new PrimitiveConstraintValidator().validate(node.getAqlPath(), dvDate.getValue(), input, constraints);
     }
 }
@@ -21,7 +21,6 @@ import com.nedap.archie.rm.datavalues.quantity.DvOrdinal;
 import java.text.MessageFormat;
 import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
 import org.ehrbase.openehr.sdk.validation.ConstraintViolation;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
 
@@ -51,15 +50,25 @@ public class DvOrdinalValidator implements ConstraintValidator<DvOrdinal> {
             return Collections.emptyList();
         }
 
+        return validate(dvOrdinal, node, NodeConstraints.compile(node));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ConstraintViolation> validate(DvOrdinal dvOrdinal, WebTemplateNode node, NodeConstraints constraints) {
+        if (!constraints.hasInputs()) {
+            return Collections.emptyList();
+        }
+
         var symbol = dvOrdinal.getSymbol();
-        var result = new DvCodedTextValidator().validate(symbol, node);
+        var result = new DvCodedTextValidator().validate(symbol, node, constraints);
 
         if (result.isEmpty()) {
-            var input = WebTemplateValidationUtils.getInputWithType(node, "CODED_TEXT");
-            input.getList().stream()
-                    .filter(inputValue -> Objects.equals(
-                            inputValue.getValue(), symbol.getDefiningCode().getCodeString()))
-                    .findFirst()
+            var input = constraints.findInputWithType("CODED_TEXT").orElseThrow();
+            constraints
+                    .findInputValue(input, symbol.getDefiningCode().getCodeString())
                     .ifPresent(inputValue -> {
                         if (dvOrdinal.getValue() != inputValue.getOrdinal().longValue()) {
                             result.add(new ConstraintViolation(
@@ -51,11 +51,24 @@ public class DvProportionValidator implements ConstraintValidator<DvProportion>
             return Collections.emptyList();
         }
 
-        var numerator = WebTemplateValidationUtils.getInputWithSuffix(node, "numerator");
-        var result = validator.validate(node.getAqlPath(), dvProportion.getNumerator(), numerator);
+        return validate(dvProportion, node, NodeConstraints.compile(node));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ConstraintViolation> validate(
+            DvProportion dvProportion, WebTemplateNode node, NodeConstraints constraints) {
+        if (!constraints.hasInputs()) {
+            return Collections.emptyList();
+        }
+
+        var numerator = constraints.findInputWithSuffix("numerator").orElseThrow();
+        var result = validator.validate(node.getAqlPath(), dvProportion.getNumerator(), numerator, constraints);
 
-        var denominator = WebTemplateValidationUtils.getInputWithSuffix(node, "denominator");
-        result.addAll(validator.validate(node.getAqlPath(), dvProportion.getDenominator(), denominator));
+        var denominator = constraints.findInputWithSuffix("denominator").orElseThrow();
+        result.addAll(validator.validate(node.getAqlPath(), dvProportion.getDenominator(), denominator, constraints));
         return result;
     }
 }
@@ -33,8 +33,6 @@ import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
 @SuppressWarnings("unused")
 public class DvQuantityValidator implements ConstraintValidator<DvQuantity> {
 
-    private final PrimitiveConstraintMapper mapper = new PrimitiveConstraintMapper();
-
     private final PrimitiveConstraintValidator validator = new PrimitiveConstraintValidator();
 
     /**
@@ -50,41 +48,49 @@ public class DvQuantityValidator implements ConstraintValidator<DvQuantity> {
      */
     @Override
     public List<ConstraintViolation> validate(DvQuantity quantity, WebTemplateNode node) {
+        return validate(quantity, node, NodeConstraints.compile(node));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ConstraintViolation> validate(DvQuantity quantity, WebTemplateNode node, NodeConstraints constraints) {
         List<ConstraintViolation> result = new ArrayList<>();
 
-        WebTemplateValidationUtils.findInputWithSuffix(node, "magnitude")
-                .ifPresent(input -> result.addAll(validateMagnitude(node.getAqlPath(), quantity, input)));
+        constraints
+                .findInputWithSuffix("magnitude")
+                .ifPresent(input -> result.addAll(validateMagnitude(node.getAqlPath(), quantity, input, constraints)));
 
-        WebTemplateValidationUtils.findInputWithSuffix(node, "unit")
-                .ifPresent(input -> result.addAll(validateUnit(node.getAqlPath(), quantity, input)));
+        constraints
+                .findInputWithSuffix("unit")
+                .ifPresent(input -> result.addAll(validateUnit(node.getAqlPath(), quantity, input, constraints)));
 
         return result;
     }
 
-    private List<ConstraintViolation> validateMagnitude(String path, DvQuantity quantity, WebTemplateInput input) {
-        return validator.validate(path, quantity.getMagnitude(), input);
+    private List<ConstraintViolation> validateMagnitude(
+            String path, DvQuantity quantity, WebTemplateInput input, NodeConstraints constraints) {
+        return validator.validate(path, quantity.getMagnitude(), input, constraints);
     }
 
-    private List<ConstraintViolation> validateUnit(String path, DvQuantity quantity, WebTemplateInput unitInput) {
-        var cString = mapper.mapTextInput(unitInput);
+    private List<ConstraintViolation> validateUnit(
+            String path, DvQuantity quantity, WebTemplateInput unitInput, NodeConstraints constraints) {
+        var cString = constraints.getTextConstraint(unitInput);
         var result = validator.validate(path, quantity.getUnits(), cString);
 
         if (result.isEmpty()) {
-            WebTemplateValidationUtils.findInputValue(unitInput, quantity.getUnits())
-                    .ifPresent(unitValue -> {
-                        if (WebTemplateValidationUtils.hasValidationRange(unitValue)) {
-                            var cReal = mapper.mapRealInterval(
-                                    unitValue.getValidation().getRange());
-                            result.addAll(validator.validate(path, quantity.getMagnitude(), cReal));
-                        }
+            constraints.findInputValue(unitInput, quantity.getUnits()).ifPresent(unitValue -> {
+                if (WebTemplateValidationUtils.hasValidationRange(unitValue)) {
+                    var cReal = constraints.getRangeConstraint(unitInput, unitValue);
+                    result.addAll(validator.validate(path, quantity.getMagnitude(), cReal));
+                }
 
-                        if (WebTemplateValidationUtils.hasValidationPrecision(unitValue)
-                                && quantity.getPrecision() != null) {
-                            var cInteger = mapper.mapIntegerInterval(
-                                    unitValue.getValidation().getPrecision());
-                            result.addAll(validator.validate(path, quantity.getPrecision(), cInteger));
-                        }
-                    });
+                if (WebTemplateValidationUtils.hasValidationPrecision(unitValue) && quantity.getPrecision() != null) {
+                    var cInteger = constraints.getPrecisionConstraint(unitInput, unitValue);
+                    result.addAll(validator.validate(path, quantity.getPrecision(), cInteger));
+                }
+            });
         }
 
         return result;
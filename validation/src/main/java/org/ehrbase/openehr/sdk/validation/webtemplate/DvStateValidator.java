@@ -48,4 +48,12 @@ public class DvStateValidator implements ConstraintValidator<DvState> {
     public List<ConstraintViolation> validate(DvState dvState, WebTemplateNode node) {
         return dvCodedTextValidator.validate(dvState.getValue(), node);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ConstraintViolation> validate(DvState dvState, WebTemplateNode node, NodeConstraints constraints) {
+        return dvCodedTextValidator.validate(dvState.getValue(), node, constraints);
+    }
 }
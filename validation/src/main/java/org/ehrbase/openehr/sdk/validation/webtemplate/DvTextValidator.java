@@ -49,7 +49,19 @@ public class DvTextValidator implements ConstraintValidator<DvText> {
             return Collections.emptyList();
         }
 
-        var input = WebTemplateValidationUtils.getInputWithType(node, "TEXT");
-        return new PrimitiveConstraintValidator().validate(node.getAqlPath(), dvText.getValue(), input);
+        return validate(dvText, node, NodeConstraints.compile(node));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ConstraintViolation> validate(DvText dvText, WebTemplateNode node, NodeConstraints constraints) {
+        if (!constraints.hasInputs()) {
+            return Collections.emptyList();
+        }
+
+        var input = constraints.findInputWithType("TEXT").orElseThrow();
+        return new PrimitiveConstraintValidator().validate(node.getAqlPath(), dvText.getValue(), input, constraints);
     }
 }
@@ -51,7 +51,19 @@ public class DvTimeValidator implements ConstraintValidator<DvTime> {
             return Collections.emptyList();
         }
 
-        var input = WebTemplateValidationUtils.getInputWithType(node, "TIME");
-        return validator.validate(node.getAqlPath(), dvTime.getValue(), input);
+        return validate(dvTime, node, NodeConstraints.compile(node));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ConstraintViolation> validate(DvTime dvTime, WebTemplateNode node, NodeConstraints constraints) {
+        if (!constraints.hasInputs()) {
+            return Collections.emptyList();
+        }
+
+        var input = constraints.findInputWithType("TIME").orElseThrow();
+        return validator.validate(node.getAqlPath(), dvTime.getValue(), input, constraints);
     }
 }
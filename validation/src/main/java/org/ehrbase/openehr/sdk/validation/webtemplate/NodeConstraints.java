@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.validation.webtemplate;
+
+import com.nedap.archie.aom.CPrimitiveObject;
+import com.nedap.archie.aom.primitives.CInteger;
+import com.nedap.archie.aom.primitives.CReal;
+import com.nedap.archie.aom.primitives.CString;
+import com.nedap.archie.base.MultiplicityInterval;
+import com.nedap.archie.query.RMPathQuery;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateInput;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateInputValue;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
+
+/**
+ * The constraints of a {@link WebTemplateNode} in the form used by the {@link ConstraintValidator}s, compiled once:
+ * the inputs by type and suffix, the Archie primitive constraints of the inputs, the input values by value and the
+ * occurrences of the children.
+ * <p>
+ * Instances are immutable and can be shared between threads. The node must not be modified after compilation.
+ *
+ * @see ValidationProgram
+ */
+public final class NodeConstraints {
+
+    private static final PrimitiveConstraintMapper MAPPER = new PrimitiveConstraintMapper();
+
+    private static final Set<String> PRIMITIVE_INPUT_TYPES =
+            Set.of("BOOLEAN", "TEXT", "INTEGER", "DECIMAL", "DATE", "TIME", "DATETIME");
+
+    private final WebTemplateNode node;
+    private final Map<String, WebTemplateInput> inputsByType = new HashMap<>();
+    private final Map<String, WebTemplateInput> inputsBySuffix = new HashMap<>();
+    private final Map<WebTemplateInput, CompiledInput> compiledInputs = new IdentityHashMap<>();
+
+    // compiled on first use, the path queries are comparatively expensive
+    private volatile List<Occurrences> occurrences;
+
+    private NodeConstraints(WebTemplateNode node) {
+        this.node = node;
+        for (WebTemplateInput input : node.getInputs()) {
+            if (input.getType() != null) {
+                inputsByType.putIfAbsent(input.getType(), input);
+            }
+            if (input.getSuffix() != null) {
+                inputsBySuffix.putIfAbsent(input.getSuffix(), input);
+            }
+            compiledInputs.put(input, new CompiledInput(input));
+        }
+    }
+
+    /**
+     * @param node
+     * @return the compiled constraints of the node
+     */
+    public static NodeConstraints compile(WebTemplateNode node) {
+        return new NodeConstraints(node);
+    }
+
+    public WebTemplateNode getNode() {
+        return node;
+    }
+
+    /**
+     * @see WebTemplateValidationUtils#hasInputs(WebTemplateNode)
+     */
+    public boolean hasInputs() {
+        return !compiledInputs.isEmpty();
+    }
+
+    /**
+     * @see WebTemplateValidationUtils#findInputWithType(WebTemplateNode, String)
+     */
+    public Optional<WebTemplateInput> findInputWithType(String type) {
+        return Optional.ofNullable(inputsByType.get(type));
+    }
+
+    /**
+     * @see WebTemplateValidationUtils#findInputWithSuffix(WebTemplateNode, String)
+     */
+    public Optional<WebTemplateInput> findInputWithSuffix(String suffix) {
+        return Optional.ofNullable(inputsBySuffix.get(suffix));
+    }
+
+    /**
+     * @param input an input of the node
+     * @return the first value of the input with the given value
+     * @see WebTemplateValidationUtils#findInputValue(WebTemplateInput, String)
+     */
+    public Optional<WebTemplateInputValue> findInputValue(WebTemplateInput input, String value) {
+        return Optional.ofNullable(compiled(input).valuesByValue.get(value));
+    }
+
+    /**
+     * @param input an input of the node
+     * @return the constraint of the input according to its type
+     * @see PrimitiveConstraintMapper#mapInput(WebTemplateInput)
+     */
+    @SuppressWarnings("java:S1452")
+    public CPrimitiveObject<?, ?> getPrimitiveConstraint(WebTemplateInput input) {
+        CPrimitiveObject<?, ?> constraint = compiled(input).primitive;
+        // not compilable, let the mapper report the error
+        return constraint != null ? constraint : MAPPER.mapInput(input);
+    }
+
+    /**
+     * @param input an input of the node
+     * @return the constraint of the input as text
+     * @see PrimitiveConstraintMapper#mapTextInput(WebTemplateInput)
+     */
+    public CString getTextConstraint(WebTemplateInput input) {
+        return compiled(input).text;
+    }
+
+    /**
+     * @param input an input of the node
+     * @param value a value of an input of the node having a validation range
+     * @see PrimitiveConstraintMapper#mapRealInterval(org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateInterval)
+     */
+    public CReal getRangeConstraint(WebTemplateInput input, WebTemplateInputValue value) {
+        CReal constraint = compiled(input).ranges.get(value);
+        return constraint != null
+                ? constraint
+                : MAPPER.mapRealInterval(value.getValidation().getRange());
+    }
+
+    /**
+     * @param input an input of the node
+     * @param value a value of an input of the node having a validation precision
+     * @see PrimitiveConstraintMapper#mapIntegerInterval(org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateInterval)
+     */
+    public CInteger getPrecisionConstraint(WebTemplateInput input, WebTemplateInputValue value) {
+        CInteger constraint = compiled(input).precisions.get(value);
+        return constraint != null
+                ? constraint
+                : MAPPER.mapIntegerInterval(value.getValidation().getPrecision());
+    }
+
+    /**
+     * @return the occurrence constraints of the children
+     */
+    public List<Occurrences> getOccurrences() {
+        List<Occurrences> result = occurrences;
+        if (result == null) {
+            result = new ArrayList<>(node.getChildren().size());
+            for (WebTemplateNode child : node.getChildren()) {
+                result.add(new Occurrences(node, child));
+            }
+            result = Collections.unmodifiableList(result);
+            occurrences = result;
+        }
+        return result;
+    }
+
+    private CompiledInput compiled(WebTemplateInput input) {
+        CompiledInput compiled = compiledInputs.get(input);
+        // inputs which are not part of the node are compiled on the fly
+        return compiled != null ? compiled : new CompiledInput(input);
+    }
+
+    private static final class CompiledInput {
+
+        private final CPrimitiveObject<?, ?> primitive;
+        private final CString text;
+        private final Map<String, WebTemplateInputValue> valuesByValue = new HashMap<>();
+        private final Map<WebTemplateInputValue, CReal> ranges = new IdentityHashMap<>();
+        private final Map<WebTemplateInputValue, CInteger> precisions = new IdentityHashMap<>();
+
+        private CompiledInput(WebTemplateInput input) {
+            this.primitive = mapInput(input);
+            this.text = MAPPER.mapTextInput(input);
+            for (WebTemplateInputValue value : input.getList()) {
+                valuesByValue.putIfAbsent(value.getValue(), value);
+                if (WebTemplateValidationUtils.hasValidationRange(value)) {
+                    ranges.put(
+                            value, MAPPER.mapRealInterval(value.getValidation().getRange()));
+                }
+                if (WebTemplateValidationUtils.hasValidationPrecision(value)) {
+                    precisions.put(
+                            value,
+                            MAPPER.mapIntegerInterval(value.getValidation().getPrecision()));
+                }
+            }
+        }
+
+        private static CPrimitiveObject<?, ?> mapInput(WebTemplateInput input) {
+            if (!PRIMITIVE_INPUT_TYPES.contains(input.getType())) {
+                return null;
+            }
+            try {
+                return MAPPER.mapInput(input);
+            } catch (RuntimeException e) {
+                // reported when the input is validated
+                return null;
+            }
+        }
+    }
+
+    /**
+     * The occurrences of a child node within the object of the node
+     */
+    public static final class Occurrences {
+
+        private final WebTemplateNode child;
+        private final RMPathQuery query;
+        private final boolean nameDependent;
+        private final MultiplicityInterval interval;
+
+        private Occurrences(WebTemplateNode node, WebTemplateNode child) {
+            this.child = child;
+            this.query = new RMPathQuery(node.buildRelativePath(child, false).toString());
+            this.nameDependent = node.isRelativePathNameDependent(child);
+            this.interval = WebTemplateValidationUtils.getMultiplicityInterval(child, node);
+        }
+
+        public WebTemplateNode getChild() {
+            return child;
+        }
+
+        /**
+         * @return the query of the child relative to the node
+         */
+        public RMPathQuery getQuery() {
+            return query;
+        }
+
+        /**
+         * @return if the items found by {@link #getQuery()} have to match the name of the child
+         */
+        public boolean isNameDependent() {
+            return nameDependent;
+        }
+
+        /**
+         * @return the allowed number of occurrences. It must not be modified.
+         */
+        public MultiplicityInterval getInterval() {
+            return interval;
+        }
+    }
+}
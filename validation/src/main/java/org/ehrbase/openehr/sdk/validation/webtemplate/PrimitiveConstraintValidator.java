@@ -45,4 +45,12 @@ public class PrimitiveConstraintValidator {
     public List<ConstraintViolation> validate(String aqlPath, Object value, WebTemplateInput input) {
         return validate(aqlPath, value, constraintMapper.mapInput(input));
     }
+
+    /**
+     * Validates the value against the compiled constraint of the input.
+     */
+    public List<ConstraintViolation> validate(
+            String aqlPath, Object value, WebTemplateInput input, NodeConstraints constraints) {
+        return validate(aqlPath, value, constraints.getPrimitiveConstraint(input));
+    }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.validation.webtemplate;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.ehrbase.openehr.sdk.serialisation.walker.WalkPlan;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
+
+/**
+ * The {@link NodeConstraints} of all nodes of a {@link WalkPlan}, so that a validation only has to walk the data.
+ * <p>
+ * Programs are compiled once per plan and kept as long as the plan, which in turn is kept as long as the template
+ * tree it is compiled from.
+ */
+public final class ValidationProgram {
+
+    private static final Map<WalkPlan, ValidationProgram> PROGRAMS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Map<WebTemplateNode, NodeConstraints> constraints = new IdentityHashMap<>();
+
+    private ValidationProgram(WalkPlan plan) {
+        Deque<WalkPlan.Step> steps = new ArrayDeque<>();
+        steps.push(plan.getRoot());
+        while (!steps.isEmpty()) {
+            WalkPlan.Step step = steps.pop();
+            WebTemplateNode node = step.getNode();
+            if (constraints.containsKey(node)) {
+                continue;
+            }
+            constraints.put(node, NodeConstraints.compile(node));
+            if (step.isVisitChildren()) {
+                for (WebTemplateNode child : node.getChildren()) {
+                    WalkPlan.Step childStep = step.getChildStep(child);
+                    if (childStep != null) {
+                        steps.push(childStep);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param plan
+     * @return the program of the plan, compiled on first use
+     */
+    public static ValidationProgram of(WalkPlan plan) {
+        ValidationProgram program = PROGRAMS.get(plan);
+        if (program == null) {
+            ValidationProgram compiled = new ValidationProgram(plan);
+            program = PROGRAMS.putIfAbsent(plan, compiled);
+            if (program == null) {
+                program = compiled;
+            }
+        }
+        return program;
+    }
+
+    /**
+     * @param node a node of the plan
+     * @return the constraints of the node, compiled on the fly if the node is not part of the plan
+     */
+    public NodeConstraints get(WebTemplateNode node) {
+        NodeConstraints nodeConstraints = constraints.get(node);
+        return nodeConstraints != null ? nodeConstraints : NodeConstraints.compile(node);
+    }
+}
@@ -18,14 +18,31 @@
 package org.ehrbase.openehr.sdk.validation.webtemplate;
 
 import com.nedap.archie.rm.RMObject;
+import com.nedap.archie.rm.composition.Entry;
 import com.nedap.archie.rm.datavalues.DvCodedText;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.ehrbase.openehr.sdk.serialisation.walker.Context;
 import org.ehrbase.openehr.sdk.serialisation.walker.FromCompositionWalker;
+import org.ehrbase.openehr.sdk.serialisation.walker.WalkPlan;
+import org.ehrbase.openehr.sdk.serialisation.walker.defaultvalues.DefaultValues;
+import org.ehrbase.openehr.sdk.util.functional.Try;
 import org.ehrbase.openehr.sdk.util.reflection.ReflectionHelper;
 import org.ehrbase.openehr.sdk.validation.ConstraintViolation;
+import org.ehrbase.openehr.sdk.validation.ConstraintViolationException;
 import org.ehrbase.openehr.sdk.validation.terminology.ExternalTerminologyValidation;
+import org.ehrbase.openehr.sdk.validation.terminology.ExternalTerminologyValidationException;
+import org.ehrbase.openehr.sdk.validation.terminology.TerminologyParam;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,13 +56,170 @@ public class ValidationWalker extends FromCompositionWalker<List<ConstraintViola
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     private static final Map<Class<? extends RMObject>, ConstraintValidator> VALIDATORS =
-            ReflectionHelper.buildMap(ConstraintValidator.class);
+            Collections.unmodifiableMap(ReflectionHelper.buildMap(ConstraintValidator.class));
+
+    @SuppressWarnings("rawtypes")
+    private final Map<Class<? extends RMObject>, ConstraintValidator> validators;
 
     private final DefaultValidator defaultValidator = new DefaultValidator();
 
+    private final Executor executor;
+
+    private Executor terminologyExecutor;
+
+    private Duration terminologyTimeout;
+
+    private ValidationProgram program;
+
+    /**
+     * Violations found apart from the walk, in the order of the walk, while walking deferred
+     */
+    private List<Insertion> insertions;
+
+    /**
+     * The running external terminology checks, shared with the forks
+     */
+    private Map<TerminologyParam, CompletableFuture<Try<Boolean, ConstraintViolationException>>> terminologyChecks;
+
     public ValidationWalker(ExternalTerminologyValidation externalTerminologyValidation) {
+        this(externalTerminologyValidation, null);
+    }
+
+    /**
+     * @param externalTerminologyValidation
+     * @param executor                      if not <code>null</code> the entries of a composition are validated in
+     *                                      parallel on it. The violations are reported in the same order as by a
+     *                                      sequential validation.
+     */
+    public ValidationWalker(ExternalTerminologyValidation externalTerminologyValidation, Executor executor) {
         if (externalTerminologyValidation != null) {
-            VALIDATORS.put(DvCodedText.class, new DvCodedTextValidator(externalTerminologyValidation));
+            // the shared registry must not be modified, other walkers might validate without terminology service
+            validators = new HashMap<>(VALIDATORS);
+            validators.put(DvCodedText.class, new DvCodedTextValidator(externalTerminologyValidation));
+        } else {
+            validators = VALIDATORS;
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Walker of a forked subtree, which shares the validators, the program and the terminology checks of the parent
+     * walk
+     */
+    private ValidationWalker(ValidationWalker parent) {
+        this.validators = parent.validators;
+        this.executor = null;
+        this.terminologyExecutor = parent.terminologyExecutor;
+        this.terminologyTimeout = parent.terminologyTimeout;
+        this.program = parent.program;
+        this.insertions = new ArrayList<>();
+        this.terminologyChecks = parent.terminologyChecks;
+    }
+
+    /**
+     * Collects the external terminology checks of a composition and runs them concurrently on <code>executor</code>
+     * once the composition has been walked, instead of one after the other during the walk. Each distinct code is
+     * checked once per composition.
+     *
+     * @param executor the executor of the checks, bounding their concurrency. It should not be the one the entries are
+     *                 validated on, as those wait for their checks.
+     * @param timeout  the time each check may take, or <code>null</code> to wait indefinitely
+     * @return this walker
+     */
+    public ValidationWalker withTerminologyExecutor(Executor executor, Duration timeout) {
+        this.terminologyExecutor = executor;
+        this.terminologyTimeout = timeout;
+        return this;
+    }
+
+    @Override
+    protected void walk(
+            RMObject composition,
+            List<ConstraintViolation> object,
+            WalkPlan plan,
+            DefaultValues defaultValues,
+            String templateId) {
+        program = ValidationProgram.of(plan);
+        if (executor == null && terminologyExecutor == null) {
+            super.walk(composition, object, plan, defaultValues, templateId);
+            return;
+        }
+
+        insertions = new ArrayList<>();
+        terminologyChecks = new ConcurrentHashMap<>();
+        try {
+            super.walk(composition, object, plan, defaultValues, templateId);
+            insert(object);
+        } finally {
+            insertions = null;
+            terminologyChecks = null;
+        }
+    }
+
+    /**
+     * Validates entries on the executor if one is configured. Sections are walked in place, so that the entries
+     * within them are forked as well.
+     */
+    @Override
+    protected void handleChild(Context<List<ConstraintViolation>> context, WalkPlan.Step step) {
+        if (executor == null
+                || insertions == null
+                || !(context.getRmObjectDeque().element() instanceof Entry)) {
+            super.handleChild(context, step);
+            return;
+        }
+
+        List<ConstraintViolation> result = context.getObjectDeque().element();
+        List<ConstraintViolation> forkResult = new ArrayList<>();
+        Context<List<ConstraintViolation>> forkContext = copy(context, forkResult);
+        context.getNodeDeque().remove();
+        context.getObjectDeque().remove();
+        context.getRmObjectDeque().remove();
+
+        // the walkers are not thread-safe, thus every fork gets its own
+        ValidationWalker walker = new ValidationWalker(this);
+        insertions.add(new Insertion(
+                result.size(),
+                CompletableFuture.supplyAsync(
+                        () -> {
+                            walker.walkSubtree(forkContext, step);
+                            walker.insert(forkResult);
+                            return forkResult;
+                        },
+                        executor)));
+    }
+
+    private static Context<List<ConstraintViolation>> copy(
+            Context<List<ConstraintViolation>> context, List<ConstraintViolation> result) {
+        Context<List<ConstraintViolation>> copy = new Context<>();
+        copy.getNodeDeque().addAll(context.getNodeDeque());
+        copy.getRmObjectDeque().addAll(context.getRmObjectDeque());
+        copy.getObjectDeque().push(result);
+        copy.getCountMap().putAll(context.getCountMap());
+        copy.setDefaultValues(context.getDefaultValues());
+        copy.setTemplateId(context.getTemplateId());
+        return copy;
+    }
+
+    /**
+     * Waits for the forked subtrees and terminology checks and inserts their violations where a sequential walk would
+     * have added them.
+     */
+    private void insert(List<ConstraintViolation> result) {
+        try {
+            CompletableFuture.allOf(insertions.stream().map(i -> i.violations).toArray(CompletableFuture[]::new))
+                    .join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new ExternalTerminologyValidationException(
+                        "Timed out validating codes against the external terminology", e.getCause());
+            }
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        // backwards, so that the positions of the preceding insertions stay valid
+        for (int i = insertions.size() - 1; i >= 0; i--) {
+            Insertion insertion = insertions.get(i);
+            result.addAll(insertion.position, insertion.violations.join());
         }
     }
 
@@ -57,8 +231,34 @@ public class ValidationWalker extends FromCompositionWalker<List<ConstraintViola
 
         logger.trace("PreHandle: {}, rmObject={}", node, rmObject);
 
-        var validator = getValidator(rmObject);
-        result.addAll(validator.validate(rmObject, node));
+        if (terminologyExecutor != null
+                && insertions != null
+                && validators.get(rmObject.getClass()) instanceof DvCodedTextValidator) {
+            DvCodedText dvCodedText = (DvCodedText) rmObject;
+            DvCodedTextValidator codedTextValidator = (DvCodedTextValidator) validators.get(rmObject.getClass());
+            NodeConstraints constraints = program.get(node);
+            result.addAll(codedTextValidator.validateCode(dvCodedText, node, constraints));
+            codedTextValidator
+                    .getTerminologyParam(dvCodedText, constraints)
+                    .ifPresent(param -> insertions.add(new Insertion(
+                            result.size(),
+                            terminologyChecks
+                                    .computeIfAbsent(param, p -> checkTerminology(codedTextValidator, p))
+                                    .thenApply(validationResult -> DvCodedTextValidator.toViolations(
+                                            node.getAqlPath(), dvCodedText, validationResult)))));
+        } else {
+            var validator = getValidator(rmObject);
+            result.addAll(validator.validate(rmObject, node, program.get(node)));
+        }
+    }
+
+    private CompletableFuture<Try<Boolean, ConstraintViolationException>> checkTerminology(
+            DvCodedTextValidator validator, TerminologyParam param) {
+        var check =
+                CompletableFuture.supplyAsync(() -> validator.validateExternalTerminology(param), terminologyExecutor);
+        return terminologyTimeout != null
+                ? check.orTimeout(terminologyTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                : check;
     }
 
     @Override
@@ -74,6 +274,17 @@ public class ValidationWalker extends FromCompositionWalker<List<ConstraintViola
 
     @SuppressWarnings("unchecked")
     private <T extends RMObject> ConstraintValidator<T> getValidator(RMObject object) {
-        return VALIDATORS.getOrDefault(object.getClass(), defaultValidator);
+        return validators.getOrDefault(object.getClass(), defaultValidator);
+    }
+
+    private static final class Insertion {
+
+        private final int position;
+        private final CompletableFuture<List<ConstraintViolation>> violations;
+
+        private Insertion(int position, CompletableFuture<List<ConstraintViolation>> violations) {
+            this.position = position;
+            this.violations = violations;
+        }
     }
 }
@@ -191,4 +191,27 @@ public class WebTemplateValidationUtils {
         }
         return interval;
     }
+
+    /**
+     * Return the multiplicity of the node within its parent, taking into account the cardinalities of the parent
+     * which are excluded from the web template.
+     *
+     * @param node       the node to check
+     * @param parentNode the parent of the node
+     * @return the multiplicity interval
+     */
+    public static MultiplicityInterval getMultiplicityInterval(WebTemplateNode node, WebTemplateNode parentNode) {
+        var interval = getMultiplicityInterval(node);
+
+        parentNode.getCardinalities().stream()
+                .filter(cardinality -> BooleanUtils.isTrue(cardinality.getExcludeFromWebTemplate())
+                        && cardinality.getIds().contains(node.getId(false)))
+                .findFirst()
+                .ifPresent(cardinality -> {
+                    interval.setLower(cardinality.getMin());
+                    interval.setUpper(cardinality.getMax());
+                });
+
+        return interval;
+    }
 }
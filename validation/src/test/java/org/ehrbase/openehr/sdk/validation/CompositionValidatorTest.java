@@ -17,15 +17,33 @@
  */
 package org.ehrbase.openehr.sdk.validation;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.nedap.archie.rm.composition.Composition;
+import com.nedap.archie.rm.datatypes.CodePhrase;
+import com.nedap.archie.rm.datavalues.DvCodedText;
+import com.nedap.archie.rminfo.ArchieRMInfoLookup;
+import com.nedap.archie.rmobjectvalidator.RMObjectValidationMessage;
+import com.nedap.archie.rmobjectvalidator.RMObjectValidator;
 import com.nedap.archie.xml.JAXBUtil;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import javax.xml.bind.JAXBException;
 import org.apache.commons.io.IOUtils;
 import org.apache.xmlbeans.XmlException;
@@ -35,7 +53,13 @@ import org.ehrbase.openehr.sdk.serialisation.jsonencoding.CanonicalJson;
 import org.ehrbase.openehr.sdk.test_data.composition.CompositionTestDataCanonicalJson;
 import org.ehrbase.openehr.sdk.test_data.composition.CompositionTestDataSimSDTJson;
 import org.ehrbase.openehr.sdk.test_data.operationaltemplate.OperationalTemplateTestData;
+import org.ehrbase.openehr.sdk.util.functional.Try;
+import org.ehrbase.openehr.sdk.util.reflection.ReflectionHelper;
+import org.ehrbase.openehr.sdk.validation.terminology.ExternalTerminologyValidation;
+import org.ehrbase.openehr.sdk.validation.terminology.TerminologyParam;
+import org.ehrbase.openehr.sdk.validation.webtemplate.ConstraintValidator;
 import org.ehrbase.openehr.sdk.validation.webtemplate.TestDataTemplateProvider;
+import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
 import org.junit.jupiter.api.Test;
 import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
 import org.openehr.schemas.v1.TemplateDocument;
@@ -112,6 +136,111 @@ class CompositionValidatorTest {
         result.forEach(System.out::println);
     }
 
+    @Test
+    void validateInternationalPatientSummary_ReusedWebTemplate() throws Exception {
+        var template = new OPTParser(getOperationalTemplate(OperationalTemplateTestData.IPS)).parse();
+        var composition = getComposition(CompositionTestDataCanonicalJson.IPS_INVALID);
+
+        // the second run uses the validation program compiled by the first one
+        var first = validator.validate(composition, template);
+        var second = validator.validate(composition, template);
+        assertEquals(11, first.size());
+        assertThat(second).usingRecursiveFieldByFieldElementComparator().isEqualTo(first);
+    }
+
+    @Test
+    void validateInternationalPatientSummary_Parallel() throws Exception {
+        var template = new OPTParser(getOperationalTemplate(OperationalTemplateTestData.IPS)).parse();
+        var composition = getComposition(CompositionTestDataCanonicalJson.IPS_INVALID);
+        var sequential = validator.validate(composition, template);
+
+        var parallelValidator = new CompositionValidator();
+        parallelValidator.setExecutor(ForkJoinPool.commonPool());
+        var parallel = parallelValidator.validate(composition, template);
+
+        assertEquals(11, parallel.size());
+        assertThat(parallel).usingRecursiveFieldByFieldElementComparator().isEqualTo(sequential);
+    }
+
+    @Test
+    void validateAll() throws Exception {
+        var template = new OPTParser(getOperationalTemplate(OperationalTemplateTestData.IPS)).parse();
+        var valid = getComposition(CompositionTestDataCanonicalJson.IPS);
+        var invalid = getComposition(CompositionTestDataCanonicalJson.IPS_INVALID);
+        List<Composition> compositions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            compositions.add(i % 3 == 0 ? invalid : valid);
+        }
+
+        var parallelValidator = new CompositionValidator();
+        parallelValidator.setExecutor(ForkJoinPool.commonPool());
+        List<Composition> validated = new ArrayList<>();
+        List<Integer> violations = new ArrayList<>();
+        parallelValidator.validateAll(compositions, template, (composition, result) -> {
+            validated.add(composition);
+            violations.add(result.size());
+        });
+
+        assertThat(validated).containsExactlyElementsOf(compositions);
+        assertThat(violations)
+                .containsExactlyElementsOf(
+                        compositions.stream().map(c -> c == invalid ? 11 : 0).collect(Collectors.toList()));
+    }
+
+    @Test
+    void validateAllBuildsValidatorsWithFactory() throws Exception {
+        var template = new OPTParser(getOperationalTemplate(OperationalTemplateTestData.IPS)).parse();
+        var composition = getComposition(CompositionTestDataCanonicalJson.IPS);
+        List<Composition> compositions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            compositions.add(composition);
+        }
+
+        List<ConfiguredValidator> built = Collections.synchronizedList(new ArrayList<>());
+        Set<RMObjectValidator> used = ConcurrentHashMap.newKeySet();
+        var parallelValidator = new CompositionValidator();
+        parallelValidator.setExecutor(ForkJoinPool.commonPool());
+        parallelValidator.setRunInvariantChecks(false);
+        parallelValidator.setRmObjectValidatorFactory(() -> {
+            ConfiguredValidator validator = new ConfiguredValidator(used);
+            built.add(validator);
+            return validator;
+        });
+        parallelValidator.validateAll(
+                compositions, template, (c, result) -> assertThat(result).isEmpty());
+
+        assertThat(built).contains((ConfiguredValidator) parallelValidator.getRmObjectValidator());
+        assertThat(used).isNotEmpty().isSubsetOf(built).doesNotContain(parallelValidator.getRmObjectValidator());
+        assertThat(built).allMatch(v -> Boolean.FALSE.equals(v.runInvariantChecks));
+    }
+
+    @Test
+    void validateExternalTerminologyConcurrently() throws Exception {
+        var template = new OPTParser(getOperationalTemplate(OperationalTemplateTestData.ALL_TYPES)).parse();
+        var composition = getComposition(CompositionTestDataCanonicalJson.ALL_TYPES);
+        // the codes of the repeated entry are checked only once
+        composition.getContent().add(composition.getContent().get(0));
+        var rejectedCode = composition.getContext().getSetting().getDefiningCode();
+
+        var sequentialTerminology = new CountingTerminologyValidation(rejectedCode);
+        var sequential = new CompositionValidator(sequentialTerminology).validate(composition, template);
+
+        var concurrentTerminology = new CountingTerminologyValidation(rejectedCode);
+        var concurrentValidator = new CompositionValidator(concurrentTerminology);
+        ExecutorService terminologyExecutor = Executors.newFixedThreadPool(4);
+        try {
+            concurrentValidator.setTerminologyExecutor(terminologyExecutor, Duration.ofSeconds(30));
+            var concurrent = concurrentValidator.validate(composition, template);
+
+            assertThat(sequential).isNotEmpty();
+            assertThat(concurrent).usingRecursiveFieldByFieldElementComparator().isEqualTo(sequential);
+            assertThat(sequentialTerminology.validations.get()).isEqualTo(5);
+            assertThat(concurrentTerminology.validations.get()).isEqualTo(3);
+        } finally {
+            terminologyExecutor.shutdown();
+        }
+    }
+
     @Test
     void validateCorona() throws Exception {
         var template = getOperationalTemplate(OperationalTemplateTestData.CORONA_ANAMNESE);
@@ -232,6 +361,36 @@ class CompositionValidatorTest {
         assertTrue(result.isEmpty());
     }
 
+    private static class CountingTerminologyValidation implements ExternalTerminologyValidation {
+
+        private final CodePhrase rejectedCode;
+        private final AtomicInteger validations = new AtomicInteger();
+
+        private CountingTerminologyValidation(CodePhrase rejectedCode) {
+            this.rejectedCode = rejectedCode;
+        }
+
+        @Override
+        public boolean supports(TerminologyParam param) {
+            return true;
+        }
+
+        @Override
+        public Try<Boolean, ConstraintViolationException> validate(TerminologyParam param) {
+            validations.incrementAndGet();
+            if (param.getCodePhrase().filter(rejectedCode::equals).isPresent()) {
+                return Try.failure(new ConstraintViolationException(
+                        List.of(new ConstraintViolation("Rejected " + rejectedCode.getCodeString()))));
+            }
+            return Try.success(Boolean.TRUE);
+        }
+
+        @Override
+        public List<DvCodedText> expand(TerminologyParam param) {
+            return List.of();
+        }
+    }
+
     private Composition getComposition(CompositionTestDataCanonicalJson composition) throws IOException {
         return new CanonicalJson()
                 .unmarshal(IOUtils.toString(composition.getStream(), StandardCharsets.UTF_8), Composition.class);
@@ -257,4 +416,37 @@ class CompositionValidatorTest {
         return TemplateDocument.Factory.parse(new FileInputStream("./src/test/resources/operational_templates/" + name))
                 .getTemplate();
     }
+
+    @Test
+    void constraintValidatorServiceIndexComplete() {
+        assertThat(ServiceLoader.load(ConstraintValidator.class).stream()
+                        .map(p -> p.type().getName())
+                        .collect(Collectors.toList()))
+                .containsExactlyInAnyOrderElementsOf(ReflectionHelper.scanImplementations(ConstraintValidator.class));
+
+        CompositionValidator.warmUp();
+    }
+
+    private static class ConfiguredValidator extends RMObjectValidator {
+
+        private final Set<RMObjectValidator> used;
+        private Boolean runInvariantChecks;
+
+        ConfiguredValidator(Set<RMObjectValidator> used) {
+            super(ArchieRMInfoLookup.getInstance(), archetypeId -> null);
+            this.used = used;
+        }
+
+        @Override
+        public void setRunInvariantChecks(boolean runInvariantChecks) {
+            super.setRunInvariantChecks(runInvariantChecks);
+            this.runInvariantChecks = runInvariantChecks;
+        }
+
+        @Override
+        public List<RMObjectValidationMessage> validate(Object rmObject) {
+            used.add(this);
+            return super.validate(rmObject);
+        }
+    }
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.validation.terminology;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.nedap.archie.rm.datatypes.CodePhrase;
+import com.nedap.archie.rm.datavalues.DvCodedText;
+import com.nedap.archie.rm.support.identification.TerminologyId;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ehrbase.openehr.sdk.util.functional.Try;
+import org.ehrbase.openehr.sdk.validation.ConstraintViolationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CachingExternalTerminologyValidationTest {
+
+    private static final String VALUE_SET = "http://example.org/fhir/ValueSet/colours";
+    private static final String CODE_SYSTEM = "http://example.org/fhir/CodeSystem/colours";
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private String baseUrl;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/fhir/ValueSet", exchange -> {
+            requests.incrementAndGet();
+            String body = exchange.getRequestURI().getPath().endsWith("$expand")
+                    ? "{\"resourceType\":\"ValueSet\",\"expansion\":{\"contains\":["
+                            + "{\"system\":\"" + CODE_SYSTEM + "\",\"code\":\"red\",\"display\":\"Red\"},"
+                            + "{\"system\":\"" + CODE_SYSTEM + "\",\"code\":\"green\",\"display\":\"Green\"}]}}"
+                    : "{\"resourceType\":\"Bundle\",\"total\":1}";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/fhir+json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort() + "/fhir";
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void validateValueSet() {
+        var cut = new CachingExternalTerminologyValidation(new FhirTerminologyValidation(baseUrl));
+
+        for (int i = 0; i < 50; i++) {
+            var param = param(i % 5 == 0 ? "blue" : "red");
+            assertThat(cut.supports(param)).isTrue();
+            assertThat(cut.validate(param).isSuccess()).isEqualTo(i % 5 != 0);
+        }
+
+        // one request each to check the support, to expand the value set and to validate the unknown code
+        assertThat(requests.get()).isEqualTo(3);
+        assertThat(cut.getSupportsStatistics().getHits()).isEqualTo(49);
+        assertThat(cut.getValidateStatistics().getHits()).isEqualTo(49);
+        assertThat(cut.getValidateStatistics().getMisses()).isEqualTo(1);
+        assertThat(cut.getValidateStatistics().getHitRate()).isEqualTo(0.98);
+
+        assertThat(cut.expand(param("red")))
+                .extracting(c -> c.getDefiningCode().getCodeString())
+                .containsExactly("red", "green");
+        assertThat(requests.get()).isEqualTo(3);
+
+        cut.invalidateAll();
+        assertThat(cut.supports(param("red"))).isTrue();
+        assertThat(requests.get()).isEqualTo(4);
+    }
+
+    @Test
+    void timeToLive() {
+        var noCaching = CachingExternalTerminologyValidation.Settings.of(Duration.ZERO, 100);
+        var cut = new CachingExternalTerminologyValidation(
+                new FhirTerminologyValidation(baseUrl), noCaching, noCaching, noCaching);
+
+        cut.supports(param("red"));
+        cut.supports(param("red"));
+
+        assertThat(requests.get()).isEqualTo(2);
+        assertThat(cut.getSupportsStatistics().getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    void expandFailureIsCached() {
+        AtomicInteger expansions = new AtomicInteger();
+        AtomicInteger validations = new AtomicInteger();
+        var cut = new CachingExternalTerminologyValidation(new ExternalTerminologyValidation() {
+            @Override
+            public boolean supports(TerminologyParam param) {
+                return true;
+            }
+
+            @Override
+            public Try<Boolean, ConstraintViolationException> validate(TerminologyParam param) {
+                validations.incrementAndGet();
+                return Try.success(Boolean.TRUE);
+            }
+
+            @Override
+            public List<DvCodedText> expand(TerminologyParam param) {
+                expansions.incrementAndGet();
+                throw new ExternalTerminologyValidationException("unreachable");
+            }
+        });
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(cut.validate(param("code" + i)).isSuccess()).isTrue();
+        }
+
+        assertThat(expansions.get()).isEqualTo(1);
+        assertThat(validations.get()).isEqualTo(20);
+        assertThat(cut.getExpandStatistics().getMisses()).isEqualTo(1);
+
+        // the failure is not returned as empty expansion
+        assertThatThrownBy(() -> cut.expand(param("code0"))).isInstanceOf(ExternalTerminologyValidationException.class);
+        assertThat(expansions.get()).isEqualTo(2);
+    }
+
+    @Test
+    void maxExpansionSize() {
+        var settings = CachingExternalTerminologyValidation.Settings.of(Duration.ofMinutes(10), 100);
+        var cut = new CachingExternalTerminologyValidation(
+                new FhirTerminologyValidation(baseUrl), settings, settings, settings, 1);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(cut.validate(param("red")).isSuccess()).isTrue();
+        }
+
+        // the expansion with two codes is not kept, the code is validated once by the delegate
+        assertThat(requests.get()).isEqualTo(2);
+        assertThat(cut.getValidateStatistics().getMisses()).isEqualTo(1);
+
+        assertThat(cut.expand(param("red"))).hasSize(2);
+        assertThat(cut.expand(param("red"))).hasSize(2);
+        assertThat(requests.get()).isEqualTo(4);
+
+        var noExpansion = new CachingExternalTerminologyValidation(
+                new FhirTerminologyValidation(baseUrl), settings, settings, settings, 0);
+        assertThat(noExpansion.validate(param("red")).isSuccess()).isTrue();
+        assertThat(noExpansion.getExpandStatistics().getMisses()).isZero();
+        assertThat(requests.get()).isEqualTo(5);
+    }
+
+    @Test
+    void failureTimeToLive() {
+        AtomicInteger validations = new AtomicInteger();
+        var settings = CachingExternalTerminologyValidation.Settings.of(Duration.ofMinutes(10), Duration.ZERO, 100);
+        var cut = new CachingExternalTerminologyValidation(
+                new ExternalTerminologyValidation() {
+                    @Override
+                    public boolean supports(TerminologyParam param) {
+                        return true;
+                    }
+
+                    @Override
+                    public Try<Boolean, ConstraintViolationException> validate(TerminologyParam param) {
+                        // returned by FhirTerminologyValidation if the server cannot be reached
+                        return Try.success(validations.incrementAndGet() > 1);
+                    }
+
+                    @Override
+                    public List<DvCodedText> expand(TerminologyParam param) {
+                        return List.of();
+                    }
+                },
+                settings,
+                settings,
+                settings);
+
+        assertThat(cut.validate(param("red")).get()).isEqualTo(Boolean.FALSE);
+        assertThat(cut.validate(param("red")).get()).isEqualTo(Boolean.TRUE);
+        assertThat(cut.validate(param("red")).get()).isEqualTo(Boolean.TRUE);
+
+        assertThat(validations.get()).isEqualTo(2);
+    }
+
+    private static TerminologyParam param(String code) {
+        TerminologyParam param = TerminologyParam.ofServiceApi("//hl7.org/fhir/R4");
+        param.useValueSet();
+        param.setParameter("url=" + VALUE_SET);
+        param.setCodePhrase(new CodePhrase(new TerminologyId(CODE_SYSTEM), code));
+        return param;
+    }
+}
@@ -29,14 +29,25 @@ import org.openehr.schemas.v1.*;
 @Deprecated
 public class OptSkeletonBuilder {
 
+    private OPERATIONALTEMPLATE lastOpt;
+    private WebTemplate lastWebTemplate;
+
     /**
-     * Generate empty Rm from template
+     * Generate empty Rm from template. The web template of the last template instance is reused.
      *
      * @param opt
      * @return
      */
     public RMObject generate(OPERATIONALTEMPLATE opt) {
-        WebTemplate webTemplate = new OPTParser(opt).parse();
-        return WebTemplateSkeletonBuilder.build(webTemplate, true);
+        return WebTemplateSkeletonBuilder.build(webTemplate(opt), true);
+    }
+
+    private synchronized WebTemplate webTemplate(OPERATIONALTEMPLATE opt) {
+        // OPERATIONALTEMPLATE#equals compares the whole document, thus by identity
+        if (opt != lastOpt) {
+            lastWebTemplate = new OPTParser(opt).parse();
+            lastOpt = opt;
+        }
+        return lastWebTemplate;
     }
 }
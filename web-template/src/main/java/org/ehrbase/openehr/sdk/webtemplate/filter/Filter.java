@@ -20,15 +20,19 @@ package org.ehrbase.openehr.sdk.webtemplate.filter;
 import com.nedap.archie.rm.datastructures.Event;
 import com.nedap.archie.rminfo.ArchieRMInfoLookup;
 import com.nedap.archie.rminfo.RMTypeInfo;
+import java.util.AbstractCollection;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -47,30 +51,88 @@ public class Filter implements WebTemplateFilter {
 
     public static final ArchieRMInfoLookup ARCHIE_RM_INFO_LOOKUP = ArchieRMInfoLookup.getInstance();
 
+    /**
+     * The result is memoised with <code>webTemplate</code>, see {@link WebTemplate#computeIfAbsent(Object, Function)},
+     * if {@link #cacheKey()} is not <code>null</code>. The tree of a memoised result is frozen and shared by all
+     * callers, use {@link WebTemplateNode#thawed()} to get a copy which can be modified.
+     */
     @Override
     public FilteredWebTemplate filter(WebTemplate webTemplate) {
+        Object cacheKey = cacheKey();
+        if (cacheKey == null) {
+            return filterUncached(webTemplate);
+        }
+        // every caller gets its own holder of the shared frozen tree
+        return new FilteredWebTemplate(webTemplate.computeIfAbsent(cacheKey, t -> freeze(filterUncached(t))));
+    }
+
+    /**
+     * Identifies the results of this filter in {@link WebTemplate#computeIfAbsent(Object, Function)}, thus equal keys
+     * must filter equally. Subclasses have to override this with a key made of their configuration to be memoised.
+     *
+     * @return the key or <code>null</code> to disable the memoisation
+     */
+    protected Object cacheKey() {
+        return getClass() == Filter.class ? Filter.class : null;
+    }
+
+    private FilteredWebTemplate filterUncached(WebTemplate webTemplate) {
+        // the skipped nodes of the filtered node map are taken from a frozen tree, so later modifications of
+        // webTemplate do not show through
+        WebTemplateNode source = webTemplate.getTree().frozen();
         FilteredWebTemplate clone = new FilteredWebTemplate(webTemplate);
+        // the copy shares a frozen tree, but the filter modifies it
+        WebTemplateNode tree = clone.getTree().isFrozen() ? clone.getTree().thawed() : clone.getTree();
         Pair<List<WebTemplateNode>, Map<Pair<String, String>, Deque<WebTemplateNode>>> filter =
-                filter(clone.getTree(), webTemplate, new ArrayDeque<>());
+                filter(tree, source, webTemplate, new ArrayDeque<>());
         clone.setTree(filter.getLeft().get(0));
         clone.setFilteredNodeMap(filter.getRight());
 
         return clone;
     }
 
+    private static FilteredWebTemplate freeze(FilteredWebTemplate filtered) {
+        filtered.setTree(filtered.getTree().frozen());
+        Map<Pair<String, String>, Deque<WebTemplateNode>> filteredNodeMap = new HashMap<>();
+        filtered.filteredNodeMap.forEach((k, v) -> filteredNodeMap.put(
+                k,
+                new UnmodifiableDeque<>(
+                        v.stream().map(WebTemplateNode::frozen).collect(Collectors.toCollection(ArrayDeque::new)))));
+        filtered.setFilteredNodeMap(Collections.unmodifiableMap(filteredNodeMap));
+        return filtered;
+    }
+
     protected Pair<List<WebTemplateNode>, Map<Pair<String, String>, Deque<WebTemplateNode>>> filter(
             WebTemplateNode node, WebTemplate context, Deque<WebTemplateNode> deque) {
+        return filter(node, null, context, deque);
+    }
+
+    /**
+     * @param node   the node to filter. It is modified.
+     * @param source the frozen node <code>node</code> was copied from, if known. It is used as the skipped node in
+     *               the filtered node map instead of a copy of <code>node</code>.
+     */
+    private Pair<List<WebTemplateNode>, Map<Pair<String, String>, Deque<WebTemplateNode>>> filter(
+            WebTemplateNode node, WebTemplateNode source, WebTemplate context, Deque<WebTemplateNode> deque) {
 
-        WebTemplateNode oldNode = new WebTemplateNode(node);
+        WebTemplateNode oldNode = source != null ? source : new WebTemplateNode(node);
+        Map<WebTemplateNode, WebTemplateNode> sources = new IdentityHashMap<>();
+        if (source != null && source.getChildren().size() == node.getChildren().size()) {
+            for (int i = 0; i < node.getChildren().size(); i++) {
+                sources.put(node.getChildren().get(i), source.getChildren().get(i));
+            }
+        }
         preHandle(node);
         List<WebTemplateNode> nodes;
         List<WebTemplateNode> filteredChildren = new ArrayList<>();
         Map<Pair<String, String>, Deque<WebTemplateNode>> nodeMap = new HashMap<>();
         deque.push(node);
-        node.getChildren().stream().map(n -> filter(n, context, deque)).forEach(p -> {
-            filteredChildren.addAll(p.getLeft());
-            nodeMap.putAll(p.getRight());
-        });
+        node.getChildren().stream()
+                .map(n -> filter(n, sources.get(n), context, deque))
+                .forEach(p -> {
+                    filteredChildren.addAll(p.getLeft());
+                    nodeMap.putAll(p.getRight());
+                });
         deque.poll();
         node.getChildren().clear();
         node.getChildren().addAll(filteredChildren);
@@ -209,4 +271,157 @@ public class Filter implements WebTemplateFilter {
 
         return (nonMandatoryRmAttribute || mandatoryNotInWebTemplate) && !nonMandatoryInWebTemplate;
     }
+
+    /**
+     * Read-only view of a {@link Deque}, used for the skipped nodes of a shared result
+     */
+    private static final class UnmodifiableDeque<E> extends AbstractCollection<E> implements Deque<E> {
+
+        private final Deque<E> deque;
+
+        private UnmodifiableDeque(Deque<E> deque) {
+            this.deque = deque;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return Collections.unmodifiableCollection(deque).iterator();
+        }
+
+        @Override
+        public Iterator<E> descendingIterator() {
+            Iterator<E> iterator = deque.descendingIterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    return iterator.next();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return deque.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return deque.contains(o);
+        }
+
+        @Override
+        public E getFirst() {
+            return deque.getFirst();
+        }
+
+        @Override
+        public E getLast() {
+            return deque.getLast();
+        }
+
+        @Override
+        public E peekFirst() {
+            return deque.peekFirst();
+        }
+
+        @Override
+        public E peekLast() {
+            return deque.peekLast();
+        }
+
+        @Override
+        public E element() {
+            return deque.element();
+        }
+
+        @Override
+        public E peek() {
+            return deque.peek();
+        }
+
+        @Override
+        public void addFirst(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addLast(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean offerFirst(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean offerLast(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public E removeFirst() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public E removeLast() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public E pollFirst() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public E pollLast() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeFirstOccurrence(Object o) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeLastOccurrence(Object o) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean offer(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public E remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public E poll() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void push(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public E pop() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
@@ -31,6 +31,16 @@ public class FilteredWebTemplate extends WebTemplate {
         super(other);
     }
 
+    /**
+     * Copies the tree of <code>other</code> unless it is frozen, the filtered node map is shared.
+     *
+     * @param other
+     */
+    public FilteredWebTemplate(FilteredWebTemplate other) {
+        super(other);
+        this.filteredNodeMap = other.filteredNodeMap;
+    }
+
     @JsonIgnore
     public Map<Pair<String, String>, Deque<WebTemplateNode>> filteredNodeMap;
 
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.webtemplate.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collections of the web template model which start out as shared, immutable instances (an empty singleton or a
+ * collection shared between nodes) and are only replaced by an own, modifiable copy when they are handed out by a
+ * node which is not frozen.
+ * <p>
+ * A field holds either an own collection ({@link ArrayList} or {@link LinkedHashMap}) or a shared one.
+ */
+final class SharedCollections {
+
+    private SharedCollections() {
+        // NOP
+    }
+
+    static boolean isOwn(List<?> list) {
+        return list instanceof ArrayList;
+    }
+
+    static boolean isOwn(Map<?, ?> map) {
+        return map instanceof LinkedHashMap;
+    }
+
+    /**
+     * @return <code>list</code> if it is an own list, otherwise a modifiable copy
+     */
+    static <E> List<E> own(List<E> list) {
+        return isOwn(list) ? list : new ArrayList<>(list);
+    }
+
+    /**
+     * @return <code>map</code> if it is an own map, otherwise a modifiable copy
+     */
+    static <K, V> Map<K, V> own(Map<K, V> map) {
+        return isOwn(map) ? map : new LinkedHashMap<>(map);
+    }
+
+    /**
+     * @return <code>list</code> if it is shared, otherwise an unmodifiable copy
+     */
+    static <E> List<E> unmodifiable(List<E> list) {
+        if (!isOwn(list)) {
+            return list;
+        }
+        return list.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    /**
+     * @return <code>map</code> if it is shared, otherwise an unmodifiable copy
+     */
+    static <K, V> Map<K, V> unmodifiable(Map<K, V> map) {
+        if (!isOwn(map)) {
+            return map;
+        }
+        return map.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(new LinkedHashMap<>(map));
+    }
+}
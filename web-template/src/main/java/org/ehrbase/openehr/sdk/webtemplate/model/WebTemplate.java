@@ -17,17 +17,24 @@
  */
 package org.ehrbase.openehr.sdk.webtemplate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.ehrbase.openehr.sdk.aql.webtemplatepath.AqlPath;
 import org.ehrbase.openehr.sdk.webtemplate.parser.NodeId;
+import org.ehrbase.openehr.sdk.webtemplate.path.flat.FlatPathDto;
+import org.ehrbase.openehr.sdk.webtemplate.path.flat.FlatPathParser;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class WebTemplate implements Serializable {
@@ -38,14 +45,25 @@ public class WebTemplate implements Serializable {
     private final List<String> languages = new ArrayList<>();
     private WebTemplateNode tree;
 
+    @JsonIgnore
+    private transient volatile WebTemplateIndex index;
+
+    @JsonIgnore
+    private transient volatile Map<Object, Object> derived;
+
     public WebTemplate() {}
 
+    /**
+     * Copies <code>other</code>, a frozen tree is shared as it can not be modified.
+     *
+     * @param other
+     */
     public WebTemplate(WebTemplate other) {
         this.templateId = other.templateId;
         this.version = other.version;
         this.defaultLanguage = other.defaultLanguage;
         if (other.tree != null) {
-            this.tree = new WebTemplateNode(other.tree);
+            this.tree = other.tree.isFrozen() ? other.tree : new WebTemplateNode(other.tree);
         } else {
             this.tree = null;
         }
@@ -86,6 +104,29 @@ public class WebTemplate implements Serializable {
 
     public void setTree(WebTemplateNode tree) {
         this.tree = tree;
+        resetIndex();
+    }
+
+    /**
+     * Reduces the heap footprint of the web template by sharing equal strings, localized names, term bindings, inputs
+     * and AQL paths between the nodes and by replacing empty collections with singletons.
+     * <p>
+     * Meant for web templates which are {@link #freeze() frozen} afterwards, like the ones of the template provider
+     * caches. {@link org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser#parse()} does not compact. The collections
+     * of unfrozen nodes stay modifiable, a node copies them when it hands them out. Equal {@link WebTemplateInput}s
+     * however are the same instance afterwards, thus inputs must only be modified on a copy.
+     *
+     * @return this
+     */
+    public WebTemplate compact() {
+        WebTemplateCompactor compactor = new WebTemplateCompactor();
+        templateId = compactor.intern(templateId);
+        defaultLanguage = compactor.intern(defaultLanguage);
+        languages.replaceAll(compactor::intern);
+        if (tree != null) {
+            tree.compact(compactor);
+        }
+        return this;
     }
 
     public List<WebTemplateNode> upperNotBounded() {
@@ -100,11 +141,134 @@ public class WebTemplate implements Serializable {
         return findAllByAqlPath(aql, true).stream().findFirst();
     }
 
+    /**
+     * @param aql
+     * @param ignoreName if the <code>name/value</code> predicates are ignored
+     * @return the nodes with the AQL path, in the order of {@link WebTemplateNode#findMatching(Predicate)}
+     * @see #freeze()
+     */
     public List<WebTemplateNode> findAllByAqlPath(String aql, boolean ignoreName) {
         AqlPath aqlPath = AqlPath.parse(aql);
+        if (tree.isFrozen()) {
+            return index().findAllByAqlPath(aqlPath, ignoreName);
+        }
         return tree.findMatching(c -> aqlPath.equals(c.getAqlPathDto(), !ignoreName));
     }
 
+    /**
+     * @param flatPath a flat path like <code>vital_signs/body_temperature:0/any_event:0/temperature|magnitude</code>.
+     *                 Counts and the attribute are ignored.
+     * @return the first node with the flat path
+     */
+    public Optional<WebTemplateNode> findByFlatPath(String flatPath) {
+        return findAllByFlatPath(flatPath).stream().findFirst();
+    }
+
+    /**
+     * @param flatPath a flat path like <code>vital_signs/body_temperature:0/any_event:0/temperature|magnitude</code>.
+     *                 Counts and the attribute are ignored.
+     * @return the nodes with the flat path. There is more than one in case of choices between types.
+     * @see #freeze()
+     */
+    public List<WebTemplateNode> findAllByFlatPath(String flatPath) {
+        FlatPathDto flatPathDto = FlatPathParser.parse(flatPath);
+        if (tree.isFrozen()) {
+            return index().findAllByFlatPath(flatPathDto);
+        }
+        List<WebTemplateNode> matching = new ArrayList<>();
+        if (tree.getId().equals(flatPathDto.getName())) {
+            findAllByFlatPath(tree, flatPathDto.getChild(), matching);
+        }
+        return matching;
+    }
+
+    private static void findAllByFlatPath(WebTemplateNode node, FlatPathDto flatPath, List<WebTemplateNode> matching) {
+        if (flatPath == null) {
+            matching.add(node);
+            return;
+        }
+        for (WebTemplateNode child : node.getChildren()) {
+            if (child.getId().equals(flatPath.getName())) {
+                findAllByFlatPath(child, flatPath.getChild(), matching);
+            }
+        }
+    }
+
+    /**
+     * @param nodeId an at-code or archetype id
+     * @return the nodes with the node id, in the order of {@link WebTemplateNode#findMatching(Predicate)}
+     * @see #freeze()
+     */
+    public List<WebTemplateNode> findAllByNodeId(String nodeId) {
+        if (tree.isFrozen()) {
+            return index().findAllByNodeId(nodeId);
+        }
+        return tree.findMatching(c -> nodeId.equals(c.getNodeId()));
+    }
+
+    /**
+     * Freezes the tree, see {@link WebTemplateNode#frozen()}. The <code>find</code> methods look up the nodes of a
+     * frozen tree in an index, which is built on first use. An unfrozen tree is searched on every call, thus
+     * modifications of the tree are reflected immediately.
+     * <p>
+     * The web templates served by the caches of {@link
+     * org.ehrbase.openehr.sdk.webtemplate.templateprovider.CachedTemplateProvider} and {@link
+     * org.ehrbase.openehr.sdk.webtemplate.templateprovider.SnapshotTemplateProvider} are frozen. Modify a copy, e.g.
+     * <code>webTemplate.setTree(webTemplate.getTree().thawed())</code>.
+     *
+     * @return this
+     */
+    public WebTemplate freeze() {
+        if (tree != null && !tree.isFrozen()) {
+            setTree(tree.frozen());
+        }
+        return this;
+    }
+
+    /**
+     * Discards the results of {@link #computeIfAbsent(Object, Function)}, which have to be reset after the tree has
+     * been modified.
+     */
+    public void resetIndex() {
+        index = null;
+        derived = null;
+    }
+
+    /**
+     * Memoises a result derived from this web template, e.g. a filtered web template. The result is computed at most
+     * once per <code>key</code> until {@link #resetIndex()} is called and is shared by all callers, thus it must not
+     * be modified.
+     *
+     * @param key       identifies the computation. Needs proper {@link Object#equals(Object)} and
+     *                  {@link Object#hashCode()}.
+     * @param computation
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T computeIfAbsent(Object key, Function<? super WebTemplate, T> computation) {
+        Map<Object, Object> current = derived;
+        if (current == null) {
+            synchronized (this) {
+                current = derived;
+                if (current == null) {
+                    current = new ConcurrentHashMap<>();
+                    derived = current;
+                }
+            }
+        }
+        return (T) current.computeIfAbsent(key, k -> computation.apply(this));
+    }
+
+    private WebTemplateIndex index() {
+        WebTemplateIndex current = index;
+        if (current == null) {
+            // concurrent callers might build the index twice, both are equal
+            current = new WebTemplateIndex(tree);
+            index = current;
+        }
+        return current;
+    }
+
     public Set<Set<NodeId>> findAllContainmentCombinations() {
         return findAllContainmentCombinations(tree);
     }
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.webtemplate.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import org.ehrbase.openehr.sdk.aql.webtemplatepath.AqlPath;
+import org.ehrbase.openehr.sdk.aql.webtemplatepath.AqlPath.AqlNode;
+
+/**
+ * Shares equal strings, collections, inputs and AQL paths within one {@link WebTemplate}.
+ *
+ * @see WebTemplate#compact()
+ */
+final class WebTemplateCompactor {
+
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<List<?>, Object> collections = new HashMap<>();
+    private final Map<Object, Object> values = new HashMap<>();
+    private final Map<AqlNode, AqlNode> aqlNodes = new HashMap<>();
+    private final Map<AqlPath, AqlPath> aqlPaths = new HashMap<>();
+
+    String intern(String value) {
+        return value == null ? null : strings.computeIfAbsent(value, v -> v);
+    }
+
+    /**
+     * @return an empty singleton or a shared, unmodifiable list of the shared elements
+     */
+    @SuppressWarnings("unchecked")
+    <E> List<E> share(List<E> list, UnaryOperator<E> element) {
+        if (list.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<E> elements = new ArrayList<>(list.size());
+        list.forEach(e -> elements.add(element.apply(e)));
+        return (List<E>) collections.computeIfAbsent(elements, Collections::unmodifiableList);
+    }
+
+    /**
+     * @return an empty singleton or a shared, unmodifiable map of the interned keys and the shared values
+     */
+    @SuppressWarnings("unchecked")
+    <V> Map<String, V> share(Map<String, V> map, UnaryOperator<V> value) {
+        if (map.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        // maps are only shared if their entries are in the same order
+        List<Map.Entry<String, V>> entries = new ArrayList<>(map.size());
+        map.forEach((k, v) -> entries.add(Map.entry(intern(k), value.apply(v))));
+        return (Map<String, V>) collections.computeIfAbsent(entries, e -> {
+            Map<String, V> shared = new LinkedHashMap<>();
+            entries.forEach(entry -> shared.put(entry.getKey(), entry.getValue()));
+            return Collections.unmodifiableMap(shared);
+        });
+    }
+
+    /**
+     * @return an empty singleton or <code>list</code> trimmed to its size
+     */
+    <E> List<E> trim(List<E> list) {
+        if (list.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (list instanceof ArrayList) {
+            ((ArrayList<E>) list).trimToSize();
+        }
+        return list;
+    }
+
+    AqlPath share(AqlPath aqlPath) {
+        if (aqlPath == null || aqlPath.getNodeCount() == 0) {
+            return aqlPath;
+        }
+        AqlPath shared = aqlPaths.get(aqlPath);
+        if (shared == null) {
+            AqlNode[] nodes = aqlPath.getNodes().stream()
+                    .map(n -> aqlNodes.computeIfAbsent(n, k -> k))
+                    .toArray(AqlNode[]::new);
+            shared = AqlPath.ROOT_PATH.addEnd(nodes);
+            if (aqlPath.getAttributeName() != null) {
+                shared = shared.withAttributeName(aqlPath.getAttributeName());
+            }
+            aqlPaths.put(shared, shared);
+        }
+        return shared;
+    }
+
+    /**
+     * @return a shared, unmodifiable input equal to <code>input</code>
+     */
+    WebTemplateInput share(WebTemplateInput input) {
+        if (!input.isShared()) {
+            input.setSuffix(intern(input.getSuffix()));
+            input.setType(intern(input.getType()));
+            input.setTerminology(intern(input.getTerminology()));
+            input.setDefaultValue(intern(input.getDefaultValue()));
+            for (WebTemplateInputValue value : input.getList()) {
+                if (value.isShared()) {
+                    // already shared by another input
+                    continue;
+                }
+                value.setValue(intern(value.getValue()));
+                value.setLabel(intern(value.getLabel()));
+                value.getLocalizedLabels().replaceAll((k, v) -> intern(v));
+                value.getLocalizedDescriptions().replaceAll((k, v) -> intern(v));
+                value.getTermBindings().replaceAll((k, v) -> share(v));
+                value.getCurrentStates().replaceAll(this::intern);
+            }
+        }
+        WebTemplateInput shared = shareValue(input);
+        shared.share();
+        return shared;
+    }
+
+    WebTemplateTerminology share(WebTemplateTerminology terminology) {
+        if (terminology == null) {
+            return null;
+        }
+        if (!terminology.isShared()) {
+            terminology.setValue(intern(terminology.getValue()));
+            terminology.setTerminologyId(intern(terminology.getTerminologyId()));
+        }
+        WebTemplateTerminology shared = shareValue(terminology);
+        shared.share();
+        return shared;
+    }
+
+    void internIds(WebtemplateCardinality cardinality) {
+        cardinality.getIds().replaceAll(this::intern);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T shareValue(T value) {
+        return (T) values.computeIfAbsent(value, v -> v);
+    }
+}
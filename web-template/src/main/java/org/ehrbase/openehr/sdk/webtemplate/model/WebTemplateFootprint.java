@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.webtemplate.model;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimated heap footprint of a {@link WebTemplate}.
+ * <p>
+ * Every object reachable from the web template is counted once, no matter how many nodes share it. The sizes assume
+ * a 64-bit JVM with compressed oops: 12 byte object headers, 4 byte references and 8 byte alignment. JDK collections
+ * are estimated by their size, their actual capacity is not known.
+ */
+public final class WebTemplateFootprint {
+
+    private static final int HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+
+    private static final Map<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<>();
+
+    /**
+     * The parts of a node an object is attributed to, by the node field it is first reached from
+     */
+    public enum Category {
+        NODES,
+        LOCALIZATION,
+        AQL_PATHS,
+        INPUTS,
+        TERM_BINDINGS
+    }
+
+    private final int nodeCount;
+    private final Map<Category, Long> bytes;
+    private final long stringCount;
+    private final long distinctStringCount;
+
+    private WebTemplateFootprint(int nodeCount, Map<Category, Long> bytes, long stringCount, long distinctStringCount) {
+        this.nodeCount = nodeCount;
+        this.bytes = bytes;
+        this.stringCount = stringCount;
+        this.distinctStringCount = distinctStringCount;
+    }
+
+    /**
+     * @param webTemplate
+     * @return the estimated footprint of <code>webTemplate</code>
+     */
+    public static WebTemplateFootprint of(WebTemplate webTemplate) {
+        return new Estimator().estimate(webTemplate);
+    }
+
+    /**
+     * @return the number of nodes of the tree
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the estimated bytes of all objects reachable from the web template
+     */
+    public long getTotalBytes() {
+        return bytes.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * @param category
+     * @return the estimated bytes of the objects attributed to <code>category</code>
+     */
+    public long getBytes(Category category) {
+        return bytes.get(category);
+    }
+
+    /**
+     * @return the number of string instances
+     */
+    public long getStringCount() {
+        return stringCount;
+    }
+
+    /**
+     * @return the number of distinct string values. Equals {@link #getStringCount()} if all strings are interned.
+     */
+    public long getDistinctStringCount() {
+        return distinctStringCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("WebTemplateFootprint{")
+                .append("nodes=")
+                .append(nodeCount)
+                .append(", totalBytes=")
+                .append(getTotalBytes());
+        bytes.forEach((c, b) -> sb.append(", ").append(c).append('=').append(b));
+        return sb.append(", strings=")
+                .append(stringCount)
+                .append(", distinctStrings=")
+                .append(distinctStringCount)
+                .append('}')
+                .toString();
+    }
+
+    private static final class Estimator {
+
+        private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<String> distinctStrings = new HashSet<>();
+        private final Map<Category, Long> bytes = new EnumMap<>(Category.class);
+        private long stringCount;
+        private int nodeCount;
+
+        private WebTemplateFootprint estimate(WebTemplate webTemplate) {
+            for (Category c : Category.values()) {
+                bytes.put(c, 0L);
+            }
+            visited.add(webTemplate);
+            add(Category.NODES, shallowSize(webTemplate.getClass()));
+            for (Field field : fields(webTemplate.getClass())) {
+                if (!"tree".equals(field.getName())) {
+                    traverse(read(field, webTemplate), Category.NODES);
+                }
+            }
+
+            Deque<WebTemplateNode> nodes = new ArrayDeque<>();
+            if (webTemplate.getTree() != null) {
+                nodes.push(webTemplate.getTree());
+            }
+            while (!nodes.isEmpty()) {
+                WebTemplateNode node = nodes.pop();
+                if (!visited.add(node)) {
+                    continue;
+                }
+                nodeCount++;
+                add(Category.NODES, shallowSize(node.getClass()));
+                for (Field field : fields(node.getClass())) {
+                    Object value = read(field, node);
+                    if ("children".equals(field.getName())) {
+                        List<?> children = (List<?>) value;
+                        if (visited.add(children)) {
+                            add(Category.NODES, collectionSize(children));
+                        }
+                        children.forEach(c -> nodes.push((WebTemplateNode) c));
+                    } else {
+                        traverse(value, category(field.getName()));
+                    }
+                }
+            }
+            return new WebTemplateFootprint(nodeCount, bytes, stringCount, distinctStrings.size());
+        }
+
+        private static Category category(String nodeField) {
+            switch (nodeField) {
+                case "localizedName":
+                case "localizedNames":
+                case "localizedDescriptions":
+                    return Category.LOCALIZATION;
+                case "aqlPath":
+                case "aqlPathWithOtherPredicates":
+                case "aqlPathWithoutOtherPredicates":
+                    return Category.AQL_PATHS;
+                case "inputs":
+                    return Category.INPUTS;
+                case "termBindings":
+                    return Category.TERM_BINDINGS;
+                default:
+                    return Category.NODES;
+            }
+        }
+
+        private void traverse(Object root, Category category) {
+            Deque<Object> pending = new ArrayDeque<>();
+            if (root != null) {
+                pending.push(root);
+            }
+            while (!pending.isEmpty()) {
+                Object o = pending.pop();
+                // nodes referenced by indexes and caches are accounted for by the walk of the tree
+                if (isShared(o) || o instanceof WebTemplateNode || !visited.add(o)) {
+                    continue;
+                }
+                Class<?> type = o.getClass();
+                if (o instanceof String) {
+                    String s = (String) o;
+                    stringCount++;
+                    distinctStrings.add(s);
+                    add(category, align(HEADER + 2L * Integer.BYTES) + align(ARRAY_HEADER + (long) s.length()));
+                } else if (o instanceof Collection) {
+                    Collection<?> collection = (Collection<?>) o;
+                    add(category, collectionSize(collection));
+                    collection.forEach(e -> push(pending, e));
+                } else if (o instanceof Map) {
+                    Map<?, ?> map = (Map<?, ?>) o;
+                    add(category, mapSize(map));
+                    map.forEach((k, v) -> {
+                        push(pending, k);
+                        push(pending, v);
+                    });
+                } else if (type.isArray()) {
+                    int length = Array.getLength(o);
+                    if (type.getComponentType().isPrimitive()) {
+                        add(category, align(ARRAY_HEADER + (long) length * primitiveSize(type.getComponentType())));
+                    } else {
+                        add(category, align(ARRAY_HEADER + (long) length * REFERENCE));
+                        for (int i = 0; i < length; i++) {
+                            push(pending, Array.get(o, i));
+                        }
+                    }
+                } else if (isJdkType(type)) {
+                    // boxed primitives and other values without accessible fields
+                    add(category, align(HEADER + 8L));
+                } else {
+                    add(category, shallowSize(type));
+                    for (Field field : fields(type)) {
+                        if (!field.getType().isPrimitive()) {
+                            push(pending, read(field, o));
+                        }
+                    }
+                }
+            }
+        }
+
+        private static void push(Deque<Object> pending, Object o) {
+            if (o != null) {
+                pending.push(o);
+            }
+        }
+
+        private void add(Category category, long size) {
+            bytes.merge(category, size, Long::sum);
+        }
+
+        /**
+         * Enums, classes and empty immutable collections are JVM wide singletons
+         */
+        private static boolean isShared(Object o) {
+            if (o instanceof Enum || o instanceof Class) {
+                return true;
+            }
+            boolean empty = (o instanceof Collection && ((Collection<?>) o).isEmpty())
+                    || (o instanceof Map && ((Map<?, ?>) o).isEmpty());
+            return empty && !(o instanceof ArrayList) && !(o instanceof HashMap) && isJdkType(o.getClass());
+        }
+
+        private static long collectionSize(Collection<?> collection) {
+            // list object including modCount and size plus the backing array
+            return align(HEADER + 2L * Integer.BYTES + REFERENCE)
+                    + (collection.isEmpty() ? 0 : align(ARRAY_HEADER + (long) collection.size() * REFERENCE));
+        }
+
+        private static long mapSize(Map<?, ?> map) {
+            int tableLength = Integer.highestOneBit(Math.max(1, map.size() * 4 / 3)) * 2;
+            // map object, the table and one linked entry per mapping
+            return align(HEADER + 6L * REFERENCE + 4L * Integer.BYTES)
+                    + (map.isEmpty()
+                            ? 0
+                            : align(ARRAY_HEADER + (long) tableLength * REFERENCE)
+                                    + (long) map.size() * align(HEADER + Integer.BYTES + 5L * REFERENCE));
+        }
+    }
+
+    private static boolean isJdkType(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.");
+    }
+
+    private static long shallowSize(Class<?> type) {
+        long size = HEADER;
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    size += field.getType().isPrimitive() ? primitiveSize(field.getType()) : REFERENCE;
+                }
+            }
+        }
+        return align(size);
+    }
+
+    private static List<Field> fields(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, t -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = t; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && field.trySetAccessible()) {
+                        fields.add(field);
+                    }
+                }
+            }
+            return Collections.unmodifiableList(fields);
+        });
+    }
+
+    private static Object read(Field field, Object target) {
+        try {
+            return field.get(target);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
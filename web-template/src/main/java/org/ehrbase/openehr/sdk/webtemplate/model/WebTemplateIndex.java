@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.webtemplate.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.ehrbase.openehr.sdk.aql.webtemplatepath.AqlPath;
+import org.ehrbase.openehr.sdk.aql.webtemplatepath.AqlPath.AqlNode;
+import org.ehrbase.openehr.sdk.webtemplate.path.flat.FlatPathDto;
+
+/**
+ * Immutable lookup tables of the nodes of a {@link WebTemplate}.
+ * <p>
+ * The nodes of every table are in the order of {@link WebTemplateNode#findMatching(java.util.function.Predicate)}.
+ *
+ * @see WebTemplate#findAllByFlatPath(String)
+ * @see WebTemplate#findAllByNodeId(String)
+ */
+final class WebTemplateIndex {
+
+    private final Map<AqlPath, List<WebTemplateNode>> byAqlPath = new HashMap<>();
+    private final Map<String, List<WebTemplateNode>> byAqlPathWithoutName = new HashMap<>();
+    private final Map<String, List<WebTemplateNode>> byFlatPath = new HashMap<>();
+    private final Map<String, List<WebTemplateNode>> byNodeId = new HashMap<>();
+
+    WebTemplateIndex(WebTemplateNode tree) {
+        if (tree != null) {
+            add(tree, tree.getId());
+        }
+        Stream.of(byAqlPath, byAqlPathWithoutName, byFlatPath, byNodeId)
+                .forEach(m -> m.replaceAll((k, v) -> List.copyOf(v)));
+    }
+
+    private void add(WebTemplateNode node, String flatPath) {
+        // children first, the same way findMatching does
+        for (WebTemplateNode child : node.getChildren()) {
+            add(child, flatPath + "/" + child.getId());
+        }
+        AqlPath aqlPath = node.getAqlPathDto();
+        if (aqlPath != null) {
+            put(byAqlPath, aqlPath, node);
+            put(byAqlPathWithoutName, withoutOtherPredicates(aqlPath), node);
+        }
+        put(byFlatPath, flatPath, node);
+        if (node.getNodeId() != null) {
+            put(byNodeId, node.getNodeId(), node);
+        }
+    }
+
+    /**
+     * @see WebTemplate#findAllByAqlPath(String, boolean)
+     */
+    List<WebTemplateNode> findAllByAqlPath(AqlPath aqlPath, boolean ignoreName) {
+        if (ignoreName) {
+            return byAqlPathWithoutName.getOrDefault(withoutOtherPredicates(aqlPath), Collections.emptyList());
+        }
+        return byAqlPath.getOrDefault(aqlPath, Collections.emptyList());
+    }
+
+    /**
+     * @see WebTemplate#findAllByFlatPath(String)
+     */
+    List<WebTemplateNode> findAllByFlatPath(FlatPathDto flatPath) {
+        StringBuilder key = new StringBuilder();
+        for (FlatPathDto segment = flatPath; segment != null; segment = segment.getChild()) {
+            if (key.length() > 0) {
+                key.append('/');
+            }
+            key.append(segment.getName());
+        }
+        return byFlatPath.getOrDefault(key.toString(), Collections.emptyList());
+    }
+
+    /**
+     * @see WebTemplate#findAllByNodeId(String)
+     */
+    List<WebTemplateNode> findAllByNodeId(String nodeId) {
+        return byNodeId.getOrDefault(nodeId, Collections.emptyList());
+    }
+
+    /**
+     * Key of the nodes and at-codes of <code>aqlPath</code>, consistent with
+     * {@link AqlPath#equals(Object, boolean)} without other predicates
+     */
+    private static String withoutOtherPredicates(AqlPath aqlPath) {
+        if (aqlPath.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder("/");
+        for (AqlNode node : aqlPath.getNodes()) {
+            sb.append(node.getName()).append('[');
+            if (node.getAtCode() != null) {
+                sb.append(node.getAtCode());
+            }
+            sb.append("]/");
+        }
+        return sb.toString();
+    }
+
+    private static <K> void put(Map<K, List<WebTemplateNode>> map, K key, WebTemplateNode node) {
+        map.computeIfAbsent(key, k -> new ArrayList<>(1)).add(node);
+    }
+}
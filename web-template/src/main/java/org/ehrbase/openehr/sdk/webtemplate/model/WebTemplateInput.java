@@ -21,6 +21,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -30,10 +31,11 @@ public class WebTemplateInput implements Serializable {
 
     private String suffix;
     private String type;
-    private final List<WebTemplateInputValue> list = new ArrayList<>();
+    private List<WebTemplateInputValue> list = new ArrayList<>();
     private Boolean listOpen;
     private WebTemplateValidation validation;
     private String terminology;
+    private transient boolean shared;
 
     @JsonSerialize(using = StringToNumberSerializer.class)
     private String defaultValue;
@@ -59,6 +61,7 @@ public class WebTemplateInput implements Serializable {
     }
 
     public void setSuffix(String suffix) {
+        checkNotShared();
         this.suffix = suffix;
     }
 
@@ -67,6 +70,7 @@ public class WebTemplateInput implements Serializable {
     }
 
     public void setType(String type) {
+        checkNotShared();
         this.type = type;
     }
 
@@ -79,6 +83,7 @@ public class WebTemplateInput implements Serializable {
     }
 
     public void setListOpen(Boolean listOpen) {
+        checkNotShared();
         this.listOpen = listOpen;
     }
 
@@ -87,6 +92,7 @@ public class WebTemplateInput implements Serializable {
     }
 
     public void setValidation(WebTemplateValidation validation) {
+        checkNotShared();
         this.validation = validation;
     }
 
@@ -95,6 +101,7 @@ public class WebTemplateInput implements Serializable {
     }
 
     public void setTerminology(String terminology) {
+        checkNotShared();
         this.terminology = terminology;
     }
 
@@ -103,9 +110,36 @@ public class WebTemplateInput implements Serializable {
     }
 
     public void setDefaultValue(String defaultValue) {
+        checkNotShared();
         this.defaultValue = defaultValue;
     }
 
+    boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Makes this input unmodifiable, including its values and validation, as it is shared between nodes. Use
+     * {@link #WebTemplateInput(WebTemplateInput)} to get a modifiable copy.
+     */
+    void share() {
+        if (shared) {
+            return;
+        }
+        shared = true;
+        list = Collections.unmodifiableList(list);
+        list.forEach(WebTemplateInputValue::share);
+        if (validation != null) {
+            validation.share();
+        }
+    }
+
+    private void checkNotShared() {
+        if (shared) {
+            throw new UnsupportedOperationException("Input is shared between nodes, modify a copy");
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -20,6 +20,7 @@ package org.ehrbase.openehr.sdk.webtemplate.model;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,12 +32,13 @@ public class WebTemplateInputValue implements Serializable {
 
     private String value;
     private String label;
-    private final Map<String, String> localizedLabels = new HashMap<>();
-    private final Map<String, String> localizedDescriptions = new HashMap<>();
-    private final Map<String, WebTemplateTerminology> termBindings = new HashMap<>();
+    private Map<String, String> localizedLabels = new HashMap<>();
+    private Map<String, String> localizedDescriptions = new HashMap<>();
+    private Map<String, WebTemplateTerminology> termBindings = new HashMap<>();
     private Integer ordinal;
-    private final List<String> currentStates = new ArrayList<>();
+    private List<String> currentStates = new ArrayList<>();
     private WebTemplateValidation validation;
+    private transient boolean shared;
 
     public WebTemplateInputValue() {}
 
@@ -61,6 +63,7 @@ public class WebTemplateInputValue implements Serializable {
     }
 
     public void setValue(String value) {
+        checkNotShared();
         this.value = value;
     }
 
@@ -69,6 +72,7 @@ public class WebTemplateInputValue implements Serializable {
     }
 
     public void setLabel(String label) {
+        checkNotShared();
         this.label = label;
     }
 
@@ -89,6 +93,7 @@ public class WebTemplateInputValue implements Serializable {
     }
 
     public void setOrdinal(Integer ordinal) {
+        checkNotShared();
         this.ordinal = ordinal;
     }
 
@@ -101,9 +106,38 @@ public class WebTemplateInputValue implements Serializable {
     }
 
     public void setValidation(WebTemplateValidation validation) {
+        checkNotShared();
         this.validation = validation;
     }
 
+    boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Makes this value, its collections and its validation unmodifiable, as it is shared between nodes.
+     */
+    void share() {
+        if (shared) {
+            return;
+        }
+        shared = true;
+        localizedLabels = Collections.unmodifiableMap(localizedLabels);
+        localizedDescriptions = Collections.unmodifiableMap(localizedDescriptions);
+        termBindings = Collections.unmodifiableMap(termBindings);
+        termBindings.values().forEach(WebTemplateTerminology::share);
+        currentStates = Collections.unmodifiableList(currentStates);
+        if (validation != null) {
+            validation.share();
+        }
+    }
+
+    private void checkNotShared() {
+        if (shared) {
+            throw new UnsupportedOperationException("Input value is shared between nodes, modify a copy");
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
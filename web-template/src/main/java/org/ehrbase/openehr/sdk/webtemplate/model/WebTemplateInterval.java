@@ -26,6 +26,7 @@ public class WebTemplateInterval<T extends Serializable> implements Serializable
     private WebTemplateComparisonSymbol minOp;
     private T max;
     private WebTemplateComparisonSymbol maxOp;
+    private transient boolean shared;
 
     public WebTemplateInterval() {}
 
@@ -41,6 +42,7 @@ public class WebTemplateInterval<T extends Serializable> implements Serializable
     }
 
     public void setMin(T min) {
+        checkNotShared();
         this.min = min;
     }
 
@@ -49,6 +51,7 @@ public class WebTemplateInterval<T extends Serializable> implements Serializable
     }
 
     public void setMinOp(WebTemplateComparisonSymbol minOp) {
+        checkNotShared();
         this.minOp = minOp;
     }
 
@@ -57,6 +60,7 @@ public class WebTemplateInterval<T extends Serializable> implements Serializable
     }
 
     public void setMax(T max) {
+        checkNotShared();
         this.max = max;
     }
 
@@ -65,9 +69,23 @@ public class WebTemplateInterval<T extends Serializable> implements Serializable
     }
 
     public void setMaxOp(WebTemplateComparisonSymbol maxOp) {
+        checkNotShared();
         this.maxOp = maxOp;
     }
 
+    /**
+     * Makes this interval unmodifiable, as it is shared between nodes.
+     */
+    void share() {
+        shared = true;
+    }
+
+    private void checkNotShared() {
+        if (shared) {
+            throw new UnsupportedOperationException("Interval is shared between nodes, modify a copy");
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
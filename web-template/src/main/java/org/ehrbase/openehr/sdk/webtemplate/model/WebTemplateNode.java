@@ -22,21 +22,30 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.nedap.archie.rm.archetyped.Locatable;
 import com.nedap.archie.rminfo.ArchieRMInfoLookup;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.apache.commons.lang3.StringUtils;
 import org.ehrbase.openehr.sdk.aql.webtemplatepath.AqlPath;
+import org.ehrbase.openehr.sdk.util.Freezable;
 
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
-public class WebTemplateNode implements Serializable {
+public class WebTemplateNode implements Serializable, Freezable<WebTemplateNode> {
 
     private static final ArchieRMInfoLookup RM_INFO_LOOKUP = ArchieRMInfoLookup.getInstance();
 
@@ -51,33 +60,41 @@ public class WebTemplateNode implements Serializable {
     private String nodeId;
     private int min;
     private int max;
-    private final Map<String, String> localizedNames;
-    private final Map<String, String> localizedDescriptions;
+    // collections are allocated when first handed out by an unfrozen node, see SharedCollections
+    private Map<String, String> localizedNames = Collections.emptyMap();
+    private Map<String, String> localizedDescriptions = Collections.emptyMap();
 
     @JsonIgnore
-    private final String[] aqlCache = new String[2];
+    private String aqlPathWithOtherPredicates;
+
+    @JsonIgnore
+    private String aqlPathWithoutOtherPredicates;
 
     private AqlPath aqlPath;
 
-    private final List<WebTemplateNode> children;
-    private final List<WebTemplateInput> inputs;
+    private List<WebTemplateNode> children = Collections.emptyList();
+    private List<WebTemplateInput> inputs = Collections.emptyList();
     private Boolean inContext;
-    private final Map<String, WebTemplateTerminology> termBindings;
-    private final List<String> dependsOn;
+    private Map<String, WebTemplateTerminology> termBindings = Collections.emptyMap();
+    private List<String> dependsOn = Collections.emptyList();
     private WebTemplateAnnotation annotations;
-    private final List<ProportionType> proportionTypes;
-    private final List<WebtemplateCardinality> cardinalities;
+    private List<ProportionType> proportionTypes = Collections.emptyList();
+    private List<WebtemplateCardinality> cardinalities = Collections.emptyList();
 
-    public WebTemplateNode() {
-        localizedNames = new LinkedHashMap<>();
-        localizedDescriptions = new LinkedHashMap<>();
-        children = new ArrayList<>();
-        inputs = new ArrayList<>();
-        termBindings = new LinkedHashMap<>();
-        proportionTypes = new ArrayList<>();
-        dependsOn = new ArrayList<>();
-        cardinalities = new ArrayList<>();
-    }
+    @JsonIgnore
+    private boolean frozen;
+
+    // derived from the children, only cached by frozen nodes
+    @JsonIgnore
+    private transient Map<String, List<WebTemplateNode>> choicesInChildren;
+
+    @JsonIgnore
+    private transient List<WebTemplateNode> multiValued;
+
+    @JsonIgnore
+    private transient Map<String, WebTemplateNode> childrenById;
+
+    public WebTemplateNode() {}
 
     public WebTemplateNode(WebTemplateNode other) {
         this.id = other.id;
@@ -90,24 +107,69 @@ public class WebTemplateNode implements Serializable {
         this.max = other.max;
         this.aqlPath = other.aqlPath;
         this.inContext = other.inContext;
-        this.dependsOn = new ArrayList<>(other.dependsOn);
         if (other.annotations != null) {
             this.annotations = new WebTemplateAnnotation(other.annotations);
         }
 
-        this.cardinalities =
-                other.cardinalities.stream().map(WebtemplateCardinality::new).collect(Collectors.toList());
-        this.inputs = other.inputs.stream().map(WebTemplateInput::new).collect(Collectors.toList());
-        this.children = other.children.stream().map(WebTemplateNode::new).collect(Collectors.toList());
-        this.localizedNames = new LinkedHashMap<>(other.localizedNames);
-        this.localizedDescriptions = new LinkedHashMap<>(other.localizedDescriptions);
-        this.proportionTypes = new ArrayList<>(other.getProportionTypes());
-        this.termBindings = other.termBindings.entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        e -> new WebTemplateTerminology(e.getValue()),
-                        (a, b) -> a,
-                        LinkedHashMap::new));
+        // shared collections of immutable elements are shared by the copy as well
+        this.dependsOn = SharedCollections.isOwn(other.dependsOn) ? new ArrayList<>(other.dependsOn) : other.dependsOn;
+        this.localizedNames = SharedCollections.isOwn(other.localizedNames)
+                ? new LinkedHashMap<>(other.localizedNames)
+                : other.localizedNames;
+        this.localizedDescriptions = SharedCollections.isOwn(other.localizedDescriptions)
+                ? new LinkedHashMap<>(other.localizedDescriptions)
+                : other.localizedDescriptions;
+        this.proportionTypes = SharedCollections.isOwn(other.proportionTypes)
+                ? new ArrayList<>(other.proportionTypes)
+                : other.proportionTypes;
+
+        if (!other.cardinalities.isEmpty()) {
+            this.cardinalities = other.cardinalities.stream()
+                    .map(WebtemplateCardinality::new)
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+        if (!other.inputs.isEmpty()) {
+            this.inputs =
+                    other.inputs.stream().map(WebTemplateInput::new).collect(Collectors.toCollection(ArrayList::new));
+        }
+        if (!other.children.isEmpty()) {
+            this.children =
+                    other.children.stream().map(WebTemplateNode::new).collect(Collectors.toCollection(ArrayList::new));
+        }
+        if (!other.termBindings.isEmpty()) {
+            this.termBindings = other.termBindings.entrySet().stream()
+                    .collect(Collectors.toMap(
+                            Map.Entry::getKey,
+                            e -> new WebTemplateTerminology(e.getValue()),
+                            (a, b) -> a,
+                            LinkedHashMap::new));
+        }
+    }
+
+    /**
+     * Replaces the strings, collections, inputs and AQL paths of the subtree by the shared instances of
+     * <code>compactor</code>.
+     */
+    void compact(WebTemplateCompactor compactor) {
+        if (frozen) {
+            return;
+        }
+        id = compactor.intern(id);
+        name = compactor.intern(name);
+        localizedName = compactor.intern(localizedName);
+        rmType = compactor.intern(rmType);
+        nodeId = compactor.intern(nodeId);
+        localizedNames = compactor.share(localizedNames, compactor::intern);
+        localizedDescriptions = compactor.share(localizedDescriptions, compactor::intern);
+        aqlPath = compactor.share(aqlPath);
+        inputs = compactor.share(inputs, compactor::share);
+        termBindings = compactor.share(termBindings, compactor::share);
+        dependsOn = compactor.share(dependsOn, compactor::intern);
+        proportionTypes = compactor.share(proportionTypes, p -> p);
+        cardinalities = compactor.trim(cardinalities);
+        cardinalities.forEach(compactor::internIds);
+        children = compactor.trim(children);
+        children.forEach(c -> c.compact(compactor));
     }
 
     public String getId() {
@@ -122,11 +184,18 @@ public class WebTemplateNode implements Serializable {
         }
     }
 
+    @JsonIgnore
+    public Integer getOptionalIdNumber() {
+        return optionalIdNumber;
+    }
+
     public void setOptionalIdNumber(Integer optionalIdNumber) {
+        checkNotFrozen();
         this.optionalIdNumber = optionalIdNumber;
     }
 
     public void setId(String id) {
+        checkNotFrozen();
         this.id = id;
     }
 
@@ -135,6 +204,7 @@ public class WebTemplateNode implements Serializable {
     }
 
     public void setName(String name) {
+        checkNotFrozen();
         this.name = name;
     }
 
@@ -143,6 +213,7 @@ public class WebTemplateNode implements Serializable {
     }
 
     public void setLocalizedName(String localizedName) {
+        checkNotFrozen();
         this.localizedName = localizedName;
     }
 
@@ -151,6 +222,7 @@ public class WebTemplateNode implements Serializable {
     }
 
     public void setRmType(String rmType) {
+        checkNotFrozen();
         this.rmType = rmType;
     }
 
@@ -159,6 +231,7 @@ public class WebTemplateNode implements Serializable {
     }
 
     public void setNodeId(String nodeId) {
+        checkNotFrozen();
         this.nodeId = nodeId;
     }
 
@@ -167,6 +240,7 @@ public class WebTemplateNode implements Serializable {
     }
 
     public void setMin(int min) {
+        checkNotFrozen();
         this.min = min;
     }
 
@@ -175,14 +249,21 @@ public class WebTemplateNode implements Serializable {
     }
 
     public void setMax(int max) {
+        checkNotFrozen();
         this.max = max;
     }
 
     public Map<String, String> getLocalizedNames() {
+        if (!frozen) {
+            localizedNames = SharedCollections.own(localizedNames);
+        }
         return localizedNames;
     }
 
     public Map<String, String> getLocalizedDescriptions() {
+        if (!frozen) {
+            localizedDescriptions = SharedCollections.own(localizedDescriptions);
+        }
         return localizedDescriptions;
     }
 
@@ -196,11 +277,17 @@ public class WebTemplateNode implements Serializable {
     }
 
     public String getAqlPath(boolean withOtherPredicates) {
-        int idx = withOtherPredicates ? 0 : 1;
-        if (aqlCache[idx] == null) {
-            aqlCache[idx] = aqlPath.format(withOtherPredicates);
+        if (withOtherPredicates) {
+            if (aqlPathWithOtherPredicates == null) {
+                aqlPathWithOtherPredicates = aqlPath.format(true);
+            }
+            return aqlPathWithOtherPredicates;
+        } else {
+            if (aqlPathWithoutOtherPredicates == null) {
+                aqlPathWithoutOtherPredicates = aqlPath.format(false);
+            }
+            return aqlPathWithoutOtherPredicates;
         }
-        return aqlCache[idx];
     }
 
     public void setAqlPath(String aqlPath) {
@@ -208,26 +295,61 @@ public class WebTemplateNode implements Serializable {
     }
 
     public void setAqlPath(AqlPath aqlPath) {
+        checkNotFrozen();
         this.aqlPath = aqlPath;
-        Arrays.fill(aqlCache, null);
+        aqlPathWithOtherPredicates = null;
+        aqlPathWithoutOtherPredicates = null;
     }
 
     public List<WebTemplateNode> getChildren() {
+        if (!frozen) {
+            children = SharedCollections.own(children);
+        }
         return children;
     }
 
     public List<WebtemplateCardinality> getCardinalities() {
+        if (!frozen) {
+            cardinalities = SharedCollections.own(cardinalities);
+        }
         return cardinalities;
     }
 
+    /**
+     * @return the children sharing their AQL path with another child, by AQL path. Unmodifiable and cached if the
+     * node is frozen.
+     */
     @JsonIgnore
     public Map<String, List<WebTemplateNode>> getChoicesInChildren() {
-        return children.stream().collect(Collectors.groupingBy(WebTemplateNode::getAqlPath)).entrySet().stream()
-                .filter(e -> e.getValue().size() > 1)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        if (!frozen) {
+            return buildChoicesInChildren();
+        }
+        Map<String, List<WebTemplateNode>> choices = choicesInChildren;
+        if (choices == null) {
+            choices = buildChoicesInChildren();
+            choices.replaceAll((k, v) -> Collections.unmodifiableList(v));
+            choices = choices.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(choices);
+            choicesInChildren = choices;
+        }
+        return choices;
+    }
+
+    private Map<String, List<WebTemplateNode>> buildChoicesInChildren() {
+        Map<String, List<WebTemplateNode>> choices = new HashMap<>();
+        if (children.size() < 2) {
+            return choices;
+        }
+        for (WebTemplateNode child : children) {
+            choices.computeIfAbsent(child.getAqlPath(), k -> new ArrayList<>(2)).add(child);
+        }
+        choices.values().removeIf(v -> v.size() < 2);
+        return choices;
     }
 
     public List<WebTemplateInput> getInputs() {
+        if (!frozen) {
+            inputs = SharedCollections.own(inputs);
+        }
         return inputs;
     }
 
@@ -236,14 +358,21 @@ public class WebTemplateNode implements Serializable {
     }
 
     public void setInContext(Boolean inContext) {
+        checkNotFrozen();
         this.inContext = inContext;
     }
 
     public Map<String, WebTemplateTerminology> getTermBindings() {
+        if (!frozen) {
+            termBindings = SharedCollections.own(termBindings);
+        }
         return termBindings;
     }
 
     public List<String> getDependsOn() {
+        if (!frozen) {
+            dependsOn = SharedCollections.own(dependsOn);
+        }
         return dependsOn;
     }
 
@@ -252,15 +381,40 @@ public class WebTemplateNode implements Serializable {
     }
 
     public void setAnnotations(WebTemplateAnnotation annotations) {
+        checkNotFrozen();
         this.annotations = annotations;
     }
 
     public List<ProportionType> getProportionTypes() {
+        if (!frozen) {
+            proportionTypes = SharedCollections.own(proportionTypes);
+        }
         return proportionTypes;
     }
 
+    /**
+     * @param id
+     * @return the first child with the id. Looked up in a cached table if the node is frozen.
+     */
     public Optional<WebTemplateNode> findChildById(String id) {
-        return children.stream().filter(n -> n.getId().equals(id)).findAny();
+        if (frozen) {
+            Map<String, WebTemplateNode> byId = childrenById;
+            if (byId == null) {
+                byId = new HashMap<>();
+                for (WebTemplateNode child : children) {
+                    byId.putIfAbsent(child.getId(), child);
+                }
+                byId = byId.isEmpty() ? Collections.emptyMap() : byId;
+                childrenById = byId;
+            }
+            return Optional.ofNullable(byId.get(id));
+        }
+        for (WebTemplateNode child : children) {
+            if (child.getId().equals(id)) {
+                return Optional.of(child);
+            }
+        }
+        return Optional.empty();
     }
 
     public AqlPath buildRelativePath(WebTemplateNode child, boolean checkIfTrueChild) {
@@ -285,50 +439,87 @@ public class WebTemplateNode implements Serializable {
     }
 
     public List<WebTemplateNode> findMatching(Predicate<WebTemplateNode> filter) {
-        return streamMatching(filter).collect(Collectors.toList());
+        List<WebTemplateNode> matching = new ArrayList<>();
+        collectMatching(filter, matching);
+        return matching;
     }
 
-    public Stream<WebTemplateNode> streamMatching(Predicate<WebTemplateNode> filter) {
-        Stream<WebTemplateNode> matching = children.stream().flatMap(c -> c.streamMatching(filter));
-
+    private void collectMatching(Predicate<WebTemplateNode> filter, List<WebTemplateNode> matching) {
+        for (WebTemplateNode child : children) {
+            child.collectMatching(filter, matching);
+        }
         if (filter.test(this)) {
-            matching = Stream.concat(matching, Stream.of(this));
+            matching.add(this);
         }
-        return matching;
+    }
+
+    /**
+     * @return the matching nodes of the subtree, children before their parent
+     */
+    public Stream<WebTemplateNode> streamMatching(Predicate<WebTemplateNode> filter) {
+        return SubtreeIterator.stream(List.of(this), SubtreeIterator.Order.POST_ORDER)
+                .filter(filter);
     }
 
     public static Stream<WebTemplateNode> streamSubtree(WebTemplateNode node, boolean depthFirst) {
         return streamSubtree(List.of(node), depthFirst);
     }
 
+    /**
+     * @param nodes
+     * @param depthFirst if the nodes follow the subtrees of all of them, otherwise they precede them
+     * @return the nodes and their subtrees
+     */
     public static Stream<WebTemplateNode> streamSubtree(List<WebTemplateNode> nodes, boolean depthFirst) {
-        if (nodes.isEmpty()) {
-            return Stream.of();
-        } else if (depthFirst) {
-            return Stream.concat(nodes.stream().flatMap(n -> streamSubtree(n.getChildren(), true)), nodes.stream());
-        } else {
-            return Stream.concat(nodes.stream(), nodes.stream().flatMap(n -> streamSubtree(n.getChildren(), false)));
-        }
+        return SubtreeIterator.stream(
+                nodes, depthFirst ? SubtreeIterator.Order.SIBLINGS_LAST : SubtreeIterator.Order.SIBLINGS_FIRST);
     }
 
+    /**
+     * @return the nodes of the subtree which can occur multiple times, including those sharing their AQL path
+     * (ignoring the name) with a sibling. Unmodifiable and cached if the node is frozen.
+     */
     public List<WebTemplateNode> multiValued() {
-        List<WebTemplateNode> matching = children.stream()
-                .map(WebTemplateNode::multiValued)
-                .flatMap(List::stream)
-                .collect(Collectors.toList());
+        if (!frozen) {
+            List<WebTemplateNode> matching = new ArrayList<>();
+            collectMultiValued(matching);
+            return matching;
+        }
+        List<WebTemplateNode> matching = multiValued;
+        if (matching == null) {
+            matching = new ArrayList<>();
+            collectMultiValued(matching);
+            matching = Collections.unmodifiableList(matching);
+            multiValued = matching;
+        }
+        return matching;
+    }
+
+    private void collectMultiValued(List<WebTemplateNode> matching) {
+        for (WebTemplateNode child : children) {
+            child.collectMultiValued(matching);
+        }
         if (this.max != 1) {
             matching.add(this);
         }
 
         // Add all which are multi if ignoring name
-        Map<String, List<WebTemplateNode>> collect = children.stream()
-                .collect(Collectors.groupingBy(n -> n.getAqlPathDto().format(false)));
-        collect.forEach((k, v) -> {
-            if (v.size() > 1) {
-                matching.addAll(v.stream().filter(n -> n.max == 1).collect(Collectors.toList()));
+        if (children.size() > 1) {
+            Map<String, List<WebTemplateNode>> byPath = new HashMap<>();
+            for (WebTemplateNode child : children) {
+                byPath.computeIfAbsent(child.getAqlPath(false), k -> new ArrayList<>(2))
+                        .add(child);
             }
-        });
-        return matching;
+            for (List<WebTemplateNode> v : byPath.values()) {
+                if (v.size() > 1) {
+                    for (WebTemplateNode n : v) {
+                        if (n.max == 1) {
+                            matching.add(n);
+                        }
+                    }
+                }
+            }
+        }
     }
 
     @JsonIgnore
@@ -358,6 +549,70 @@ public class WebTemplateNode implements Serializable {
         return max != 1;
     }
 
+    @Override
+    public WebTemplateNode thawed() {
+        return new WebTemplateNode(this);
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * @return an unmodifiable copy of the subtree. Inputs, term bindings, annotations and cardinalities are shared
+     * with this node, so they must not be modified either.
+     */
+    @Override
+    public WebTemplateNode frozen() {
+        return Freezable.frozen(this, WebTemplateNode::frozenCopy);
+    }
+
+    @Override
+    public WebTemplateNode clone() {
+        return Freezable.clone(this, WebTemplateNode::new);
+    }
+
+    private static WebTemplateNode frozenCopy(WebTemplateNode other) {
+        WebTemplateNode node = new WebTemplateNode();
+        node.id = other.id;
+        node.optionalIdNumber = other.optionalIdNumber;
+        node.name = other.name;
+        node.localizedName = other.localizedName;
+        node.rmType = other.rmType;
+        node.nodeId = other.nodeId;
+        node.min = other.min;
+        node.max = other.max;
+        node.aqlPath = other.aqlPath;
+        node.aqlPathWithOtherPredicates = other.aqlPathWithOtherPredicates;
+        node.aqlPathWithoutOtherPredicates = other.aqlPathWithoutOtherPredicates;
+        node.inContext = other.inContext;
+        node.annotations = other.annotations;
+        node.localizedNames = SharedCollections.unmodifiable(other.localizedNames);
+        node.localizedDescriptions = SharedCollections.unmodifiable(other.localizedDescriptions);
+        node.inputs = SharedCollections.unmodifiable(other.inputs);
+        node.termBindings = SharedCollections.unmodifiable(other.termBindings);
+        node.dependsOn = SharedCollections.unmodifiable(other.dependsOn);
+        node.proportionTypes = SharedCollections.unmodifiable(other.proportionTypes);
+        node.cardinalities = SharedCollections.unmodifiable(other.cardinalities);
+        if (!other.children.isEmpty()) {
+            List<WebTemplateNode> children = new ArrayList<>(other.children.size());
+            for (WebTemplateNode child : other.children) {
+                children.add(child.frozen());
+            }
+            node.children = Collections.unmodifiableList(children);
+        }
+        node.frozen = true;
+        return node;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Node " + id + " is frozen");
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -416,4 +671,97 @@ public class WebTemplateNode implements Serializable {
                 + rmType + '\'' + ", aqlPath='"
                 + aqlPath + '\'' + '}';
     }
+
+    /**
+     * Iterates subtrees without recursion
+     */
+    private static final class SubtreeIterator implements Iterator<WebTemplateNode> {
+
+        enum Order {
+            /**
+             * the nodes, then the subtrees of their children
+             */
+            SIBLINGS_FIRST,
+            /**
+             * the subtrees of the children of the nodes, then the nodes
+             */
+            SIBLINGS_LAST,
+            /**
+             * every node after the subtrees of its children
+             */
+            POST_ORDER
+        }
+
+        private static final class Frame {
+
+            private final List<WebTemplateNode> nodes;
+            private int emitted;
+            private int descended;
+
+            private Frame(List<WebTemplateNode> nodes) {
+                this.nodes = nodes;
+            }
+        }
+
+        private final Order order;
+        private final Deque<Frame> stack = new ArrayDeque<>();
+        private WebTemplateNode next;
+
+        private SubtreeIterator(List<WebTemplateNode> nodes, Order order) {
+            this.order = order;
+            if (!nodes.isEmpty()) {
+                stack.push(new Frame(nodes));
+            }
+        }
+
+        static Stream<WebTemplateNode> stream(List<WebTemplateNode> nodes, Order order) {
+            return StreamSupport.stream(
+                    Spliterators.spliteratorUnknownSize(
+                            new SubtreeIterator(nodes, order), Spliterator.ORDERED | Spliterator.NONNULL),
+                    false);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = computeNext();
+            }
+            return next != null;
+        }
+
+        @Override
+        public WebTemplateNode next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            WebTemplateNode result = next;
+            next = null;
+            return result;
+        }
+
+        private WebTemplateNode computeNext() {
+            while (!stack.isEmpty()) {
+                Frame frame = stack.peek();
+                int size = frame.nodes.size();
+                if (order == Order.SIBLINGS_FIRST && frame.emitted < size) {
+                    return frame.nodes.get(frame.emitted++);
+                }
+                if (order == Order.POST_ORDER && frame.emitted < frame.descended) {
+                    return frame.nodes.get(frame.emitted++);
+                }
+                if (frame.descended < size) {
+                    List<WebTemplateNode> children = frame.nodes.get(frame.descended++).children;
+                    if (!children.isEmpty()) {
+                        stack.push(new Frame(children));
+                    }
+                    continue;
+                }
+                if (order == Order.SIBLINGS_LAST && frame.emitted < size) {
+                    return frame.nodes.get(frame.emitted++);
+                }
+                stack.pop();
+            }
+            return null;
+        }
+    }
 }
@@ -0,0 +1,654 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.webtemplate.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+import org.ehrbase.openehr.sdk.aql.dto.condition.ComparisonOperatorSymbol;
+import org.ehrbase.openehr.sdk.aql.dto.operand.StringPrimitive;
+import org.ehrbase.openehr.sdk.aql.webtemplatepath.AqlPath;
+import org.ehrbase.openehr.sdk.aql.webtemplatepath.AqlPath.AqlNode;
+import org.ehrbase.openehr.sdk.aql.webtemplatepath.predicate.PredicateComparisonOperator;
+import org.ehrbase.openehr.sdk.aql.webtemplatepath.predicate.PredicateLogicalAndOperation;
+import org.ehrbase.openehr.sdk.util.exception.SdkException;
+
+/**
+ * Compact binary format of a {@link WebTemplate}, to store web templates without having to parse the operational
+ * template again.
+ * <p>
+ * A snapshot consists of a header with a magic number, the {@link #FORMAT_VERSION}, the payload length and the CRC32C
+ * checksum of the payload, followed by the payload. Within the payload every string is written once and afterwards
+ * referenced by its index. AQL paths are stored node by node, every distinct node once, so that they do not have to be
+ * parsed when read. Only paths with predicates other than string equality fall back to their formatted form.
+ * <p>
+ * The {@link #FORMAT_VERSION} has to be increased whenever the layout or the model changes, snapshots of other
+ * versions are rejected.
+ */
+public final class WebTemplateSnapshot {
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x57545350; // "WTSP"
+    private static final int HEADER_LENGTH = 4 + 4 + 4 + 8;
+
+    private static final int NULL = 0;
+    private static final int NEW_STRING = 1;
+    private static final int STRING_REFERENCE = 2;
+
+    private static final byte STRUCTURED_PATH = 1;
+    private static final byte FORMATTED_PATH = 2;
+
+    private static final byte INTEGER = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte FLOAT = 4;
+    private static final byte STRING = 5;
+
+    private WebTemplateSnapshot() {
+        // NOP
+    }
+
+    /**
+     * @param webTemplate
+     * @return the snapshot of <code>webTemplate</code>
+     */
+    public static byte[] write(WebTemplate webTemplate) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            write(webTemplate, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the snapshot of <code>webTemplate</code> to <code>out</code>.
+     *
+     * @param webTemplate
+     * @param out
+     * @throws IOException
+     */
+    public static void write(WebTemplate webTemplate, OutputStream out) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        Writer writer = new Writer(new DataOutputStream(payload));
+        writer.writeWebTemplate(webTemplate);
+        writer.out.flush();
+
+        byte[] bytes = payload.toByteArray();
+        CRC32C checksum = new CRC32C();
+        checksum.update(bytes);
+
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(MAGIC);
+        header.writeInt(FORMAT_VERSION);
+        header.writeInt(bytes.length);
+        header.writeLong(checksum.getValue());
+        header.write(bytes);
+        header.flush();
+    }
+
+    /**
+     * @see #read(ByteBuffer)
+     */
+    public static WebTemplate read(byte[] snapshot) {
+        return read(ByteBuffer.wrap(snapshot));
+    }
+
+    /**
+     * Reads a snapshot from the position of <code>buffer</code>, e.g. a memory mapped file.
+     *
+     * @param buffer
+     * @return the web template, {@link WebTemplate#compact() compacted} and {@link WebTemplate#freeze() frozen}
+     * @throws SdkException if the buffer does not contain a valid snapshot of the current {@link #FORMAT_VERSION}
+     */
+    public static WebTemplate read(ByteBuffer buffer) {
+        try {
+            if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC) {
+                throw new SdkException("Not a web template snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new SdkException(String.format(
+                        "Unsupported web template snapshot version %d, expected %d", version, FORMAT_VERSION));
+            }
+            int length = buffer.getInt();
+            long expectedChecksum = buffer.getLong();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new SdkException("Truncated web template snapshot");
+            }
+
+            ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            CRC32C checksum = new CRC32C();
+            checksum.update(payload.duplicate());
+            if (checksum.getValue() != expectedChecksum) {
+                throw new SdkException("Checksum mismatch of web template snapshot");
+            }
+
+            WebTemplate webTemplate =
+                    new Reader(payload).readWebTemplate().compact().freeze();
+            buffer.position(buffer.position() + length);
+            return webTemplate;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new SdkException("Corrupt web template snapshot", e);
+        }
+    }
+
+    private static final class Writer {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final Map<AqlNode, Integer> aqlNodes = new HashMap<>();
+
+        private Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private void writeWebTemplate(WebTemplate webTemplate) throws IOException {
+            writeString(webTemplate.getTemplateId());
+            writeString(webTemplate.getVersion());
+            writeString(webTemplate.getDefaultLanguage());
+            writeList(webTemplate.getLanguages(), this::writeString);
+            writeNullable(webTemplate.getTree(), this::writeNode);
+        }
+
+        private void writeNode(WebTemplateNode node) throws IOException {
+            writeString(node.getId(false));
+            writeNullableInt(node.getOptionalIdNumber());
+            writeString(node.getName());
+            writeString(node.getLocalizedName());
+            writeString(node.getRmType());
+            writeString(node.getNodeId());
+            writeInt(node.getMin());
+            writeInt(node.getMax());
+            writeMap(node.getLocalizedNames(), this::writeString);
+            writeMap(node.getLocalizedDescriptions(), this::writeString);
+            writeAqlPath(node.getAqlPathDto());
+            writeList(node.getChildren(), this::writeNode);
+            writeList(node.getInputs(), this::writeInput);
+            writeBoolean(node.getInContext());
+            writeMap(node.getTermBindings(), this::writeTerminology);
+            writeList(node.getDependsOn(), this::writeString);
+            writeNullable(node.getAnnotations(), this::writeAnnotation);
+            writeList(node.getProportionTypes(), this::writeEnum);
+            writeList(node.getCardinalities(), this::writeCardinality);
+        }
+
+        private void writeInput(WebTemplateInput input) throws IOException {
+            writeString(input.getSuffix());
+            writeString(input.getType());
+            writeList(input.getList(), this::writeInputValue);
+            writeBoolean(input.getListOpen());
+            writeNullable(input.getValidation(), this::writeValidation);
+            writeString(input.getTerminology());
+            writeString(input.getDefaultValue());
+        }
+
+        private void writeInputValue(WebTemplateInputValue value) throws IOException {
+            writeString(value.getValue());
+            writeString(value.getLabel());
+            writeMap(value.getLocalizedLabels(), this::writeString);
+            writeMap(value.getLocalizedDescriptions(), this::writeString);
+            writeMap(value.getTermBindings(), this::writeTerminology);
+            writeNullableInt(value.getOrdinal());
+            writeList(value.getCurrentStates(), this::writeString);
+            writeNullable(value.getValidation(), this::writeValidation);
+        }
+
+        private void writeValidation(WebTemplateValidation validation) throws IOException {
+            writeNullable(validation.getPrecision(), this::writeInterval);
+            writeNullable(validation.getRange(), this::writeInterval);
+            writeString(validation.getPattern());
+        }
+
+        private void writeInterval(WebTemplateInterval<?> interval) throws IOException {
+            writeIntervalValue(interval.getMin());
+            writeNullable(interval.getMinOp(), this::writeEnum);
+            writeIntervalValue(interval.getMax());
+            writeNullable(interval.getMaxOp(), this::writeEnum);
+        }
+
+        private void writeIntervalValue(Serializable value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof Integer) {
+                out.writeByte(INTEGER);
+                writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Double) {
+                out.writeByte(DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (value instanceof Float) {
+                out.writeByte(FLOAT);
+                out.writeFloat((Float) value);
+            } else if (value instanceof String) {
+                out.writeByte(STRING);
+                writeString((String) value);
+            } else {
+                throw new SdkException(String.format(
+                        "Unsupported interval value type %s", value.getClass().getName()));
+            }
+        }
+
+        private void writeTerminology(WebTemplateTerminology terminology) throws IOException {
+            writeNullable(terminology, t -> {
+                writeString(t.getValue());
+                writeString(t.getTerminologyId());
+            });
+        }
+
+        private void writeAnnotation(WebTemplateAnnotation annotation) throws IOException {
+            writeString(annotation.getComment());
+            writeMap(annotation.getOther(), this::writeString);
+        }
+
+        private void writeCardinality(WebtemplateCardinality cardinality) throws IOException {
+            writeNullableInt(cardinality.getMin());
+            writeNullableInt(cardinality.getMax());
+            writeList(cardinality.getIds(), this::writeString);
+            writeBoolean(cardinality.getExcludeFromWebTemplate());
+        }
+
+        private void writeAqlPath(AqlPath aqlPath) throws IOException {
+            if (aqlPath == null) {
+                out.writeByte(NULL);
+            } else if (aqlPath.getNodes().stream().allMatch(Writer::isStructured)) {
+                out.writeByte(STRUCTURED_PATH);
+                out.writeBoolean(aqlPath.isEmpty());
+                writeList(aqlPath.getNodes(), this::writeAqlNode);
+                writeString(aqlPath.getAttributeName());
+            } else {
+                out.writeByte(FORMATTED_PATH);
+                writeString(aqlPath.format(true));
+            }
+        }
+
+        private static boolean isStructured(AqlNode node) {
+            return node.getOtherPredicate().getValues().stream()
+                    .allMatch(p -> p.getSymbol() == ComparisonOperatorSymbol.EQ
+                            && p.getValue() != null
+                            && p.getValue().getClass() == StringPrimitive.class);
+        }
+
+        private void writeAqlNode(AqlNode node) throws IOException {
+            Integer index = aqlNodes.get(node);
+            if (index != null) {
+                writeVarInt(1 + index);
+                return;
+            }
+            aqlNodes.put(node, aqlNodes.size());
+            writeVarInt(0);
+            writeString(node.getName());
+            writeString(node.getAtCode());
+            writeList(node.getOtherPredicate().getValues(), p -> {
+                writeString(p.getStatement());
+                writeString(((StringPrimitive) p.getValue()).getValue());
+            });
+        }
+
+        private void writeEnum(Enum<?> value) throws IOException {
+            writeVarInt(value.ordinal());
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarInt(NULL);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeVarInt(STRING_REFERENCE + index);
+            } else {
+                strings.put(value, strings.size());
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(NEW_STRING);
+                writeVarInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        private void writeBoolean(Boolean value) throws IOException {
+            out.writeByte(value == null ? NULL : (value ? 2 : 1));
+        }
+
+        private void writeNullableInt(Integer value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else {
+                out.writeByte(1);
+                writeInt(value);
+            }
+        }
+
+        private void writeInt(int value) throws IOException {
+            // zig-zag encoding, so that small negative values like an unbounded max stay short
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        private <T> void writeNullable(T value, ValueWriter<? super T> valueWriter) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else {
+                out.writeByte(1);
+                valueWriter.write(value);
+            }
+        }
+
+        private <T> void writeList(List<T> values, ValueWriter<? super T> valueWriter) throws IOException {
+            writeVarInt(values.size());
+            for (T value : values) {
+                valueWriter.write(value);
+            }
+        }
+
+        private <T> void writeMap(Map<String, T> values, ValueWriter<? super T> valueWriter) throws IOException {
+            writeVarInt(values.size());
+            for (Map.Entry<String, T> e : values.entrySet()) {
+                writeString(e.getKey());
+                valueWriter.write(e.getValue());
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ValueWriter<T> {
+
+        void write(T value) throws IOException;
+    }
+
+    private static final class Reader {
+
+        private static final WebTemplateComparisonSymbol[] COMPARISON_SYMBOLS = WebTemplateComparisonSymbol.values();
+        private static final ProportionType[] PROPORTION_TYPES = ProportionType.values();
+
+        private final ByteBuffer in;
+        private final List<String> strings = new ArrayList<>();
+        private final List<AqlNode> aqlNodes = new ArrayList<>();
+
+        private Reader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        private WebTemplate readWebTemplate() {
+            WebTemplate webTemplate = new WebTemplate();
+            webTemplate.setTemplateId(readString());
+            webTemplate.setVersion(readString());
+            webTemplate.setDefaultLanguage(readString());
+            readList(webTemplate.getLanguages(), this::readString);
+            webTemplate.setTree(readNullable(this::readNode));
+            return webTemplate;
+        }
+
+        private WebTemplateNode readNode() {
+            WebTemplateNode node = new WebTemplateNode();
+            node.setId(readString());
+            node.setOptionalIdNumber(readNullableInt());
+            node.setName(readString());
+            node.setLocalizedName(readString());
+            node.setRmType(readString());
+            node.setNodeId(readString());
+            node.setMin(readInt());
+            node.setMax(readInt());
+            readMap(node.getLocalizedNames(), this::readString);
+            readMap(node.getLocalizedDescriptions(), this::readString);
+            AqlPath aqlPath = readAqlPath();
+            if (aqlPath != null) {
+                node.setAqlPath(aqlPath);
+            }
+            readList(node.getChildren(), this::readNode);
+            readList(node.getInputs(), this::readInput);
+            node.setInContext(readBoolean());
+            readMap(node.getTermBindings(), this::readTerminology);
+            readList(node.getDependsOn(), this::readString);
+            node.setAnnotations(readNullable(this::readAnnotation));
+            readList(node.getProportionTypes(), () -> readEnum(PROPORTION_TYPES));
+            readList(node.getCardinalities(), this::readCardinality);
+            return node;
+        }
+
+        private WebTemplateInput readInput() {
+            WebTemplateInput input = new WebTemplateInput();
+            input.setSuffix(readString());
+            input.setType(readString());
+            readList(input.getList(), this::readInputValue);
+            input.setListOpen(readBoolean());
+            input.setValidation(readNullable(this::readValidation));
+            input.setTerminology(readString());
+            input.setDefaultValue(readString());
+            return input;
+        }
+
+        private WebTemplateInputValue readInputValue() {
+            WebTemplateInputValue value = new WebTemplateInputValue();
+            value.setValue(readString());
+            value.setLabel(readString());
+            readMap(value.getLocalizedLabels(), this::readString);
+            readMap(value.getLocalizedDescriptions(), this::readString);
+            readMap(value.getTermBindings(), this::readTerminology);
+            value.setOrdinal(readNullableInt());
+            readList(value.getCurrentStates(), this::readString);
+            value.setValidation(readNullable(this::readValidation));
+            return value;
+        }
+
+        private WebTemplateValidation readValidation() {
+            WebTemplateValidation validation = new WebTemplateValidation();
+            validation.setPrecision(readNullable(this::readInterval));
+            validation.setRange(readNullable(this::readInterval));
+            validation.setPattern(readString());
+            return validation;
+        }
+
+        private WebTemplateInterval<Serializable> readInterval() {
+            WebTemplateInterval<Serializable> interval = new WebTemplateInterval<>();
+            interval.setMin(readIntervalValue());
+            interval.setMinOp(readNullable(() -> readEnum(COMPARISON_SYMBOLS)));
+            interval.setMax(readIntervalValue());
+            interval.setMaxOp(readNullable(() -> readEnum(COMPARISON_SYMBOLS)));
+            return interval;
+        }
+
+        private Serializable readIntervalValue() {
+            byte type = in.get();
+            switch (type) {
+                case NULL:
+                    return null;
+                case INTEGER:
+                    return readInt();
+                case LONG:
+                    return in.getLong();
+                case DOUBLE:
+                    return in.getDouble();
+                case FLOAT:
+                    return in.getFloat();
+                case STRING:
+                    return readString();
+                default:
+                    throw new IllegalArgumentException(String.format("Unknown interval value type %d", type));
+            }
+        }
+
+        private WebTemplateTerminology readTerminology() {
+            return readNullable(() -> {
+                WebTemplateTerminology terminology = new WebTemplateTerminology();
+                terminology.setValue(readString());
+                terminology.setTerminologyId(readString());
+                return terminology;
+            });
+        }
+
+        private WebTemplateAnnotation readAnnotation() {
+            WebTemplateAnnotation annotation = new WebTemplateAnnotation();
+            annotation.setComment(readString());
+            readMap(annotation.getOther(), this::readString);
+            return annotation;
+        }
+
+        private WebtemplateCardinality readCardinality() {
+            WebtemplateCardinality cardinality = new WebtemplateCardinality();
+            cardinality.setMin(readNullableInt());
+            cardinality.setMax(readNullableInt());
+            readList(cardinality.getIds(), this::readString);
+            cardinality.setExcludeFromWebTemplate(readBoolean());
+            return cardinality;
+        }
+
+        private AqlPath readAqlPath() {
+            byte kind = in.get();
+            switch (kind) {
+                case NULL:
+                    return null;
+                case STRUCTURED_PATH:
+                    boolean empty = in.get() != 0;
+                    List<AqlNode> nodes = new ArrayList<>();
+                    readList(nodes, this::readAqlNode);
+                    String attributeName = readString();
+                    AqlPath aqlPath;
+                    if (nodes.isEmpty()) {
+                        aqlPath = empty ? AqlPath.EMPTY_PATH : AqlPath.ROOT_PATH;
+                    } else {
+                        aqlPath = AqlPath.ROOT_PATH.addEnd(nodes.toArray(new AqlNode[0]));
+                    }
+                    return attributeName == null ? aqlPath : aqlPath.withAttributeName(attributeName);
+                case FORMATTED_PATH:
+                    return AqlPath.parse(readString());
+                default:
+                    throw new IllegalArgumentException(String.format("Unknown path kind %d", kind));
+            }
+        }
+
+        private AqlNode readAqlNode() {
+            int code = readVarInt();
+            if (code != 0) {
+                if (code > aqlNodes.size()) {
+                    throw new IllegalArgumentException(String.format("Unknown path node reference %d", code - 1));
+                }
+                return aqlNodes.get(code - 1);
+            }
+            String name = readString();
+            String atCode = readString();
+            List<PredicateComparisonOperator> predicates = new ArrayList<>();
+            readList(
+                    predicates,
+                    () -> new PredicateComparisonOperator(
+                            readString(), ComparisonOperatorSymbol.EQ, new StringPrimitive(readString())));
+            AqlNode node = new AqlNode(
+                    name,
+                    atCode,
+                    new PredicateLogicalAndOperation(predicates.toArray(new PredicateComparisonOperator[0])));
+            aqlNodes.add(node);
+            return node;
+        }
+
+        private <E extends Enum<E>> E readEnum(E[] values) {
+            int ordinal = readVarInt();
+            if (ordinal >= values.length) {
+                throw new IllegalArgumentException(String.format("Unknown constant %d", ordinal));
+            }
+            return values[ordinal];
+        }
+
+        private String readString() {
+            int code = readVarInt();
+            if (code == NULL) {
+                return null;
+            }
+            if (code == NEW_STRING) {
+                byte[] bytes = new byte[readVarInt()];
+                in.get(bytes);
+                String value = new String(bytes, StandardCharsets.UTF_8);
+                strings.add(value);
+                return value;
+            }
+            int index = code - STRING_REFERENCE;
+            if (index >= strings.size()) {
+                throw new IllegalArgumentException(String.format("Unknown string reference %d", index));
+            }
+            return strings.get(index);
+        }
+
+        private Boolean readBoolean() {
+            byte value = in.get();
+            return value == NULL ? null : value == 2;
+        }
+
+        private Integer readNullableInt() {
+            return in.get() == NULL ? null : readInt();
+        }
+
+        private int readInt() {
+            int value = readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = in.get();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed variable length integer");
+        }
+
+        private <T> T readNullable(Supplier<T> valueReader) {
+            return in.get() == NULL ? null : valueReader.get();
+        }
+
+        private <T> void readList(List<T> target, Supplier<T> valueReader) {
+            int size = readVarInt();
+            for (int i = 0; i < size; i++) {
+                target.add(valueReader.get());
+            }
+        }
+
+        private <T> void readMap(Map<String, T> target, Supplier<T> valueReader) {
+            int size = readVarInt();
+            for (int i = 0; i < size; i++) {
+                String key = readString();
+                target.put(key, valueReader.get());
+            }
+        }
+    }
+}
@@ -26,6 +26,7 @@ public class WebTemplateTerminology implements Serializable {
 
     private String value;
     private String terminologyId;
+    private transient boolean shared;
 
     public WebTemplateTerminology() {}
 
@@ -39,6 +40,7 @@ public class WebTemplateTerminology implements Serializable {
     }
 
     public void setValue(String value) {
+        checkNotShared();
         this.value = value;
     }
 
@@ -47,9 +49,27 @@ public class WebTemplateTerminology implements Serializable {
     }
 
     public void setTerminologyId(String terminologyId) {
+        checkNotShared();
         this.terminologyId = terminologyId;
     }
 
+    boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Makes this terminology unmodifiable, as it is shared between nodes.
+     */
+    void share() {
+        shared = true;
+    }
+
+    private void checkNotShared() {
+        if (shared) {
+            throw new UnsupportedOperationException("Terminology is shared between nodes, modify a copy");
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -27,6 +27,7 @@ public class WebTemplateValidation implements Serializable {
     private WebTemplateInterval precision;
     private WebTemplateInterval range;
     private String pattern;
+    private transient boolean shared;
 
     public WebTemplateValidation() {}
 
@@ -47,6 +48,7 @@ public class WebTemplateValidation implements Serializable {
     }
 
     public void setPrecision(WebTemplateInterval precision) {
+        checkNotShared();
         this.precision = precision;
     }
 
@@ -55,6 +57,7 @@ public class WebTemplateValidation implements Serializable {
     }
 
     public void setRange(WebTemplateInterval range) {
+        checkNotShared();
         this.range = range;
     }
 
@@ -63,9 +66,29 @@ public class WebTemplateValidation implements Serializable {
     }
 
     public void setPattern(String pattern) {
+        checkNotShared();
         this.pattern = pattern;
     }
 
+    /**
+     * Makes this validation and its intervals unmodifiable, as it is shared between nodes.
+     */
+    void share() {
+        shared = true;
+        if (precision != null) {
+            precision.share();
+        }
+        if (range != null) {
+            range.share();
+        }
+    }
+
+    private void checkNotShared() {
+        if (shared) {
+            throw new UnsupportedOperationException("Validation is shared between nodes, modify a copy");
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
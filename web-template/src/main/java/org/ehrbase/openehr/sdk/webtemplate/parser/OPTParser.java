@@ -43,6 +43,9 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -67,7 +70,6 @@ import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateValidation;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebtemplateCardinality;
 import org.ehrbase.openehr.sdk.webtemplate.util.WebTemplateUtils;
 import org.openehr.schemas.v1.ANNOTATION;
-import org.openehr.schemas.v1.ARCHETYPEONTOLOGY;
 import org.openehr.schemas.v1.ARCHETYPESLOT;
 import org.openehr.schemas.v1.ARCHETYPETERM;
 import org.openehr.schemas.v1.CARCHETYPEROOT;
@@ -89,6 +91,7 @@ import org.openehr.schemas.v1.CodeDefinitionSet;
 import org.openehr.schemas.v1.DVCODEDTEXT;
 import org.openehr.schemas.v1.DVORDINAL;
 import org.openehr.schemas.v1.DVQUANTITY;
+import org.openehr.schemas.v1.FLATARCHETYPEONTOLOGY;
 import org.openehr.schemas.v1.IntervalOfInteger;
 import org.openehr.schemas.v1.OBJECTID;
 import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
@@ -116,7 +119,17 @@ public class OPTParser {
     private final Map<String, Map<String, String>> annotationMap = new HashMap<>();
     private List<String> languages;
 
-    private final Map<String, String> choiceIdCache = new HashMap<>();
+    private final Map<String, String> choiceIdCache = new ConcurrentHashMap<>();
+
+    /**
+     * whether the archetype roots are parsed as tasks of the current {@link ForkJoinPool}
+     */
+    private boolean parallel;
+
+    /**
+     * term definitions of the ontologies by archetype id, code and language
+     */
+    private Map<String, Map<String, Map<String, TermDefinition>>> ontologyIndex;
 
     private boolean updateChoiceId(WebTemplateNode node) {
         String rmType = node.getRmType();
@@ -162,11 +175,61 @@ public class OPTParser {
             annotationMap.put(annotation.getPath().replaceAll("^[^/]+", ""), items);
         }
 
+        ontologyIndex = buildOntologyIndex(operationaltemplate);
+
         webTemplate.setTree(parseCARCHETYPEROO(operationaltemplate.getDefinition(), AqlPath.EMPTY_PATH)
                 .get(0));
         return webTemplate;
     }
 
+    /**
+     * Like {@link #parse()}, but the subtrees of the archetype roots are parsed as parallel tasks of
+     * <code>pool</code>.
+     * <p>
+     * Besides the read-only template data the tasks only share the choice ids, which depend on the rm type alone.
+     * The results are joined in document order before the ids of the siblings are made unique, thus the web template
+     * equals the one of {@link #parse()}.
+     *
+     * @param pool
+     * @return
+     */
+    public WebTemplate parse(ForkJoinPool pool) {
+        parallel = true;
+        try {
+            return join(pool.submit(() -> parse()));
+        } finally {
+            parallel = false;
+        }
+    }
+
+    private List<ForkJoinTask<List<WebTemplateNode>>> forkArchetypeRoots(
+            COBJECT[] cobjects, AqlPath aqlPath, String rmAttributeName) {
+        List<ForkJoinTask<List<WebTemplateNode>>> tasks = new ArrayList<>(cobjects.length);
+        boolean fork = parallel && ForkJoinTask.inForkJoinPool();
+        for (COBJECT cobject : cobjects) {
+            if (fork && cobject instanceof CARCHETYPEROOT) {
+                // archetype roots neither use the term definitions of their parent nor their siblings
+                tasks.add(ForkJoinTask.adapt(() -> parseCOBJECT(cobject, aqlPath, null, rmAttributeName))
+                        .fork());
+            } else {
+                tasks.add(null);
+            }
+        }
+        return tasks;
+    }
+
+    private static <T> T join(ForkJoinTask<T> task) {
+        try {
+            return task.join();
+        } catch (RuntimeException e) {
+            // exceptions of other threads are re-thrown wrapped into a copy
+            if (e.getCause() != null && e.getCause().getClass() == e.getClass()) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     static XmlObject[] extractChildren(XmlObject c, String attributes) {
         return c.selectChildren("http://schemas.openehr.org/v1", attributes);
     }
@@ -255,10 +318,12 @@ public class OPTParser {
                     .put(defaultLanguage, new TermDefinition(code, value, description, otherMap));
         }
 
-        Map<String, Map<String, TermDefinition>> otherTermDefinitionMap =
-                buildOtherTerms(carchetyperoot.getArchetypeId().getValue());
-        otherTermDefinitionMap.forEach((key, value) ->
-                termDefinitionMap.computeIfAbsent(key, c -> new HashMap<>()).putAll(value));
+        // terms not defined locally are shared with the ontology index instead of being copied
+        buildOtherTerms(carchetyperoot.getArchetypeId().getValue())
+                .forEach((key, value) -> termDefinitionMap.merge(key, value, (local, other) -> {
+                    local.putAll(other);
+                    return local;
+                }));
 
         List<WebTemplateNode> nodes = parseCCOMPLEXOBJECT(carchetyperoot, aqlPath, termDefinitionMap, null);
         nodes.forEach(node -> {
@@ -270,45 +335,56 @@ public class OPTParser {
     }
 
     private Map<String, Map<String, TermDefinition>> buildOtherTerms(String archetypeId) {
-        Map<String, Map<String, TermDefinition>> otherTermDefinitionMap = new HashMap<>();
-        List<CodeDefinitionSet> ontologies = new ArrayList<>();
+        return ontologyIndex.getOrDefault(archetypeId, Collections.emptyMap());
+    }
 
-        ontologies.addAll(Optional.ofNullable(operationaltemplate.getOntology())
-                .filter(x -> Objects.equals(x.getArchetypeId(), archetypeId))
-                .map(ARCHETYPEONTOLOGY::getTermDefinitionsArray)
-                .stream()
-                .flatMap(Arrays::stream)
-                .collect(Collectors.toList()));
-        ontologies.addAll(Arrays.stream(operationaltemplate.getComponentOntologiesArray())
-                .filter(x -> Objects.equals(x.getArchetypeId(), archetypeId))
-                .map(ARCHETYPEONTOLOGY::getTermDefinitionsArray)
-                .flatMap(Arrays::stream)
-                .collect(Collectors.toList()));
-
-        for (CodeDefinitionSet term : ontologies) {
-            String language = term.getLanguage();
-
-            for (ARCHETYPETERM items : term.getItemsArray()) {
-                String code = items.getCode();
-                String text = "";
-                String description = "";
-                for (StringDictionaryItem item : items.getItemsArray()) {
-                    String id = item.getId();
-
-                    String value = item.getStringValue();
-                    if (Objects.equals(id, "text")) {
-                        text = value;
-                    } else if (Objects.equals(id, "description")) {
-                        description = value;
+    /**
+     * Indexes the terms of the template ontology and the component ontologies in one pass.
+     *
+     * @param operationaltemplate
+     * @return the unmodifiable term definitions by archetype id, code and language
+     */
+    static Map<String, Map<String, Map<String, TermDefinition>>> buildOntologyIndex(
+            OPERATIONALTEMPLATE operationaltemplate) {
+        Map<String, Map<String, Map<String, TermDefinition>>> index = new HashMap<>();
+
+        List<FLATARCHETYPEONTOLOGY> ontologies = new ArrayList<>();
+        Optional.ofNullable(operationaltemplate.getOntology()).ifPresent(ontologies::add);
+        ontologies.addAll(Arrays.asList(operationaltemplate.getComponentOntologiesArray()));
+
+        for (FLATARCHETYPEONTOLOGY ontology : ontologies) {
+            Map<String, Map<String, TermDefinition>> otherTermDefinitionMap =
+                    index.computeIfAbsent(ontology.getArchetypeId(), a -> new HashMap<>());
+
+            for (CodeDefinitionSet term : ontology.getTermDefinitionsArray()) {
+                String language = term.getLanguage();
+
+                for (ARCHETYPETERM items : term.getItemsArray()) {
+                    String code = items.getCode();
+                    String text = "";
+                    String description = "";
+                    for (StringDictionaryItem item : items.getItemsArray()) {
+                        String id = item.getId();
+
+                        String value = item.getStringValue();
+                        if (Objects.equals(id, "text")) {
+                            text = value;
+                        } else if (Objects.equals(id, "description")) {
+                            description = value;
+                        }
                     }
+                    Map<String, TermDefinition> termDefinitionMap =
+                            otherTermDefinitionMap.computeIfAbsent(code, c -> new HashMap<>());
+                    termDefinitionMap.put(language, new TermDefinition(code, text, description));
                 }
-                Map<String, TermDefinition> termDefinitionMap =
-                        otherTermDefinitionMap.computeIfAbsent(code, c -> new HashMap<>());
-                termDefinitionMap.put(language, new TermDefinition(code, text, description));
             }
         }
 
-        return otherTermDefinitionMap;
+        index.replaceAll((archetypeId, terms) -> {
+            terms.replaceAll((code, byLanguage) -> Collections.unmodifiableMap(byLanguage));
+            return Collections.unmodifiableMap(terms);
+        });
+        return Collections.unmodifiableMap(index);
     }
 
     private static class Name {
@@ -431,14 +507,19 @@ public class OPTParser {
             }
 
             List<WebTemplateNode> newChildren = new ArrayList<>();
-            for (COBJECT cobject : cattribute.getChildrenArray()) {
+            COBJECT[] cobjects = cattribute.getChildrenArray();
+            List<ForkJoinTask<List<WebTemplateNode>>> forked =
+                    forkArchetypeRoots(cobjects, pathLoop, cattribute.getRmAttributeName());
+            for (int i = 0; i < cobjects.length; i++) {
+                COBJECT cobject = cobjects[i];
 
                 if (cobject instanceof CPRIMITIVEOBJECT) {
                     inputMap.put(
                             cattribute.getRmAttributeName(), inputHandler.extractInput((CPRIMITIVEOBJECT) cobject));
                 } else {
-                    List<WebTemplateNode> childNode =
-                            parseCOBJECT(cobject, pathLoop, termDefinitionMap, cattribute.getRmAttributeName());
+                    List<WebTemplateNode> childNode = forked.get(i) != null
+                            ? join(forked.get(i))
+                            : parseCOBJECT(cobject, pathLoop, termDefinitionMap, cattribute.getRmAttributeName());
                     if (childNode != null) {
                         newChildren.addAll(childNode);
                     }
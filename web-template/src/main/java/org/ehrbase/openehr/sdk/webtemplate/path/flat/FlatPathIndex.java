@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.webtemplate.path.flat;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Read-only view on flat values, backed by a prefix-trie over the segments of the {@link FlatPathDto} keys.
+ * <p>
+ * Every trie level groups the segments by name and then by count ("count bucket"), a missing count being treated
+ * as <code>0</code> the same way {@link FlatPathDto#startsWith(FlatPathDto)} does. Sub-views returned by
+ * {@link #subIndex(FlatPathDto)} share the trie with the view they are created from, so looking up the values below a
+ * path costs <code>O(depth)</code> instead of a scan over all keys.
+ *
+ * @param <V> type of the values
+ */
+public final class FlatPathIndex<V> extends AbstractMap<FlatPathDto, V> {
+
+    private final Node<V> root;
+
+    /**
+     * Disjoint sub-trees of {@link #root} whose entries are part of this view
+     */
+    private final List<Node<V>> scope;
+
+    private Set<Map.Entry<FlatPathDto, V>> entrySet;
+
+    private FlatPathIndex(Node<V> root, List<Node<V>> scope) {
+        this.root = root;
+        this.scope = scope;
+    }
+
+    /**
+     * Builds an index over a copy of the entries of <code>values</code>.
+     *
+     * @param values
+     * @return
+     */
+    public static <V> FlatPathIndex<V> of(Map<FlatPathDto, ? extends V> values) {
+        if (values instanceof FlatPathIndex) {
+            @SuppressWarnings("unchecked")
+            FlatPathIndex<V> index = (FlatPathIndex<V>) values;
+            return index;
+        }
+
+        Node<V> root = new Node<>(null);
+        values.forEach((k, v) -> root.add(k, v));
+        return new FlatPathIndex<>(root, List.of(root));
+    }
+
+    /**
+     * Returns the entries of <code>values</code> whose key {@link FlatPathDto#startsWith(FlatPathDto)} the
+     * <code>prefix</code>. Uses the index if <code>values</code> is a {@link FlatPathIndex}, otherwise the entries are
+     * filtered.
+     *
+     * @param values
+     * @param prefix
+     * @return
+     */
+    public static <V> Map<FlatPathDto, V> startingWith(Map<FlatPathDto, V> values, FlatPathDto prefix) {
+        if (values instanceof FlatPathIndex) {
+            return ((FlatPathIndex<V>) values).subIndex(prefix);
+        }
+        return filter(values, prefix);
+    }
+
+    /**
+     * @see #startingWith(Map, FlatPathDto)
+     */
+    public static <V> Map<FlatPathDto, V> startingWith(Map<FlatPathDto, V> values, CharSequence prefix) {
+        return startingWith(values, FlatPathParser.parse(prefix));
+    }
+
+    private static <V> Map<FlatPathDto, V> filter(Map<FlatPathDto, V> values, FlatPathDto prefix) {
+        return values.entrySet().stream()
+                .filter(e -> e.getKey().startsWith(prefix))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    /**
+     * @see #subIndex(FlatPathDto)
+     */
+    public FlatPathIndex<V> subIndex(CharSequence prefix) {
+        return subIndex(FlatPathParser.parse(prefix));
+    }
+
+    /**
+     * View on all entries of this view whose key {@link FlatPathDto#startsWith(FlatPathDto)} the
+     * <code>prefix</code>.
+     *
+     * @param prefix
+     * @return
+     */
+    public FlatPathIndex<V> subIndex(FlatPathDto prefix) {
+        if (!isIndexable(prefix)) {
+            // attribute constraints are not part of the trie
+            Node<V> filtered = new Node<>(null);
+            filter(this, prefix).forEach(filtered::add);
+            return new FlatPathIndex<>(filtered, List.of(filtered));
+        }
+
+        List<Node<V>> candidates = List.of(root);
+        for (FlatPathDto segment = prefix; segment != null && !candidates.isEmpty(); segment = segment.getChild()) {
+            boolean allCounts = segment.getChild() == null && segment.getCount() == null;
+            List<Node<V>> next = new ArrayList<>();
+            for (Node<V> candidate : candidates) {
+                NavigableMap<Integer, Node<V>> bucket = candidate.children.get(segment.getName());
+                if (bucket == null) {
+                    continue;
+                }
+                if (allCounts) {
+                    next.addAll(bucket.values());
+                } else {
+                    Optional.ofNullable(bucket.get(normalise(segment.getCount())))
+                            .ifPresent(next::add);
+                }
+            }
+            candidates = next;
+        }
+
+        return new FlatPathIndex<>(root, restrictToScope(candidates));
+    }
+
+    /**
+     * Returns the count following the highest count of a child named <code>childName</code> below
+     * <code>path</code>, or <code>0</code> if no such child exists.
+     * <p>
+     * Only entries where <code>path</code> matches exactly (a missing count equals <code>0</code>) are considered.
+     *
+     * @param path
+     * @param childName
+     * @return
+     */
+    public int nextCount(FlatPathDto path, String childName) {
+        if (!isIndexable(path)) {
+            return entrySet().stream()
+                    .map(Map.Entry::getKey)
+                    .filter(k -> k.startsWith(path))
+                    .map(k -> FlatPathDto.removeStart(k, path))
+                    .filter(n -> n != null && n.getName().equals(childName))
+                    .mapToInt(n -> normalise(n.getCount()) + 1)
+                    .max()
+                    .orElse(0);
+        }
+
+        Node<V> node = root;
+        for (FlatPathDto segment = path; segment != null && node != null; segment = segment.getChild()) {
+            node = node.child(segment);
+        }
+        if (node == null) {
+            return 0;
+        }
+        NavigableMap<Integer, Node<V>> bucket = node.children.get(childName);
+        if (bucket == null) {
+            return 0;
+        }
+        for (Map.Entry<Integer, Node<V>> e : bucket.descendingMap().entrySet()) {
+            if (intersectsScope(e.getValue())) {
+                return e.getKey() + 1;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Node<V> n : scope) {
+            size += n.size;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return findEntry(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        return Optional.ofNullable(findEntry(key)).map(Map.Entry::getValue).orElse(null);
+    }
+
+    private Map.Entry<FlatPathDto, V> findEntry(Object key) {
+        if (!(key instanceof FlatPathDto)) {
+            return null;
+        }
+        Node<V> node = root;
+        for (FlatPathDto segment = (FlatPathDto) key; segment != null && node != null; segment = segment.getChild()) {
+            node = node.child(segment);
+        }
+        if (node == null || !inScope(node)) {
+            return null;
+        }
+        return node.entries.stream()
+                .filter(e -> e.getKey().equals(key))
+                .findAny()
+                .orElse(null);
+    }
+
+    @Override
+    public Set<Map.Entry<FlatPathDto, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<FlatPathDto, V>> {
+
+        private List<Map.Entry<FlatPathDto, V>> entries;
+
+        @Override
+        public Iterator<Map.Entry<FlatPathDto, V>> iterator() {
+            if (entries == null) {
+                List<Map.Entry<FlatPathDto, V>> list = new ArrayList<>(FlatPathIndex.this.size());
+                scope.forEach(n -> n.collect(list));
+                entries = Collections.unmodifiableList(list);
+            }
+            return entries.iterator();
+        }
+
+        @Override
+        public int size() {
+            return FlatPathIndex.this.size();
+        }
+    }
+
+    private List<Node<V>> restrictToScope(List<Node<V>> candidates) {
+        if (scope.size() == 1 && scope.get(0) == root) {
+            return candidates;
+        }
+        List<Node<V>> restricted = new ArrayList<>();
+        for (Node<V> candidate : candidates) {
+            for (Node<V> s : scope) {
+                if (s.isAncestorOrSelf(candidate)) {
+                    restricted.add(candidate);
+                } else if (candidate.isAncestorOrSelf(s)) {
+                    restricted.add(s);
+                }
+            }
+        }
+        return restricted;
+    }
+
+    private boolean inScope(Node<V> node) {
+        return scope.stream().anyMatch(s -> s.isAncestorOrSelf(node));
+    }
+
+    private boolean intersectsScope(Node<V> node) {
+        return scope.stream().anyMatch(s -> s.isAncestorOrSelf(node) || node.isAncestorOrSelf(s));
+    }
+
+    private static boolean isIndexable(FlatPathDto path) {
+        for (FlatPathDto segment = path; segment != null; segment = segment.getChild()) {
+            if (segment.getName() == null || segment.getAttributeName() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int normalise(Integer count) {
+        return count == null ? 0 : count;
+    }
+
+    private static final class Node<V> {
+
+        private final Node<V> parent;
+        private final int depth;
+        private final Map<String, NavigableMap<Integer, Node<V>>> children = new LinkedHashMap<>();
+
+        /**
+         * entries whose key ends at this node
+         */
+        private final List<Map.Entry<FlatPathDto, V>> entries = new ArrayList<>(1);
+
+        /**
+         * number of entries in the sub-tree
+         */
+        private int size;
+
+        private Node(Node<V> parent) {
+            this.parent = parent;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+
+        private void add(FlatPathDto key, V value) {
+            Node<V> node = this;
+            node.size++;
+            for (FlatPathDto segment = key; segment != null; segment = segment.getChild()) {
+                Node<V> current = node;
+                node = current.children
+                        .computeIfAbsent(segment.getName(), n -> new TreeMap<>())
+                        .computeIfAbsent(normalise(segment.getCount()), c -> new Node<>(current));
+                node.size++;
+            }
+            node.entries.add(new AbstractMap.SimpleImmutableEntry<>(key, value));
+        }
+
+        private Node<V> child(FlatPathDto segment) {
+            NavigableMap<Integer, Node<V>> bucket = children.get(segment.getName());
+            return bucket == null ? null : bucket.get(normalise(segment.getCount()));
+        }
+
+        private void collect(List<Map.Entry<FlatPathDto, V>> target) {
+            target.addAll(entries);
+            children.values().forEach(b -> b.values().forEach(n -> n.collect(target)));
+        }
+
+        private boolean isAncestorOrSelf(Node<V> other) {
+            Node<V> n = other;
+            while (n != null && n.depth > depth) {
+                n = n.parent;
+            }
+            return n == this;
+        }
+    }
+}
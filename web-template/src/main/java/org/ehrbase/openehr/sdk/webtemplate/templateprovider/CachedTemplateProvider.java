@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2020 vitasystems GmbH and Hannover Medical School.
+ * Copyright (c) 2019 vitasystems GmbH and Hannover Medical School.
  *
  * This file is part of project openEHR_SDK
  *
@@ -17,14 +17,30 @@
  */
 package org.ehrbase.openehr.sdk.webtemplate.templateprovider;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import javax.cache.Cache;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
 import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
 import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
 
 /**
  * Wraps a {@link TemplateProvider} to provide caching.
+ * <p>
+ * Concurrent misses for the same template are loaded only once, the other callers wait for the result. Eviction is
+ * up to the supplied {@link Cache}s, see {@link #cacheConfiguration(Class, Duration)} for a time based one.
+ * <p>
+ * The web templates of the introspect cache are shared by all callers and thus {@link WebTemplate#compact()
+ * compacted} and {@link WebTemplate#freeze() frozen}.
  */
 public class CachedTemplateProvider implements TemplateProvider {
 
@@ -32,6 +48,9 @@ public class CachedTemplateProvider implements TemplateProvider {
     private final Cache<String, OPERATIONALTEMPLATE> templateCache;
     private final Cache<String, WebTemplate> introspectCache;
 
+    private final Loader<OPERATIONALTEMPLATE> templateLoader = new Loader<>();
+    private final Loader<WebTemplate> introspectLoader = new Loader<>();
+
     /**
      * @param rootTemplateProvider The warped {@link TemplateProvider}
      * @param templateCache        The {@link Cache} which is used for caching the templates.
@@ -60,26 +79,235 @@ public class CachedTemplateProvider implements TemplateProvider {
         this.introspectCache = introspectCache;
     }
 
+    /**
+     * Configuration for a cache of this provider which evicts entries <code>timeToLive</code> after they have been
+     * loaded. A size bound has to be configured by means of the caching provider in use.
+     *
+     * @param type       {@link OPERATIONALTEMPLATE} or {@link WebTemplate}
+     * @param timeToLive
+     * @return
+     */
+    public static <V> MutableConfiguration<String, V> cacheConfiguration(Class<V> type, Duration timeToLive) {
+        return new MutableConfiguration<String, V>()
+                .setTypes(String.class, type)
+                .setStoreByValue(false)
+                .setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(timeToLive));
+    }
+
     @Override
     public Optional<OPERATIONALTEMPLATE> find(String templateId) {
 
         Optional<OPERATIONALTEMPLATE> operationaltemplate = Optional.ofNullable(templateCache.get(templateId));
 
-        if (!operationaltemplate.isPresent()) {
-            operationaltemplate = rootTemplateProvider.find(templateId);
-            operationaltemplate.ifPresent(o -> templateCache.put(templateId, o));
+        if (operationaltemplate.isPresent()) {
+            templateLoader.statistics.hits.increment();
+        } else {
+            operationaltemplate =
+                    Optional.ofNullable(templateLoader.load(templateCache, templateId, id -> rootTemplateProvider
+                            .find(id)
+                            .orElse(null)));
         }
         return operationaltemplate;
     }
 
     @Override
     public Optional<WebTemplate> buildIntrospect(String templateId) {
+        if (introspectCache == null) {
+            return find(templateId).map(t -> new OPTParser(t).parse());
+        }
+
         WebTemplate templateIntrospect = introspectCache.get(templateId);
-        if (templateIntrospect == null) {
-            templateIntrospect =
-                    find(templateId).map(t -> new OPTParser(t).parse()).orElse(null);
+        if (templateIntrospect != null) {
+            introspectLoader.statistics.hits.increment();
+        } else {
+            templateIntrospect = introspectLoader.load(introspectCache, templateId, id -> find(id).map(
+                            t -> new OPTParser(t).parse().compact().freeze())
+                    .orElse(null));
         }
 
         return Optional.ofNullable(templateIntrospect);
     }
+
+    @Override
+    public Optional<Collection<String>> findAllTemplateIds() {
+        return rootTemplateProvider.findAllTemplateIds();
+    }
+
+    /**
+     * Loads the templates into the caches, including their web templates if an introspect cache is configured.
+     */
+    @Override
+    public TemplatePreloader.Report preload(Collection<String> templateIds) {
+        return new TemplatePreloader(introspectCache == null ? this::find : this::buildIntrospect).preload(templateIds);
+    }
+
+    /**
+     * Removes the template and its web template from the caches, e.g. after the template has been replaced.
+     *
+     * @param templateId
+     */
+    public void invalidate(String templateId) {
+        templateLoader.invalidate(templateId);
+        introspectLoader.invalidate(templateId);
+        templateCache.remove(templateId);
+        if (introspectCache != null) {
+            introspectCache.remove(templateId);
+        }
+    }
+
+    /**
+     * Removes all templates and web templates from the caches.
+     */
+    public void invalidateAll() {
+        templateLoader.invalidateAll();
+        introspectLoader.invalidateAll();
+        templateCache.removeAll();
+        if (introspectCache != null) {
+            introspectCache.removeAll();
+        }
+    }
+
+    /**
+     * @return the statistics of {@link #find(String)}
+     */
+    public Statistics getTemplateStatistics() {
+        return templateLoader.statistics;
+    }
+
+    /**
+     * @return the statistics of {@link #buildIntrospect(String)}
+     */
+    public Statistics getIntrospectStatistics() {
+        return introspectLoader.statistics;
+    }
+
+    /**
+     * Loads missing values at most once at a time per key. A load that is invalidated while running does not put its
+     * value into the cache, and neither the loading caller nor the waiting ones return it, they load again instead.
+     */
+    private static class Loader<V> {
+
+        private final Map<String, Load<V>> inFlight = new ConcurrentHashMap<>();
+        private final Statistics statistics = new Statistics();
+
+        private V load(Cache<String, V> cache, String key, Function<String, V> loadFunction) {
+            while (true) {
+                Load<V> load = new Load<>();
+                Load<V> running = inFlight.putIfAbsent(key, load);
+                if (running != null) {
+                    V value = join(running.future);
+                    if (!running.invalidated) {
+                        statistics.hits.increment();
+                        return value;
+                    }
+                } else {
+                    V value = load(cache, key, loadFunction, load);
+                    if (!load.invalidated) {
+                        return value;
+                    }
+                }
+            }
+        }
+
+        private V load(Cache<String, V> cache, String key, Function<String, V> loadFunction, Load<V> load) {
+            try {
+                // another thread might have completed loading between the cache lookup and putIfAbsent
+                V value = cache.get(key);
+                if (value != null) {
+                    statistics.hits.increment();
+                } else {
+                    statistics.misses.increment();
+                    long start = System.nanoTime();
+                    try {
+                        value = loadFunction.apply(key);
+                    } finally {
+                        statistics.loadTimeNanos.add(System.nanoTime() - start);
+                    }
+                    // values loaded before an invalidation might be outdated. invalidate marks the load before it
+                    // removes the key from the cache, thus either of both removes a value put concurrently.
+                    if (value != null && !load.invalidated) {
+                        cache.put(key, value);
+                        if (load.invalidated) {
+                            cache.remove(key, value);
+                        }
+                    }
+                }
+                load.future.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                load.future.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, load);
+            }
+        }
+
+        private static <V> V join(CompletableFuture<V> future) {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        /**
+         * Marks the running load of <code>key</code> as invalidated, the next caller starts a new one.
+         */
+        private void invalidate(String key) {
+            inFlight.computeIfPresent(key, (k, load) -> {
+                load.invalidated = true;
+                return null;
+            });
+        }
+
+        private void invalidateAll() {
+            inFlight.keySet().forEach(this::invalidate);
+        }
+    }
+
+    /**
+     * A running load of a {@link Loader}
+     */
+    private static final class Load<V> {
+
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private volatile boolean invalidated;
+    }
+
+    /**
+     * Counters of a cache level of a {@link CachedTemplateProvider}
+     */
+    public static final class Statistics {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder loadTimeNanos = new LongAdder();
+
+        /**
+         * @return the number of requests answered from the cache or by waiting for a concurrent load
+         */
+        public long getHits() {
+            return hits.sum();
+        }
+
+        /**
+         * @return the number of requests which had to load the value, including loads of absent templates
+         */
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        /**
+         * @return the total time spent loading, in nanoseconds
+         */
+        public long getTotalLoadTimeNanos() {
+            return loadTimeNanos.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "Statistics{" + "hits=" + getHits() + ", misses=" + getMisses() + ", totalLoadTimeNanos="
+                    + getTotalLoadTimeNanos() + '}';
+        }
+    }
 }
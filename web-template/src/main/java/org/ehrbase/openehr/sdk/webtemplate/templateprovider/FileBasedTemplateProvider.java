@@ -17,30 +17,72 @@
  */
 package org.ehrbase.openehr.sdk.webtemplate.templateprovider;
 
-import java.io.FileInputStream;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.apache.xmlbeans.XmlException;
 import org.ehrbase.openehr.sdk.util.exception.SdkException;
 import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
 
 /**
  * Provides Template which are saved as OPT files in the file system.
+ * <p>
+ * The template ids are read by a streaming scan of the files, in parallel. Parsed templates are cached. Added,
+ * changed and removed files are picked up by a {@link WatchService}, whose events are processed on the next call of
+ * {@link #find(String)}. Lookups of cached templates only take a lock if the watch service has pending events. If a
+ * template is not found, the files which are new or changed since they were indexed are scanned as well, as the watch
+ * service might not have reported them yet. Without a watch service, e.g. if the file system does not support one or
+ * after {@link #close()}, a cached template is checked against the size and modification time of its file instead.
+ * The provider is safe to use from multiple threads.
+ * <p>
+ * The watch service is started on the first lookup. Depending on the platform it holds native resources until the
+ * provider is {@link #close() closed}, e.g. on Linux an inotify file descriptor and a background thread of the JDK
+ * polling it. Close the provider when it is no longer needed, for instance with try-with-resources.
  */
-public class FileBasedTemplateProvider implements TemplateProvider {
+public class FileBasedTemplateProvider implements TemplateProvider, Closeable {
 
     public static final PathMatcher OPT_FILE_MATCHER = FileSystems.getDefault().getPathMatcher("glob:**.opt");
-    private final Map<String, Path> pathMap = new HashMap<>();
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private final Map<String, Path> pathMap = new ConcurrentHashMap<>();
+    private final Map<Path, IndexedFile> indexedFiles = new ConcurrentHashMap<>();
+    private final Map<Path, OPERATIONALTEMPLATE> templateCache = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
 
     private final Path templateDirectory;
+    // written while holding this, started on the first lookup
+    private volatile WatchService watchService;
+    private volatile boolean watchStarted;
 
     /**
      * @param templateDirectory Path to folder with the OPT files. Every file with ending  <code>*.opt</code> will be parsed.
@@ -48,27 +90,202 @@ public class FileBasedTemplateProvider implements TemplateProvider {
     public FileBasedTemplateProvider(Path templateDirectory) {
         this.templateDirectory = templateDirectory;
 
-        snyc(templateDirectory);
+        sync(templateDirectory);
     }
 
-    private void snyc(Path templateDirectory) {
-        try (Stream<Path> walk = Files.walk(templateDirectory)) {
-            walk.filter(p -> p.toFile().isFile())
-                    .filter(OPT_FILE_MATCHER::matches)
-                    .filter(p -> !pathMap.containsValue(p))
-                    .forEach(p -> pathMap.put(extractTemplateId(p), p));
+    private static WatchService createWatchService(Path templateDirectory) {
+        try {
+            return templateDirectory.getFileSystem().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            // changes are still detected when a template is not found
+            return null;
+        }
+    }
 
+    /**
+     * Indexes the files below <code>directory</code> which are new or changed since they were indexed and watches
+     * the directories.
+     */
+    private synchronized void sync(Path directory) {
+        Map<Path, BasicFileAttributes> files = new HashMap<>();
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.forEach(p -> {
+                BasicFileAttributes attributes = readAttributes(p);
+                if (attributes == null) {
+                    return;
+                }
+                if (attributes.isDirectory()) {
+                    watch(p);
+                } else if (attributes.isRegularFile() && OPT_FILE_MATCHER.matches(p)) {
+                    files.put(p, attributes);
+                }
+            });
         } catch (IOException e) {
             throw new SdkException(e.getMessage(), e);
         }
+
+        List<Path> changed = files.entrySet().stream()
+                .filter(e -> !IndexedFile.of(e.getValue()).equals(indexedFiles.get(e.getKey())))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        Map<Path, Optional<String>> templateIds = changed.parallelStream()
+                .collect(Collectors.toMap(p -> p, p -> Optional.ofNullable(extractTemplateId(p))));
+        templateIds.forEach(
+                (p, id) -> id.ifPresentOrElse(i -> index(p, new IndexedFile(i, files.get(p))), () -> unindex(p)));
+
+        // removed files
+        indexedFiles.keySet().stream()
+                .filter(p -> p.startsWith(directory) && !files.containsKey(p))
+                .collect(Collectors.toList())
+                .forEach(this::unindex);
     }
 
+    private void index(Path path, IndexedFile indexedFile) {
+        unindex(path);
+        indexedFiles.put(path, indexedFile);
+        pathMap.put(indexedFile.templateId, path);
+    }
+
+    private void unindex(Path path) {
+        templateCache.remove(path);
+        IndexedFile removed = indexedFiles.remove(path);
+        if (removed != null) {
+            pathMap.remove(removed.templateId, path);
+        }
+    }
+
+    private void watch(Path directory) {
+        if (watchService == null || watchedDirectories.containsValue(directory)) {
+            return;
+        }
+        try {
+            watchedDirectories.put(
+                    directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+        } catch (IOException | ClosedWatchServiceException e) {
+            // changes are still detected when a template is not found
+        }
+    }
+
+    /**
+     * Applies the changes reported by the watch service since the last call. Starts the watch service on the first
+     * call. Only takes the lock if there are pending events.
+     */
+    private void processWatchEvents() {
+        if (!watchStarted) {
+            startWatching();
+            return;
+        }
+        WatchService service = watchService;
+        if (service == null) {
+            return;
+        }
+        WatchKey key;
+        try {
+            key = service.poll();
+        } catch (ClosedWatchServiceException e) {
+            // closed, changes are detected by the file attributes
+            return;
+        }
+        if (key != null) {
+            processWatchEvents(service, key);
+        }
+    }
+
+    private synchronized void startWatching() {
+        if (watchStarted) {
+            return;
+        }
+        watchService = createWatchService(templateDirectory);
+        watchStarted = true;
+        // registers the directories and picks up the changes since the provider was created
+        sync(templateDirectory);
+    }
+
+    private synchronized void processWatchEvents(WatchService service, WatchKey first) {
+        try {
+            for (WatchKey key = first; key != null; key = service.poll()) {
+                Path directory = watchedDirectories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (directory == null) {
+                        continue;
+                    }
+                    if (event.kind() == OVERFLOW) {
+                        sync(directory);
+                        continue;
+                    }
+                    Path path = directory.resolve((Path) event.context());
+                    if (event.kind() == ENTRY_DELETE) {
+                        indexedFiles.keySet().stream()
+                                .filter(p -> p.startsWith(path))
+                                .collect(Collectors.toList())
+                                .forEach(this::unindex);
+                    } else if (Files.isDirectory(path) || OPT_FILE_MATCHER.matches(path)) {
+                        sync(path);
+                    }
+                }
+                if (!key.reset()) {
+                    watchedDirectories.remove(key);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // closed, changes are detected by the file attributes
+        }
+    }
+
+    /**
+     * @return if the file still has the size and modification time it was indexed with
+     */
+    private boolean isUnchanged(Path path) {
+        BasicFileAttributes attributes = readAttributes(path);
+        return attributes != null && IndexedFile.of(attributes).equals(indexedFiles.get(path));
+    }
+
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            // removed concurrently
+            return null;
+        }
+    }
+
+    /**
+     * @return the template id, read by a streaming scan which stops at the <code>template_id</code>, or
+     * <code>null</code> if the file is no longer readable
+     */
     private String extractTemplateId(Path path) {
+        try (InputStream in = Files.newInputStream(path)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                int depth = 0;
+                boolean inTemplateId = false;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        if (depth == 2 && "template_id".equals(reader.getLocalName())) {
+                            inTemplateId = true;
+                        } else if (inTemplateId && depth == 3 && "value".equals(reader.getLocalName())) {
+                            return reader.getElementText().trim();
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        depth--;
+                        inTemplateId = inTemplateId && depth >= 2;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            // not well-formed, let XMLBeans report the error
+        } catch (IOException e) {
+            return null;
+        }
         return readTemplate(path).getTemplateId().getValue();
     }
 
     private OPERATIONALTEMPLATE readTemplate(Path path) {
-        try (InputStream in = new FileInputStream(path.toFile())) {
+        try (InputStream in = Files.newInputStream(path)) {
             org.openehr.schemas.v1.TemplateDocument document =
                     org.openehr.schemas.v1.TemplateDocument.Factory.parse(in);
             return document.getTemplate();
@@ -77,13 +294,96 @@ public class FileBasedTemplateProvider implements TemplateProvider {
         }
     }
 
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
     @Override
     public Optional<OPERATIONALTEMPLATE> find(String templateId) {
 
-        if (!pathMap.containsKey(templateId)) {
-            snyc(templateDirectory);
+        processWatchEvents();
+        Path path = pathMap.get(templateId);
+        OPERATIONALTEMPLATE template = path != null ? templateCache.get(path) : null;
+        if (template != null) {
+            if (watchService != null || isUnchanged(path)) {
+                return Optional.of(template);
+            }
+            // without a watch service changes are only detected by the file attributes
+            sync(templateDirectory);
+        } else if (path == null || !Files.isRegularFile(path)) {
+            // the file might have been added or removed without an event being processed yet
+            sync(templateDirectory);
+        }
+
+        return Optional.ofNullable(pathMap.get(templateId))
+                .map(p -> templateCache.computeIfAbsent(p, this::readTemplate));
+    }
+
+    @Override
+    public Optional<Collection<String>> findAllTemplateIds() {
+        processWatchEvents();
+        sync(templateDirectory);
+        return Optional.of(new HashSet<>(pathMap.keySet()));
+    }
+
+    /**
+     * Parses the templates into the cache of this provider.
+     */
+    @Override
+    public TemplatePreloader.Report preload(Collection<String> templateIds) {
+        return new TemplatePreloader(this::find).preload(templateIds);
+    }
+
+    /**
+     * Stops watching the template directory and releases the watch service. Changes are still detected by the size
+     * and modification time of the files.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        watchStarted = true;
+        WatchService service = watchService;
+        watchService = null;
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    /**
+     * Template id and state of an indexed file
+     */
+    private static final class IndexedFile {
+
+        private final String templateId;
+        private final FileTime lastModified;
+        private final long size;
+
+        private IndexedFile(String templateId, BasicFileAttributes attributes) {
+            this.templateId = templateId;
+            this.lastModified = attributes.lastModifiedTime();
+            this.size = attributes.size();
         }
 
-        return Optional.ofNullable(pathMap.get(templateId)).map(this::readTemplate);
+        private static IndexedFile of(BasicFileAttributes attributes) {
+            return new IndexedFile(null, attributes);
+        }
+
+        /**
+         * @return if both describe the same state of the file, the template id is not compared
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            IndexedFile that = (IndexedFile) o;
+            return size == that.size && lastModified.equals(that.lastModified);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lastModified, size);
+        }
     }
 }
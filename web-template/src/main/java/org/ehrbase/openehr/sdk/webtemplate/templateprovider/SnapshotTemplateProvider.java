@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.webtemplate.templateprovider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Optional;
+import org.ehrbase.openehr.sdk.util.exception.SdkException;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateSnapshot;
+import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
+
+/**
+ * Wraps a {@link TemplateProvider} to persist the web templates as {@link WebTemplateSnapshot}s in a directory.
+ * <p>
+ * {@link #buildIntrospect(String)} memory maps the snapshot of the template if present. Otherwise, or if the
+ * snapshot is corrupt or of another format version, the web template is built by the wrapped provider and its
+ * snapshot is written. Snapshots are not checked against the operational template, so they have to be removed by
+ * {@link #invalidate(String)} when a template is replaced.
+ * <p>
+ * The web templates are {@link WebTemplate#compact() compacted} and {@link WebTemplate#freeze() frozen}.
+ */
+public class SnapshotTemplateProvider implements TemplateProvider {
+
+    public static final String SNAPSHOT_FILE_SUFFIX = ".wts";
+
+    private final TemplateProvider rootTemplateProvider;
+    private final Path snapshotDirectory;
+
+    /**
+     * @param rootTemplateProvider The warped {@link TemplateProvider}
+     * @param snapshotDirectory    The directory containing the snapshots. It is created if missing.
+     */
+    public SnapshotTemplateProvider(TemplateProvider rootTemplateProvider, Path snapshotDirectory) {
+        this.rootTemplateProvider = rootTemplateProvider;
+        this.snapshotDirectory = snapshotDirectory;
+        try {
+            Files.createDirectories(snapshotDirectory);
+        } catch (IOException e) {
+            throw new SdkException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Optional<OPERATIONALTEMPLATE> find(String templateId) {
+        return rootTemplateProvider.find(templateId);
+    }
+
+    @Override
+    public Optional<WebTemplate> buildIntrospect(String templateId) {
+        Path snapshot = snapshotPath(templateId);
+
+        Optional<WebTemplate> webTemplate = readSnapshot(snapshot);
+        if (webTemplate.isEmpty()) {
+            webTemplate = rootTemplateProvider.buildIntrospect(templateId);
+            webTemplate.ifPresent(w -> writeSnapshot(snapshot, w));
+        }
+        return webTemplate.map(w -> w.compact().freeze());
+    }
+
+    @Override
+    public Optional<Collection<String>> findAllTemplateIds() {
+        return rootTemplateProvider.findAllTemplateIds();
+    }
+
+    /**
+     * Removes the snapshot of the template, e.g. after the template has been replaced.
+     *
+     * @param templateId
+     */
+    public void invalidate(String templateId) {
+        try {
+            Files.deleteIfExists(snapshotPath(templateId));
+        } catch (IOException e) {
+            throw new SdkException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param templateId
+     * @return the file of the snapshot of the template
+     */
+    public Path snapshotPath(String templateId) {
+        return snapshotDirectory.resolve(URLEncoder.encode(templateId, StandardCharsets.UTF_8) + SNAPSHOT_FILE_SUFFIX);
+    }
+
+    private static Optional<WebTemplate> readSnapshot(Path snapshot) {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            return Optional.of(WebTemplateSnapshot.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())));
+        } catch (IOException | SdkException e) {
+            // missing, unreadable, corrupt or outdated snapshots are (re-)written
+            return Optional.empty();
+        }
+    }
+
+    private void writeSnapshot(Path snapshot, WebTemplate webTemplate) {
+        try {
+            // write to a temporary file first, so that concurrent readers never see a partial snapshot
+            Path tmp = Files.createTempFile(
+                    snapshotDirectory, snapshot.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(tmp)) {
+                    WebTemplateSnapshot.write(webTemplate, out);
+                }
+                Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new SdkException(e.getMessage(), e);
+        }
+    }
+}
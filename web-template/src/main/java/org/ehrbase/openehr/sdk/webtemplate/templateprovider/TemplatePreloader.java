@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.webtemplate.templateprovider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.ehrbase.openehr.sdk.util.exception.SdkException;
+
+/**
+ * Loads a set of templates of a {@link TemplateProvider} in parallel, e.g. to warm up its caches before a service
+ * reports to be ready.
+ * <p>
+ * At most {@link #withParallelism(int) parallelism} templates are loaded at a time. Failures of single templates do
+ * not stop the others, they are part of the {@link Report}.
+ *
+ * @see TemplateProvider#preload(Collection)
+ */
+public final class TemplatePreloader {
+
+    private final Function<String, Optional<?>> loadFunction;
+    private final int parallelism;
+    private final Listener listener;
+
+    /**
+     * @param loadFunction loads a template, e.g. {@link TemplateProvider#buildIntrospect(String)}
+     */
+    public TemplatePreloader(Function<String, Optional<?>> loadFunction) {
+        this(loadFunction, Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    private TemplatePreloader(Function<String, Optional<?>> loadFunction, int parallelism, Listener listener) {
+        this.loadFunction = loadFunction;
+        this.parallelism = parallelism;
+        this.listener = listener;
+    }
+
+    /**
+     * @param parallelism the maximum number of templates loaded at a time
+     * @return a preloader with the given parallelism
+     */
+    public TemplatePreloader withParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        return new TemplatePreloader(loadFunction, parallelism, listener);
+    }
+
+    /**
+     * @param listener notified after each template, from the loading threads
+     * @return a preloader reporting the progress to the listener
+     */
+    public TemplatePreloader withListener(Listener listener) {
+        return new TemplatePreloader(loadFunction, parallelism, listener);
+    }
+
+    /**
+     * Loads the templates and waits for all of them.
+     *
+     * @param templateIds duplicates are loaded once
+     * @return the results, in order of <code>templateIds</code>
+     */
+    public Report preload(Collection<String> templateIds) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(templateIds));
+        long start = System.nanoTime();
+        if (ids.isEmpty()) {
+            return new Report(Collections.emptyList(), 0);
+        }
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, ids.size()), r -> {
+            Thread thread = new Thread(r, "template-preloader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Result>> futures = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                futures.add(executor.submit(() -> {
+                    Result result = load(id);
+                    if (listener != null) {
+                        listener.onProgress(result, completed.incrementAndGet(), ids.size());
+                    }
+                    return result;
+                }));
+            }
+
+            List<Result> results = new ArrayList<>(ids.size());
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+            return new Report(Collections.unmodifiableList(results), System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SdkException("Interrupted while preloading templates", e);
+        } catch (ExecutionException e) {
+            // only thrown by the listener
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause()
+                    : new SdkException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result load(String templateId) {
+        long start = System.nanoTime();
+        try {
+            Status status = loadFunction.apply(templateId).isPresent() ? Status.LOADED : Status.NOT_FOUND;
+            return new Result(templateId, status, System.nanoTime() - start, null);
+        } catch (RuntimeException e) {
+            return new Result(templateId, Status.FAILED, System.nanoTime() - start, e);
+        }
+    }
+
+    /**
+     * Receives the progress of {@link #preload(Collection)}
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * @param result    the result of the template just finished
+         * @param completed the number of templates finished so far
+         * @param total     the number of templates to load
+         */
+        void onProgress(Result result, int completed, int total);
+    }
+
+    public enum Status {
+        LOADED,
+        NOT_FOUND,
+        FAILED
+    }
+
+    /**
+     * Outcome of loading a single template
+     */
+    public static final class Result {
+
+        private final String templateId;
+        private final Status status;
+        private final long loadTimeNanos;
+        private final RuntimeException failure;
+
+        private Result(String templateId, Status status, long loadTimeNanos, RuntimeException failure) {
+            this.templateId = templateId;
+            this.status = status;
+            this.loadTimeNanos = loadTimeNanos;
+            this.failure = failure;
+        }
+
+        public String getTemplateId() {
+            return templateId;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public long getLoadTimeNanos() {
+            return loadTimeNanos;
+        }
+
+        /**
+         * @return the exception if {@link Status#FAILED}
+         */
+        public Optional<RuntimeException> getFailure() {
+            return Optional.ofNullable(failure);
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" + "templateId='" + templateId + '\'' + ", status=" + status + ", loadTimeNanos="
+                    + loadTimeNanos + '}';
+        }
+    }
+
+    /**
+     * Outcome of {@link #preload(Collection)}
+     */
+    public static final class Report {
+
+        private final List<Result> results;
+        private final long totalTimeNanos;
+
+        private Report(List<Result> results, long totalTimeNanos) {
+            this.results = results;
+            this.totalTimeNanos = totalTimeNanos;
+        }
+
+        /**
+         * @return the results, in order of the requested template ids
+         */
+        public List<Result> getResults() {
+            return results;
+        }
+
+        /**
+         * @return the ids of the templates with the given status
+         */
+        public List<String> getTemplateIds(Status status) {
+            return results.stream()
+                    .filter(r -> r.status == status)
+                    .map(Result::getTemplateId)
+                    .collect(Collectors.toList());
+        }
+
+        /**
+         * @return if all templates have been loaded
+         */
+        public boolean isComplete() {
+            return results.stream().allMatch(r -> r.status == Status.LOADED);
+        }
+
+        /**
+         * @return the wall clock time of the preload
+         */
+        public long getTotalTimeNanos() {
+            return totalTimeNanos;
+        }
+
+        /**
+         * @return the sum of the load times of the single templates
+         */
+        public long getTotalLoadTimeNanos() {
+            return results.stream().mapToLong(Result::getLoadTimeNanos).sum();
+        }
+
+        @Override
+        public String toString() {
+            return "Report{" + "loaded=" + getTemplateIds(Status.LOADED).size() + ", notFound="
+                    + getTemplateIds(Status.NOT_FOUND) + ", failed=" + getTemplateIds(Status.FAILED)
+                    + ", totalTimeNanos=" + totalTimeNanos + '}';
+        }
+    }
+}
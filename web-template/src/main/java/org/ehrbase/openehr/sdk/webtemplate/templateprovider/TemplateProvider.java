@@ -17,6 +17,8 @@
  */
 package org.ehrbase.openehr.sdk.webtemplate.templateprovider;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Optional;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
 import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
@@ -29,4 +31,36 @@ public interface TemplateProvider {
     default Optional<WebTemplate> buildIntrospect(String templateId) {
         return find(templateId).map(t -> new OPTParser(t).parse());
     }
+
+    /**
+     * Listing the templates is optional, providers which can not do so return an empty {@link Optional}.
+     *
+     * @return the ids of all templates of this provider, if it can list them
+     */
+    default Optional<Collection<String>> findAllTemplateIds() {
+        return Optional.empty();
+    }
+
+    /**
+     * Loads the templates in parallel, so that caching providers can answer later requests from their caches.
+     * Providers without a cache only verify that the templates can be loaded.
+     * <p>
+     * Use a {@link TemplatePreloader} for control over the parallelism and the progress.
+     *
+     * @param templateIds
+     * @return the outcome per template
+     */
+    default TemplatePreloader.Report preload(Collection<String> templateIds) {
+        return new TemplatePreloader(this::buildIntrospect).preload(templateIds);
+    }
+
+    /**
+     * Loads all templates of {@link #findAllTemplateIds()}.
+     *
+     * @return the outcome per template, an empty report if the provider can not list its templates
+     * @see #preload(Collection)
+     */
+    default TemplatePreloader.Report preloadAll() {
+        return preload(findAllTemplateIds().orElse(Collections.emptyList()));
+    }
 }
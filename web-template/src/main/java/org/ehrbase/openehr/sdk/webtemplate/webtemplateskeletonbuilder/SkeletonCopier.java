@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.webtemplate.webtemplateskeletonbuilder;
+
+import com.nedap.archie.rm.RMObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalAmount;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.ehrbase.openehr.sdk.util.exception.SdkException;
+
+/**
+ * Deep copies skeletons of RM objects.
+ * <p>
+ * The fields and the constructor of every class are looked up once. Immutable values are shared, lists, sets and
+ * maps are copied into {@link ArrayList}, {@link LinkedHashSet} and {@link LinkedHashMap}. Objects referenced more
+ * than once, e.g. by {@link com.nedap.archie.rm.archetyped.Pathable#getParent()}, are copied once. Classes without a
+ * no-argument constructor are copied by {@link RMObject#clone()}.
+ */
+final class SkeletonCopier {
+
+    private static final Map<Class<?>, ClassCopier> CLASS_COPIERS = new ConcurrentHashMap<>();
+
+    private final Map<Object, Object> copies = new IdentityHashMap<>();
+
+    private SkeletonCopier() {}
+
+    @SuppressWarnings("unchecked")
+    static <T> T copy(T object) {
+        return (T) new SkeletonCopier().copyValue(object);
+    }
+
+    private Object copyValue(Object value) {
+        if (value == null || isImmutable(value)) {
+            return value;
+        }
+        Object copy = copies.get(value);
+        if (copy != null) {
+            return copy;
+        }
+
+        if (value instanceof List) {
+            List<Object> list = new ArrayList<>(((List<?>) value).size());
+            copies.put(value, list);
+            ((List<?>) value).forEach(e -> list.add(copyValue(e)));
+            copy = list;
+        } else if (value instanceof Set) {
+            Set<Object> set = new LinkedHashSet<>();
+            copies.put(value, set);
+            ((Set<?>) value).forEach(e -> set.add(copyValue(e)));
+            copy = set;
+        } else if (value instanceof Collection) {
+            List<Object> list = new ArrayList<>(((Collection<?>) value).size());
+            copies.put(value, list);
+            ((Collection<?>) value).forEach(e -> list.add(copyValue(e)));
+            copy = list;
+        } else if (value instanceof Map) {
+            Map<Object, Object> map = new LinkedHashMap<>();
+            copies.put(value, map);
+            ((Map<?, ?>) value).forEach((k, v) -> map.put(copyValue(k), copyValue(v)));
+            copy = map;
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            copy = Array.newInstance(value.getClass().getComponentType(), length);
+            copies.put(value, copy);
+            for (int i = 0; i < length; i++) {
+                Array.set(copy, i, copyValue(Array.get(value, i)));
+            }
+        } else {
+            copy = CLASS_COPIERS
+                    .computeIfAbsent(value.getClass(), ClassCopier::new)
+                    .copy(value, this);
+        }
+        return copy;
+    }
+
+    private static boolean isImmutable(Object value) {
+        return value instanceof String
+                || value instanceof Number && value.getClass().getName().startsWith("java.")
+                || value instanceof Boolean
+                || value instanceof Character
+                || value instanceof Enum
+                || value instanceof Class
+                || value instanceof TemporalAccessor
+                        && value.getClass().getName().startsWith("java.time.")
+                || value instanceof TemporalAmount && value.getClass().getName().startsWith("java.time.")
+                || value instanceof URI
+                || value instanceof UUID;
+    }
+
+    private static final class ClassCopier {
+
+        private final Class<?> type;
+        private final Constructor<?> constructor;
+        private final Field[] fields;
+
+        private ClassCopier(Class<?> type) {
+            this.type = type;
+            this.constructor = findConstructor(type);
+            List<Field> fieldList = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        fieldList.add(field);
+                    }
+                }
+            }
+            this.fields = fieldList.toArray(Field[]::new);
+        }
+
+        private static Constructor<?> findConstructor(Class<?> type) {
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return constructor;
+            } catch (NoSuchMethodException | RuntimeException e) {
+                return null;
+            }
+        }
+
+        private Object copy(Object value, SkeletonCopier copier) {
+            if (constructor == null) {
+                if (value instanceof RMObject) {
+                    Object copy = ((RMObject) value).clone();
+                    copier.copies.put(value, copy);
+                    return copy;
+                }
+                throw new SdkException(String.format("Can not copy %s", type.getName()));
+            }
+            try {
+                Object copy = constructor.newInstance();
+                copier.copies.put(value, copy);
+                for (Field field : fields) {
+                    field.set(copy, copier.copyValue(field.get(value)));
+                }
+                return copy;
+            } catch (ReflectiveOperationException e) {
+                throw new SdkException(String.format("Can not copy %s", type.getName()), e);
+            }
+        }
+    }
+}
@@ -20,8 +20,6 @@ package org.ehrbase.openehr.sdk.webtemplate.webtemplateskeletonbuilder;
 import static org.ehrbase.openehr.sdk.util.rmconstants.RmConstants.DV_CODED_TEXT;
 import static org.ehrbase.openehr.sdk.util.rmconstants.RmConstants.RM_VERSION_1_0_4;
 
-import com.nedap.archie.aom.CComplexObject;
-import com.nedap.archie.creation.RMObjectCreator;
 import com.nedap.archie.rm.RMObject;
 import com.nedap.archie.rm.archetyped.Archetyped;
 import com.nedap.archie.rm.archetyped.Locatable;
@@ -40,12 +38,19 @@ import com.nedap.archie.rm.support.identification.HierObjectId;
 import com.nedap.archie.rm.support.identification.TerminologyId;
 import com.nedap.archie.rminfo.ArchieRMInfoLookup;
 import com.nedap.archie.rminfo.RMAttributeInfo;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import org.ehrbase.openehr.sdk.util.exception.SdkException;
 import org.ehrbase.openehr.sdk.util.rmconstants.RmConstants;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
@@ -55,13 +60,35 @@ public class WebTemplateSkeletonBuilder {
 
     private static final ArchieRMInfoLookup ARCHIE_RM_INFO_LOOKUP = ArchieRMInfoLookup.getInstance();
 
-    private static final RMObjectCreator RM_OBJECT_CREATOR = new RMObjectCreator(ARCHIE_RM_INFO_LOOKUP);
+    private static final PrototypeKey PROTOTYPE = new PrototypeKey(false);
+    private static final PrototypeKey PROTOTYPE_WITH_CHILDREN = new PrototypeKey(true);
+
+    private static final Map<String, Supplier<Object>> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    private static final Map<Class<?>, Map<String, BiConsumer<Object, Object>>> ATTRIBUTE_WRITERS =
+            new ConcurrentHashMap<>();
 
     private WebTemplateSkeletonBuilder() {
         // NOP
     }
 
+    /**
+     * Builds the skeleton of a composition of <code>template</code>.
+     * <p>
+     * The skeleton is built once per template and then deep copied, see
+     * {@link WebTemplate#computeIfAbsent(Object, java.util.function.Function)}.
+     *
+     * @param template
+     * @param withChildren if the skeletons of all nodes are added
+     * @return a new skeleton
+     */
     public static Composition build(WebTemplate template, boolean withChildren) {
+        Composition prototype = template.computeIfAbsent(
+                withChildren ? PROTOTYPE_WITH_CHILDREN : PROTOTYPE, t -> buildPrototype(t, withChildren));
+        return SkeletonCopier.copy(prototype);
+    }
+
+    private static Composition buildPrototype(WebTemplate template, boolean withChildren) {
         Composition composition = build(template.getTree(), withChildren, Composition.class);
 
         Archetyped archetypeDetails = new Archetyped();
@@ -79,8 +106,6 @@ public class WebTemplateSkeletonBuilder {
 
         String rmClass = node.getRmType();
 
-        CComplexObject elementConstraint = new CComplexObject();
-        elementConstraint.setRmTypeName(rmClass);
         Object skeleton;
 
         switch (rmClass) {
@@ -98,7 +123,7 @@ public class WebTemplateSkeletonBuilder {
                 skeleton = false;
                 break;
             default:
-                skeleton = RM_OBJECT_CREATOR.create(elementConstraint);
+                skeleton = newInstance(rmClass);
                 break;
         }
 
@@ -169,8 +194,83 @@ public class WebTemplateSkeletonBuilder {
                 .getLastNode()
                 .getName();
 
-        RM_OBJECT_CREATOR.addElementToListOrSetSingleValues(
-                parentObject, attributeName, Collections.singletonList(childObject));
+        ATTRIBUTE_WRITERS
+                .computeIfAbsent(parentObject.getClass(), c -> new ConcurrentHashMap<>())
+                .computeIfAbsent(attributeName, a -> attributeWriter(parentObject.getClass(), a))
+                .accept(parentObject, childObject);
+    }
+
+    private static Object newInstance(String rmType) {
+        return CONSTRUCTORS
+                .computeIfAbsent(rmType, WebTemplateSkeletonBuilder::constructor)
+                .get();
+    }
+
+    private static Supplier<Object> constructor(String rmType) {
+        Class<?> type = ARCHIE_RM_INFO_LOOKUP.getClassToBeCreated(rmType);
+        if (type == null) {
+            throw new IllegalArgumentException(
+                    "cannot construct RMObject because of unknown constraint name " + rmType);
+        }
+        try {
+            Constructor<?> constructor = type.getConstructor();
+            return () -> {
+                try {
+                    return constructor.newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new SdkException("error creating class " + rmType, e);
+                }
+            };
+        } catch (NoSuchMethodException e) {
+            throw new SdkException("error creating class " + rmType, e);
+        }
+    }
+
+    /**
+     * Adds the child to a multi-valued attribute, by means of its add method if there is one, or sets a single-valued
+     * attribute. The same way {@link com.nedap.archie.creation.RMObjectCreator#addElementToListOrSetSingleValues}
+     * does, with the reflective lookups done once per attribute.
+     */
+    private static BiConsumer<Object, Object> attributeWriter(Class<?> parentClass, String attributeName) {
+        RMAttributeInfo attributeInfo = ARCHIE_RM_INFO_LOOKUP.getAttributeInfo(parentClass, attributeName);
+        if (attributeInfo == null) {
+            throw new IllegalArgumentException(
+                    String.format("Attribute %s not known for object %s", attributeName, parentClass.getSimpleName()));
+        }
+
+        final BiConsumer<Object, Object> writer;
+        if (!attributeInfo.isMultipleValued()) {
+            Method setMethod = attributeInfo.getSetMethod();
+            writer = (parent, child) -> invoke(setMethod, parent, child);
+        } else if (attributeInfo.getAddMethod() != null) {
+            Method addMethod = attributeInfo.getAddMethod();
+            writer = (parent, child) -> invoke(addMethod, parent, child);
+        } else {
+            Method getMethod = attributeInfo.getGetMethod();
+            Method setMethod = attributeInfo.getSetMethod();
+            Class<?> type = attributeInfo.getType();
+            writer = (parent, child) -> {
+                @SuppressWarnings("unchecked")
+                Collection<Object> collection = (Collection<Object>) invoke(getMethod, parent);
+                if (collection == null) {
+                    collection = Set.class.isAssignableFrom(type) ? new LinkedHashSet<>() : new ArrayList<>();
+                    invoke(setMethod, parent, collection);
+                }
+                collection.add(child);
+            };
+        }
+        return writer;
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        if (method == null) {
+            throw new SdkException(String.format("No accessor for attribute of %s", target.getClass()));
+        }
+        try {
+            return method.invoke(target, args);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new SdkException(e.getMessage(), e);
+        }
     }
 
     public static void remove(
@@ -197,6 +297,23 @@ public class WebTemplateSkeletonBuilder {
         }
     }
 
+    /**
+     * Key of the prototype in {@link WebTemplate#computeIfAbsent(Object, java.util.function.Function)}
+     */
+    private static final class PrototypeKey {
+
+        private final boolean withChildren;
+
+        private PrototypeKey(boolean withChildren) {
+            this.withChildren = withChildren;
+        }
+
+        @Override
+        public String toString() {
+            return "SkeletonPrototype{withChildren=" + withChildren + '}';
+        }
+    }
+
     public static <T> Optional<T> extractDefault(WebTemplateNode node, Class<T> clazz) {
         if (node.getRmType().equals(DV_CODED_TEXT) && node.getMin() > 0) {
             return node.getInputs().stream()
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.webtemplate.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.util.Deque;
+import org.ehrbase.openehr.sdk.test_data.operationaltemplate.OperationalTemplateTestData;
+import org.ehrbase.openehr.sdk.webtemplate.model.FilteredWebTemplate;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
+import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
+import org.junit.Test;
+import org.openehr.schemas.v1.TemplateDocument;
+
+public class FilterTest {
+
+    @Test
+    public void filterIsMemoised() throws Exception {
+        WebTemplate webTemplate = parse(OperationalTemplateTestData.CORONA_ANAMNESE);
+        WebTemplate unchanged = new WebTemplate(webTemplate);
+
+        FilteredWebTemplate filtered = new Filter().filter(webTemplate);
+
+        assertThat(filtered.getTree().isFrozen()).isTrue();
+        assertThat(new Filter().filter(webTemplate)).isNotSameAs(filtered).satisfies(f -> assertThat(f.getTree())
+                .isSameAs(filtered.getTree()));
+        assertThat(webTemplate).isEqualTo(unchanged);
+        assertThatThrownBy(() -> filtered.getTree().getChildren().clear())
+                .isInstanceOf(UnsupportedOperationException.class);
+
+        webTemplate.resetIndex();
+        assertThat(new Filter().filter(webTemplate).getTree())
+                .isNotSameAs(filtered.getTree())
+                .isEqualTo(filtered.getTree());
+    }
+
+    @Test
+    public void subclassesAreMemoisedByKey() throws Exception {
+        WebTemplate webTemplate = parse(OperationalTemplateTestData.CORONA_ANAMNESE);
+
+        FilteredWebTemplate filtered = new Filter() {}.filter(webTemplate);
+
+        assertThat(filtered.getTree().isFrozen()).isFalse();
+        assertThat(new Filter() {}.filter(webTemplate).getTree())
+                .isNotSameAs(filtered.getTree())
+                .isEqualTo(filtered.getTree());
+
+        FilteredWebTemplate keyed = new KeyedFilter("a").filter(webTemplate);
+
+        assertThat(new KeyedFilter("a").filter(webTemplate).getTree()).isSameAs(keyed.getTree());
+        assertThat(new KeyedFilter("b").filter(webTemplate).getTree()).isNotSameAs(keyed.getTree());
+        assertThat(new Filter().filter(webTemplate).getTree()).isNotSameAs(keyed.getTree());
+    }
+
+    @Test
+    public void filteredNodeMap() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        for (OperationalTemplateTestData testData : new OperationalTemplateTestData[] {
+            OperationalTemplateTestData.CORONA_ANAMNESE,
+            OperationalTemplateTestData.BLOOD_PRESSURE_SIMPLE,
+            OperationalTemplateTestData.IPS
+        }) {
+            WebTemplate webTemplate = parse(testData);
+
+            FilteredWebTemplate filtered = new Filter().filter(webTemplate);
+            FilteredWebTemplate copy = new FilteredWebTemplate(filtered);
+
+            assertThat(objectMapper.writeValueAsString(copy)).isEqualTo(objectMapper.writeValueAsString(filtered));
+            for (WebTemplateNode node : filtered.getTree().findMatching(n -> true)) {
+                assertThat(filtered.findFiltersNodes(node))
+                        .as(node.getAqlPath())
+                        .isNotNull()
+                        .allSatisfy(skipped -> assertThat(webTemplate.findAllByAqlPath(skipped.getAqlPath(), false))
+                                .contains(skipped));
+                assertThat(copy.findFiltersNodes(node)).isSameAs(filtered.findFiltersNodes(node));
+            }
+        }
+    }
+
+    @Test
+    public void filterFrozenTree() throws Exception {
+        WebTemplate webTemplate = parse(OperationalTemplateTestData.CORONA_ANAMNESE);
+        FilteredWebTemplate expected = new Filter() {}.filter(webTemplate);
+
+        WebTemplate frozen = new WebTemplate(webTemplate);
+        frozen.setTree(frozen.getTree().frozen());
+
+        assertThat(new Filter().filter(frozen).getTree()).isEqualTo(expected.getTree());
+        assertThat(new Filter() {}.filter(frozen).getTree()).isEqualTo(expected.getTree());
+    }
+
+    @Test
+    public void filteredNodeMapIsDetached() throws Exception {
+        WebTemplate webTemplate = parse(OperationalTemplateTestData.CORONA_ANAMNESE);
+
+        for (FilteredWebTemplate filtered :
+                new FilteredWebTemplate[] {new Filter().filter(webTemplate), new Filter() {}.filter(webTemplate)}) {
+            for (WebTemplateNode node : filtered.getTree().findMatching(n -> true)) {
+                assertThat(filtered.findFiltersNodes(node))
+                        .allSatisfy(skipped -> assertThat(skipped.isFrozen()).isTrue());
+            }
+        }
+
+        Deque<WebTemplateNode> shared = new Filter()
+                .filter(webTemplate)
+                .findFiltersNodes(
+                        webTemplate.findByAqlPath("/context/start_time").orElseThrow());
+        assertThatThrownBy(shared::clear).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> shared.push(new WebTemplateNode())).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    private static class KeyedFilter extends Filter {
+
+        private final String key;
+
+        KeyedFilter(String key) {
+            this.key = key;
+        }
+
+        @Override
+        protected Object cacheKey() {
+            return key;
+        }
+    }
+
+    private static WebTemplate parse(OperationalTemplateTestData testData) throws Exception {
+        return new OPTParser(
+                        TemplateDocument.Factory.parse(testData.getStream()).getTemplate())
+                .parse();
+    }
+}
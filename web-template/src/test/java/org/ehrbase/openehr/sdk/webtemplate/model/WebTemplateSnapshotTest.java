@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.webtemplate.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import org.apache.xmlbeans.XmlException;
+import org.ehrbase.openehr.sdk.test_data.operationaltemplate.OperationalTemplateTestData;
+import org.ehrbase.openehr.sdk.util.exception.SdkException;
+import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
+import org.junit.Test;
+import org.openehr.schemas.v1.TemplateDocument;
+
+public class WebTemplateSnapshotTest {
+
+    @Test
+    public void roundTrip() throws Exception {
+        // some maps of the model are hash maps, their order depends on how they were filled
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        int count = 0;
+        for (OperationalTemplateTestData testData : OperationalTemplateTestData.values()) {
+            WebTemplate webTemplate = parse(testData);
+            if (webTemplate == null) {
+                continue;
+            }
+
+            WebTemplate actual = WebTemplateSnapshot.read(WebTemplateSnapshot.write(webTemplate));
+
+            assertThat(actual).as(testData.name()).isEqualTo(webTemplate);
+            assertThat(objectMapper.writeValueAsString(actual))
+                    .as(testData.name())
+                    .isEqualTo(objectMapper.writeValueAsString(webTemplate));
+            count++;
+        }
+        assertThat(count).isGreaterThan(50);
+    }
+
+    @Test
+    public void readFromPosition() throws Exception {
+        WebTemplate webTemplate = parse(OperationalTemplateTestData.BLOOD_PRESSURE_SIMPLE);
+        byte[] snapshot = WebTemplateSnapshot.write(webTemplate);
+
+        ByteBuffer buffer = ByteBuffer.allocate(snapshot.length + 3);
+        buffer.put(new byte[] {1, 2, 3}).put(snapshot).flip().position(3);
+
+        assertThat(WebTemplateSnapshot.read(buffer)).isEqualTo(webTemplate);
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    public void rejectInvalid() throws Exception {
+        byte[] snapshot = WebTemplateSnapshot.write(parse(OperationalTemplateTestData.BLOOD_PRESSURE_SIMPLE));
+
+        byte[] corrupt = snapshot.clone();
+        corrupt[corrupt.length - 10] ^= 0x55;
+        assertThatThrownBy(() -> WebTemplateSnapshot.read(corrupt))
+                .isInstanceOf(SdkException.class)
+                .hasMessage("Checksum mismatch of web template snapshot");
+
+        byte[] otherVersion = snapshot.clone();
+        otherVersion[7]++;
+        assertThatThrownBy(() -> WebTemplateSnapshot.read(otherVersion))
+                .isInstanceOf(SdkException.class)
+                .hasMessageStartingWith("Unsupported web template snapshot version");
+
+        byte[] truncated = new byte[snapshot.length / 2];
+        System.arraycopy(snapshot, 0, truncated, 0, truncated.length);
+        assertThatThrownBy(() -> WebTemplateSnapshot.read(truncated))
+                .isInstanceOf(SdkException.class)
+                .hasMessage("Truncated web template snapshot");
+
+        assertThatThrownBy(() -> WebTemplateSnapshot.read(new byte[] {1, 2, 3}))
+                .isInstanceOf(SdkException.class)
+                .hasMessage("Not a web template snapshot");
+    }
+
+    private static WebTemplate parse(OperationalTemplateTestData testData) throws Exception {
+        try (InputStream in = testData.getStream()) {
+            if (in == null) {
+                return null;
+            }
+            return new OPTParser(TemplateDocument.Factory.parse(in).getTemplate()).parse();
+        } catch (XmlException e) {
+            // entry without a template file
+            return null;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 import org.apache.commons.io.IOUtils;
 import org.apache.xmlbeans.XmlException;
 import org.assertj.core.api.Assertions;
@@ -47,6 +48,132 @@ public class WebTemplateTest {
         assertThat(actual).isNotNull();
     }
 
+    @Test
+    public void compact() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        String json = IOUtils.toString(WebTemplateTestData.CORONA.getStream(), StandardCharsets.UTF_8);
+        WebTemplate expected = objectMapper.readValue(json, WebTemplate.class);
+        WebTemplate actual = objectMapper.readValue(json, WebTemplate.class);
+        WebTemplateFootprint before = WebTemplateFootprint.of(actual);
+
+        assertThat(actual.compact()).isSameAs(actual);
+        WebTemplateFootprint after = WebTemplateFootprint.of(actual);
+
+        assertThat(actual).isEqualTo(expected);
+        assertEquals(objectMapper.writeValueAsString(expected), objectMapper.writeValueAsString(actual));
+        assertEquals(before.getNodeCount(), after.getNodeCount());
+        assertEquals(before.getDistinctStringCount(), after.getDistinctStringCount());
+        Assertions.assertThat(after.getStringCount()).isLessThan(before.getStringCount());
+        Assertions.assertThat(after.getBytes(WebTemplateFootprint.Category.LOCALIZATION))
+                .isLessThan(before.getBytes(WebTemplateFootprint.Category.LOCALIZATION));
+        Assertions.assertThat(after.getBytes(WebTemplateFootprint.Category.INPUTS))
+                .isLessThan(before.getBytes(WebTemplateFootprint.Category.INPUTS));
+        Assertions.assertThat(after.getTotalBytes()).isLessThan(before.getTotalBytes());
+    }
+
+    @Test
+    public void compactCopyOnWrite() throws IOException {
+        WebTemplate webTemplate = new ObjectMapper()
+                .readValue(
+                        IOUtils.toString(WebTemplateTestData.CORONA.getStream(), StandardCharsets.UTF_8),
+                        WebTemplate.class)
+                .compact();
+        List<WebTemplateNode> texts = webTemplate.getTree().findMatching(n -> "DV_TEXT".equals(n.getRmType()));
+        WebTemplateNode first = texts.get(0);
+        WebTemplateNode second = texts.get(1);
+        assertEquals(first.getInputs(), second.getInputs());
+        assertEquals(
+                first.getLocalizedNames().keySet(), second.getLocalizedNames().keySet());
+
+        Assertions.assertThat(first.getInputs()).isSameAs(first.getInputs());
+        first.getInputs().add(new WebTemplateInput());
+        first.getLocalizedNames().put("xx", "changed");
+
+        assertEquals(second.getInputs().size() + 1, first.getInputs().size());
+        assertEquals("changed", first.getLocalizedNames().get("xx"));
+        Assertions.assertThat(second.getLocalizedNames()).doesNotContainKey("xx");
+    }
+
+    @Test
+    public void compactSharedInputs() throws IOException {
+        WebTemplate webTemplate = new ObjectMapper()
+                .readValue(
+                        IOUtils.toString(WebTemplateTestData.CORONA.getStream(), StandardCharsets.UTF_8),
+                        WebTemplate.class)
+                .compact();
+        List<WebTemplateNode> codedTexts =
+                webTemplate.getTree().findMatching(n -> "DV_CODED_TEXT".equals(n.getRmType()));
+        WebTemplateNode first = codedTexts.stream()
+                .filter(n -> !n.getInputs().get(0).getList().isEmpty())
+                .filter(n -> codedTexts.stream()
+                        .anyMatch(o ->
+                                o != n && o.getInputs().get(0) == n.getInputs().get(0)))
+                .findFirst()
+                .orElseThrow();
+        WebTemplateNode second = codedTexts.stream()
+                .filter(o ->
+                        o != first && o.getInputs().get(0) == first.getInputs().get(0))
+                .findFirst()
+                .orElseThrow();
+        WebTemplateInput shared = first.getInputs().get(0);
+        WebTemplateInput unchanged = new WebTemplateInput(shared);
+
+        Assertions.assertThatThrownBy(() -> shared.setSuffix("changed"))
+                .isInstanceOf(UnsupportedOperationException.class);
+        Assertions.assertThatThrownBy(() -> shared.getList().clear()).isInstanceOf(UnsupportedOperationException.class);
+        Assertions.assertThatThrownBy(() -> shared.getList().get(0).setValue("changed"))
+                .isInstanceOf(UnsupportedOperationException.class);
+
+        WebTemplateInput copy = new WebTemplateInput(shared);
+        copy.setSuffix("changed");
+        copy.getList().get(0).setValue("changed");
+        first.getInputs().set(0, copy);
+
+        assertEquals("changed", first.getInputs().get(0).getSuffix());
+        Assertions.assertThat(second.getInputs().get(0)).isSameAs(shared).isEqualTo(unchanged);
+    }
+
+    @Test
+    public void frozen() throws IOException, XmlException {
+        OPERATIONALTEMPLATE template = TemplateDocument.Factory.parse(
+                        OperationalTemplateTestData.CORONA_ANAMNESE.getStream())
+                .getTemplate();
+        WebTemplateNode tree = new OPTParser(template).parse().getTree();
+
+        WebTemplateNode frozen = tree.frozen();
+        Assertions.assertThat(frozen.isFrozen()).isTrue();
+        Assertions.assertThat(tree.isFrozen()).isFalse();
+        Assertions.assertThat(frozen).isEqualTo(tree);
+        Assertions.assertThat(frozen.frozen()).isSameAs(frozen);
+        Assertions.assertThat(frozen.clone()).isSameAs(frozen);
+
+        Assertions.assertThat(frozen.multiValued()).isSameAs(frozen.multiValued());
+        Assertions.assertThat(frozen.multiValued()).hasSameSizeAs(tree.multiValued());
+        Assertions.assertThat(WebTemplateNode.streamSubtree(frozen, true).map(WebTemplateNode::getAqlPath))
+                .containsExactlyElementsOf(WebTemplateNode.streamSubtree(tree, true)
+                        .map(WebTemplateNode::getAqlPath)
+                        .collect(Collectors.toList()));
+        Assertions.assertThat(frozen.streamMatching(n -> true).map(WebTemplateNode::getAqlPath))
+                .containsExactlyElementsOf(tree.findMatching(n -> true).stream()
+                        .map(WebTemplateNode::getAqlPath)
+                        .collect(Collectors.toList()));
+
+        WebTemplateNode withChoices =
+                frozen.findMatching(n -> !n.getChoicesInChildren().isEmpty()).get(0);
+        Assertions.assertThat(withChoices.getChoicesInChildren()).isSameAs(withChoices.getChoicesInChildren());
+
+        Assertions.assertThatThrownBy(() -> frozen.setName("changed"))
+                .isInstanceOf(UnsupportedOperationException.class);
+        Assertions.assertThatThrownBy(() -> frozen.getChildren().clear())
+                .isInstanceOf(UnsupportedOperationException.class);
+
+        WebTemplateNode thawed = frozen.thawed();
+        Assertions.assertThat(thawed.isFrozen()).isFalse();
+        Assertions.assertThat(thawed.getChildren().get(0).isFrozen()).isFalse();
+        thawed.getChildren().clear();
+        Assertions.assertThat(frozen.getChildren()).isNotEmpty();
+    }
+
     @Test
     public void testFindByAqlPath() throws IOException, XmlException {
         OPERATIONALTEMPLATE template = TemplateDocument.Factory.parse(
@@ -64,6 +191,99 @@ public class WebTemplateTest {
                 .isTrue();
     }
 
+    @Test
+    public void lookupsOfFrozenTreeMatchSearch() throws IOException, XmlException {
+        WebTemplate webTemplate = new OPTParser(
+                        TemplateDocument.Factory.parse(OperationalTemplateTestData.CORONA_ANAMNESE.getStream())
+                                .getTemplate())
+                .parse();
+        WebTemplate frozen = new WebTemplate(webTemplate).freeze();
+        Assertions.assertThat(frozen.getTree().isFrozen()).isTrue();
+
+        List<WebTemplateNode> nodes = webTemplate.getTree().findMatching(n -> true);
+        List<WebTemplateNode> frozenNodes = frozen.getTree().findMatching(n -> true);
+        for (int i = 0; i < nodes.size(); i++) {
+            WebTemplateNode node = nodes.get(i);
+            String aql = node.getAqlPathDto().format(true);
+            for (boolean ignoreName : new boolean[] {true, false}) {
+                Assertions.assertThat(frozen.findAllByAqlPath(aql, ignoreName))
+                        .as(aql)
+                        .contains(frozenNodes.get(i))
+                        .map(WebTemplateNode::getAqlPath)
+                        .containsExactlyElementsOf(webTemplate.findAllByAqlPath(aql, ignoreName).stream()
+                                .map(WebTemplateNode::getAqlPath)
+                                .collect(Collectors.toList()));
+            }
+            if (node.getNodeId() != null) {
+                Assertions.assertThat(frozen.findAllByNodeId(node.getNodeId()))
+                        .as(node.getNodeId())
+                        .contains(frozenNodes.get(i))
+                        .hasSameSizeAs(webTemplate.findAllByNodeId(node.getNodeId()));
+            }
+            for (WebTemplateNode child : node.getChildren()) {
+                Assertions.assertThat(frozenNodes.get(i).findChildById(child.getId()))
+                        .get()
+                        .extracting(WebTemplateNode::getAqlPath)
+                        .isEqualTo(
+                                node.findChildById(child.getId()).orElseThrow().getAqlPath());
+            }
+        }
+        Assertions.assertThat(frozen.findAllByAqlPath("/content[openEHR-EHR-SECTION.unknown.v1]", true))
+                .isEmpty();
+        Assertions.assertThat(frozen.getTree().findChildById("unknown")).isEmpty();
+    }
+
+    @Test
+    public void lookupsReflectModifications() throws IOException, XmlException {
+        WebTemplate webTemplate = new OPTParser(
+                        TemplateDocument.Factory.parse(OperationalTemplateTestData.CORONA_ANAMNESE.getStream())
+                                .getTemplate())
+                .parse();
+        String aql = "/content[openEHR-EHR-SECTION.adhoc.v1]";
+        List<WebTemplateNode> sections = webTemplate.findAllByAqlPath(aql, true);
+        Assertions.assertThat(sections).isNotEmpty();
+        String flatPath = webTemplate.getTree().getId() + "/" + sections.get(0).getId();
+        Assertions.assertThat(webTemplate.findByFlatPath(flatPath)).isPresent();
+        Assertions.assertThat(webTemplate.findAllByNodeId("openEHR-EHR-SECTION.adhoc.v1"))
+                .isNotEmpty();
+
+        webTemplate.getTree().getChildren().removeAll(sections);
+
+        Assertions.assertThat(webTemplate.findAllByAqlPath(aql, true)).isEmpty();
+        Assertions.assertThat(webTemplate.findByAqlPath(aql)).isEmpty();
+        Assertions.assertThat(webTemplate.findByFlatPath(flatPath)).isEmpty();
+        Assertions.assertThat(webTemplate.findAllByNodeId("openEHR-EHR-SECTION.adhoc.v1"))
+                .isEmpty();
+        Assertions.assertThat(
+                        webTemplate.getTree().findChildById(sections.get(0).getId()))
+                .isEmpty();
+    }
+
+    @Test
+    public void findByFlatPathAndNodeId() throws IOException, XmlException {
+        WebTemplate webTemplate = new OPTParser(
+                        TemplateDocument.Factory.parse(OperationalTemplateTestData.CORONA_ANAMNESE.getStream())
+                                .getTemplate())
+                .parse();
+
+        WebTemplateNode symptome = webTemplate
+                .findByAqlPath("/content[openEHR-EHR-SECTION.adhoc.v1 and name/value='Symptome']")
+                .orElseThrow();
+        String flatPath = webTemplate.getTree().getId() + "/" + symptome.getId() + ":0";
+        Assertions.assertThat(webTemplate.findByFlatPath(flatPath)).containsSame(symptome);
+        Assertions.assertThat(webTemplate.findByFlatPath(flatPath + "/unknown")).isEmpty();
+        Assertions.assertThat(webTemplate.findAllByNodeId("openEHR-EHR-SECTION.adhoc.v1"))
+                .contains(symptome)
+                .containsExactlyElementsOf(
+                        webTemplate.getTree().findMatching(n -> "openEHR-EHR-SECTION.adhoc.v1".equals(n.getNodeId())));
+
+        webTemplate.setTree(new WebTemplateNode(webTemplate.getTree()));
+        Assertions.assertThat(webTemplate.findByFlatPath(flatPath))
+                .isPresent()
+                .get()
+                .isNotSameAs(symptome);
+    }
+
     @Test
     public void isRelativePathNameDependent() throws IOException, XmlException {
         OPERATIONALTEMPLATE template = TemplateDocument.Factory.parse(
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.webtemplate.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ForkJoinPool;
+import org.apache.xmlbeans.XmlException;
+import org.ehrbase.openehr.sdk.test_data.operationaltemplate.OperationalTemplateTestData;
+import org.junit.Test;
+import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
+import org.openehr.schemas.v1.TemplateDocument;
+
+/**
+ * Measures {@link OPTParser#parse()} and {@link OPTParser#parse(ForkJoinPool)} for the test data operational templates.
+ * <p>
+ * Not part of the unit test run; start it explicitly, e.g.
+ * <code>mvn test -pl web-template -Dtest=OPTParserBenchmark</code>
+ */
+public class OPTParserBenchmark {
+
+    private static final int WARM_UP = 3;
+    private static final int ITERATIONS = 10;
+
+    @Test
+    public void parseAll() throws Exception {
+        long totalNanos = 0;
+        long totalParallelNanos = 0;
+        for (OperationalTemplateTestData testData : OperationalTemplateTestData.values()) {
+            OPERATIONALTEMPLATE template = read(testData);
+            if (template == null) {
+                continue;
+            }
+
+            for (int i = 0; i < WARM_UP; i++) {
+                new OPTParser(template).parse();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                assertThat(new OPTParser(template).parse().getTree()).isNotNull();
+            }
+            long nanos = System.nanoTime() - start;
+            totalNanos += nanos;
+
+            for (int i = 0; i < WARM_UP; i++) {
+                new OPTParser(template).parse(ForkJoinPool.commonPool());
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                assertThat(new OPTParser(template)
+                                .parse(ForkJoinPool.commonPool())
+                                .getTree())
+                        .isNotNull();
+            }
+            long parallelNanos = System.nanoTime() - start;
+            totalParallelNanos += parallelNanos;
+
+            System.out.printf(
+                    "%s (%d component ontologies): %.2f ms per parse, %.2f ms per parallel parse%n",
+                    testData.name(),
+                    template.sizeOfComponentOntologiesArray(),
+                    nanos / 1_000_000d / ITERATIONS,
+                    parallelNanos / 1_000_000d / ITERATIONS);
+        }
+        System.out.printf(
+                "total: %.2f ms per parse, %.2f ms per parallel parse of all templates%n",
+                totalNanos / 1_000_000d / ITERATIONS, totalParallelNanos / 1_000_000d / ITERATIONS);
+    }
+
+    private static OPERATIONALTEMPLATE read(OperationalTemplateTestData testData) throws IOException {
+        try (InputStream in = testData.getStream()) {
+            return in == null ? null : TemplateDocument.Factory.parse(in).getTemplate();
+        } catch (XmlException e) {
+            // entry without a template file
+            return null;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -33,6 +34,7 @@ import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.xmlbeans.XmlException;
 import org.assertj.core.api.SoftAssertions;
 import org.assertj.core.groups.Tuple;
+import org.ehrbase.openehr.sdk.terminology.TermDefinition;
 import org.ehrbase.openehr.sdk.test_data.operationaltemplate.OperationalTemplateTestData;
 import org.ehrbase.openehr.sdk.test_data.webtemplate.WebTemplateTestData;
 import org.ehrbase.openehr.sdk.webtemplate.filter.Filter;
@@ -72,6 +74,24 @@ public class OPTParserTest {
         });
     }
 
+    @Test
+    public void parseKeepsInputsModifiable() throws IOException, XmlException {
+        OPERATIONALTEMPLATE template = TemplateDocument.Factory.parse(
+                        OperationalTemplateTestData.CORONA_ANAMNESE.getStream())
+                .getTemplate();
+
+        WebTemplate webTemplate = new OPTParser(template).parse();
+
+        assertThat(webTemplate.getTree().isFrozen()).isFalse();
+        for (WebTemplateNode node :
+                webTemplate.getTree().findMatching(n -> !n.getInputs().isEmpty())) {
+            assertThat(node.getInputs()).isSameAs(node.getInputs());
+            for (WebTemplateInput input : node.getInputs()) {
+                input.setDefaultValue("changed");
+            }
+        }
+    }
+
     @Test
     public void parseAQLExample() throws IOException, XmlException {
         OPERATIONALTEMPLATE template = TemplateDocument.Factory.parse(
@@ -779,4 +799,62 @@ public class OPTParserTest {
         assertThat(annotation.getOther()).isNotNull();
         assertThat(annotation.getOther().size()).isEqualTo(3);
     }
+
+    @Test
+    public void buildOntologyIndex() throws IOException, XmlException {
+        OPERATIONALTEMPLATE template = TemplateDocument.Factory.parse(
+                        OperationalTemplateTestData.LANGUAGE_TEST.getStream())
+                .getTemplate();
+
+        Map<String, Map<String, Map<String, TermDefinition>>> index = OPTParser.buildOntologyIndex(template);
+
+        Map<String, Map<String, TermDefinition>> terms = index.get("openEHR-EHR-OBSERVATION.blood_pressure.v2");
+        assertThat(terms).isNotNull();
+        assertThat(terms.get("at0004").get("en").getValue()).isEqualTo("Systolic");
+        assertThatThrownBy(() -> terms.put("at9999", Map.of())).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void parseParallel() throws IOException, XmlException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (OperationalTemplateTestData testData : List.of(
+                    OperationalTemplateTestData.CORONA_ANAMNESE,
+                    OperationalTemplateTestData.ALL_TYPES,
+                    OperationalTemplateTestData.MULTI_OCCURRENCE,
+                    OperationalTemplateTestData.ALT_EVENTS,
+                    OperationalTemplateTestData.MINIMAL_ACTION_2,
+                    OperationalTemplateTestData.IPS,
+                    OperationalTemplateTestData.INITIAL_ASSESSMENT)) {
+                OPERATIONALTEMPLATE template =
+                        TemplateDocument.Factory.parse(testData.getStream()).getTemplate();
+
+                WebTemplate sequential = new OPTParser(template).parse();
+                WebTemplate parallel = new OPTParser(template).parse(pool);
+
+                assertThat(objectMapper.writeValueAsString(parallel))
+                        .as(testData.name())
+                        .isEqualTo(objectMapper.writeValueAsString(sequential));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void parseParallelUnsupportedDataTypes() throws IOException, XmlException {
+        OPERATIONALTEMPLATE template = TemplateDocument.Factory.parse(getClass()
+                        .getResourceAsStream(
+                                "/" + OPERATIONALTEMPLATE_PATH_SEGMENT + "/unsupported_data_type_dv_scale.opt"))
+                .getTemplate();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertThatThrownBy(() -> new OPTParser(template).parse(pool))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("The supplied template is not supported: Unsupported type DV_SCALE.");
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.webtemplate.parser.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ServiceLoader;
+import java.util.stream.Collectors;
+import org.ehrbase.openehr.sdk.util.reflection.ReflectionHelper;
+import org.junit.Test;
+
+public class RmIntrospectConfigTest {
+
+    /**
+     * The service index in META-INF/services must list every implementation, otherwise it is not used.
+     */
+    @Test
+    public void serviceIndexComplete() {
+        assertThat(ServiceLoader.load(RmIntrospectConfig.class).stream()
+                        .map(p -> p.type().getName())
+                        .collect(Collectors.toList()))
+                .containsExactlyInAnyOrderElementsOf(ReflectionHelper.scanImplementations(RmIntrospectConfig.class));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.webtemplate.path.flat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class FlatPathIndexTest {
+
+    private static final List<String> PATHS = List.of(
+            "vitals/vitals:0/body_temperature:0/any_event:0/temperature|magnitude",
+            "vitals/vitals:0/body_temperature:0/any_event:0/temperature|unit",
+            "vitals/vitals:0/body_temperature:0/any_event:1/temperature|magnitude",
+            "vitals/vitals:0/body_temperature:1/any_event/temperature|magnitude",
+            "vitals/vitals:0/body_temperature:3/_link:1|type",
+            "vitals/vitals/haemoglobin_a1c/_link:1|type",
+            "vitals/context/start_time",
+            "vitals/composer|name");
+
+    private static Map<FlatPathDto, String> values() {
+        Map<FlatPathDto, String> values = new LinkedHashMap<>();
+        PATHS.forEach(p -> values.put(new FlatPathDto(p), p));
+        return values;
+    }
+
+    @Test
+    public void subIndexMatchesStartsWith() {
+        Map<FlatPathDto, String> values = values();
+        FlatPathIndex<String> cut = FlatPathIndex.of(values);
+
+        for (String prefix : List.of(
+                "vitals",
+                "vitals/vitals",
+                "vitals/vitals:0/body_temperature",
+                "vitals/vitals:0/body_temperature:0",
+                "vitals/vitals:0/body_temperature:1/any_event:0",
+                "vitals/vitals:0/body_temperature:0/any_event:0/temperature|unit",
+                "vitals/vitals/haemoglobin_a1c/_link",
+                "vitals/composer",
+                "vitals/unknown")) {
+            assertThat(cut.subIndex(prefix))
+                    .as(prefix)
+                    .containsExactlyInAnyOrderEntriesOf(values.entrySet().stream()
+                            .filter(e -> e.getKey().startsWith(prefix))
+                            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+        }
+    }
+
+    @Test
+    public void nestedSubIndex() {
+        FlatPathIndex<String> cut = FlatPathIndex.of(values()).subIndex("vitals/vitals:0/body_temperature:0");
+
+        assertThat(cut).hasSize(3);
+        assertThat(cut.subIndex("vitals/vitals/body_temperature/any_event:1")).hasSize(1);
+        assertThat(cut.subIndex("vitals/vitals/body_temperature:1")).isEmpty();
+        assertThat(cut.subIndex("vitals/context")).isEmpty();
+        assertThat(cut.subIndex("vitals")).hasSize(3);
+
+        FlatPathDto key = new FlatPathDto("vitals/vitals:0/body_temperature:0/any_event:0/temperature|unit");
+        assertThat(cut.get(key)).isEqualTo(key.format());
+        assertThat(cut.containsKey(new FlatPathDto("vitals/context/start_time")))
+                .isFalse();
+    }
+
+    @Test
+    public void nextCount() {
+        FlatPathIndex<String> cut = FlatPathIndex.of(values());
+
+        assertThat(cut.nextCount(new FlatPathDto("vitals/vitals"), "body_temperature"))
+                .isEqualTo(4);
+        assertThat(cut.nextCount(new FlatPathDto("vitals/vitals:0/body_temperature:0"), "any_event"))
+                .isEqualTo(2);
+        assertThat(cut.nextCount(new FlatPathDto("vitals/vitals"), "unknown")).isZero();
+        assertThat(cut.subIndex("vitals/vitals:0/body_temperature:1")
+                        .nextCount(new FlatPathDto("vitals/vitals"), "body_temperature"))
+                .isEqualTo(2);
+    }
+}
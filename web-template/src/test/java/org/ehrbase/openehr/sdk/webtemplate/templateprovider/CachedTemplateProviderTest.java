@@ -17,13 +17,25 @@
  */
 package org.ehrbase.openehr.sdk.webtemplate.templateprovider;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.cache.Cache;
 import javax.cache.CacheManager;
 import javax.cache.Caching;
 import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.Duration;
 import javax.cache.spi.CachingProvider;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
 import org.junit.Test;
 import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
 
@@ -45,4 +57,184 @@ public class CachedTemplateProviderTest {
         // read from Cache
         assertTrue(cut.find("ehrbase_blood_pressure_simple.de.v0").isPresent());
     }
+
+    @Test
+    public void buildIntrospect() throws Exception {
+        CountingTemplateProvider root = new CountingTemplateProvider();
+        CachedTemplateProvider cut = new CachedTemplateProvider(
+                root, createCache("template", OPERATIONALTEMPLATE.class), createCache("introspect", WebTemplate.class));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Optional<WebTemplate>>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> cut.buildIntrospect("ehrbase_blood_pressure_simple.de.v0")));
+            }
+            WebTemplate first = futures.get(0).get().orElseThrow();
+            assertThat(first.getTree().isFrozen()).isTrue();
+            for (Future<Optional<WebTemplate>> future : futures) {
+                assertThat(future.get()).containsSame(first);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(root.counter.get()).isEqualTo(1);
+        assertThat(cut.getIntrospectStatistics().getMisses()).isEqualTo(1);
+        assertThat(cut.getIntrospectStatistics().getHits()).isEqualTo(15);
+        assertThat(cut.getIntrospectStatistics().getTotalLoadTimeNanos()).isPositive();
+
+        cut.invalidate("ehrbase_blood_pressure_simple.de.v0");
+        assertThat(cut.buildIntrospect("ehrbase_blood_pressure_simple.de.v0")).isPresent();
+        assertThat(root.counter.get()).isEqualTo(2);
+
+        assertThat(cut.buildIntrospect("unknown")).isEmpty();
+    }
+
+    @Test
+    public void invalidateOnlyAffectsTemplate() throws Exception {
+        BlockingTemplateProvider root = new BlockingTemplateProvider();
+        CachedTemplateProvider cut =
+                new CachedTemplateProvider(root, createCache("invalidateOther", OPERATIONALTEMPLATE.class));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<OPERATIONALTEMPLATE>> loading =
+                    executor.submit(() -> cut.find("ehrbase_blood_pressure_simple.de.v0"));
+            root.started.await();
+            cut.invalidate("test_all_types.en.v1");
+            root.release.countDown();
+
+            OPERATIONALTEMPLATE loaded = loading.get().orElseThrow();
+            assertThat(cut.find("ehrbase_blood_pressure_simple.de.v0")).containsSame(loaded);
+            assertThat(root.loaded).containsExactly(loaded);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void invalidateDuringLoad() throws Exception {
+        BlockingTemplateProvider root = new BlockingTemplateProvider();
+        CachedTemplateProvider cut =
+                new CachedTemplateProvider(root, createCache("invalidateDuringLoad", OPERATIONALTEMPLATE.class));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Optional<OPERATIONALTEMPLATE>> loading =
+                    executor.submit(() -> cut.find("ehrbase_blood_pressure_simple.de.v0"));
+            root.started.await();
+            Thread[] waiter = new Thread[1];
+            Future<Optional<OPERATIONALTEMPLATE>> waiting = executor.submit(() -> {
+                waiter[0] = Thread.currentThread();
+                return cut.find("ehrbase_blood_pressure_simple.de.v0");
+            });
+            while (waiter[0] == null || waiter[0].getState() != Thread.State.WAITING) {
+                Thread.sleep(10);
+            }
+            cut.invalidate("ehrbase_blood_pressure_simple.de.v0");
+            root.release.countDown();
+
+            OPERATIONALTEMPLATE reloaded = loading.get().orElseThrow();
+            assertThat(waiting.get()).containsSame(reloaded);
+            assertThat(cut.find("ehrbase_blood_pressure_simple.de.v0")).containsSame(reloaded);
+            // the value loaded before the invalidation is neither returned nor cached
+            assertThat(root.loaded).hasSize(2).last().isSameAs(reloaded);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void buildIntrospectWithoutIntrospectCache() {
+        CachedTemplateProvider cut = new CachedTemplateProvider(
+                new TestDataTemplateProvider(), createCache("templateOnly", OPERATIONALTEMPLATE.class));
+
+        assertThat(cut.buildIntrospect("ehrbase_blood_pressure_simple.de.v0")).isPresent();
+    }
+
+    @Test
+    public void preload() {
+        CountingTemplateProvider root = new CountingTemplateProvider();
+        CachedTemplateProvider cut = new CachedTemplateProvider(
+                root,
+                createCache("preloadTemplate", OPERATIONALTEMPLATE.class),
+                createCache("preloadIntrospect", WebTemplate.class));
+
+        List<Integer> progress = new CopyOnWriteArrayList<>();
+        TemplatePreloader.Report report = new TemplatePreloader(cut::buildIntrospect)
+                .withParallelism(2)
+                .withListener((result, completed, total) -> progress.add(completed))
+                .preload(List.of(
+                        "ehrbase_blood_pressure_simple.de.v0",
+                        "test_all_types.en.v1",
+                        "unknown",
+                        "test_all_types.en.v1"));
+
+        assertThat(report.getResults())
+                .extracting(TemplatePreloader.Result::getTemplateId)
+                .containsExactly("ehrbase_blood_pressure_simple.de.v0", "test_all_types.en.v1", "unknown");
+        assertThat(report.getTemplateIds(TemplatePreloader.Status.LOADED))
+                .containsExactly("ehrbase_blood_pressure_simple.de.v0", "test_all_types.en.v1");
+        assertThat(report.getTemplateIds(TemplatePreloader.Status.NOT_FOUND)).containsExactly("unknown");
+        assertThat(report.isComplete()).isFalse();
+        assertThat(progress).containsExactlyInAnyOrder(1, 2, 3);
+
+        assertThat(cut.buildIntrospect("test_all_types.en.v1")).isPresent();
+        assertThat(cut.preload(List.of("test_all_types.en.v1")).isComplete()).isTrue();
+        assertThat(root.counter.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void preloadAllWithoutListing() {
+        CachedTemplateProvider cut = new CachedTemplateProvider(
+                new TestDataTemplateProvider(), createCache("preloadAllTemplate", OPERATIONALTEMPLATE.class));
+
+        assertThat(cut.findAllTemplateIds()).isEmpty();
+        assertThat(cut.preloadAll().getResults()).isEmpty();
+    }
+
+    private static <V> Cache<String, V> createCache(String name, Class<V> type) {
+        return Caching.getCachingProvider()
+                .getCacheManager()
+                .createCache(
+                        CachedTemplateProviderTest.class.getSimpleName() + name,
+                        CachedTemplateProvider.cacheConfiguration(type, Duration.ETERNAL));
+    }
+
+    private static class CountingTemplateProvider extends TestDataTemplateProvider {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Optional<OPERATIONALTEMPLATE> find(String templateId) {
+            counter.incrementAndGet();
+            return super.find(templateId);
+        }
+    }
+
+    /**
+     * Blocks the first load until released
+     */
+    private static class BlockingTemplateProvider extends TestDataTemplateProvider {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final List<OPERATIONALTEMPLATE> loaded = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Optional<OPERATIONALTEMPLATE> find(String templateId) {
+            if (started.getCount() > 0) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            Optional<OPERATIONALTEMPLATE> template = super.find(templateId);
+            template.ifPresent(loaded::add);
+            return template;
+        }
+    }
 }
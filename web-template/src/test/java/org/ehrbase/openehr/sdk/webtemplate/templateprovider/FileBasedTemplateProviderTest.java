@@ -17,7 +17,9 @@
  */
 package org.ehrbase.openehr.sdk.webtemplate.templateprovider;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -40,14 +42,17 @@ public class FileBasedTemplateProviderTest {
     public TemporaryFolder folder = new TemporaryFolder();
 
     public static void writeTemplateFile(File templateFolder, String templateId) throws IOException {
+        writeTemplateFile(templateFolder, templateId, templateId + ".opt");
+    }
+
+    private static void writeTemplateFile(File templateFolder, String templateId, String fileName) throws IOException {
         TestDataTemplateProvider testDataTemplateProvider = new TestDataTemplateProvider();
         OPERATIONALTEMPLATE operationaltemplate =
                 testDataTemplateProvider.find(templateId).get();
         XmlOptions opts = new XmlOptions();
         opts.setSaveSyntheticDocumentElement(new QName("http://schemas.openehr.org/v1", "template"));
 
-        Path path = Paths.get(
-                templateFolder.getPath(), operationaltemplate.getTemplateId().getValue() + ".opt");
+        Path path = Paths.get(templateFolder.getPath(), fileName);
         Files.write(path, Collections.singletonList(operationaltemplate.xmlText(opts)), StandardCharsets.UTF_8);
     }
 
@@ -58,13 +63,93 @@ public class FileBasedTemplateProviderTest {
 
         writeTemplateFile(templateFolder, "ehrbase_blood_pressure_simple.de.v0");
 
-        FileBasedTemplateProvider cut = new FileBasedTemplateProvider(templateFolder.toPath());
+        try (FileBasedTemplateProvider cut = new FileBasedTemplateProvider(templateFolder.toPath())) {
+
+            assertTrue(cut.find("ehrbase_blood_pressure_simple.de.v0").isPresent());
+
+            assertFalse(cut.find("test_all_types.en.v1").isPresent());
+
+            writeTemplateFile(templateFolder, "test_all_types.en.v1");
+            assertTrue(cut.find("test_all_types.en.v1").isPresent());
+        }
+    }
+
+    @Test
+    public void findCachesTemplate() throws IOException {
+
+        File templateFolder = folder.newFolder("template");
+        writeTemplateFile(templateFolder, "ehrbase_blood_pressure_simple.de.v0");
+
+        try (FileBasedTemplateProvider cut = new FileBasedTemplateProvider(templateFolder.toPath())) {
+            OPERATIONALTEMPLATE template =
+                    cut.find("ehrbase_blood_pressure_simple.de.v0").get();
+            assertSame(template, cut.find("ehrbase_blood_pressure_simple.de.v0").get());
+        }
+    }
+
+    @Test
+    public void findReplacedAndDeleted() throws IOException {
+
+        File templateFolder = folder.newFolder("template");
+        writeTemplateFile(templateFolder, "ehrbase_blood_pressure_simple.de.v0", "template.opt");
+
+        try (FileBasedTemplateProvider cut = new FileBasedTemplateProvider(templateFolder.toPath())) {
+            assertTrue(cut.find("ehrbase_blood_pressure_simple.de.v0").isPresent());
+
+            writeTemplateFile(templateFolder, "test_all_types.en.v1", "template.opt");
+            assertTrue(cut.find("test_all_types.en.v1").isPresent());
+            assertFalse(cut.find("ehrbase_blood_pressure_simple.de.v0").isPresent());
+
+            Files.delete(templateFolder.toPath().resolve("template.opt"));
+            assertFalse(cut.find("test_all_types.en.v1").isPresent());
+        }
+    }
 
+    @Test
+    public void findReplacedWithoutWatchService() throws IOException {
+
+        File templateFolder = folder.newFolder("template");
+        writeTemplateFile(templateFolder, "ehrbase_blood_pressure_simple.de.v0", "template.opt");
+
+        FileBasedTemplateProvider cut = new FileBasedTemplateProvider(templateFolder.toPath());
         assertTrue(cut.find("ehrbase_blood_pressure_simple.de.v0").isPresent());
+        // without watch service a cached template is checked against its file
+        cut.close();
 
-        assertFalse(cut.find("test_all_types.en.v1").isPresent());
+        writeTemplateFile(templateFolder, "test_all_types.en.v1", "template.opt");
+        assertFalse(cut.find("ehrbase_blood_pressure_simple.de.v0").isPresent());
+        assertTrue(cut.find("test_all_types.en.v1").isPresent());
+    }
+
+    @Test
+    public void findInSubfolder() throws IOException {
+
+        File templateFolder = folder.newFolder("template");
 
+        try (FileBasedTemplateProvider cut = new FileBasedTemplateProvider(templateFolder.toPath())) {
+            assertFalse(cut.find("test_all_types.en.v1").isPresent());
+
+            File subFolder = new File(templateFolder, "sub");
+            assertTrue(subFolder.mkdir());
+            writeTemplateFile(subFolder, "test_all_types.en.v1");
+            assertTrue(cut.find("test_all_types.en.v1").isPresent());
+        }
+    }
+
+    @Test
+    public void preloadAll() throws IOException {
+
+        File templateFolder = folder.newFolder("template");
+        writeTemplateFile(templateFolder, "ehrbase_blood_pressure_simple.de.v0");
         writeTemplateFile(templateFolder, "test_all_types.en.v1");
-        assertTrue(cut.find("test_all_types.en.v1").isPresent());
+
+        try (FileBasedTemplateProvider cut = new FileBasedTemplateProvider(templateFolder.toPath())) {
+            assertThat(cut.findAllTemplateIds().orElseThrow())
+                    .containsExactlyInAnyOrder("ehrbase_blood_pressure_simple.de.v0", "test_all_types.en.v1");
+
+            TemplatePreloader.Report report = cut.preloadAll();
+            assertTrue(report.isComplete());
+            assertThat(report.getResults()).hasSize(2);
+        }
     }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2023 vitasystems GmbH and Hannover Medical School.
+ *
+ * This file is part of project openEHR_SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.sdk.webtemplate.templateprovider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
+
+public class SnapshotTemplateProviderTest {
+
+    private static final String TEMPLATE_ID = "ehrbase_blood_pressure_simple.de.v0";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void buildIntrospect() throws Exception {
+        CountingTemplateProvider root = new CountingTemplateProvider();
+        Path directory = folder.getRoot().toPath().resolve("snapshots");
+
+        SnapshotTemplateProvider cut = new SnapshotTemplateProvider(root, directory);
+        WebTemplate expected = cut.buildIntrospect(TEMPLATE_ID).orElseThrow();
+        assertThat(expected.getTree().isFrozen()).isTrue();
+        assertThat(root.counter.get()).isEqualTo(1);
+        assertThat(cut.snapshotPath(TEMPLATE_ID)).exists();
+
+        // e.g. after a restart
+        SnapshotTemplateProvider restarted = new SnapshotTemplateProvider(root, directory);
+        assertThat(restarted.buildIntrospect(TEMPLATE_ID))
+                .contains(expected)
+                .get()
+                .satisfies(w -> assertThat(w.getTree().isFrozen()).isTrue());
+        assertThat(root.counter.get()).isEqualTo(1);
+
+        restarted.invalidate(TEMPLATE_ID);
+        assertThat(cut.snapshotPath(TEMPLATE_ID)).doesNotExist();
+        assertThat(restarted.buildIntrospect(TEMPLATE_ID)).contains(expected);
+        assertThat(root.counter.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void replaceCorruptSnapshot() throws Exception {
+        CountingTemplateProvider root = new CountingTemplateProvider();
+        SnapshotTemplateProvider cut =
+                new SnapshotTemplateProvider(root, folder.getRoot().toPath());
+
+        Files.write(cut.snapshotPath(TEMPLATE_ID), new byte[] {1, 2, 3});
+
+        WebTemplate expected = cut.buildIntrospect(TEMPLATE_ID).orElseThrow();
+        assertThat(root.counter.get()).isEqualTo(1);
+        assertThat(cut.buildIntrospect(TEMPLATE_ID)).contains(expected);
+        assertThat(root.counter.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void unknownTemplate() {
+        SnapshotTemplateProvider cut = new SnapshotTemplateProvider(
+                new TestDataTemplateProvider(), folder.getRoot().toPath());
+
+        assertThat(cut.buildIntrospect("unknown")).isEmpty();
+        assertThat(cut.snapshotPath("unknown")).doesNotExist();
+    }
+
+    private static class CountingTemplateProvider extends TestDataTemplateProvider {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Optional<OPERATIONALTEMPLATE> find(String templateId) {
+            counter.incrementAndGet();
+            return super.find(templateId);
+        }
+    }
+}
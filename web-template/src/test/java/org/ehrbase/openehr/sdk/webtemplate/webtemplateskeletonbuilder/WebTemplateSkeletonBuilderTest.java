@@ -59,4 +59,29 @@ public class WebTemplateSkeletonBuilderTest {
                                 "/content[openEHR-EHR-OBSERVATION.sample_blood_pressure.v1]/data[at0001]/events[at0002]/state[at0007]/items[at1005]/value"))
                 .isNotNull();
     }
+
+    @Test
+    public void buildCopiesPrototype() throws XmlException, IOException {
+        WebTemplate webTemplate = new OPTParser(org.openehr.schemas.v1.TemplateDocument.Factory.parse(
+                                OperationalTemplateTestData.CORONA_ANAMNESE.getStream())
+                        .getTemplate())
+                .parse();
+
+        for (boolean withChildren : new boolean[] {false, true}) {
+            Composition first = WebTemplateSkeletonBuilder.build(webTemplate, withChildren);
+            Composition second = WebTemplateSkeletonBuilder.build(webTemplate, withChildren);
+
+            assertThat(second).isNotSameAs(first).isEqualTo(first);
+            assertThat(second).isEqualTo(WebTemplateSkeletonBuilder.build(new WebTemplate(webTemplate), withChildren));
+            assertThat(second.getCategory()).isNotSameAs(first.getCategory());
+
+            first.getName().setValue("changed");
+            first.getContent().clear();
+            assertThat(second.getName().getValue()).isNotEqualTo("changed");
+            if (withChildren) {
+                assertThat(second.getContent()).isNotEmpty().allSatisfy(c -> assertThat(c.getParent())
+                        .isSameAs(second));
+            }
+        }
+    }
 }